@@ -0,0 +1,63 @@
+/* 
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80;
+
+import com.igormaznitsa.j2z80.ids.ClassMethodInfo;
+
+/**
+ * The interface describes a listener to get metrics of translation phases and translated methods.
+ * Methods can be called from several threads at once.
+ *
+ * @author Igor Maznitsa (igor.maznitsa@igormaznitsa.com)
+ */
+public interface TranslationMetricsListener {
+
+  /**
+   * Listener which ignores all metrics.
+   */
+  TranslationMetricsListener NULL = new TranslationMetricsListener() {
+    @Override
+    public void onPhase(final String phase, final long wallTimeNanos, final long allocatedBytes,
+                        final int lines, final int bytes) {
+    }
+
+    @Override
+    public void onMethod(final ClassMethodInfo method, final long wallTimeNanos,
+                         final long allocatedBytes, final int lines) {
+    }
+  };
+
+  /**
+   * Notification about completed phase.
+   *
+   * @param phase          the phase name, must not be null
+   * @param wallTimeNanos  wall time spent by the phase in nanoseconds
+   * @param allocatedBytes bytes allocated by the thread executed the phase, -1 if unknown
+   * @param lines          number of assembler lines made or processed by the phase
+   * @param bytes          number of emitted machine code bytes, -1 if the phase doesn't emit code
+   */
+  void onPhase(String phase, long wallTimeNanos, long allocatedBytes, int lines, int bytes);
+
+  /**
+   * Notification about translated method.
+   *
+   * @param method         the translated method, must not be null
+   * @param wallTimeNanos  wall time spent to translate the method in nanoseconds
+   * @param allocatedBytes bytes allocated during translation of the method, -1 if unknown
+   * @param lines          number of assembler lines made for the method
+   */
+  void onMethod(ClassMethodInfo method, long wallTimeNanos, long allocatedBytes, int lines);
+}
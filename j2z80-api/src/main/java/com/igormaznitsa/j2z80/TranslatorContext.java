@@ -75,6 +75,15 @@ public interface TranslatorContext {
    */
   TranslatorLogger getLogger();
 
+  /**
+   * Get the listener of translation metrics
+   *
+   * @return the listener, must not be null
+   */
+  default TranslationMetricsListener getMetricsListener() {
+    return TranslationMetricsListener.NULL;
+  }
+
   /**
    * Register additions needed by a class
    *
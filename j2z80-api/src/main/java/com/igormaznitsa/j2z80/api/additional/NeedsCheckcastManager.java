@@ -27,4 +27,8 @@ public interface NeedsCheckcastManager extends J2ZAdditionalBlock {
    * The label of the subroutine processing checkcast commands
    */
   String SUB_CHECKCAST = "___CHECKCAST";
+  /**
+   * The label of the subroutine processing the checkcast logic for interfaces
+   */
+  String SUB_CHECKCAST_INTERFACE = "___CHECKCAST_INTERFACE";
 }
@@ -35,4 +35,8 @@ public interface NeedsINTArithmeticManager extends J2ZAdditionalBlock {
    * The label of the REM emulating subroutine
    */
   String SUB_INT_REM = "___INT_MATH_REM";
+  /**
+   * The label of the subroutine calculating both quotient and remainder for non-zero divisor
+   */
+  String SUB_INT_DIVREM = "___INT_MATH_DIVREM";
 }
@@ -34,4 +34,8 @@ public interface NeedsInstanceofManager extends J2ZAdditionalBlock {
    * The label of the subroutine processing the instanceof logic
    */
   String SUB_INSTANCEOF = "___INSTANCE_OF";
+  /**
+   * The label of the subroutine processing the instanceof logic for interfaces
+   */
+  String SUB_INSTANCEOF_INTERFACE = "___INSTANCE_OF_INTERFACE";
 }
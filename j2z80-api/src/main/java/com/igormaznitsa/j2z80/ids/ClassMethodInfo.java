@@ -31,6 +31,25 @@ public class ClassMethodInfo {
   private final Method methodInfo;
   private final int id;
   private MethodGen lazyMethodGen;
+  private CallingConvention callingConvention = CallingConvention.FRAME;
+
+  /**
+   * Calling conventions of methods, both callers and the method must use the same one.
+   */
+  public enum CallingConvention {
+    /**
+     * Arguments are passed through the stack and the method works in a stack frame addressed by IX.
+     */
+    FRAME,
+    /**
+     * The first argument is passed in BC and the second one in DE, the method doesn't make stack frame and keeps its local variables in static memory cells.
+     */
+    REGISTERS,
+    /**
+     * Arguments are stored into static memory cells of the method by the caller, the method doesn't make stack frame and keeps its local variables in the cells. It is allowed only for methods which are never re-entered.
+     */
+    STATIC_FRAME
+  }
 
   /**
    * A Constructor
@@ -76,6 +95,24 @@ public class ClassMethodInfo {
     return id;
   }
 
+  /**
+   * Get the calling convention of the method.
+   *
+   * @return the calling convention, FRAME by default
+   */
+  public CallingConvention getCallingConvention() {
+    return this.callingConvention;
+  }
+
+  /**
+   * Set the calling convention of the method, it must be set before translation of any method.
+   *
+   * @param callingConvention the calling convention, must not be null
+   */
+  public void setCallingConvention(final CallingConvention callingConvention) {
+    this.callingConvention = callingConvention;
+  }
+
   /**
    * Get the ClassGen object saved by the info
    *
@@ -156,7 +193,7 @@ public class ClassMethodInfo {
    *
    * @return null if saved method info is null, a MethodGen object if there is MethodGen linked to the info object
    */
-  public MethodGen getMethodGen() {
+  public synchronized MethodGen getMethodGen() {
     if (methodInfo == null) {
       return null;
     }
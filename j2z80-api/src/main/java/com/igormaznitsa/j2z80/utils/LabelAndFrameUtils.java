@@ -268,6 +268,36 @@ public final class LabelAndFrameUtils {
     return classID.makeClassLabel() + "_CLASS_ID";
   }
 
+  /**
+   * Generate a label for the number of all successors of a class, successors have class ids directly after the class id
+   *
+   * @param classID the class id object, must not be null
+   * @return the generated string is the label for the number of class successors
+   */
+  public static String makeLabelForClassSuccessorsNumber(final ClassID classID) {
+    return classID.makeClassLabel() + "_SUCCESSORS";
+  }
+
+  /**
+   * Generate a label for the offset of the interface bit in rows of the interface bitmap table
+   *
+   * @param interfaceID the interface class id object, must not be null
+   * @return the generated string is the label for the byte offset of the interface bit
+   */
+  public static String makeLabelForInterfaceBitmapOffset(final ClassID interfaceID) {
+    return interfaceID.makeClassLabel() + "_IBM_OFFSET";
+  }
+
+  /**
+   * Generate a label for the mask of the interface bit in rows of the interface bitmap table
+   *
+   * @param interfaceID the interface class id object, must not be null
+   * @return the generated string is the label for the mask of the interface bit
+   */
+  public static String makeLabelForInterfaceBitmapMask(final ClassID interfaceID) {
+    return interfaceID.makeClassLabel() + "_IBM_MASK";
+  }
+
   /**
    * Generate a method id label
    *
@@ -279,7 +309,7 @@ public final class LabelAndFrameUtils {
   }
 
   /**
-   * Generate a label for a virtual method table record
+   * Generate a label for a virtual method table record, the label contains offset of the method slot in virtual tables of the class and its successors
    *
    * @param className  the class name, must not be null
    * @param methodName the method name, must ot be null
@@ -291,6 +321,47 @@ public final class LabelAndFrameUtils {
     return makeLabelNameForMethod(className, methodName, returnType, argType) + "_VT_REC";
   }
 
+  /**
+   * Generate a label for the virtual method table of a class
+   *
+   * @param className the class name, must not be null
+   * @return the generated string is the label for the virtual method table of the class
+   */
+  public static String makeLabelForVirtualTable(final String className) {
+    return makeLabelNameForClass(className) + "_VTABLE";
+  }
+
+  /**
+   * Generate a label for the selector of an interface method, the label contains offset of the method record in interface tables of all implementing classes
+   *
+   * @param methodID the interface method id object, must not be null
+   * @return the generated string is the label for the interface method selector
+   */
+  public static String makeLabelForInterfaceMethodSelector(final MethodID methodID) {
+    return methodID.getMethodLabel() + "_SELECTOR";
+  }
+
+  /**
+   * Generate a label for the interface method table of a class
+   *
+   * @param className the class name, must not be null
+   * @return the generated string is the label for the interface method table of the class
+   */
+  public static String makeLabelForInterfaceTable(final String className) {
+    return makeLabelNameForClass(className) + "_ITABLE";
+  }
+
+  /**
+   * Generate a label for the static memory cell keeping a local variable of a method which doesn't use stack frame
+   *
+   * @param methodInfo the method info object, must not be null
+   * @param index      the local variable index
+   * @return the generated string is the label for the local variable cell
+   */
+  public static String makeLabelForLocalVariableCell(final ClassMethodInfo methodInfo, final int index) {
+    return makeLabelNameForMethod(methodInfo) + "_LOCAL" + index;
+  }
+
   /**
    * Calculate the stack frame size for a method
    *
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80.benchmarks;
+
+import com.igormaznitsa.z80asm.Z80Asm;
+import com.igormaznitsa.z80asm.asmcommands.AbstractAsmCommand;
+import com.igormaznitsa.z80asm.asmcommands.ParsedAsmLine;
+import com.igormaznitsa.z80asm.expression.LightExpression;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Evaluation of assembler expressions with labels, numbers and the program counter.
+ *
+ * @author Igor Maznitsa (igor.maznitsa@igormaznitsa.com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LightExpressionBenchmark {
+
+  private static final int BLOCKS = 1000;
+
+  @Param({"10000"})
+  public int expressions;
+
+  private Z80Asm context;
+  private AbstractAsmCommand command;
+  private ParsedAsmLine line;
+  private String[] sources;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    // labels are collected by assembling of the synthetic source
+    this.context = new Z80Asm(SyntheticCorpus.makeAsmSource(BLOCKS));
+    this.context.process();
+    this.context.setPC(0x8000);
+
+    this.command = AbstractAsmCommand.findCommandForName("DEFW");
+    this.line = new ParsedAsmLine(" DEFW 0");
+    final List<String> list = SyntheticCorpus.makeExpressions(this.expressions, BLOCKS);
+    this.sources = list.toArray(new String[0]);
+  }
+
+  @Benchmark
+  public int calculate() {
+    int result = 0;
+    for (final String expression : this.sources) {
+      result += new LightExpression(this.context, this.command, this.line, expression).calculate();
+    }
+    return result;
+  }
+}
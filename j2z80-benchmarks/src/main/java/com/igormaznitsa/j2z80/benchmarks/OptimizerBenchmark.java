@@ -0,0 +1,75 @@
+/*
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80.benchmarks;
+
+import static com.igormaznitsa.j2z80.translator.optimizator.OptimizationChainFactory.getOptimizators;
+
+import com.igormaznitsa.j2z80.translator.optimizator.AsmOptimizerChain;
+import com.igormaznitsa.j2z80.translator.optimizator.OptimizationLevel;
+import com.igormaznitsa.z80asm.asmcommands.ParsedAsmLine;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Optimization of translated synthetic program at the BASIC level (pattern replacement).
+ *
+ * @author Igor Maznitsa (igor.maznitsa@igormaznitsa.com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OptimizerBenchmark {
+
+  @Param({"10", "50"})
+  public int classes;
+
+  @Param({"20"})
+  public int methods;
+
+  private List<ParsedAsmLine> lines;
+  private AsmOptimizerChain optimizer;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    this.lines = SyntheticCorpus.makeTranslatedSource(this.classes, this.methods).stream()
+        .map(ParsedAsmLine::new)
+        .filter(x -> !x.isEmpty())
+        .collect(Collectors.toList());
+    this.optimizer = getOptimizators(null, OptimizationLevel.BASIC);
+  }
+
+  @Benchmark
+  public List<ParsedAsmLine> optimize() {
+    return this.optimizer.processSources(this.lines);
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80.benchmarks;
+
+import com.igormaznitsa.j2z80.TranslatorLogger;
+
+/**
+ * Translator logger which ignores all messages to keep benchmark output clean.
+ *
+ * @author Igor Maznitsa (igor.maznitsa@igormaznitsa.com)
+ */
+final class SilentTranslatorLogger implements TranslatorLogger {
+
+  static final SilentTranslatorLogger INSTANCE = new SilentTranslatorLogger();
+
+  private SilentTranslatorLogger() {
+  }
+
+  @Override
+  public void logInfo(final String s) {
+  }
+
+  @Override
+  public void logWarning(final String s) {
+  }
+
+  @Override
+  public void logDebug(final String s) {
+  }
+
+  @Override
+  public void logError(final String s) {
+  }
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80.benchmarks;
+
+import static com.igormaznitsa.j2z80.TranslatorContext.Z80_MAIN_METHOD_NAME;
+
+import com.igormaznitsa.j2z80.translator.TranslatorImpl;
+import com.igormaznitsa.j2z80.translator.optimizator.OptimizationLevel;
+import com.igormaznitsa.j2z80.translator.utils.JarClassLoaderFactory;
+import com.igormaznitsa.j2z80.utils.Utils;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import org.apache.bcel.Const;
+import org.apache.bcel.generic.BranchInstruction;
+import org.apache.bcel.generic.ClassGen;
+import org.apache.bcel.generic.IINC;
+import org.apache.bcel.generic.ILOAD;
+import org.apache.bcel.generic.ISTORE;
+import org.apache.bcel.generic.InstructionConst;
+import org.apache.bcel.generic.InstructionFactory;
+import org.apache.bcel.generic.InstructionHandle;
+import org.apache.bcel.generic.InstructionList;
+import org.apache.bcel.generic.MethodGen;
+import org.apache.bcel.generic.Type;
+
+/**
+ * Generator of synthetic corpora which can be scaled by number of classes, methods and assembler
+ * blocks. The generated code uses only features supported by the translator and the assembler.
+ *
+ * @author Igor Maznitsa (igor.maznitsa@igormaznitsa.com)
+ */
+public final class SyntheticCorpus {
+
+  /**
+   * Name of the generated main class.
+   */
+  public static final String MAIN_CLASS = "synthetic.Main";
+
+  /**
+   * Start address used for translation.
+   */
+  public static final int START_ADDRESS = 28672;
+
+  /**
+   * Stack top address used for translation.
+   */
+  public static final int STACK_TOP = 65533;
+
+  private static final Type[] METHOD_ARGS = new Type[] {Type.INT, Type.INT};
+
+  private SyntheticCorpus() {
+  }
+
+  private static String className(final int index) {
+    return "synthetic.Class" + index;
+  }
+
+  private static String methodName(final int index) {
+    return "m" + index;
+  }
+
+  // int mN(int a, int b) { int r = a; for (int i = 0; i < b; i++) { r = (r * 3 + i - N) & 0x3FF; } return mN-1(r, b); }
+  private static void addMethod(final ClassGen classGen, final InstructionFactory factory,
+                                final int index) {
+    final InstructionList code = new InstructionList();
+    code.append(new ILOAD(0));
+    code.append(new ISTORE(2));
+    code.append(InstructionConst.ICONST_0);
+    code.append(new ISTORE(3));
+    final BranchInstruction gotoCheck = InstructionFactory.createBranchInstruction(Const.GOTO, null);
+    code.append(gotoCheck);
+
+    final InstructionHandle loopBody = code.append(new ILOAD(2));
+    code.append(InstructionConst.ICONST_3);
+    code.append(InstructionConst.IMUL);
+    code.append(new ILOAD(3));
+    code.append(InstructionConst.IADD);
+    code.append(factory.createConstant(index));
+    code.append(InstructionConst.ISUB);
+    code.append(factory.createConstant(0x3FF));
+    code.append(InstructionConst.IAND);
+    code.append(new ISTORE(2));
+    code.append(new IINC(3, 1));
+
+    final InstructionHandle loopCheck = code.append(new ILOAD(3));
+    code.append(new ILOAD(1));
+    code.append(InstructionFactory.createBranchInstruction(Const.IF_ICMPLT, loopBody));
+    gotoCheck.setTarget(loopCheck);
+
+    code.append(new ILOAD(2));
+    if (index > 0) {
+      code.append(new ILOAD(1));
+      code.append(factory.createInvoke(classGen.getClassName(), methodName(index - 1), Type.INT,
+          METHOD_ARGS, Const.INVOKESTATIC));
+    }
+    code.append(InstructionConst.IRETURN);
+
+    final MethodGen methodGen =
+        new MethodGen(Const.ACC_PUBLIC | Const.ACC_STATIC, Type.INT, METHOD_ARGS,
+            new String[] {"a", "b"}, methodName(index), classGen.getClassName(), code,
+            classGen.getConstantPool());
+    methodGen.setMaxLocals();
+    methodGen.setMaxStack();
+    classGen.addMethod(methodGen.getMethod());
+  }
+
+  private static ClassGen makeClass(final int index, final int methods) {
+    final ClassGen classGen =
+        new ClassGen(className(index), "java.lang.Object", "Synthetic.java", Const.ACC_PUBLIC,
+            new String[0]);
+    final InstructionFactory factory = new InstructionFactory(classGen);
+    for (int i = 0; i < methods; i++) {
+      addMethod(classGen, factory, i);
+    }
+    return classGen;
+  }
+
+  // static void mainz() { Class0.mM(1, 2); ...; ClassN.mM(1, 2); }
+  private static ClassGen makeMainClass(final int classes, final int methods) {
+    final ClassGen classGen =
+        new ClassGen(MAIN_CLASS, "java.lang.Object", "Synthetic.java", Const.ACC_PUBLIC,
+            new String[0]);
+    final InstructionFactory factory = new InstructionFactory(classGen);
+    final InstructionList code = new InstructionList();
+    for (int i = 0; i < classes; i++) {
+      code.append(InstructionConst.ICONST_1);
+      code.append(InstructionConst.ICONST_2);
+      code.append(factory.createInvoke(className(i), methodName(methods - 1), Type.INT,
+          METHOD_ARGS, Const.INVOKESTATIC));
+      code.append(InstructionConst.POP);
+    }
+    code.append(InstructionConst.RETURN);
+
+    final MethodGen methodGen =
+        new MethodGen(Const.ACC_PUBLIC | Const.ACC_STATIC, Type.VOID, Type.NO_ARGS, new String[0],
+            Z80_MAIN_METHOD_NAME, classGen.getClassName(), code, classGen.getConstantPool());
+    methodGen.setMaxLocals();
+    methodGen.setMaxStack();
+    classGen.addMethod(methodGen.getMethod());
+    return classGen;
+  }
+
+  /**
+   * Write a jar file contains the main class and classes with static methods calling each other.
+   *
+   * @param target  path of the jar file to be written, must not be null
+   * @param classes number of generated classes in addition to the main class, must be positive
+   * @param methods number of methods in each generated class, must be positive
+   * @throws IOException thrown if the file can't be written
+   */
+  public static void writeJar(final Path target, final int classes, final int methods)
+      throws IOException {
+    if (classes <= 0 || methods <= 0) {
+      throw new IllegalArgumentException("Number of classes and methods must be positive");
+    }
+    try (final OutputStream out = Files.newOutputStream(target);
+         final JarOutputStream jar = new JarOutputStream(out)) {
+      writeClass(jar, makeMainClass(classes, methods));
+      for (int i = 0; i < classes; i++) {
+        writeClass(jar, makeClass(i, methods));
+      }
+    }
+  }
+
+  private static void writeClass(final JarOutputStream jar, final ClassGen classGen)
+      throws IOException {
+    jar.putNextEntry(new JarEntry(classGen.getClassName().replace('.', '/') + ".class"));
+    jar.write(classGen.getJavaClass().getBytes());
+    jar.closeEntry();
+  }
+
+  /**
+   * Generate a jar file and translate it without optimization.
+   *
+   * @param classes number of generated classes in addition to the main class, must be positive
+   * @param methods number of methods in each generated class, must be positive
+   * @return translated assembler lines, each string contains single line
+   * @throws IOException thrown if the jar file can't be processed
+   */
+  public static List<String> makeTranslatedSource(final int classes, final int methods)
+      throws IOException {
+    final Path jar = Files.createTempFile("j2z80-synthetic", ".jar");
+    try {
+      writeJar(jar, classes, methods);
+      final List<String> translated;
+      try (final URLClassLoader bootstrapClassLoader = JarClassLoaderFactory.create(
+          Collections.singletonList(jar), SyntheticCorpus.class.getClassLoader())) {
+        translated = new TranslatorImpl(SilentTranslatorLogger.INSTANCE, OptimizationLevel.NONE,
+            Collections.singletonList(jar)).translate(MAIN_CLASS, START_ADDRESS, STACK_TOP,
+            new String[0], bootstrapClassLoader);
+      }
+      final List<String> result = new ArrayList<>();
+      for (final String text : translated) {
+        result.addAll(Arrays.asList(Utils.breakToLines(text)));
+      }
+      return result;
+    } finally {
+      Files.deleteIfExists(jar);
+    }
+  }
+
+  /**
+   * Make assembler source of blocks with forward calls, relative jumps, local labels, indexed
+   * addressing, data and EQU directives. Every block takes 33 bytes.
+   *
+   * @param blocks number of blocks, must be in 1..1400
+   * @return assembler source lines
+   */
+  public static List<String> makeAsmSource(final int blocks) {
+    if (blocks <= 0 || blocks > 1400) {
+      throw new IllegalArgumentException("Number of blocks must be in 1..1400");
+    }
+    final List<String> result = new ArrayList<>();
+    result.add(" ORG #4000");
+    result.add(" ENT BLOCK_0");
+    for (int i = 0; i < blocks; i++) {
+      final int next = (i + 1) % blocks;
+      result.add("BLOCK_" + i + ':');
+      result.add(" LD DE,SIZE_" + i);
+      result.add(" LD B,#10");
+      result.add("@LOOP:");
+      // the first pass of two-pass mode doesn't allow labels as index displacement
+      result.add(" LD A,(IX+" + (i % 64) + ')');
+      result.add(" ADD A,B");
+      result.add(" LD (IY-2),A");
+      result.add(" DJNZ @LOOP");
+      result.add(" LD HL,DATA_" + i);
+      result.add(" CALL BLOCK_" + next);
+      result.add(" JR @SKIP");
+      result.add(" NOP");
+      result.add("@SKIP:");
+      result.add(" JP NZ,BLOCK_" + next);
+      result.add(" RET");
+      result.add("DATA_" + i + ": DEFB 1,2,3,4");
+      result.add(" DEFW BLOCK_" + i);
+      result.add(" CLRLOC");
+      result.add("SIZE_" + i + ": EQU $-BLOCK_" + i);
+    }
+    result.add(" END");
+    return result;
+  }
+
+  /**
+   * Make expressions for assembler block labels made by {@link #makeAsmSource(int)}.
+   *
+   * @param number number of expressions
+   * @param blocks number of blocks in the assembler source
+   * @return list of expressions
+   */
+  public static List<String> makeExpressions(final int number, final int blocks) {
+    final List<String> result = new ArrayList<>(number);
+    for (int i = 0; i < number; i++) {
+      final int block = i % blocks;
+      switch (i % 4) {
+        case 0:
+          result.add("BLOCK_" + block);
+          break;
+        case 1:
+          result.add("BLOCK_" + block + "+#10-%101");
+          break;
+        case 2:
+          result.add("$-BLOCK_" + block + "+DATA_" + block);
+          break;
+        default:
+          result.add(Integer.toString(i * 7 % 1000) + "+SIZE_" + block + "-2");
+          break;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Write synthetic corpus files into a folder.
+   *
+   * @param args folder, number of classes, number of methods per class and number of assembler
+   *             blocks
+   * @throws IOException thrown if files can't be written
+   */
+  public static void main(final String... args) throws IOException {
+    if (args.length != 4) {
+      System.err.println("Usage: SyntheticCorpus <folder> <classes> <methods> <asm blocks>");
+      System.exit(1);
+    }
+    final Path folder = Files.createDirectories(Paths.get(args[0]));
+    final Path jar = folder.resolve("synthetic.jar");
+    final Path asm = folder.resolve("synthetic.asm");
+    writeJar(jar, Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+    Files.write(asm, makeAsmSource(Integer.parseInt(args[3])), StandardCharsets.UTF_8);
+    System.out.println("Written " + jar + " and " + asm);
+  }
+}
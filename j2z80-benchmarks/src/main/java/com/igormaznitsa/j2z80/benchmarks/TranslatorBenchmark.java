@@ -0,0 +1,85 @@
+/*
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80.benchmarks;
+
+import com.igormaznitsa.j2z80.translator.TranslatorImpl;
+import com.igormaznitsa.j2z80.translator.optimizator.OptimizationLevel;
+import com.igormaznitsa.j2z80.translator.utils.JarClassLoaderFactory;
+import java.io.IOException;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Translation of a synthetic jar file without optimization.
+ *
+ * @author Igor Maznitsa (igor.maznitsa@igormaznitsa.com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TranslatorBenchmark {
+
+  @Param({"10", "50"})
+  public int classes;
+
+  @Param({"5", "20"})
+  public int methods;
+
+  private Path jar;
+  private URLClassLoader bootstrapClassLoader;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    this.jar = Files.createTempFile("j2z80-synthetic", ".jar");
+    SyntheticCorpus.writeJar(this.jar, this.classes, this.methods);
+    this.bootstrapClassLoader = JarClassLoaderFactory.create(Collections.singletonList(this.jar),
+        TranslatorBenchmark.class.getClassLoader());
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    this.bootstrapClassLoader.close();
+    Files.deleteIfExists(this.jar);
+  }
+
+  @Benchmark
+  public List<String> translate() throws IOException {
+    return new TranslatorImpl(SilentTranslatorLogger.INSTANCE, OptimizationLevel.NONE,
+        Collections.singletonList(this.jar)).translate(SyntheticCorpus.MAIN_CLASS,
+        SyntheticCorpus.START_ADDRESS, SyntheticCorpus.STACK_TOP, new String[0],
+        this.bootstrapClassLoader);
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80.benchmarks;
+
+import com.igormaznitsa.z80asm.Z80Asm;
+import com.igormaznitsa.z80asm.asmcommands.ParsedAsmLine;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Assembling of a large synthetic source.
+ *
+ * @author Igor Maznitsa (igor.maznitsa@igormaznitsa.com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class Z80AsmBenchmark {
+
+  @Param({"100", "1000"})
+  public int blocks;
+
+  @Param({"false", "true"})
+  public boolean onePass;
+
+  private ParsedAsmLine[] source;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    this.source = SyntheticCorpus.makeAsmSource(this.blocks).stream()
+        .map(ParsedAsmLine::new).toArray(ParsedAsmLine[]::new);
+  }
+
+  @Benchmark
+  public byte[] process() {
+    final Z80Asm asm = new Z80Asm(this.source);
+    asm.setOnePassMode(this.onePass);
+    return asm.process();
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80.benchmarks;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.igormaznitsa.z80asm.Z80Asm;
+import com.igormaznitsa.z80asm.asmcommands.AbstractAsmCommand;
+import com.igormaznitsa.z80asm.asmcommands.ParsedAsmLine;
+import com.igormaznitsa.z80asm.expression.LightExpression;
+import java.util.List;
+import org.junit.Test;
+
+public class SyntheticCorpusTest {
+
+  @Test
+  public void testAsmSourceIsAssembled() {
+    final List<String> source = SyntheticCorpus.makeAsmSource(100);
+
+    final Z80Asm twoPasses = new Z80Asm(source);
+    final byte[] code = twoPasses.process();
+    assertEquals(100 * 33, code.length);
+
+    final Z80Asm onePass = new Z80Asm(source);
+    onePass.setOnePassMode(true);
+    assertArrayEquals(code, onePass.process());
+    assertEquals(1, onePass.getPasses());
+
+    final AbstractAsmCommand command = AbstractAsmCommand.findCommandForName("DEFW");
+    final ParsedAsmLine line = new ParsedAsmLine(" DEFW 0");
+    for (final String expression : SyntheticCorpus.makeExpressions(100, 100)) {
+      new LightExpression(twoPasses, command, line, expression).calculate();
+    }
+  }
+
+  @Test
+  public void testTranslatedSourceIsAssembled() throws Exception {
+    final List<String> source = SyntheticCorpus.makeTranslatedSource(3, 4);
+    final Z80Asm asm = new Z80Asm(source);
+    asm.setOnePassMode(true);
+    assertTrue(asm.process().length > 0);
+    assertEquals(SyntheticCorpus.START_ADDRESS, asm.getDataOffset());
+  }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80.jvmprocessors;
+
+import com.igormaznitsa.j2z80.translator.MethodTranslator;
+import com.igormaznitsa.j2z80.utils.LabelAndFrameUtils;
+import java.io.IOException;
+import java.io.Writer;
+import org.apache.bcel.generic.BranchHandle;
+import org.apache.bcel.generic.Instruction;
+import org.apache.bcel.generic.InstructionHandle;
+
+/**
+ * The class is the ancestor for IFxx and IF_ICMPxx processors, it makes fused compare-and-branch
+ * code for operands kept in registers and for comparisons with a constant. Signed comparisons are
+ * made as unsigned ones with inverted sign bits, so that every branch is made by one jump on the
+ * carry flag.
+ *
+ * @author Igor Maznitsa (igor.maznitsa@igormaznitsa.com)
+ */
+public abstract class AbstractConditionalJumpProcessor extends AbstractJvmCommandProcessor {
+
+  /**
+   * Conditions of jumps.
+   */
+  public enum Condition {
+    EQ, NE, LT, GE, GT, LE
+  }
+
+  private final Condition condition;
+  private final boolean comparisonWithZero;
+
+  /**
+   * Constructor.
+   *
+   * @param condition          the jump condition, must not be null
+   * @param comparisonWithZero true for IFxx instructions, false for IF_ICMPxx instructions
+   */
+  protected AbstractConditionalJumpProcessor(final Condition condition,
+                                             final boolean comparisonWithZero) {
+    super();
+    this.condition = condition;
+    this.comparisonWithZero = comparisonWithZero;
+  }
+
+  /**
+   * Make the label of the jump target.
+   *
+   * @param methodTranslator a translator translating the method, must not be null
+   * @param handle           the handle of the jump instruction, must not be null
+   * @return the label
+   */
+  protected static String makeTargetLabel(final MethodTranslator methodTranslator,
+                                          final InstructionHandle handle) {
+    return LabelAndFrameUtils.makeClassMethodJumpLabel(methodTranslator.getMethod(),
+        ((BranchHandle) handle).getTarget().getPosition());
+  }
+
+  @Override
+  public boolean processWithStackCache(final MethodTranslator methodTranslator,
+                                       final Instruction instruction,
+                                       final InstructionHandle handle,
+                                       final OperandStackCache cache, final Writer out)
+      throws IOException {
+    final String label = makeTargetLabel(methodTranslator, handle);
+    if (this.comparisonWithZero) {
+      // the rest value must be on the stack before the jump
+      if (cache.getSize() > 1) {
+        return false;
+      }
+      out.write(cache.load(1));
+      cache.drop(1);
+      out.write(generateComparisonWithConstant(this.condition, 0, label));
+    } else {
+      out.write(cache.load(2));
+      cache.drop(2);
+      out.write(generateComparison(this.condition, label));
+    }
+    return true;
+  }
+
+  @Override
+  public boolean processWithConstantOperand(final MethodTranslator methodTranslator,
+                                            final Instruction instruction,
+                                            final InstructionHandle handle, final int constant,
+                                            final OperandStackCache cache, final Writer out)
+      throws IOException {
+    if (this.comparisonWithZero || (cache != null && cache.getSize() > 1)) {
+      return false;
+    }
+    if (cache == null) {
+      out.write("POP HL" + NEXT_LINE);
+    } else {
+      out.write(cache.load(1));
+      cache.drop(1);
+    }
+    out.write(generateComparisonWithConstant(this.condition, constant,
+        makeTargetLabel(methodTranslator, handle)));
+    return true;
+  }
+
+  /**
+   * Generate code comparing two values and jumping to a label, the first value is in DE and the
+   * second one is in HL. The code changes A and BC.
+   *
+   * @param condition the jump condition, must not be null
+   * @param label     the jump target label, must not be null
+   * @return the code
+   */
+  public static String generateComparison(final Condition condition, final String label) {
+    switch (condition) {
+      case EQ:
+      case NE:
+        return "LD A,L" + NEXT_LINE + "XOR E" + NEXT_LINE + "LD C,A" + NEXT_LINE
+            + "LD A,H" + NEXT_LINE + "XOR D" + NEXT_LINE + "OR C" + NEXT_LINE
+            + (condition == Condition.EQ ? "JP Z," : "JP NZ,") + label + NEXT_LINE;
+      case LT:
+      case GE:
+        return makeLessThan("D", "E", "H", "L")
+            + (condition == Condition.LT ? "JP C," : "JP NC,") + label + NEXT_LINE;
+      case GT:
+      case LE:
+        return makeLessThan("H", "L", "D", "E")
+            + (condition == Condition.GT ? "JP C," : "JP NC,") + label + NEXT_LINE;
+      default:
+        throw new IllegalArgumentException("Unsupported condition " + condition);
+    }
+  }
+
+  /**
+   * Generate code comparing a value in HL with a constant and jumping to a label. The code changes
+   * A and C.
+   *
+   * @param condition the jump condition, must not be null
+   * @param constant  the constant, the second operand of the comparison
+   * @param label     the jump target label, must not be null
+   * @return the code, empty if the condition is never true
+   */
+  public static String generateComparisonWithConstant(final Condition condition,
+                                                      final int constant, final String label) {
+    final int value = (short) constant;
+    switch (condition) {
+      case EQ:
+        return makeEqualityTest(value) + "JP Z," + label + NEXT_LINE;
+      case NE:
+        return makeEqualityTest(value) + "JP NZ," + label + NEXT_LINE;
+      case LT:
+        return makeLessThanConstant(value, label, true);
+      case GE:
+        return makeLessThanConstant(value, label, false);
+      case GT:
+        // x > c is x >= c + 1
+        return value == Short.MAX_VALUE ? "" : makeLessThanConstant(value + 1, label, false);
+      case LE:
+        return value == Short.MAX_VALUE ? "JP " + label + NEXT_LINE
+            : makeLessThanConstant(value + 1, label, true);
+      default:
+        throw new IllegalArgumentException("Unsupported condition " + condition);
+    }
+  }
+
+  // carry flag is set if the first value is less than the second one
+  private static String makeLessThan(final String firstHigh, final String firstLow,
+                                     final String secondHigh, final String secondLow) {
+    return "LD A," + secondHigh + NEXT_LINE + "XOR 128" + NEXT_LINE + "LD B,A" + NEXT_LINE
+        + "LD A," + firstHigh + NEXT_LINE + "XOR 128" + NEXT_LINE + "LD C,A" + NEXT_LINE
+        + "LD A," + firstLow + NEXT_LINE + "SUB " + secondLow + NEXT_LINE
+        + "LD A,C" + NEXT_LINE + "SBC A,B" + NEXT_LINE;
+  }
+
+  // zero flag is set if HL is equal to the value
+  private static String makeEqualityTest(final int value) {
+    final int low = value & 0xFF;
+    final int high = (value >> 8) & 0xFF;
+    if (low == 0 && high == 0) {
+      return "LD A,H" + NEXT_LINE + "OR L" + NEXT_LINE;
+    }
+    if (high == 0) {
+      return "LD A,L" + NEXT_LINE + "XOR " + low + NEXT_LINE + "OR H" + NEXT_LINE;
+    }
+    if (low == 0) {
+      return "LD A,H" + NEXT_LINE + "XOR " + high + NEXT_LINE + "OR L" + NEXT_LINE;
+    }
+    return "LD A,L" + NEXT_LINE + "XOR " + low + NEXT_LINE + "LD C,A" + NEXT_LINE
+        + "LD A,H" + NEXT_LINE + "XOR " + high + NEXT_LINE + "OR C" + NEXT_LINE;
+  }
+
+  // jump if (HL < value) is equal to the less flag
+  private static String makeLessThanConstant(final int value, final String label,
+                                             final boolean less) {
+    if (value == Short.MIN_VALUE) {
+      return less ? "" : "JP " + label + NEXT_LINE;
+    }
+    final String jump = (less ? "JP C," : "JP NC,") + label + NEXT_LINE;
+    if (value == 0) {
+      return "BIT 7,H" + NEXT_LINE + (less ? "JP NZ," : "JP Z,") + label + NEXT_LINE;
+    }
+    final int low = value & 0xFF;
+    final int high = ((value >> 8) & 0xFF) ^ 0x80;
+    // CP and SUB take signed byte operands
+    if (low == 0) {
+      return "LD A,H" + NEXT_LINE + "XOR 128" + NEXT_LINE + "CP " + (byte) high + NEXT_LINE + jump;
+    }
+    return "LD A,H" + NEXT_LINE + "XOR 128" + NEXT_LINE + "LD C,A" + NEXT_LINE
+        + "LD A,L" + NEXT_LINE + "SUB " + (byte) low + NEXT_LINE
+        + "LD A,C" + NEXT_LINE + "SBC A," + high + NEXT_LINE + jump;
+  }
+}
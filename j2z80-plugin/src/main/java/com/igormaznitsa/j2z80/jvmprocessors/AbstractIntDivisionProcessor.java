@@ -0,0 +1,167 @@
+/*
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80.jvmprocessors;
+
+import com.igormaznitsa.j2z80.api.additional.NeedsATHROWManager;
+import com.igormaznitsa.j2z80.api.additional.NeedsINTArithmeticManager;
+import com.igormaznitsa.j2z80.translator.MethodTranslator;
+import java.io.IOException;
+import java.io.Writer;
+import org.apache.bcel.generic.Instruction;
+import org.apache.bcel.generic.InstructionHandle;
+
+/**
+ * The class is the ancestor for IDIV and IREM processors, it makes code for constant divisors.
+ * Division by a power of two is made by shifts and masks, other divisors call the division
+ * subroutine directly without check of zero.
+ *
+ * @author Igor Maznitsa (igor.maznitsa@igormaznitsa.com)
+ */
+public abstract class AbstractIntDivisionProcessor extends AbstractJvmCommandProcessor
+    implements NeedsINTArithmeticManager, NeedsATHROWManager {
+
+  private final boolean remainder;
+
+  /**
+   * Constructor.
+   *
+   * @param remainder true if the processor calculates remainder, false if quotient
+   */
+  protected AbstractIntDivisionProcessor(final boolean remainder) {
+    super();
+    this.remainder = remainder;
+  }
+
+  @Override
+  public boolean processWithConstantOperand(final MethodTranslator methodTranslator,
+                                            final Instruction instruction,
+                                            final InstructionHandle handle, final int constant,
+                                            final OperandStackCache cache, final Writer out)
+      throws IOException {
+    if ((short) constant == 0) {
+      // the subroutine throws the arithmetic exception
+      return false;
+    }
+
+    out.write(cache == null ? "POP HL" + NEXT_LINE : cache.load(1));
+    final String division = generateConstantDivision(constant, this.remainder);
+    if (division == null) {
+      // DE can keep a cached value
+      final boolean saveDE = cache != null && cache.getSize() > 1;
+      out.write((saveDE ? "PUSH DE" + NEXT_LINE : "")
+          + "LD B,H" + NEXT_LINE + "LD C,L" + NEXT_LINE
+          + "LD DE," + (constant & 0xFFFF) + NEXT_LINE
+          + "CALL " + SUB_INT_DIVREM + NEXT_LINE
+          + (this.remainder ? "" : "LD H,B" + NEXT_LINE + "LD L,C" + NEXT_LINE)
+          + (saveDE ? "POP DE" + NEXT_LINE : ""));
+    } else {
+      out.write(division);
+    }
+    if (cache == null) {
+      out.write("PUSH HL" + NEXT_LINE);
+    }
+    return true;
+  }
+
+  /**
+   * Generate inline code dividing HL by a constant, the code changes only HL, BC and A. The result
+   * is truncated toward zero as in Java and the remainder has the sign of the dividend.
+   *
+   * @param constant  the divisor, must not be zero
+   * @param remainder true if the code must calculate remainder, false if quotient
+   * @return the code or null if there is no inline code for the divisor
+   */
+  public static String generateConstantDivision(final int constant, final boolean remainder) {
+    final int divisor = Math.abs((int) (short) constant);
+    if (Integer.bitCount(divisor) != 1) {
+      return null;
+    }
+
+    final StringBuilder result = new StringBuilder();
+    if (divisor == 1) {
+      if (remainder) {
+        result.append("LD HL,0").append(NEXT_LINE);
+      } else if ((short) constant < 0) {
+        appendNegHL(result);
+      }
+      return result.toString();
+    }
+
+    final int shift = Integer.numberOfTrailingZeros(divisor);
+    final int maskLow = (divisor - 1) & 0xFF;
+    final int maskHigh = (divisor - 1) >>> 8;
+
+    // BC = divisor - 1 for negative dividend and 0 for non-negative one, it makes rounding toward zero
+    result.append("LD A,H").append(NEXT_LINE)
+        .append("RLA").append(NEXT_LINE)
+        .append("SBC A,A").append(NEXT_LINE);
+    if (shift < 8) {
+      result.append("AND ").append(maskLow).append(NEXT_LINE)
+          .append("LD C,A").append(NEXT_LINE)
+          .append("LD B,0").append(NEXT_LINE);
+    } else {
+      result.append("LD C,A").append(NEXT_LINE)
+          .append("AND ").append(maskHigh).append(NEXT_LINE)
+          .append("LD B,A").append(NEXT_LINE);
+    }
+    result.append("ADD HL,BC").append(NEXT_LINE);
+
+    if (remainder) {
+      if (shift < 8) {
+        result.append("LD A,L").append(NEXT_LINE)
+            .append("AND ").append(maskLow).append(NEXT_LINE)
+            .append("LD L,A").append(NEXT_LINE)
+            .append("LD H,0").append(NEXT_LINE);
+      } else {
+        result.append("LD A,H").append(NEXT_LINE)
+            .append("AND ").append(maskHigh).append(NEXT_LINE)
+            .append("LD H,A").append(NEXT_LINE);
+      }
+      result.append("AND A").append(NEXT_LINE)
+          .append("SBC HL,BC").append(NEXT_LINE);
+    } else {
+      if (shift < 8) {
+        for (int i = 0; i < shift; i++) {
+          result.append("SRA H").append(NEXT_LINE)
+              .append("RR L").append(NEXT_LINE);
+        }
+      } else {
+        // the high byte is moved into the low one and filled by the sign
+        result.append("LD L,H").append(NEXT_LINE)
+            .append("LD A,H").append(NEXT_LINE)
+            .append("RLA").append(NEXT_LINE)
+            .append("SBC A,A").append(NEXT_LINE)
+            .append("LD H,A").append(NEXT_LINE);
+        for (int i = 8; i < shift; i++) {
+          result.append("SRA L").append(NEXT_LINE);
+        }
+      }
+      if ((short) constant < 0) {
+        appendNegHL(result);
+      }
+    }
+    return result.toString();
+  }
+
+  private static void appendNegHL(final StringBuilder buffer) {
+    buffer.append("XOR A").append(NEXT_LINE)
+        .append("SUB L").append(NEXT_LINE)
+        .append("LD L,A").append(NEXT_LINE)
+        .append("SBC A,A").append(NEXT_LINE)
+        .append("SUB H").append(NEXT_LINE)
+        .append("LD H,A").append(NEXT_LINE);
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80.jvmprocessors;
+
+import com.igormaznitsa.j2z80.translator.MethodTranslator;
+import java.io.IOException;
+import java.io.Writer;
+import org.apache.bcel.generic.Instruction;
+import org.apache.bcel.generic.InstructionHandle;
+
+/**
+ * The class is the ancestor for ISHL, ISHR and IUSHR processors, it makes straight code for
+ * constant shift counts. The count is masked by 31 as in JVM, counts 16..31 shift out all bits of
+ * the 16 bit value.
+ *
+ * @author Igor Maznitsa (igor.maznitsa@igormaznitsa.com)
+ */
+public abstract class AbstractIntShiftProcessor extends AbstractJvmCommandProcessor {
+
+  @Override
+  public boolean processWithConstantOperand(final MethodTranslator methodTranslator,
+                                            final Instruction instruction,
+                                            final InstructionHandle handle, final int constant,
+                                            final OperandStackCache cache, final Writer out)
+      throws IOException {
+    out.write(cache == null ? "POP HL" + NEXT_LINE : cache.load(1));
+    out.write(this.generateConstantShift(constant & 31));
+    if (cache == null) {
+      out.write("PUSH HL" + NEXT_LINE);
+    }
+    return true;
+  }
+
+  /**
+   * Generate code shifting HL by a constant count, the code can change only HL and A.
+   *
+   * @param count the shift count, 0..31
+   * @return the code, must not be null
+   */
+  protected abstract String generateConstantShift(int count);
+}
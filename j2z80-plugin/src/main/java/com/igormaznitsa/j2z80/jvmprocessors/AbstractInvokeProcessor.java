@@ -18,17 +18,32 @@ package com.igormaznitsa.j2z80.jvmprocessors;
 
 import static com.igormaznitsa.j2z80.utils.LabelAndFrameUtils.makeLabelNameForMethod;
 
+import com.igormaznitsa.j2z80.ClassContext;
+import com.igormaznitsa.j2z80.MethodContext;
 import com.igormaznitsa.j2z80.api.additional.NeedsMemoryManager;
 import com.igormaznitsa.j2z80.bootstrap.AbstractBootstrapClass;
+import com.igormaznitsa.j2z80.ids.ClassID;
+import com.igormaznitsa.j2z80.ids.ClassMethodInfo;
+import com.igormaznitsa.j2z80.ids.ClassMethodInfo.CallingConvention;
 import com.igormaznitsa.j2z80.ids.MethodID;
 import com.igormaznitsa.j2z80.translator.MethodTranslator;
+import com.igormaznitsa.j2z80.utils.LabelAndFrameUtils;
 import java.io.IOException;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.bcel.classfile.Code;
+import org.apache.bcel.classfile.Method;
+import org.apache.bcel.generic.ClassGen;
 import org.apache.bcel.generic.ConstantPoolGen;
 import org.apache.bcel.generic.INVOKESPECIAL;
+import org.apache.bcel.generic.Instruction;
+import org.apache.bcel.generic.InstructionList;
 import org.apache.bcel.generic.InvokeInstruction;
+import org.apache.bcel.generic.JsrInstruction;
 import org.apache.bcel.generic.MethodGen;
 import org.apache.bcel.generic.ObjectType;
+import org.apache.bcel.generic.RET;
 import org.apache.bcel.generic.Type;
 
 /**
@@ -86,6 +101,17 @@ public abstract class AbstractInvokeProcessor extends AbstractJvmCommandProcesso
         invokingMethod.isStatic());
   }
 
+  /**
+   * Calculate whole stack frame size in bytes for a method including its local variables.
+   *
+   * @param invokingMethod a method to be used for calculations, must not be null
+   * @return the whole memory frame size in bytes
+   */
+  public static int calculateTotalFrameSize(final MethodGen invokingMethod) {
+    return LabelAndFrameUtils.calculateFrameSizeForMethod(invokingMethod.getArgumentTypes().length,
+        invokingMethod.getMaxLocals(), invokingMethod.isStatic());
+  }
+
   /**
    * Generate the prefix for a method invocation
    *
@@ -133,6 +159,112 @@ public abstract class AbstractInvokeProcessor extends AbstractJvmCommandProcesso
     return maxLocals << 1;
   }
 
+  /**
+   * Find calling convention for a method. Static leaf methods which have one or two one-word
+   * arguments and no local variables beyond the arguments get arguments in registers and don't make
+   * stack frame, the method copies its arguments into its own local variable cells which are not
+   * shared with any other method. It is safe because the method is a leaf one and translated code
+   * works in one thread with disabled interrupts, so the method is never re-entered while the
+   * cells are in use. Other methods use stack frame.
+   *
+   * @param method the method to be classified, must not be null
+   * @return the calling convention of the method
+   */
+  public static CallingConvention findCallingConvention(final Method method) {
+    final Code code = method.getCode();
+    if (!method.isStatic() || code == null) {
+      return CallingConvention.FRAME;
+    }
+
+    final Type[] args = method.getArgumentTypes();
+    if (args.length < 1 || args.length > 2 || code.getMaxLocals() != args.length) {
+      return CallingConvention.FRAME;
+    }
+    for (final Type arg : args) {
+      if (arg.getSize() != 1) {
+        return CallingConvention.FRAME;
+      }
+    }
+
+    for (final Instruction instruction : new InstructionList(code.getCode()).getInstructions()) {
+      if (instruction instanceof InvokeInstruction || instruction instanceof JsrInstruction
+          || instruction instanceof RET) {
+        return CallingConvention.FRAME;
+      }
+    }
+    return CallingConvention.REGISTERS;
+  }
+
+  /**
+   * Check that a method can get the static frame calling convention if it is never re-entered. Only
+   * static methods called by INVOKESTATIC and having local variables are allowed, static
+   * initializers are called with stack frame.
+   *
+   * @param method the method to be checked, must not be null
+   * @return true if the method can keep its local variables in static memory cells
+   */
+  public static boolean isStaticFrameAllowed(final MethodGen method) {
+    if (!method.isStatic() || method.getInstructionList() == null || method.getMaxLocals() == 0
+        || method.getName().startsWith("<")) {
+      return false;
+    }
+    for (final Type arg : method.getArgumentTypes()) {
+      if (arg.getSize() != 1) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Generate the prefix for invocation of a method with the static frame calling convention, it
+   * moves arguments from the stack into static memory cells of the method.
+   *
+   * @param method the invoked method, must not be null
+   * @return the string containing the prefix code for the method invocation
+   */
+  public static String generateStaticFrameArgumentsPrefix(final ClassMethodInfo method) {
+    final StringBuilder result = new StringBuilder();
+    // the last argument is on the top of the stack
+    for (int i = method.getMethodInfo().getArgumentTypes().length - 1; i >= 0; i--) {
+      result.append("POP BC").append(NEXT_LINE)
+          .append("LD (").append(LabelAndFrameUtils.makeLabelForLocalVariableCell(method, i))
+          .append("),BC").append(NEXT_LINE);
+    }
+    return result.toString();
+  }
+
+  /**
+   * Generate the prefix for a tail call of a method with the stack frame calling convention, it
+   * moves arguments from the stack into the stack frame of the current method which is reused by the
+   * invoked method. The frame of the current method must not be smaller than the needed one.
+   *
+   * @param argNumber the number of arguments of the static invoked method
+   * @return the string containing the prefix code for the tail call
+   */
+  public static String generateFrameTailCallPrefix(final int argNumber) {
+    final StringBuilder result = new StringBuilder();
+    // the last argument is on the top of the stack
+    for (int i = argNumber - 1; i >= 0; i--) {
+      final int offset = prepareLocalVariableIndex(i);
+      result.append("POP BC").append(NEXT_LINE)
+          .append("LD (IX-").append(offset).append("),C").append(NEXT_LINE)
+          .append("LD (IX-").append(offset).append("+1),B").append(NEXT_LINE);
+    }
+    return result.toString();
+  }
+
+  /**
+   * Generate the prefix for invocation of a method with the register calling convention, it moves
+   * arguments from the stack into BC and DE.
+   *
+   * @param argNumber the number of arguments, one or two
+   * @return the string containing the prefix code for the method invocation
+   */
+  public static String generateRegisterArgumentsPrefix(final int argNumber) {
+    return argNumber > 1 ? "POP DE" + NEXT_LINE + "POP BC" + NEXT_LINE : "POP BC" + NEXT_LINE;
+  }
+
   /**
    * Check the invoke instruction for a bootstrap class and if the invoked class is a bootstrap one then the method will process it by a special way.
    *
@@ -256,6 +388,88 @@ public abstract class AbstractInvokeProcessor extends AbstractJvmCommandProcesso
         instruction.getArgumentTypes(constantPool));
   }
 
+  /**
+   * Find the only implementation which can be called by a virtual or interface call. The translator
+   * knows all classes of the program so that if all instantiable receiver classes have the same
+   * implementation of the method then the call can be made directly.
+   *
+   * @param methodTranslator a method translator, must not be null
+   * @param instruction      an invoke instruction, must not be null
+   * @return the implementation or null if there are several or unknown implementations
+   */
+  public MethodGen findSingleImplementation(final MethodTranslator methodTranslator,
+                                            final InvokeInstruction instruction) {
+    final ConstantPoolGen constantPool = methodTranslator.getConstantPool();
+    final ClassContext classContext = methodTranslator.getTranslatorContext().getClassContext();
+    final MethodContext methodContext = methodTranslator.getTranslatorContext().getMethodContext();
+    final String receiverClassName = this.getObjectType(methodTranslator, instruction).getClassName();
+
+    final ClassGen receiverClass = classContext.findClassForID(new ClassID(receiverClassName));
+    if (receiverClass == null) {
+      return null;
+    }
+
+    final List<String> receivers = new ArrayList<>();
+    if (receiverClass.isInterface()) {
+      for (final ClassID implementor : classContext.findAllClassesImplementInterface(
+          receiverClassName)) {
+        receivers.add(implementor.getClassName());
+      }
+    } else {
+      receivers.add(receiverClassName);
+      receivers.addAll(classContext.findAllClassSuccessors(receiverClassName));
+    }
+
+    final String methodName = instruction.getMethodName(constantPool);
+    final Type returnType = instruction.getReturnType(constantPool);
+    final Type[] argTypes = instruction.getArgumentTypes(constantPool);
+
+    MethodGen result = null;
+    for (final String receiver : receivers) {
+      final ClassGen receiverGen = classContext.findClassForID(new ClassID(receiver));
+      if (receiverGen == null) {
+        return null;
+      }
+      if (receiverGen.isInterface() || receiverGen.isAbstract()) {
+        continue;
+      }
+      final MethodGen implementation =
+          methodContext.findMethod(new MethodID(receiver, methodName, returnType, argTypes));
+      if (implementation == null || implementation.isAbstract()) {
+        return null;
+      }
+      if (result == null) {
+        result = implementation;
+      } else if (!makeLabelNameForMethod(result).equals(makeLabelNameForMethod(implementation))) {
+        return null;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Generate direct call of an instance method in the same way as INVOKESPECIAL does.
+   *
+   * @param template the INVOKESPECIAL template, must not be null
+   * @param method   the called method, must not be null
+   * @return generated assembler text
+   */
+  public static String generateDirectCall(final String template, final MethodGen method) {
+    final int argBlockSize = calculateArgumentBlockSize(method);
+    final int frameSize = calculateTotalFrameSize(method);
+
+    assertLocalVariablesNumber(method);
+
+    String postfix = generateFramePostfix(argBlockSize, frameSize);
+    if (method.getReturnType().getType() != Type.VOID.getType()) {
+      postfix += "PUSH BC\n";
+    }
+
+    return template.replace(MACROS_ADDRESS, makeLabelNameForMethod(method))
+        .replace(MACROS_PREFIX, generateFramePrefix(argBlockSize, frameSize))
+        .replace(MACROS_POSTFIX, postfix);
+  }
+
   /**
    * Check that a method object is not null.
    *
@@ -15,7 +15,10 @@
  */
 package com.igormaznitsa.j2z80.jvmprocessors;
 
+import com.igormaznitsa.j2z80.ids.ClassMethodInfo;
+import com.igormaznitsa.j2z80.ids.ClassMethodInfo.CallingConvention;
 import com.igormaznitsa.j2z80.translator.MethodTranslator;
+import com.igormaznitsa.j2z80.utils.LabelAndFrameUtils;
 import com.igormaznitsa.j2z80.utils.Utils;
 import com.igormaznitsa.meta.common.utils.Assertions;
 import java.io.BufferedReader;
@@ -137,6 +140,23 @@ public abstract class AbstractJvmCommandProcessor {
     return result;
   }
 
+  /**
+   * Find the static memory cell of a local variable. Methods with the register or the static frame
+   * calling convention don't have stack frame and keep their local variables in static cells.
+   *
+   * @param methodTranslator the translator of the method contains the variable, must not be null
+   * @param index            the local variable index
+   * @return the label of the cell or null if the variable is in the stack frame
+   */
+  public static String findLocalVariableCell(final MethodTranslator methodTranslator,
+                                             final int index) {
+    final ClassMethodInfo method = methodTranslator.getMethod();
+    if (method != null && method.getCallingConvention() != CallingConvention.FRAME) {
+      return LabelAndFrameUtils.makeLabelForLocalVariableCell(method, index);
+    }
+    return null;
+  }
+
   /**
    * Common auxiliary method to check number of local variables in a method, method must have number of local variables less than 64.
    *
@@ -166,6 +186,19 @@ public abstract class AbstractJvmCommandProcessor {
     }
   }
 
+  /**
+   * Get the class which defines additional blocks needed by the code generated for an instruction.
+   *
+   * @param methodTranslator a translator translating the method, must not be null
+   * @param instruction      an instruction to be processed, must not be null
+   * @return the class implementing additional block interfaces, by default the processor class
+   * @see com.igormaznitsa.j2z80.api.additional.J2ZAdditionalBlock
+   */
+  public Class<?> findClassOfAdditions(final MethodTranslator methodTranslator,
+                                       final Instruction instruction) {
+    return this.getClass();
+  }
+
   /**
    * Get the name of the instruction processed by the class.
    *
@@ -188,4 +221,50 @@ public abstract class AbstractJvmCommandProcessor {
       Instruction instruction,
       InstructionHandle handle,
       ClassLoader bootstrapClassLoader, Writer out) throws IOException;
+
+  /**
+   * Process an instruction when values of the operand stack top are kept in registers. By default
+   * processors don't support the cache, they write nothing and return false, then the cache is
+   * flushed and the instruction is processed by
+   * {@link #process(MethodTranslator, Instruction, InstructionHandle, ClassLoader, Writer)}.
+   *
+   * @param methodTranslator a translator translating the method, must not be null
+   * @param instruction      an instruction to be processed, must not be null
+   * @param handle           the instruction handle for the processing instruction, must not be null
+   * @param cache            the operand stack cache of the method, must not be null
+   * @param out              the writer to out the result, must not be null
+   * @return true if the instruction has been processed with the cache, false otherwise
+   * @throws IOException it will be thrown if there is any problem during processing
+   */
+  public boolean processWithStackCache(
+      final MethodTranslator methodTranslator,
+      final Instruction instruction,
+      final InstructionHandle handle,
+      final OperandStackCache cache, final Writer out) throws IOException {
+    return false;
+  }
+
+  /**
+   * Process an instruction which top operand is a constant pushed by the previous instruction, the
+   * constant is not placed onto the stack. By default processors don't use constant operands, they
+   * write nothing and return false, then both instructions are processed as usual.
+   *
+   * @param methodTranslator a translator translating the method, must not be null
+   * @param instruction      an instruction to be processed, must not be null
+   * @param handle           the instruction handle for the processing instruction, must not be null
+   * @param constant         the value of the top operand
+   * @param cache            the operand stack cache of the method, null if other operands are on the
+   *                         stack
+   * @param out              the writer to out the result, must not be null
+   * @return true if the instruction has been processed with the constant, false otherwise
+   * @throws IOException it will be thrown if there is any problem during processing
+   */
+  public boolean processWithConstantOperand(
+      final MethodTranslator methodTranslator,
+      final Instruction instruction,
+      final InstructionHandle handle,
+      final int constant,
+      final OperandStackCache cache, final Writer out) throws IOException {
+    return false;
+  }
 }
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80.jvmprocessors;
+
+/**
+ * The class tracks values of the JVM operand stack top kept in registers during translation of a
+ * method. The top value is kept in HL and the value under it is kept in DE, other values are on the
+ * real stack. Processors supporting the cache work with registers, for other instructions the
+ * cache is flushed onto the real stack so that they get the usual stack state.
+ *
+ * @author Igor Maznitsa (igor.maznitsa@igormaznitsa.com)
+ */
+public final class OperandStackCache {
+
+  /**
+   * Max number of values kept in registers.
+   */
+  public static final int MAX_SIZE = 2;
+
+  private static final String NEXT_LINE = AbstractJvmCommandProcessor.NEXT_LINE;
+
+  private int size;
+
+  /**
+   * Get number of values kept in registers.
+   *
+   * @return the number of values, from zero to {@link #MAX_SIZE}
+   */
+  public int getSize() {
+    return this.size;
+  }
+
+  /**
+   * Check that there are no values in registers.
+   *
+   * @return true if all values are on the real stack
+   */
+  public boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  /**
+   * Make code to place the top values into registers, the top value is placed into HL and the next
+   * one into DE.
+   *
+   * @param number number of values needed in registers, from 1 to {@link #MAX_SIZE}
+   * @return the code to pop missing values from the real stack
+   */
+  public String load(final int number) {
+    if (number < 1 || number > MAX_SIZE) {
+      throw new IllegalArgumentException("Wrong number of cached values [" + number + ']');
+    }
+    final StringBuilder result = new StringBuilder();
+    if (this.size == 0) {
+      result.append("POP HL").append(NEXT_LINE);
+      this.size = 1;
+    }
+    if (number > 1 && this.size == 1) {
+      result.append("POP DE").append(NEXT_LINE);
+      this.size = 2;
+    }
+    return result.toString();
+  }
+
+  /**
+   * Make code to free HL for a new top value, the current top value is moved into DE. The new value
+   * must be loaded into HL by the next code which must not change DE.
+   *
+   * @return the code to move cached values
+   */
+  public String reserve() {
+    final String result;
+    switch (this.size) {
+      case 0:
+        result = "";
+        break;
+      case 1:
+        result = "EX DE,HL" + NEXT_LINE;
+        break;
+      default:
+        result = "PUSH DE" + NEXT_LINE + "EX DE,HL" + NEXT_LINE;
+        break;
+    }
+    this.size = Math.min(this.size + 1, MAX_SIZE);
+    return result;
+  }
+
+  /**
+   * Remove top values placed into registers by {@link #load(int)}, code consuming them must not
+   * change DE if the value in DE is not removed.
+   *
+   * @param number number of removed values, must not be greater than the number of cached values
+   * @return the code to move the rest value into HL
+   */
+  public String drop(final int number) {
+    if (number < 0 || number > this.size) {
+      throw new IllegalArgumentException("Wrong number of dropped values [" + number + ']');
+    }
+    this.size -= number;
+    return number > 0 && this.size > 0 ? "EX DE,HL" + NEXT_LINE : "";
+  }
+
+  /**
+   * Replace top values placed into registers by {@link #load(int)} with a result placed into HL.
+   * The code making the result can change DE.
+   *
+   * @param number number of replaced values, must be equal to the number of cached values
+   */
+  public void replace(final int number) {
+    if (number != this.size) {
+      throw new IllegalArgumentException("Wrong number of replaced values [" + number + ']');
+    }
+    this.size = 1;
+  }
+
+  /**
+   * Make code to place all cached values onto the real stack.
+   *
+   * @return the code to push values, the cache is empty after the call
+   */
+  public String flush() {
+    final String result;
+    switch (this.size) {
+      case 0:
+        result = "";
+        break;
+      case 1:
+        result = "PUSH HL" + NEXT_LINE;
+        break;
+      default:
+        result = "PUSH DE" + NEXT_LINE + "PUSH HL" + NEXT_LINE;
+        break;
+    }
+    this.size = 0;
+    return result;
+  }
+}
@@ -25,10 +25,12 @@ import org.apache.bcel.generic.InstructionHandle;
 // class to process ACONST_NULL with code 01
 public class Processor_ACONST_NULL extends AbstractJvmCommandProcessor {
   private final String template;
+  private final String templateCached;
 
   public Processor_ACONST_NULL() {
     super();
     template = loadResourceFileAsString("ACONST_NULL.a80");
+    templateCached = loadResourceFileAsString("ACONST_NULL_CACHED.a80");
   }
 
   @Override
@@ -44,4 +46,16 @@ public class Processor_ACONST_NULL extends AbstractJvmCommandProcessor {
     out.write(template);
     out.write(NEXT_LINE);
   }
+
+  @Override
+  public boolean processWithStackCache(final MethodTranslator methodTranslator,
+                                       final Instruction instruction,
+                                       final InstructionHandle handle,
+                                       final OperandStackCache cache, final Writer out)
+      throws IOException {
+    out.write(cache.reserve());
+    out.write(templateCached);
+    out.write(NEXT_LINE);
+    return true;
+  }
 }
@@ -25,10 +25,16 @@ import org.apache.bcel.generic.InstructionHandle;
 // class to process ALOAD with code 42,43,44,45
 public class Processor_ALOAD extends AbstractJvmCommandProcessor {
   private final String template;
+  private final String templateForCell;
+  private final String templateCached;
+  private final String templateForCellCached;
 
   public Processor_ALOAD() {
     super();
     template = loadResourceFileAsString("ALOAD.a80");
+    templateForCell = loadResourceFileAsString("ALOAD_CELL.a80");
+    templateCached = loadResourceFileAsString("ALOAD_CACHED.a80");
+    templateForCellCached = loadResourceFileAsString("ALOAD_CELL_CACHED.a80");
   }
 
   @Override
@@ -41,7 +47,30 @@ public class Processor_ALOAD extends AbstractJvmCommandProcessor {
                       final InstructionHandle handle,
                       ClassLoader bootstrapClassLoader, final Writer out) throws IOException {
     final ALOAD aload = (ALOAD) instruction;
-    out.write(template.replace(MACROS_INDEX, Integer.toString(prepareLocalVariableIndex(aload.getIndex()))));
+    final String cell = findLocalVariableCell(classProcessor, aload.getIndex());
+    if (cell == null) {
+      out.write(template.replace(MACROS_INDEX, Integer.toString(prepareLocalVariableIndex(aload.getIndex()))));
+    } else {
+      out.write(templateForCell.replace(MACROS_ADDRESS, cell));
+    }
     out.write(NEXT_LINE);
   }
+
+  @Override
+  public boolean processWithStackCache(final MethodTranslator methodTranslator,
+                                       final Instruction instruction,
+                                       final InstructionHandle handle,
+                                       final OperandStackCache cache, final Writer out)
+      throws IOException {
+    final ALOAD aload = (ALOAD) instruction;
+    out.write(cache.reserve());
+    final String cell = findLocalVariableCell(methodTranslator, aload.getIndex());
+    if (cell == null) {
+      out.write(templateCached.replace(MACROS_INDEX, Integer.toString(prepareLocalVariableIndex(aload.getIndex()))));
+    } else {
+      out.write(templateForCellCached.replace(MACROS_ADDRESS, cell));
+    }
+    out.write(NEXT_LINE);
+    return true;
+  }
 }
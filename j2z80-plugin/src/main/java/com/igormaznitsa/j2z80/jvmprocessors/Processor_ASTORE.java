@@ -25,10 +25,16 @@ import org.apache.bcel.generic.InstructionHandle;
 // class to process ASTORE with code 75,76,77,78
 public class Processor_ASTORE extends AbstractJvmCommandProcessor {
   private final String template;
+  private final String templateForCell;
+  private final String templateCached;
+  private final String templateForCellCached;
 
   public Processor_ASTORE() {
     super();
     template = loadResourceFileAsString("ASTORE.a80");
+    templateForCell = loadResourceFileAsString("ASTORE_CELL.a80");
+    templateCached = loadResourceFileAsString("ASTORE_CACHED.a80");
+    templateForCellCached = loadResourceFileAsString("ASTORE_CELL_CACHED.a80");
   }
 
   @Override
@@ -41,7 +47,31 @@ public class Processor_ASTORE extends AbstractJvmCommandProcessor {
                       final InstructionHandle handle,
                       ClassLoader bootstrapClassLoader, final Writer out) throws IOException {
     final ASTORE astore = (ASTORE) instruction;
-    out.write(template.replace(MACROS_INDEX, Integer.toString(prepareLocalVariableIndex(astore.getIndex()))));
+    final String cell = findLocalVariableCell(classProcessor, astore.getIndex());
+    if (cell == null) {
+      out.write(template.replace(MACROS_INDEX, Integer.toString(prepareLocalVariableIndex(astore.getIndex()))));
+    } else {
+      out.write(templateForCell.replace(MACROS_ADDRESS, cell));
+    }
     out.write(NEXT_LINE);
   }
+
+  @Override
+  public boolean processWithStackCache(final MethodTranslator methodTranslator,
+                                       final Instruction instruction,
+                                       final InstructionHandle handle,
+                                       final OperandStackCache cache, final Writer out)
+      throws IOException {
+    final ASTORE astore = (ASTORE) instruction;
+    out.write(cache.load(1));
+    final String cell = findLocalVariableCell(methodTranslator, astore.getIndex());
+    if (cell == null) {
+      out.write(templateCached.replace(MACROS_INDEX, Integer.toString(prepareLocalVariableIndex(astore.getIndex()))));
+    } else {
+      out.write(templateForCellCached.replace(MACROS_ADDRESS, cell));
+    }
+    out.write(NEXT_LINE);
+    out.write(cache.drop(1));
+    return true;
+  }
 }
@@ -26,10 +26,12 @@ import org.apache.bcel.generic.InstructionHandle;
 // class to process BIPUSH with code 16
 public class Processor_BIPUSH extends AbstractJvmCommandProcessor {
   private final String template;
+  private final String templateCached;
 
   public Processor_BIPUSH() {
     super();
     template = loadResourceFileAsString("BIPUSH.a80");
+    templateCached = loadResourceFileAsString("BIPUSH_CACHED.a80");
   }
 
   @Override
@@ -48,4 +50,18 @@ public class Processor_BIPUSH extends AbstractJvmCommandProcessor {
     out.write(template.replace(MACROS_VALUE, "#" + Integer.toHexString(((int) byteValue) & 0xFFFF).toUpperCase(Locale.ENGLISH)));
     out.write(NEXT_LINE);
   }
+
+  @Override
+  public boolean processWithStackCache(final MethodTranslator methodTranslator,
+                                       final Instruction instruction,
+                                       final InstructionHandle handle,
+                                       final OperandStackCache cache, final Writer out)
+      throws IOException {
+    final BIPUSH bipush = (BIPUSH) instruction;
+    final byte byteValue = bipush.getValue().byteValue();
+    out.write(cache.reserve());
+    out.write(templateCached.replace(MACROS_VALUE, "#" + Integer.toHexString(((int) byteValue) & 0xFFFF).toUpperCase(Locale.ENGLISH)));
+    out.write(NEXT_LINE);
+    return true;
+  }
 }
@@ -25,6 +25,7 @@ import com.igormaznitsa.j2z80.utils.LabelAndFrameUtils;
 import java.io.IOException;
 import java.io.Writer;
 import org.apache.bcel.generic.CHECKCAST;
+import org.apache.bcel.generic.ClassGen;
 import org.apache.bcel.generic.Instruction;
 import org.apache.bcel.generic.InstructionHandle;
 import org.apache.bcel.generic.ObjectType;
@@ -36,7 +37,7 @@ public class Processor_CHECKCAST extends AbstractJvmCommandProcessor implements
 
   public Processor_CHECKCAST() {
     super();
-    template = loadResourceFileAsString("CHECKCAST.a80").replace(MACROS_ADDRESS, SUB_CHECKCAST);
+    template = loadResourceFileAsString("CHECKCAST.a80");
   }
 
   @Override
@@ -56,7 +57,16 @@ public class Processor_CHECKCAST extends AbstractJvmCommandProcessor implements
 
     methodTranslator.getTranslatorContext().registerClassForCastCheck(castingClassId);
 
-    out.write(template.replace(MACROS_ID, LabelAndFrameUtils.makeLabelForClassID(castingClassId)));
+    final ClassGen castingClass = methodTranslator.getTranslatorContext().getClassContext().findClassForID(castingClassId);
+    if (castingClass != null && castingClass.isInterface()) {
+      out.write(template.replace(MACROS_ADDRESS, SUB_CHECKCAST_INTERFACE)
+          .replace(MACROS_ID, LabelAndFrameUtils.makeLabelForInterfaceBitmapOffset(castingClassId))
+          .replace(MACROS_VALUE, LabelAndFrameUtils.makeLabelForInterfaceBitmapMask(castingClassId)));
+    } else {
+      out.write(template.replace(MACROS_ADDRESS, SUB_CHECKCAST)
+          .replace(MACROS_ID, LabelAndFrameUtils.makeLabelForClassID(castingClassId))
+          .replace(MACROS_VALUE, LabelAndFrameUtils.makeLabelForClassSuccessorsNumber(castingClassId)));
+    }
     out.write(NEXT_LINE);
   }
 }
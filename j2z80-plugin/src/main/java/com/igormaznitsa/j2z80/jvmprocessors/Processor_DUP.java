@@ -25,10 +25,12 @@ import org.apache.bcel.generic.InstructionHandle;
 // class to process DUP with code 089
 public class Processor_DUP extends AbstractJvmCommandProcessor {
   private final String template;
+  private final String templateCached;
 
   public Processor_DUP() {
     super();
     template = loadResourceFileAsString("DUP.a80");
+    templateCached = loadResourceFileAsString("DUP_CACHED.a80");
   }
 
   @Override
@@ -44,4 +46,17 @@ public class Processor_DUP extends AbstractJvmCommandProcessor {
     out.write(template);
     out.write(NEXT_LINE);
   }
+
+  @Override
+  public boolean processWithStackCache(final MethodTranslator methodTranslator,
+                                       final Instruction instruction,
+                                       final InstructionHandle handle,
+                                       final OperandStackCache cache, final Writer out)
+      throws IOException {
+    out.write(cache.load(1));
+    out.write(cache.reserve());
+    out.write(templateCached);
+    out.write(NEXT_LINE);
+    return true;
+  }
 }
@@ -25,10 +25,12 @@ import org.apache.bcel.generic.InstructionHandle;
 // class to process ICONST with code 02,03,04,05,06,07,08
 public class Processor_ICONST extends AbstractJvmCommandProcessor {
   private final String template;
+  private final String templateCached;
 
   public Processor_ICONST() {
     super();
     template = loadResourceFileAsString("ICONST.a80");
+    templateCached = loadResourceFileAsString("ICONST_CACHED.a80");
   }
 
   @Override
@@ -44,4 +46,17 @@ public class Processor_ICONST extends AbstractJvmCommandProcessor {
     out.write(template.replace(MACROS_VALUE, Integer.toString(iconst.getValue().intValue())));
     out.write(NEXT_LINE);
   }
+
+  @Override
+  public boolean processWithStackCache(final MethodTranslator methodTranslator,
+                                       final Instruction instruction,
+                                       final InstructionHandle handle,
+                                       final OperandStackCache cache, final Writer out)
+      throws IOException {
+    final ICONST iconst = (ICONST) instruction;
+    out.write(cache.reserve());
+    out.write(templateCached.replace(MACROS_VALUE, Integer.toString(iconst.getValue().intValue())));
+    out.write(NEXT_LINE);
+    return true;
+  }
 }
@@ -25,11 +25,11 @@ import org.apache.bcel.generic.Instruction;
 import org.apache.bcel.generic.InstructionHandle;
 
 // class to process IDIV with code 108
-public class Processor_IDIV extends AbstractJvmCommandProcessor implements NeedsINTArithmeticManager, NeedsATHROWManager {
+public class Processor_IDIV extends AbstractIntDivisionProcessor implements NeedsINTArithmeticManager, NeedsATHROWManager {
   private final String template;
 
   public Processor_IDIV() {
-    super();
+    super(false);
     template = loadResourceFileAsString("IDIV.a80").replace(MACROS_ADDRESS, SUB_INT_DIV);
   }
 
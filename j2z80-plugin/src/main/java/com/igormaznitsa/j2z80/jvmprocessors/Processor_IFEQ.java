@@ -16,20 +16,18 @@
 package com.igormaznitsa.j2z80.jvmprocessors;
 
 import com.igormaznitsa.j2z80.translator.MethodTranslator;
-import com.igormaznitsa.j2z80.utils.LabelAndFrameUtils;
 import java.io.IOException;
 import java.io.Writer;
-import org.apache.bcel.generic.BranchHandle;
 import org.apache.bcel.generic.IFEQ;
 import org.apache.bcel.generic.Instruction;
 import org.apache.bcel.generic.InstructionHandle;
 
 // class to process IFEQ with code 153
-public class Processor_IFEQ extends AbstractJvmCommandProcessor {
+public class Processor_IFEQ extends AbstractConditionalJumpProcessor {
   private final String template;
 
   public Processor_IFEQ() {
-    super();
+    super(Condition.EQ, true);
     template = loadResourceFileAsString("IFEQ.a80");
   }
 
@@ -43,7 +41,7 @@ public class Processor_IFEQ extends AbstractJvmCommandProcessor {
                       final InstructionHandle handle,
                       ClassLoader bootstrapClassLoader, final Writer out) throws IOException {
     final IFEQ ifeq = (IFEQ) instruction;
-    final String label = LabelAndFrameUtils.makeClassMethodJumpLabel(methodTranslator.getMethod(), ((BranchHandle) handle).getTarget().getPosition());
+    final String label = makeTargetLabel(methodTranslator, handle);
     out.write(template.replace(MACROS_ADDRESS, label));
     out.write(NEXT_LINE);
   }
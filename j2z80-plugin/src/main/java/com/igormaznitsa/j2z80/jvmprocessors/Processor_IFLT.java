@@ -16,20 +16,18 @@
 package com.igormaznitsa.j2z80.jvmprocessors;
 
 import com.igormaznitsa.j2z80.translator.MethodTranslator;
-import com.igormaznitsa.j2z80.utils.LabelAndFrameUtils;
 import java.io.IOException;
 import java.io.Writer;
-import org.apache.bcel.generic.BranchHandle;
 import org.apache.bcel.generic.IFLT;
 import org.apache.bcel.generic.Instruction;
 import org.apache.bcel.generic.InstructionHandle;
 
 // class to process IFLT with code 155
-public class Processor_IFLT extends AbstractJvmCommandProcessor {
+public class Processor_IFLT extends AbstractConditionalJumpProcessor {
   private final String template;
 
   public Processor_IFLT() {
-    super();
+    super(Condition.LT, true);
     template = loadResourceFileAsString("IFLT.a80");
   }
 
@@ -43,7 +41,7 @@ public class Processor_IFLT extends AbstractJvmCommandProcessor {
                       final InstructionHandle handle,
                       ClassLoader bootstrapClassLoader, final Writer out) throws IOException {
     final IFLT nop = (IFLT) instruction;
-    final String label = LabelAndFrameUtils.makeClassMethodJumpLabel(classProcessor.getMethod(), ((BranchHandle) handle).getTarget().getPosition());
+    final String label = makeTargetLabel(classProcessor, handle);
     out.write(template.replace(MACROS_ADDRESS, label));
     out.write(NEXT_LINE);
   }
@@ -16,20 +16,18 @@
 package com.igormaznitsa.j2z80.jvmprocessors;
 
 import com.igormaznitsa.j2z80.translator.MethodTranslator;
-import com.igormaznitsa.j2z80.utils.LabelAndFrameUtils;
 import java.io.IOException;
 import java.io.Writer;
-import org.apache.bcel.generic.BranchHandle;
 import org.apache.bcel.generic.IF_ICMPGE;
 import org.apache.bcel.generic.Instruction;
 import org.apache.bcel.generic.InstructionHandle;
 
 // class to process IF_ICMPGE with code 162
-public class Processor_IF_ICMPGE extends AbstractJvmCommandProcessor {
+public class Processor_IF_ICMPGE extends AbstractConditionalJumpProcessor {
   private final String template;
 
   public Processor_IF_ICMPGE() {
-    super();
+    super(Condition.GE, false);
     template = loadResourceFileAsString("IF_ICMPGE.a80");
   }
 
@@ -43,7 +41,7 @@ public class Processor_IF_ICMPGE extends AbstractJvmCommandProcessor {
                       final InstructionHandle handle,
                       ClassLoader bootstrapClassLoader, final Writer out) throws IOException {
     final IF_ICMPGE ifcmpge = (IF_ICMPGE) instruction;
-    final String label = LabelAndFrameUtils.makeClassMethodJumpLabel(methodTranslator.getMethod(), ((BranchHandle) handle).getTarget().getPosition());
+    final String label = makeTargetLabel(methodTranslator, handle);
     out.write(template.replace(MACROS_ADDRESS, label));
     out.write(NEXT_LINE);
   }
@@ -16,21 +16,19 @@
 package com.igormaznitsa.j2z80.jvmprocessors;
 
 import com.igormaznitsa.j2z80.translator.MethodTranslator;
-import com.igormaznitsa.j2z80.utils.LabelAndFrameUtils;
 import java.io.IOException;
 import java.io.Writer;
-import org.apache.bcel.generic.BranchHandle;
 import org.apache.bcel.generic.IF_ICMPGT;
 import org.apache.bcel.generic.Instruction;
 import org.apache.bcel.generic.InstructionHandle;
 
 // class to process IF_ICMPGT with code 163
-public class Processor_IF_ICMPGT extends AbstractJvmCommandProcessor {
+public class Processor_IF_ICMPGT extends AbstractConditionalJumpProcessor {
 
   private final String template;
 
   public Processor_IF_ICMPGT() {
-    super();
+    super(Condition.GT, false);
     template = loadResourceFileAsString("IF_ICMPGT.a80");
   }
 
@@ -44,7 +42,7 @@ public class Processor_IF_ICMPGT extends AbstractJvmCommandProcessor {
                       final InstructionHandle handle,
                       ClassLoader bootstrapClassLoader, final Writer out) throws IOException {
     final IF_ICMPGT ifcmpgt = (IF_ICMPGT) instruction;
-    final String label = LabelAndFrameUtils.makeClassMethodJumpLabel(methodTranslator.getMethod(), ((BranchHandle) handle).getTarget().getPosition());
+    final String label = makeTargetLabel(methodTranslator, handle);
     out.write(template.replace(MACROS_ADDRESS, label));
     out.write(NEXT_LINE);
   }
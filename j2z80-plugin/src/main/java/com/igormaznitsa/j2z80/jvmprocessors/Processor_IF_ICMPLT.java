@@ -16,20 +16,18 @@
 package com.igormaznitsa.j2z80.jvmprocessors;
 
 import com.igormaznitsa.j2z80.translator.MethodTranslator;
-import com.igormaznitsa.j2z80.utils.LabelAndFrameUtils;
 import java.io.IOException;
 import java.io.Writer;
-import org.apache.bcel.generic.BranchHandle;
 import org.apache.bcel.generic.IF_ICMPLT;
 import org.apache.bcel.generic.Instruction;
 import org.apache.bcel.generic.InstructionHandle;
 
 // class to process IF_ICMPLT with code 161
-public class Processor_IF_ICMPLT extends AbstractJvmCommandProcessor {
+public class Processor_IF_ICMPLT extends AbstractConditionalJumpProcessor {
   private final String template;
 
   public Processor_IF_ICMPLT() {
-    super();
+    super(Condition.LT, false);
     template = loadResourceFileAsString("IF_ICMPLT.a80");
   }
 
@@ -43,7 +41,7 @@ public class Processor_IF_ICMPLT extends AbstractJvmCommandProcessor {
                       final InstructionHandle handle,
                       ClassLoader bootstrapClassLoader, final Writer out) throws IOException {
     final IF_ICMPLT ificmplt = (IF_ICMPLT) instruction;
-    final String label = LabelAndFrameUtils.makeClassMethodJumpLabel(methodTranslator.getMethod(), ((BranchHandle) handle).getTarget().getPosition());
+    final String label = makeTargetLabel(methodTranslator, handle);
     out.write(template.replace(MACROS_ADDRESS, label));
     out.write(NEXT_LINE);
   }
@@ -24,11 +24,20 @@ import org.apache.bcel.generic.InstructionHandle;
 
 // class to process IINC with code 132
 public class Processor_IINC extends AbstractJvmCommandProcessor {
+  private static final String MACROS_LOW = "%low%";
+  private static final String MACROS_HIGH = "%high%";
+
   private final String template;
+  private final String templateForCell;
+  private final String templateCached;
+  private final String templateForCellCached;
 
   public Processor_IINC() {
     super();
     template = loadResourceFileAsString("IINC.a80");
+    templateForCell = loadResourceFileAsString("IINC_CELL.a80");
+    templateCached = loadResourceFileAsString("IINC_CACHED.a80");
+    templateForCellCached = loadResourceFileAsString("IINC_CELL_CACHED.a80");
   }
 
   @Override
@@ -41,9 +50,37 @@ public class Processor_IINC extends AbstractJvmCommandProcessor {
                       final InstructionHandle handle,
                       ClassLoader bootstrapClassLoader, final Writer out) throws IOException {
     final IINC iinc = (IINC) instruction;
-    iinc.getIncrement();
 
-    out.write(template.replace(MACROS_INDEX, Integer.toString(prepareLocalVariableIndex(iinc.getIndex()))).replace(MACROS_VALUE, Integer.toString(iinc.getIncrement())));
+    final String cell = findLocalVariableCell(methodTranslator, iinc.getIndex());
+    if (cell == null) {
+      out.write(template.replace(MACROS_INDEX, Integer.toString(prepareLocalVariableIndex(iinc.getIndex()))).replace(MACROS_VALUE, Integer.toString(iinc.getIncrement())));
+    } else {
+      out.write(templateForCell.replace(MACROS_ADDRESS, cell).replace(MACROS_VALUE, Integer.toString(iinc.getIncrement())));
+    }
+    out.write(NEXT_LINE);
+  }
+
+  @Override
+  public boolean processWithStackCache(final MethodTranslator methodTranslator,
+                                       final Instruction instruction,
+                                       final InstructionHandle handle,
+                                       final OperandStackCache cache, final Writer out)
+      throws IOException {
+    if (cache.isEmpty()) {
+      // HL and DE are free so the usual code is used
+      return false;
+    }
+    final IINC iinc = (IINC) instruction;
+    final String low = Integer.toString(iinc.getIncrement() & 0xFF);
+    final String high = Integer.toString((iinc.getIncrement() >> 8) & 0xFF);
+
+    final String cell = findLocalVariableCell(methodTranslator, iinc.getIndex());
+    if (cell == null) {
+      out.write(templateCached.replace(MACROS_INDEX, Integer.toString(prepareLocalVariableIndex(iinc.getIndex()))).replace(MACROS_LOW, low).replace(MACROS_HIGH, high));
+    } else {
+      out.write(templateForCellCached.replace(MACROS_ADDRESS, cell).replace(MACROS_LOW, low).replace(MACROS_HIGH, high));
+    }
     out.write(NEXT_LINE);
+    return true;
   }
 }
@@ -25,10 +25,16 @@ import org.apache.bcel.generic.InstructionHandle;
 // class to process ILOAD with code 26,27,28,29
 public class Processor_ILOAD extends AbstractJvmCommandProcessor {
   private final String template;
+  private final String templateForCell;
+  private final String templateCached;
+  private final String templateForCellCached;
 
   public Processor_ILOAD() {
     super();
     template = loadResourceFileAsString("ILOAD.a80");
+    templateForCell = loadResourceFileAsString("ILOAD_CELL.a80");
+    templateCached = loadResourceFileAsString("ILOAD_CACHED.a80");
+    templateForCellCached = loadResourceFileAsString("ILOAD_CELL_CACHED.a80");
   }
 
   @Override
@@ -41,7 +47,30 @@ public class Processor_ILOAD extends AbstractJvmCommandProcessor {
                       final InstructionHandle handle,
                       ClassLoader bootstrapClassLoader, final Writer out) throws IOException {
     final ILOAD iload = (ILOAD) instruction;
-    out.write(template.replace(MACROS_INDEX, Integer.toString(prepareLocalVariableIndex(iload.getIndex()))));
+    final String cell = findLocalVariableCell(methodTranslator, iload.getIndex());
+    if (cell == null) {
+      out.write(template.replace(MACROS_INDEX, Integer.toString(prepareLocalVariableIndex(iload.getIndex()))));
+    } else {
+      out.write(templateForCell.replace(MACROS_ADDRESS, cell));
+    }
     out.write(NEXT_LINE);
   }
+
+  @Override
+  public boolean processWithStackCache(final MethodTranslator methodTranslator,
+                                       final Instruction instruction,
+                                       final InstructionHandle handle,
+                                       final OperandStackCache cache, final Writer out)
+      throws IOException {
+    final ILOAD iload = (ILOAD) instruction;
+    out.write(cache.reserve());
+    final String cell = findLocalVariableCell(methodTranslator, iload.getIndex());
+    if (cell == null) {
+      out.write(templateCached.replace(MACROS_INDEX, Integer.toString(prepareLocalVariableIndex(iload.getIndex()))));
+    } else {
+      out.write(templateForCellCached.replace(MACROS_ADDRESS, cell));
+    }
+    out.write(NEXT_LINE);
+    return true;
+  }
 }
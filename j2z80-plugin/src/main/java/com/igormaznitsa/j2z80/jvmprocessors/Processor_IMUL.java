@@ -26,6 +26,9 @@ import org.apache.bcel.generic.InstructionHandle;
 
 // class to process IMUL with code 104
 public class Processor_IMUL extends AbstractJvmCommandProcessor implements NeedsINTArithmeticManager, NeedsATHROWManager {
+  // max number of additions in inline multiplication by constant, longer ones call the subroutine
+  private static final int MAX_INLINE_ADDITIONS = 16;
+
   private final String template;
 
   public Processor_IMUL() {
@@ -46,4 +49,70 @@ public class Processor_IMUL extends AbstractJvmCommandProcessor implements Needs
     out.write(template);
     out.write(NEXT_LINE);
   }
+
+  @Override
+  public boolean processWithConstantOperand(final MethodTranslator methodTranslator,
+                                            final Instruction instruction,
+                                            final InstructionHandle handle, final int constant,
+                                            final OperandStackCache cache, final Writer out)
+      throws IOException {
+    out.write(cache == null ? "POP HL" + NEXT_LINE : cache.load(1));
+    final String multiplication = generateConstantMultiplication(constant);
+    if (multiplication == null) {
+      // DE can keep a cached value
+      final boolean saveDE = cache != null && cache.getSize() > 1;
+      out.write((saveDE ? "PUSH DE" + NEXT_LINE : "")
+          + "LD B,H" + NEXT_LINE + "LD C,L" + NEXT_LINE
+          + "LD DE," + (constant & 0xFFFF) + NEXT_LINE
+          + "CALL " + SUB_INT_MUL + NEXT_LINE
+          + "LD H,B" + NEXT_LINE + "LD L,C" + NEXT_LINE
+          + (saveDE ? "POP DE" + NEXT_LINE : ""));
+    } else {
+      out.write(multiplication);
+    }
+    if (cache == null) {
+      out.write("PUSH HL" + NEXT_LINE);
+    }
+    return true;
+  }
+
+  /**
+   * Generate inline code multiplying HL by a constant with shifts and additions, the code changes
+   * only HL, BC and A.
+   *
+   * @param constant the multiplier
+   * @return the code or null if the multiplication is too long to be inlined
+   */
+  public static String generateConstantMultiplication(final int constant) {
+    final int multiplier = Math.abs((int) (short) constant);
+    if (multiplier == 0) {
+      return "LD HL,0" + NEXT_LINE;
+    }
+
+    final int highestBit = 31 - Integer.numberOfLeadingZeros(multiplier);
+    if (highestBit + Integer.bitCount(multiplier) - 1 > MAX_INLINE_ADDITIONS) {
+      return null;
+    }
+
+    final StringBuilder result = new StringBuilder();
+    if (Integer.bitCount(multiplier) > 1) {
+      result.append("LD B,H").append(NEXT_LINE).append("LD C,L").append(NEXT_LINE);
+    }
+    // bits after the highest one from the top, HL is doubled for each bit and the value is added for set bits
+    for (int bit = highestBit - 1; bit >= 0; bit--) {
+      result.append("ADD HL,HL").append(NEXT_LINE);
+      if ((multiplier & (1 << bit)) != 0) {
+        result.append("ADD HL,BC").append(NEXT_LINE);
+      }
+    }
+    if ((short) constant < 0) {
+      result.append("XOR A").append(NEXT_LINE)
+          .append("SUB L").append(NEXT_LINE)
+          .append("LD L,A").append(NEXT_LINE)
+          .append("SBC A,A").append(NEXT_LINE)
+          .append("SUB H").append(NEXT_LINE)
+          .append("LD H,A").append(NEXT_LINE);
+    }
+    return result.toString();
+  }
 }
@@ -22,6 +22,7 @@ import com.igormaznitsa.j2z80.translator.MethodTranslator;
 import com.igormaznitsa.j2z80.utils.LabelAndFrameUtils;
 import java.io.IOException;
 import java.io.Writer;
+import org.apache.bcel.generic.ClassGen;
 import org.apache.bcel.generic.INSTANCEOF;
 import org.apache.bcel.generic.Instruction;
 import org.apache.bcel.generic.InstructionHandle;
@@ -52,7 +53,16 @@ public class Processor_INSTANCEOF extends AbstractJvmCommandProcessor implements
 
     methodTranslator.getTranslatorContext().registerClassForCastCheck(targetClassID);
 
-    out.write(template.replace(MACROS_ID, LabelAndFrameUtils.makeLabelForClassID(targetClassID)));
+    final ClassGen targetClass = methodTranslator.getTranslatorContext().getClassContext().findClassForID(targetClassID);
+    if (targetClass != null && targetClass.isInterface()) {
+      out.write(template.replace(MACROS_ADDRESS, SUB_INSTANCEOF_INTERFACE)
+          .replace(MACROS_ID, LabelAndFrameUtils.makeLabelForInterfaceBitmapOffset(targetClassID))
+          .replace(MACROS_VALUE, LabelAndFrameUtils.makeLabelForInterfaceBitmapMask(targetClassID)));
+    } else {
+      out.write(template.replace(MACROS_ADDRESS, SUB_INSTANCEOF)
+          .replace(MACROS_ID, LabelAndFrameUtils.makeLabelForClassID(targetClassID))
+          .replace(MACROS_VALUE, LabelAndFrameUtils.makeLabelForClassSuccessorsNumber(targetClassID)));
+    }
     out.write(NEXT_LINE);
   }
 }
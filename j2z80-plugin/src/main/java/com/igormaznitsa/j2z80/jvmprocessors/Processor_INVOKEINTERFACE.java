@@ -20,6 +20,7 @@ import com.igormaznitsa.j2z80.api.additional.NeedsINVOKEINTERFACEManager;
 import com.igormaznitsa.j2z80.ids.MethodID;
 import com.igormaznitsa.j2z80.translator.MethodTranslator;
 import com.igormaznitsa.j2z80.utils.LabelAndFrameUtils;
+import com.igormaznitsa.meta.common.utils.Assertions;
 import java.io.IOException;
 import java.io.Writer;
 import java.util.Locale;
@@ -32,10 +33,22 @@ import org.apache.bcel.generic.Type;
 // class to process INVOKEINTERFACE with code 185
 public class Processor_INVOKEINTERFACE extends AbstractInvokeProcessor implements NeedsATHROWManager, NeedsINVOKEINTERFACEManager {
 
+  private static final String MACROS_METHOD_ID = "%methodid%";
+
   private final String template;
+  private final String directCallTemplate;
 
   public Processor_INVOKEINTERFACE() {
     this.template = loadResourceFileAsString("INVOKEINTERFACE.a80");
+    this.directCallTemplate = loadResourceFileAsString("INVOKESPECIAL.a80");
+  }
+
+  @Override
+  public Class<?> findClassOfAdditions(final MethodTranslator methodTranslator,
+                                       final Instruction instruction) {
+    // devirtualized calls don't need the interface table
+    return this.findSingleImplementation(methodTranslator, (INVOKEINTERFACE) instruction) == null
+        ? this.getClass() : AbstractInvokeProcessor.class;
   }
 
   @Override
@@ -53,10 +66,20 @@ public class Processor_INVOKEINTERFACE extends AbstractInvokeProcessor implement
 
     if (!isBootstrapCall(methodTranslator, inv, bootstrapClassLoader, out)) {
       assertMethodIsNotNull(invokedMethod, methodTranslator, inv);
+
+      // the method is not registered so that it doesn't get record in the interface table
+      final MethodGen implementation = this.findSingleImplementation(methodTranslator, inv);
+      if (implementation != null) {
+        out.write(generateDirectCall(this.directCallTemplate, implementation));
+        out.write(NEXT_LINE);
+        return;
+      }
+
       final MethodID interfaceMethodId = new MethodID(invokedMethod);
-      methodTranslator.getTranslatorContext().registerInterfaceMethodForINVOKEINTERFACE(interfaceMethodId);
+      final Integer interfaceMethodUid = methodTranslator.getTranslatorContext().registerInterfaceMethodForINVOKEINTERFACE(interfaceMethodId);
+      Assertions.assertNotNull("Interface method must have UID [" + interfaceMethodId + ']', interfaceMethodUid);
 
-      final String interfaceMethdodId = LabelAndFrameUtils.makeLabelForMethodID(interfaceMethodId);
+      final String selector = LabelAndFrameUtils.makeLabelForInterfaceMethodSelector(interfaceMethodId);
 
       final int argumentsBlockSize = calculateArgumentBlockSize(invokedMethod);
 
@@ -70,7 +93,7 @@ public class Processor_INVOKEINTERFACE extends AbstractInvokeProcessor implement
         postfix += "PUSH BC\n";
       }
 
-      final String res = template.replace(MACROS_OBJREFOFFSET, "#" + Integer.toHexString(offsetOnStackToTheObjectRef & 0xFFFF).toUpperCase(Locale.ENGLISH)).replace(MACROS_VALUE, Integer.toString(argumentsBlockSize)).replace(MACROS_ID, interfaceMethdodId).replace(MACROS_POSTFIX, postfix);
+      final String res = template.replace(MACROS_OBJREFOFFSET, "#" + Integer.toHexString(offsetOnStackToTheObjectRef & 0xFFFF).toUpperCase(Locale.ENGLISH)).replace(MACROS_VALUE, Integer.toString(argumentsBlockSize)).replace(MACROS_ID, selector).replace(MACROS_METHOD_ID, interfaceMethodUid.toString()).replace(MACROS_POSTFIX, postfix);
 
       out.write(res);
       out.write(NEXT_LINE);
@@ -16,6 +16,9 @@
 package com.igormaznitsa.j2z80.jvmprocessors;
 
 import com.igormaznitsa.j2z80.api.additional.NeedsMemoryManager;
+import com.igormaznitsa.j2z80.ids.ClassMethodInfo;
+import com.igormaznitsa.j2z80.ids.ClassMethodInfo.CallingConvention;
+import com.igormaznitsa.j2z80.ids.MethodID;
 import com.igormaznitsa.j2z80.translator.MethodTranslator;
 import com.igormaznitsa.j2z80.translator.utils.ClassUtils;
 import com.igormaznitsa.j2z80.utils.LabelAndFrameUtils;
@@ -34,10 +37,12 @@ import org.apache.bcel.generic.Type;
 public class Processor_INVOKESTATIC extends AbstractInvokeProcessor implements NeedsMemoryManager {
 
   private final String template;
+  private final String templateTail;
 
   public Processor_INVOKESTATIC() {
     super();
     template = loadResourceFileAsString("INVOKESTATIC.a80");
+    templateTail = loadResourceFileAsString("INVOKESTATIC_TAIL.a80");
   }
 
   @Override
@@ -60,7 +65,7 @@ public class Processor_INVOKESTATIC extends AbstractInvokeProcessor implements N
     }
 
     final int argumentMemorySize = calculateArgumentBlockSize(initingMethod);
-    final int totalMemorySize = calculateTotalFrameSizeWithoutLocals(initingMethod);
+    final int totalMemorySize = calculateTotalFrameSize(initingMethod);
     String prefix = "";
     String postfix = "";
 
@@ -93,7 +98,7 @@ public class Processor_INVOKESTATIC extends AbstractInvokeProcessor implements N
       assertMethodIsNotNull(invokedMethod, methodTranslator, inv);
 
       final int argumentMemorySize = calculateArgumentBlockSize(invokedMethod);
-      final int totalMemorySize = calculateTotalFrameSizeWithoutLocals(invokedMethod);
+      final int totalMemorySize = calculateTotalFrameSize(invokedMethod);
       String prefix = "";
       String postfix = "";
 
@@ -104,7 +109,27 @@ public class Processor_INVOKESTATIC extends AbstractInvokeProcessor implements N
 
       assertLocalVariablesNumber(invokedMethod);
 
-      if (needsFrame) {
+      final ClassMethodInfo invokedMethodInfo = methodTranslator.getTranslatorContext()
+          .getMethodContext().findMethodInfo(new MethodID(invokedMethod));
+
+      final CallingConvention convention = invokedMethodInfo == null
+          ? CallingConvention.FRAME : invokedMethodInfo.getCallingConvention();
+
+      if (methodTranslator.isTailCall(handle)) {
+        final String tailPrefix = makeTailCallPrefix(methodTranslator.getMethod(), invokedMethodInfo,
+            convention, invokedMethod.getArgumentTypes().length, needsFrame, totalMemorySize);
+        if (tailPrefix != null) {
+          out.write(templateTail.replace(MACROS_ADDRESS, labelForMethod).replace(MACROS_PREFIX, tailPrefix));
+          out.write(NEXT_LINE);
+          return;
+        }
+      }
+
+      if (convention == CallingConvention.REGISTERS) {
+        prefix = generateRegisterArgumentsPrefix(invokedMethod.getArgumentTypes().length);
+      } else if (convention == CallingConvention.STATIC_FRAME) {
+        prefix = generateStaticFrameArgumentsPrefix(invokedMethodInfo);
+      } else if (needsFrame) {
         prefix = generateFramePrefix(argumentMemorySize, totalMemorySize);
         postfix = generateFramePostfix(argumentMemorySize, totalMemorySize);
       }
@@ -119,4 +144,24 @@ public class Processor_INVOKESTATIC extends AbstractInvokeProcessor implements N
       out.write(NEXT_LINE);
     }
   }
+
+  // the prefix of a tail call made by jump, null if the call can't be made by jump
+  private static String makeTailCallPrefix(final ClassMethodInfo caller, final ClassMethodInfo invokedMethodInfo,
+                                           final CallingConvention convention, final int argNumber,
+                                           final boolean needsFrame, final int totalMemorySize) {
+    switch (convention) {
+      case REGISTERS:
+        return generateRegisterArgumentsPrefix(argNumber);
+      case STATIC_FRAME:
+        return generateStaticFrameArgumentsPrefix(invokedMethodInfo);
+      default:
+        if (!needsFrame) {
+          return "";
+        }
+        // the invoked method reuses stack frame of the caller if the frame is big enough
+        return caller.getCallingConvention() == CallingConvention.FRAME
+            && totalMemorySize <= calculateTotalFrameSize(caller.getMethodGen())
+            ? generateFrameTailCallPrefix(argNumber) : null;
+    }
+  }
 }
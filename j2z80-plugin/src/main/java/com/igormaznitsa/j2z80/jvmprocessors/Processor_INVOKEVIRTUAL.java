@@ -31,10 +31,20 @@ import org.apache.bcel.generic.Type;
 public class Processor_INVOKEVIRTUAL extends AbstractInvokeProcessor implements NeedsINVOKEVIRTUALManager {
 
   private final String template;
+  private final String directCallTemplate;
 
   public Processor_INVOKEVIRTUAL() {
     super();
     this.template = loadResourceFileAsString("INVOKEVIRTUAL.a80");
+    this.directCallTemplate = loadResourceFileAsString("INVOKESPECIAL.a80");
+  }
+
+  @Override
+  public Class<?> findClassOfAdditions(final MethodTranslator methodTranslator,
+                                       final Instruction instruction) {
+    // devirtualized calls don't need virtual tables
+    return this.findSingleImplementation(methodTranslator, (INVOKEVIRTUAL) instruction) == null
+        ? this.getClass() : AbstractInvokeProcessor.class;
   }
 
   @Override
@@ -52,7 +62,13 @@ public class Processor_INVOKEVIRTUAL extends AbstractInvokeProcessor implements
 
     if (!this.isBootstrapCall(methodTranslator, inv, bootstrapClassLoader, out)) {
       assertMethodIsNotNull(invokedMethod, methodTranslator, inv);
-      assertMethodIsNotNull(invokedMethod, methodTranslator, inv);
+
+      final MethodGen implementation = this.findSingleImplementation(methodTranslator, inv);
+      if (implementation != null) {
+        out.write(generateDirectCall(this.directCallTemplate, implementation));
+        out.write(NEXT_LINE);
+        return;
+      }
 
       final String recordLabel = LabelAndFrameUtils.makeLabelForVirtualMethodRecord(invokedMethod.getClassName(), invokedMethod.getName(), invokedMethod.getReturnType(), invokedMethod.getArgumentTypes());
 
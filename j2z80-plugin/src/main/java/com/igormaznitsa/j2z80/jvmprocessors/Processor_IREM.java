@@ -25,11 +25,11 @@ import org.apache.bcel.generic.Instruction;
 import org.apache.bcel.generic.InstructionHandle;
 
 // class to process IREM with code 112
-public class Processor_IREM extends AbstractJvmCommandProcessor implements NeedsINTArithmeticManager, NeedsATHROWManager {
+public class Processor_IREM extends AbstractIntDivisionProcessor implements NeedsINTArithmeticManager, NeedsATHROWManager {
   private final String template;
 
   public Processor_IREM() {
-    super();
+    super(true);
     template = loadResourceFileAsString("IREM.a80").replace(MACROS_ADDRESS, SUB_INT_REM);
   }
 
@@ -23,7 +23,7 @@ import org.apache.bcel.generic.Instruction;
 import org.apache.bcel.generic.InstructionHandle;
 
 // class to process ISHL with code 120
-public class Processor_ISHL extends AbstractJvmCommandProcessor {
+public class Processor_ISHL extends AbstractIntShiftProcessor {
   private final String template;
 
   public Processor_ISHL() {
@@ -44,4 +44,15 @@ public class Processor_ISHL extends AbstractJvmCommandProcessor {
     out.write(template);
     out.write(NEXT_LINE);
   }
+
+  @Override
+  protected String generateConstantShift(final int count) {
+    if (count >= 16) {
+      return "LD HL,0" + NEXT_LINE;
+    }
+    if (count >= 8) {
+      return "LD H,L" + NEXT_LINE + "LD L,0" + NEXT_LINE + ("ADD HL,HL" + NEXT_LINE).repeat(count - 8);
+    }
+    return ("ADD HL,HL" + NEXT_LINE).repeat(count);
+  }
 }
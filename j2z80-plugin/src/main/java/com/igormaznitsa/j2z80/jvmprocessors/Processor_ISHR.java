@@ -23,7 +23,7 @@ import org.apache.bcel.generic.Instruction;
 import org.apache.bcel.generic.InstructionHandle;
 
 // class to process ISHR with code 122
-public class Processor_ISHR extends AbstractJvmCommandProcessor {
+public class Processor_ISHR extends AbstractIntShiftProcessor {
   private final String template;
 
   public Processor_ISHR() {
@@ -44,4 +44,17 @@ public class Processor_ISHR extends AbstractJvmCommandProcessor {
     out.write(template);
     out.write(NEXT_LINE);
   }
+
+  @Override
+  protected String generateConstantShift(final int count) {
+    final String signFill =
+        "LD A,H" + NEXT_LINE + "RLA" + NEXT_LINE + "SBC A,A" + NEXT_LINE + "LD H,A" + NEXT_LINE;
+    if (count >= 16) {
+      return signFill + "LD L,A" + NEXT_LINE;
+    }
+    if (count >= 8) {
+      return "LD L,H" + NEXT_LINE + signFill + ("SRA L" + NEXT_LINE).repeat(count - 8);
+    }
+    return ("SRA H" + NEXT_LINE + "RR L" + NEXT_LINE).repeat(count);
+  }
 }
@@ -25,10 +25,16 @@ import org.apache.bcel.generic.InstructionHandle;
 // class to process ISTORE with code 59,60,61,62
 public class Processor_ISTORE extends AbstractJvmCommandProcessor {
   private final String template;
+  private final String templateForCell;
+  private final String templateCached;
+  private final String templateForCellCached;
 
   public Processor_ISTORE() {
     super();
     template = loadResourceFileAsString("ISTORE.a80");
+    templateForCell = loadResourceFileAsString("ISTORE_CELL.a80");
+    templateCached = loadResourceFileAsString("ISTORE_CACHED.a80");
+    templateForCellCached = loadResourceFileAsString("ISTORE_CELL_CACHED.a80");
   }
 
   @Override
@@ -41,7 +47,31 @@ public class Processor_ISTORE extends AbstractJvmCommandProcessor {
                       final InstructionHandle handle,
                       ClassLoader bootstrapClassLoader, final Writer out) throws IOException {
     final ISTORE istore = (ISTORE) instruction;
-    out.write(template.replace(MACROS_INDEX, Integer.toString(istore.getIndex() << 1)));
+    final String cell = findLocalVariableCell(classProcessor, istore.getIndex());
+    if (cell == null) {
+      out.write(template.replace(MACROS_INDEX, Integer.toString(istore.getIndex() << 1)));
+    } else {
+      out.write(templateForCell.replace(MACROS_ADDRESS, cell));
+    }
     out.write(NEXT_LINE);
   }
+
+  @Override
+  public boolean processWithStackCache(final MethodTranslator methodTranslator,
+                                       final Instruction instruction,
+                                       final InstructionHandle handle,
+                                       final OperandStackCache cache, final Writer out)
+      throws IOException {
+    final ISTORE istore = (ISTORE) instruction;
+    out.write(cache.load(1));
+    final String cell = findLocalVariableCell(methodTranslator, istore.getIndex());
+    if (cell == null) {
+      out.write(templateCached.replace(MACROS_INDEX, Integer.toString(prepareLocalVariableIndex(istore.getIndex()))));
+    } else {
+      out.write(templateForCellCached.replace(MACROS_ADDRESS, cell));
+    }
+    out.write(NEXT_LINE);
+    out.write(cache.drop(1));
+    return true;
+  }
 }
@@ -23,7 +23,7 @@ import org.apache.bcel.generic.Instruction;
 import org.apache.bcel.generic.InstructionHandle;
 
 // class to process IUSHR with code 124
-public class Processor_IUSHR extends AbstractJvmCommandProcessor {
+public class Processor_IUSHR extends AbstractIntShiftProcessor {
   private final String template;
 
   public Processor_IUSHR() {
@@ -44,4 +44,15 @@ public class Processor_IUSHR extends AbstractJvmCommandProcessor {
     out.write(template);
     out.write(NEXT_LINE);
   }
+
+  @Override
+  protected String generateConstantShift(final int count) {
+    if (count >= 16) {
+      return "LD HL,0" + NEXT_LINE;
+    }
+    if (count >= 8) {
+      return "LD L,H" + NEXT_LINE + "LD H,0" + NEXT_LINE + ("SRL L" + NEXT_LINE).repeat(count - 8);
+    }
+    return ("SRL H" + NEXT_LINE + "RR L" + NEXT_LINE).repeat(count);
+  }
 }
@@ -25,10 +25,12 @@ import org.apache.bcel.generic.InstructionHandle;
 // class to process IXOR with code 130
 public class Processor_IXOR extends AbstractJvmCommandProcessor {
   private final String template;
+  private final String templateCached;
 
   public Processor_IXOR() {
     super();
     template = loadResourceFileAsString("IXOR.a80");
+    templateCached = loadResourceFileAsString("IXOR_CACHED.a80");
   }
 
   @Override
@@ -44,4 +46,17 @@ public class Processor_IXOR extends AbstractJvmCommandProcessor {
     out.write(template);
     out.write(NEXT_LINE);
   }
+
+  @Override
+  public boolean processWithStackCache(final MethodTranslator methodTranslator,
+                                       final Instruction instruction,
+                                       final InstructionHandle handle,
+                                       final OperandStackCache cache, final Writer out)
+      throws IOException {
+    out.write(cache.load(2));
+    out.write(templateCached);
+    out.write(NEXT_LINE);
+    cache.replace(2);
+    return true;
+  }
 }
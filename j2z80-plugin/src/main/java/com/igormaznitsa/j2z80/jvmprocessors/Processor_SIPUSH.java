@@ -25,10 +25,12 @@ import org.apache.bcel.generic.SIPUSH;
 // class to process SIPUSH with code 17
 public class Processor_SIPUSH extends AbstractJvmCommandProcessor {
   private final String template;
+  private final String templateCached;
 
   public Processor_SIPUSH() {
     super();
     template = loadResourceFileAsString("SIPUSH.a80");
+    templateCached = loadResourceFileAsString("SIPUSH_CACHED.a80");
   }
 
   @Override
@@ -44,4 +46,17 @@ public class Processor_SIPUSH extends AbstractJvmCommandProcessor {
     out.write(template.replace(MACROS_VALUE, Integer.toString(sipush.getValue().intValue())));
     out.write(NEXT_LINE);
   }
+
+  @Override
+  public boolean processWithStackCache(final MethodTranslator methodTranslator,
+                                       final Instruction instruction,
+                                       final InstructionHandle handle,
+                                       final OperandStackCache cache, final Writer out)
+      throws IOException {
+    final SIPUSH sipush = (SIPUSH) instruction;
+    out.write(cache.reserve());
+    out.write(templateCached.replace(MACROS_VALUE, Integer.toString(sipush.getValue().intValue())));
+    out.write(NEXT_LINE);
+    return true;
+  }
 }
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80.translator;
+
+import com.igormaznitsa.j2z80.ids.ClassMethodInfo;
+import com.igormaznitsa.j2z80.ids.MethodID;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.bcel.generic.ConstantPoolGen;
+import org.apache.bcel.generic.INVOKESTATIC;
+import org.apache.bcel.generic.Instruction;
+import org.apache.bcel.generic.InstructionList;
+import org.apache.bcel.generic.InvokeInstruction;
+import org.apache.bcel.generic.MethodGen;
+import org.apache.bcel.generic.ObjectType;
+import org.apache.bcel.generic.ReferenceType;
+import org.apache.bcel.generic.Type;
+
+/**
+ * The class is the call graph of translated methods. Static calls are linked to the called method,
+ * other calls are linked to all methods with the same name and signature because the called
+ * implementation is known only at run time. Translated code doesn't have interrupt handlers and
+ * threads, so a method can be re-entered only if it is a part of a call cycle.
+ *
+ * @author Igor Maznitsa (igor.maznitsa@igormaznitsa.com)
+ */
+final class CallGraph {
+
+  private final Map<MethodID, Set<MethodID>> calls = new LinkedHashMap<>();
+
+  /**
+   * Constructor.
+   *
+   * @param methodContext method context of the program, must not be null
+   * @param methods       translated methods, must not be null
+   */
+  CallGraph(final MethodContextImpl methodContext, final Collection<MethodID> methods) {
+    final Map<String, List<MethodID>> methodsForSignature = new HashMap<>();
+    for (final MethodID method : methods) {
+      methodsForSignature.computeIfAbsent(method.getMethodName()
+              + Type.getMethodSignature(method.getReturnType(), method.getArgs()),
+          x -> new ArrayList<>()).add(method);
+    }
+
+    for (final MethodID method : methods) {
+      final Set<MethodID> called = new LinkedHashSet<>();
+      final MethodGen methodGen = methodContext.findMethodInfo(method).getMethodGen();
+      final InstructionList code = methodGen.getInstructionList();
+      if (code != null) {
+        final ConstantPoolGen pool = methodGen.getConstantPool();
+        for (final Instruction instruction : code.getInstructions()) {
+          if (!(instruction instanceof InvokeInstruction)) {
+            continue;
+          }
+          final InvokeInstruction invoke = (InvokeInstruction) instruction;
+          final MethodID staticMethod = invoke instanceof INVOKESTATIC
+              ? findStaticMethod(methodContext, invoke, pool) : null;
+          if (staticMethod == null) {
+            called.addAll(methodsForSignature.getOrDefault(
+                invoke.getMethodName(pool) + invoke.getSignature(pool), Collections.emptyList()));
+          } else {
+            called.add(staticMethod);
+          }
+        }
+      }
+      this.calls.put(method, called);
+    }
+  }
+
+  private static MethodID findStaticMethod(final MethodContextImpl methodContext,
+                                           final InvokeInstruction invoke,
+                                           final ConstantPoolGen pool) {
+    final ReferenceType referenceType = invoke.getReferenceType(pool);
+    if (!(referenceType instanceof ObjectType)) {
+      return null;
+    }
+    final MethodID methodId = new MethodID(((ObjectType) referenceType).getClassName(),
+        invoke.getMethodName(pool), invoke.getReturnType(pool), invoke.getArgumentTypes(pool));
+    ClassMethodInfo info = methodContext.findMethodInfo(methodId);
+    if (info == null) {
+      info = methodContext.findInheritedMethod(methodId);
+    }
+    return info == null ? null : new MethodID(info.getClassInfo(), info.getMethodInfo());
+  }
+
+  /**
+   * Get methods called by a method.
+   *
+   * @param method the caller, must not be null
+   * @return the called methods, empty if the method is unknown
+   */
+  Set<MethodID> findCalledMethods(final MethodID method) {
+    return this.calls.getOrDefault(method, Collections.emptySet());
+  }
+
+  /**
+   * Find methods which can be re-entered, they are parts of call cycles (strongly connected
+   * components with more than one method or methods calling themselves).
+   *
+   * @return the set of re-entrant methods
+   */
+  Set<MethodID> findReentrantMethods() {
+    final Set<MethodID> result = new HashSet<>();
+    final Map<MethodID, Integer> indexes = new HashMap<>();
+    final Map<MethodID, Integer> lowLinks = new HashMap<>();
+    final Deque<MethodID> stack = new ArrayDeque<>();
+    final Set<MethodID> onStack = new HashSet<>();
+
+    for (final MethodID method : this.calls.keySet()) {
+      if (!indexes.containsKey(method)) {
+        this.connect(method, indexes, lowLinks, stack, onStack, result);
+      }
+    }
+    return result;
+  }
+
+  // Tarjan's algorithm of strongly connected components
+  private void connect(final MethodID method, final Map<MethodID, Integer> indexes,
+                       final Map<MethodID, Integer> lowLinks, final Deque<MethodID> stack,
+                       final Set<MethodID> onStack, final Set<MethodID> result) {
+    final int index = indexes.size();
+    indexes.put(method, index);
+    lowLinks.put(method, index);
+    stack.push(method);
+    onStack.add(method);
+
+    for (final MethodID called : this.findCalledMethods(method)) {
+      if (!this.calls.containsKey(called)) {
+        continue;
+      }
+      if (!indexes.containsKey(called)) {
+        this.connect(called, indexes, lowLinks, stack, onStack, result);
+        lowLinks.put(method, Math.min(lowLinks.get(method), lowLinks.get(called)));
+      } else if (onStack.contains(called)) {
+        lowLinks.put(method, Math.min(lowLinks.get(method), indexes.get(called)));
+      }
+    }
+
+    if (lowLinks.get(method) == index) {
+      final List<MethodID> component = new ArrayList<>();
+      MethodID member;
+      do {
+        member = stack.pop();
+        onStack.remove(member);
+        component.add(member);
+      } while (!member.equals(method));
+
+      if (component.size() > 1 || this.findCalledMethods(method).contains(method)) {
+        result.addAll(component);
+      }
+    }
+  }
+}
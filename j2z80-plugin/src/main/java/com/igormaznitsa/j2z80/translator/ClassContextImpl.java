@@ -39,16 +39,21 @@ class ClassContextImpl implements ClassContext {
   private final TranslatorImpl translator;
   private final Map<ClassID, ClassMethodInfo> classIdToClassMethodInfos = new HashMap<>();
   private final Set<ClassID> classesWithJni = new HashSet<>();
+  private ClassHierarchyIndex hierarchyIndex = new ClassHierarchyIndex(List.of());
 
   public ClassContextImpl(final TranslatorImpl translator) {
     this.translator = translator;
   }
 
   void init() {
+    this.hierarchyIndex =
+        new ClassHierarchyIndex(this.translator.workingClassPath.getAllClasses().values());
+
     int idCounter = 0;
 
-    // map all classes from the translator and generate their ids
-    for (final ClassGen c : this.translator.workingClassPath.getAllClasses().values()) {
+    // map all classes from the translator and generate their ids in preorder of the class tree,
+    // so that ids of all successors of a class form continuous interval just after the class id
+    for (final ClassGen c : this.hierarchyIndex.getClassesInPreorder()) {
       final ClassID classId = new ClassID(c);
       final ClassMethodInfo classInfo = new ClassMethodInfo(c, null, idCounter);
       this.classIdToClassMethodInfos.put(classId, classInfo);
@@ -89,25 +94,8 @@ class ClassContextImpl implements ClassContext {
 
     final ClassGen classGen = findClassForID(new ClassID(interfaceName));
     if (classGen.isInterface()) {
-
-      for (final ClassGen c : this.translator.workingClassPath.getAllClasses().values()) {
-        for (final String name : c.getInterfaceNames()) {
-          if (interfaceName.equals(name)) {
-            if (c.isInterface()) {
-              final Set<ClassID> thatInterface = this.findAllClassesImplementInterface(name);
-              result.addAll(thatInterface);
-            } else {
-              result.add(new ClassID(c));
-
-              final List<String> successors = this.findAllClassSuccessors(c.getClassName());
-              if (!successors.isEmpty()) {
-                for (final String className : successors) {
-                  result.add(new ClassID(className));
-                }
-              }
-            }
-          }
-        }
+      for (final ClassGen c : this.hierarchyIndex.findAllImplementors(interfaceName)) {
+        result.add(new ClassID(c));
       }
     }
     return result;
@@ -130,6 +118,11 @@ class ClassContextImpl implements ClassContext {
 
   @Override
   public boolean isAccessible(final ClassGen classGen, final String superClassName) {
+    if (this.hierarchyIndex.contains(classGen)) {
+      return superClassName.equals(classGen.getClassName())
+          || this.hierarchyIndex.isAccessible(classGen, superClassName);
+    }
+
     ClassGen tmpClassGen = classGen;
     if (superClassName.equals(tmpClassGen.getClassName())) {
       return true;
@@ -163,6 +156,11 @@ class ClassContextImpl implements ClassContext {
 
   @Override
   public List<String> findAllClassSuccessors(final String className) {
+    final List<String> indexed = this.hierarchyIndex.findAllSuccessors(className);
+    if (indexed != null) {
+      return indexed;
+    }
+
     final List<String> result = new ArrayList<>();
     for (final ClassGen cls : this.translator.workingClassPath.getAllClasses().values()) {
       if (className.equals(cls.getClassName())) {
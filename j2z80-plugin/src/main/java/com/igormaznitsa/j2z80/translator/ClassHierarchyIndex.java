@@ -0,0 +1,231 @@
+/*
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80.translator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.bcel.generic.ClassGen;
+
+/**
+ * The class keeps precalculated class hierarchy of a class set. Classes are numbered in preorder of
+ * the superclass tree so that all successors of a class occupy continuous interval of numbers and
+ * subclass check needs only two comparisons. Implementors of each interface are kept as a bit set
+ * of preorder numbers.
+ *
+ * @author Igor Maznitsa (igor.maznitsa@igormaznitsa.com)
+ */
+final class ClassHierarchyIndex {
+
+  private final ClassGen[] classes;
+  private final Map<String, Integer> indexForName = new HashMap<>();
+  private final int[] preorderStart;
+  private final int[] preorderEnd;
+  private final int[] classForPreorder;
+  private final String[] rootSuperclassNames;
+  private final Map<String, BitSet> interfaceImplementors = new HashMap<>();
+
+  /**
+   * Make index for classes.
+   *
+   * @param classes classes to be indexed, the collection order is kept in results, must not be null
+   */
+  ClassHierarchyIndex(final Collection<ClassGen> classes) {
+    this.classes = classes.toArray(new ClassGen[0]);
+    final int number = this.classes.length;
+
+    for (int i = 0; i < number; i++) {
+      this.indexForName.put(this.classes[i].getClassName(), i);
+    }
+
+    final int[] parents = new int[number];
+    final int[] childrenNumber = new int[number];
+    for (int i = 0; i < number; i++) {
+      final Integer parent = this.indexForName.get(this.classes[i].getSuperclassName());
+      parents[i] = parent == null || parent == i ? -1 : parent;
+      if (parents[i] >= 0) {
+        childrenNumber[parents[i]]++;
+      }
+    }
+
+    final int[][] children = new int[number][];
+    for (int i = 0; i < number; i++) {
+      children[i] = new int[childrenNumber[i]];
+      childrenNumber[i] = 0;
+    }
+    for (int i = 0; i < number; i++) {
+      final int parent = parents[i];
+      if (parent >= 0) {
+        children[parent][childrenNumber[parent]++] = i;
+      }
+    }
+
+    this.preorderStart = new int[number];
+    this.preorderEnd = new int[number];
+    this.classForPreorder = new int[number];
+    this.rootSuperclassNames = new String[number];
+
+    int preorderCounter = 0;
+    final int[] stack = new int[number];
+    final int[] nextChild = new int[number];
+    for (int root = 0; root < number; root++) {
+      if (parents[root] >= 0) {
+        continue;
+      }
+      final String rootSuperclassName = this.classes[root].getSuperclassName();
+      int stackSize = 0;
+      stack[stackSize++] = root;
+      this.rootSuperclassNames[root] = rootSuperclassName;
+      this.classForPreorder[preorderCounter] = root;
+      this.preorderStart[root] = preorderCounter++;
+
+      while (stackSize > 0) {
+        final int current = stack[stackSize - 1];
+        if (nextChild[current] < children[current].length) {
+          final int child = children[current][nextChild[current]++];
+          this.rootSuperclassNames[child] = rootSuperclassName;
+          this.classForPreorder[preorderCounter] = child;
+          this.preorderStart[child] = preorderCounter++;
+          stack[stackSize++] = child;
+        } else {
+          this.preorderEnd[current] = preorderCounter;
+          stackSize--;
+        }
+      }
+    }
+
+    // interfaces can be implemented either directly or through sub-interfaces
+    final Map<String, List<Integer>> directImplementors = new HashMap<>();
+    for (int i = 0; i < number; i++) {
+      for (final String name : this.classes[i].getInterfaceNames()) {
+        directImplementors.computeIfAbsent(name, x -> new ArrayList<>()).add(i);
+      }
+    }
+    for (final ClassGen c : this.classes) {
+      if (c.isInterface()) {
+        this.makeImplementors(c.getClassName(), directImplementors);
+      }
+    }
+  }
+
+  private BitSet makeImplementors(final String interfaceName,
+                                  final Map<String, List<Integer>> directImplementors) {
+    BitSet result = this.interfaceImplementors.get(interfaceName);
+    if (result == null) {
+      result = new BitSet(this.classes.length);
+      // placed before filling to prevent endless loop for wrong hierarchy
+      this.interfaceImplementors.put(interfaceName, result);
+      for (final int i : directImplementors.getOrDefault(interfaceName, List.of())) {
+        if (this.classes[i].isInterface()) {
+          result.or(this.makeImplementors(this.classes[i].getClassName(), directImplementors));
+        } else {
+          result.set(this.preorderStart[i], this.preorderEnd[i]);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Get all indexed classes in preorder of the superclass tree, all successors of a class directly
+   * follow the class.
+   *
+   * @return list of classes in preorder
+   */
+  List<ClassGen> getClassesInPreorder() {
+    final List<ClassGen> result = new ArrayList<>(this.classes.length);
+    for (final int i : this.classForPreorder) {
+      result.add(this.classes[i]);
+    }
+    return result;
+  }
+
+  /**
+   * Check that the index contains a class object.
+   *
+   * @param classGen class to be checked, must not be null
+   * @return true if the index contains just the class object
+   */
+  boolean contains(final ClassGen classGen) {
+    final Integer index = this.indexForName.get(classGen.getClassName());
+    return index != null && this.classes[index] == classGen;
+  }
+
+  /**
+   * Check that a class is the same or a successor of another class.
+   *
+   * @param classGen       indexed class, must not be null
+   * @param superClassName name of super class, can be out of the index
+   * @return true if the class is the same class or a successor of the super class
+   */
+  boolean isAccessible(final ClassGen classGen, final String superClassName) {
+    final int index = this.indexForName.get(classGen.getClassName());
+    final Integer superIndex = this.indexForName.get(superClassName);
+    if (superIndex == null) {
+      return superClassName.equals(this.rootSuperclassNames[index]);
+    }
+    final int position = this.preorderStart[index];
+    return position >= this.preorderStart[superIndex] && position < this.preorderEnd[superIndex];
+  }
+
+  /**
+   * Find all successors of a class.
+   *
+   * @param className name of indexed class, must not be null
+   * @return names of all successors in order of the indexed collection, null if the class is not
+   * indexed
+   */
+  List<String> findAllSuccessors(final String className) {
+    final Integer index = this.indexForName.get(className);
+    if (index == null) {
+      return null;
+    }
+    final int[] found = new int[this.preorderEnd[index] - this.preorderStart[index] - 1];
+    for (int i = 0; i < found.length; i++) {
+      found[i] = this.classForPreorder[this.preorderStart[index] + 1 + i];
+    }
+    Arrays.sort(found);
+
+    final List<String> result = new ArrayList<>(found.length);
+    for (final int i : found) {
+      result.add(this.classes[i].getClassName());
+    }
+    return result;
+  }
+
+  /**
+   * Find all classes implementing an interface directly, through sub-interfaces or through a
+   * superclass.
+   *
+   * @param interfaceName name of indexed interface, must not be null
+   * @return found classes, empty if the interface is not indexed
+   */
+  List<ClassGen> findAllImplementors(final String interfaceName) {
+    final BitSet bits = this.interfaceImplementors.get(interfaceName);
+    if (bits == null) {
+      return List.of();
+    }
+    final List<ClassGen> result = new ArrayList<>(bits.cardinality());
+    for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+      result.add(this.classes[this.classForPreorder[i]]);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,723 @@
+/*
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80.translator;
+
+import com.igormaznitsa.j2z80.ClassContext;
+import com.igormaznitsa.j2z80.ids.ClassID;
+import com.igormaznitsa.j2z80.ids.ClassMethodInfo;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import org.apache.bcel.Const;
+import org.apache.bcel.classfile.Constant;
+import org.apache.bcel.classfile.ConstantInteger;
+import org.apache.bcel.classfile.ConstantValue;
+import org.apache.bcel.classfile.Field;
+import org.apache.bcel.generic.BIPUSH;
+import org.apache.bcel.generic.BranchInstruction;
+import org.apache.bcel.generic.ClassGen;
+import org.apache.bcel.generic.CodeExceptionGen;
+import org.apache.bcel.generic.ConstantPoolGen;
+import org.apache.bcel.generic.ConstantPushInstruction;
+import org.apache.bcel.generic.DUP;
+import org.apache.bcel.generic.GETSTATIC;
+import org.apache.bcel.generic.GOTO;
+import org.apache.bcel.generic.ICONST;
+import org.apache.bcel.generic.IINC;
+import org.apache.bcel.generic.ILOAD;
+import org.apache.bcel.generic.ISTORE;
+import org.apache.bcel.generic.IfInstruction;
+import org.apache.bcel.generic.Instruction;
+import org.apache.bcel.generic.InstructionHandle;
+import org.apache.bcel.generic.InstructionList;
+import org.apache.bcel.generic.InstructionTargeter;
+import org.apache.bcel.generic.JsrInstruction;
+import org.apache.bcel.generic.LDC;
+import org.apache.bcel.generic.LineNumberGen;
+import org.apache.bcel.generic.LocalVariableInstruction;
+import org.apache.bcel.generic.MethodGen;
+import org.apache.bcel.generic.ObjectType;
+import org.apache.bcel.generic.POP;
+import org.apache.bcel.generic.PUSH;
+import org.apache.bcel.generic.RET;
+import org.apache.bcel.generic.ReferenceType;
+import org.apache.bcel.generic.ReturnInstruction;
+import org.apache.bcel.generic.SIPUSH;
+import org.apache.bcel.generic.Select;
+import org.apache.bcel.generic.StoreInstruction;
+import org.apache.bcel.generic.TargetLostException;
+import org.apache.bcel.generic.UnconditionalBranch;
+
+/**
+ * The class folds constant expressions in methods before translation. Values of int local
+ * variables and static final fields with constant values are propagated into loads, arithmetic
+ * with constant operands is calculated and branches with constant conditions become jumps or are
+ * removed together with code which is not reachable anymore. Calculations follow the translated
+ * code where int is 16 bit wide and char is 8 bit wide.
+ *
+ * @author Igor Maznitsa (igor.maznitsa@igormaznitsa.com)
+ */
+final class ConstantFolder {
+
+  /**
+   * Max number of passes over a method, every pass can make new constants for the next one.
+   */
+  private static final int MAX_PASSES = 8;
+
+  private final ClassContext classContext;
+
+  /**
+   * Constructor.
+   *
+   * @param classContext class context of the program, must not be null
+   */
+  ConstantFolder(final ClassContext classContext) {
+    this.classContext = classContext;
+  }
+
+  /**
+   * Fold constants in a method. Instruction list of the method is changed.
+   *
+   * @param method the method to be processed, must not be null
+   * @return number of replaced and removed instructions
+   */
+  int fold(final ClassMethodInfo method) {
+    final MethodGen methodGen = method.getMethodGen();
+    if (methodGen == null || methodGen.getInstructionList() == null) {
+      return 0;
+    }
+    final InstructionList list = methodGen.getInstructionList();
+    final ConstantPoolGen pool = methodGen.getConstantPool();
+
+    int result = this.replaceConstantFields(list, pool);
+    for (int pass = 0; pass < MAX_PASSES; pass++) {
+      final Map<InstructionHandle, Frame> frames = analyze(methodGen);
+      if (frames == null) {
+        break;
+      }
+      final int changes = replaceLoads(list, frames, pool) + foldExpressions(list, pool)
+          + removeUnreachableCode(methodGen);
+      if (changes == 0) {
+        break;
+      }
+      result += changes;
+    }
+    if (result > 0) {
+      list.setPositions();
+    }
+    return result;
+  }
+
+  /**
+   * Replace reads of static final fields with constant values by the values. Such fields are
+   * initialized from their ConstantValue attributes by JVM and not by static initializers, so the
+   * translated code never sets them and the replacement must be made at every optimization level.
+   *
+   * @param method the method to be processed, must not be null
+   * @return number of replaced instructions
+   */
+  int replaceConstantFields(final ClassMethodInfo method) {
+    final MethodGen methodGen = method.getMethodGen();
+    if (methodGen == null || methodGen.getInstructionList() == null) {
+      return 0;
+    }
+    final int result =
+        this.replaceConstantFields(methodGen.getInstructionList(), methodGen.getConstantPool());
+    if (result > 0) {
+      methodGen.getInstructionList().setPositions();
+    }
+    return result;
+  }
+
+  private int replaceConstantFields(final InstructionList list, final ConstantPoolGen pool) {
+    int result = 0;
+    for (final InstructionHandle handle : list.getInstructionHandles()) {
+      if (handle.getInstruction() instanceof GETSTATIC) {
+        final Integer value = this.findConstantField((GETSTATIC) handle.getInstruction(), pool);
+        if (value != null) {
+          handle.setInstruction(new PUSH(pool, value).getInstruction());
+          result++;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Normalize a value to 16 bit int of translated code.
+   *
+   * @param value the value
+   * @return the value truncated to 16 bit with sign
+   */
+  static int normalize(final int value) {
+    return (short) value;
+  }
+
+  /**
+   * Calculate an arithmetic or conversion instruction with constant operands.
+   *
+   * @param opcode opcode of the instruction
+   * @param a      the first operand or the only operand of an unary instruction
+   * @param b      the second operand, ignored for unary instructions
+   * @return the normalized result or null if the instruction can't be calculated
+   */
+  static Integer calculate(final short opcode, final int a, final int b) {
+    final int result;
+    switch (opcode) {
+      case Const.IADD:
+        result = a + b;
+        break;
+      case Const.ISUB:
+        result = a - b;
+        break;
+      case Const.IMUL:
+        result = a * b;
+        break;
+      case Const.IDIV:
+        if (b == 0) {
+          return null;
+        }
+        result = a / b;
+        break;
+      case Const.IREM:
+        if (b == 0) {
+          return null;
+        }
+        result = a % b;
+        break;
+      case Const.IAND:
+        result = a & b;
+        break;
+      case Const.IOR:
+        result = a | b;
+        break;
+      case Const.IXOR:
+        result = a ^ b;
+        break;
+      case Const.ISHL:
+        result = a << (b & 31);
+        break;
+      case Const.ISHR:
+        result = a >> (b & 31);
+        break;
+      case Const.IUSHR:
+        result = (a & 0xFFFF) >>> (b & 31);
+        break;
+      case Const.INEG:
+        result = -a;
+        break;
+      case Const.I2B:
+        result = (byte) a;
+        break;
+      case Const.I2C:
+        result = a & 0xFF;
+        break;
+      case Const.I2S:
+        result = a;
+        break;
+      default:
+        return null;
+    }
+    return normalize(result);
+  }
+
+  private static boolean isUnary(final short opcode) {
+    return opcode == Const.INEG || opcode == Const.I2B || opcode == Const.I2C
+        || opcode == Const.I2S;
+  }
+
+  private static boolean isBinary(final short opcode) {
+    return !isUnary(opcode) && calculate(opcode, 1, 1) != null;
+  }
+
+  /**
+   * Check a condition of an int comparison.
+   *
+   * @param opcode opcode of IFxx or IF_ICMPxx instruction
+   * @param a      the first operand
+   * @param b      the second operand, zero for IFxx instructions
+   * @return the condition value or null if the instruction is not int comparison
+   */
+  static Boolean evaluate(final short opcode, final int a, final int b) {
+    switch (opcode) {
+      case Const.IFEQ:
+      case Const.IF_ICMPEQ:
+        return a == b;
+      case Const.IFNE:
+      case Const.IF_ICMPNE:
+        return a != b;
+      case Const.IFLT:
+      case Const.IF_ICMPLT:
+        return a < b;
+      case Const.IFGE:
+      case Const.IF_ICMPGE:
+        return a >= b;
+      case Const.IFGT:
+      case Const.IF_ICMPGT:
+        return a > b;
+      case Const.IFLE:
+      case Const.IF_ICMPLE:
+        return a <= b;
+      default:
+        return null;
+    }
+  }
+
+  private static boolean isCompareWithZero(final short opcode) {
+    return opcode >= Const.IFEQ && opcode <= Const.IFLE;
+  }
+
+  private static boolean isCompare(final short opcode) {
+    return opcode >= Const.IF_ICMPEQ && opcode <= Const.IF_ICMPLE;
+  }
+
+  private static InstructionHandle findSelectTarget(final Select select, final int key) {
+    final int[] matches = select.getMatchs();
+    for (int i = 0; i < matches.length; i++) {
+      if (normalize(matches[i]) == key) {
+        return select.getTargets()[i];
+      }
+    }
+    return select.getTarget();
+  }
+
+  private static Integer findPushedConstant(final Instruction instruction,
+                                            final ConstantPoolGen pool) {
+    if (instruction instanceof ICONST || instruction instanceof BIPUSH
+        || instruction instanceof SIPUSH) {
+      return normalize(
+          ((ConstantPushInstruction) instruction).getValue().intValue());
+    }
+    if (instruction instanceof LDC) {
+      final Object value = ((LDC) instruction).getValue(pool);
+      return value instanceof Integer ? normalize((Integer) value) : null;
+    }
+    return null;
+  }
+
+  private Integer findConstantField(final GETSTATIC instruction, final ConstantPoolGen pool) {
+    final ReferenceType referenceType = instruction.getReferenceType(pool);
+    if (!(referenceType instanceof ObjectType)) {
+      return null;
+    }
+    final ClassGen classGen = this.classContext.findClassForID(
+        new ClassID(((ObjectType) referenceType).getClassName()));
+    if (classGen == null) {
+      return null;
+    }
+    for (final Field field : classGen.getFields()) {
+      if (field.isStatic() && field.isFinal()
+          && field.getName().equals(instruction.getFieldName(pool))
+          && field.getSignature().equals(instruction.getSignature(pool))) {
+        final ConstantValue value = field.getConstantValue();
+        if (value == null) {
+          return null;
+        }
+        final Constant constant =
+            classGen.getConstantPool().getConstant(value.getConstantValueIndex());
+        return constant instanceof ConstantInteger
+            ? normalize(((ConstantInteger) constant).getBytes()) : null;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Find values of the operand stack and local variables before each reachable instruction.
+   * Branches with constant conditions are followed only in the direction they go.
+   *
+   * @param method the method to be processed, must not be null
+   * @return frames for reachable instructions, null if the method contains subroutines
+   */
+  private static Map<InstructionHandle, Frame> analyze(final MethodGen method) {
+    final InstructionList list = method.getInstructionList();
+    final ConstantPoolGen pool = method.getConstantPool();
+    int locals = method.getMaxLocals();
+    for (final Instruction instruction : list.getInstructions()) {
+      if (instruction instanceof LocalVariableInstruction) {
+        locals = Math.max(locals, ((LocalVariableInstruction) instruction).getIndex() + 2);
+      }
+    }
+
+    final Map<InstructionHandle, Frame> result = new HashMap<>();
+    final Deque<InstructionHandle> queue = new ArrayDeque<>();
+    merge(result, queue, list.getStart(), new Frame(locals));
+    for (final CodeExceptionGen exception : method.getExceptionHandlers()) {
+      // values of local variables are unknown in a handler, the stack contains the exception
+      final Frame frame = new Frame(locals);
+      frame.stack.add(null);
+      merge(result, queue, exception.getHandlerPC(), frame);
+    }
+
+    while (!queue.isEmpty()) {
+      final InstructionHandle handle = queue.poll();
+      final Instruction instruction = handle.getInstruction();
+      if (instruction instanceof JsrInstruction || instruction instanceof RET) {
+        return null;
+      }
+      final Frame frame = result.get(handle).copy();
+      final List<InstructionHandle> next = new ArrayList<>();
+
+      if (instruction instanceof IfInstruction) {
+        final short opcode = instruction.getOpcode();
+        Boolean condition = null;
+        if (isCompareWithZero(opcode) && frame.peek(0) != null) {
+          condition = evaluate(opcode, frame.peek(0), 0);
+        } else if (isCompare(opcode) && frame.peek(0) != null && frame.peek(1) != null) {
+          condition = evaluate(opcode, frame.peek(1), frame.peek(0));
+        }
+        frame.pop(instruction.consumeStack(pool));
+        if (condition == null || condition) {
+          next.add(((IfInstruction) instruction).getTarget());
+        }
+        if (condition == null || !condition) {
+          next.add(handle.getNext());
+        }
+      } else if (instruction instanceof Select) {
+        final Select select = (Select) instruction;
+        final Integer key = frame.pop(1);
+        if (key == null) {
+          next.add(select.getTarget());
+          next.addAll(Arrays.asList(select.getTargets()));
+        } else {
+          next.add(findSelectTarget(select, key));
+        }
+      } else {
+        execute(instruction, frame, pool);
+        if (instruction instanceof BranchInstruction) {
+          next.add(((BranchInstruction) instruction).getTarget());
+        }
+        if (!(instruction instanceof UnconditionalBranch
+            || instruction instanceof ReturnInstruction)) {
+          next.add(handle.getNext());
+        }
+      }
+
+      for (final InstructionHandle target : next) {
+        if (target != null && !merge(result, queue, target, frame)) {
+          return null;
+        }
+      }
+    }
+    return result;
+  }
+
+  private static boolean merge(final Map<InstructionHandle, Frame> frames,
+                               final Deque<InstructionHandle> queue,
+                               final InstructionHandle target, final Frame frame) {
+    final Frame existing = frames.get(target);
+    if (existing == null) {
+      frames.put(target, frame.copy());
+      queue.add(target);
+      return true;
+    }
+    if (existing.stack.size() != frame.stack.size()) {
+      return false;
+    }
+    if (existing.merge(frame)) {
+      queue.add(target);
+    }
+    return true;
+  }
+
+  private static void execute(final Instruction instruction, final Frame frame,
+                              final ConstantPoolGen pool) {
+    final short opcode = instruction.getOpcode();
+    final Integer constant = findPushedConstant(instruction, pool);
+    if (constant != null) {
+      frame.stack.add(constant);
+    } else if (instruction instanceof ILOAD) {
+      frame.stack.add(frame.locals[((ILOAD) instruction).getIndex()]);
+    } else if (instruction instanceof ISTORE) {
+      frame.locals[((ISTORE) instruction).getIndex()] = frame.pop(1);
+    } else if (instruction instanceof IINC) {
+      final IINC iinc = (IINC) instruction;
+      final Integer value = frame.locals[iinc.getIndex()];
+      frame.locals[iinc.getIndex()] =
+          value == null ? null : normalize(value + iinc.getIncrement());
+    } else if (instruction instanceof StoreInstruction) {
+      final StoreInstruction store = (StoreInstruction) instruction;
+      frame.pop(store.consumeStack(pool));
+      frame.locals[store.getIndex()] = null;
+      frame.locals[store.getIndex() + 1] = null;
+    } else if (instruction instanceof DUP) {
+      frame.stack.add(frame.peek(0));
+    } else if (isUnary(opcode)) {
+      final Integer value = frame.pop(1);
+      frame.stack.add(value == null ? null : calculate(opcode, value, 0));
+    } else if (isBinary(opcode)) {
+      final Integer b = frame.pop(1);
+      final Integer a = frame.pop(1);
+      frame.stack.add(a == null || b == null ? null : calculate(opcode, a, b));
+    } else {
+      frame.pop(instruction.consumeStack(pool));
+      for (int i = 0; i < instruction.produceStack(pool); i++) {
+        frame.stack.add(null);
+      }
+    }
+  }
+
+  private static int replaceLoads(final InstructionList list,
+                                  final Map<InstructionHandle, Frame> frames,
+                                  final ConstantPoolGen pool) {
+    int result = 0;
+    for (final InstructionHandle handle : list.getInstructionHandles()) {
+      final Frame frame = frames.get(handle);
+      final Instruction instruction = handle.getInstruction();
+      if (frame != null && instruction instanceof ILOAD) {
+        final Integer value = frame.locals[((ILOAD) instruction).getIndex()];
+        if (value != null) {
+          handle.setInstruction(new PUSH(pool, value).getInstruction());
+          result++;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Fold sequences of constants and instructions using them, instructions after the first
+   * constant must not be jump targets.
+   */
+  private static int foldExpressions(final InstructionList list, final ConstantPoolGen pool) {
+    int result = 0;
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (final InstructionHandle handle : list.getInstructionHandles()) {
+        if (foldSequence(list, handle, pool)) {
+          changed = true;
+          result++;
+          break;
+        }
+      }
+    }
+    return result;
+  }
+
+  private static boolean foldSequence(final InstructionList list, final InstructionHandle first,
+                                      final ConstantPoolGen pool) {
+    final Integer a = findPushedConstant(first.getInstruction(), pool);
+    final InstructionHandle second = first.getNext();
+    if (a == null || second == null || isJumpTarget(second)) {
+      return false;
+    }
+    final Instruction instruction = second.getInstruction();
+    final short opcode = instruction.getOpcode();
+
+    if (isUnary(opcode)) {
+      second.setInstruction(new PUSH(pool, calculate(opcode, a, 0)).getInstruction());
+      deleteAndRedirect(list, first, first, second);
+      return true;
+    }
+    if (instruction instanceof POP) {
+      deleteAndRedirect(list, first, second, second.getNext());
+      return true;
+    }
+    if (isCompareWithZero(opcode)) {
+      foldBranch(list, first, second, evaluate(opcode, a, 0));
+      return true;
+    }
+    if (instruction instanceof Select) {
+      final InstructionHandle target = findSelectTarget((Select) instruction, a);
+      second.setInstruction(new GOTO(target));
+      deleteAndRedirect(list, first, first, second);
+      return true;
+    }
+
+    final Integer b = findPushedConstant(instruction, pool);
+    final InstructionHandle third = second.getNext();
+    if (b == null || third == null || isJumpTarget(third)) {
+      return false;
+    }
+    final short thirdOpcode = third.getInstruction().getOpcode();
+    if (isBinary(thirdOpcode) && calculate(thirdOpcode, a, b) != null) {
+      third.setInstruction(new PUSH(pool, calculate(thirdOpcode, a, b)).getInstruction());
+      deleteAndRedirect(list, first, second, third);
+      return true;
+    }
+    if (isCompare(thirdOpcode)) {
+      foldBranch(list, first, third, evaluate(thirdOpcode, a, b));
+      return true;
+    }
+    return false;
+  }
+
+  private static void foldBranch(final InstructionList list, final InstructionHandle first,
+                                 final InstructionHandle branch, final boolean condition) {
+    if (condition) {
+      branch.setInstruction(new GOTO(((IfInstruction) branch.getInstruction()).getTarget()));
+      deleteAndRedirect(list, first, branch.getPrev(), branch);
+    } else {
+      deleteAndRedirect(list, first, branch, branch.getNext());
+    }
+  }
+
+  private static boolean isJumpTarget(final InstructionHandle handle) {
+    for (final InstructionTargeter targeter : handle.getTargeters()) {
+      if (targeter instanceof BranchInstruction || targeter instanceof CodeExceptionGen) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static void deleteAndRedirect(final InstructionList list, final InstructionHandle from,
+                                        final InstructionHandle to,
+                                        final InstructionHandle newTarget) {
+    try {
+      list.delete(from, to);
+    } catch (TargetLostException ex) {
+      for (final InstructionHandle target : ex.getTargets()) {
+        for (final InstructionTargeter targeter : target.getTargeters()) {
+          targeter.updateTarget(target, newTarget);
+        }
+      }
+    }
+  }
+
+  /**
+   * Remove instructions which can't be reached from the method start. Methods with exception
+   * handlers are not processed.
+   */
+  private static int removeUnreachableCode(final MethodGen method) {
+    if (method.getExceptionHandlers().length > 0) {
+      return 0;
+    }
+    final InstructionList list = method.getInstructionList();
+    final Set<InstructionHandle> reachable = new HashSet<>();
+    final Deque<InstructionHandle> queue = new ArrayDeque<>();
+    reachable.add(list.getStart());
+    queue.add(list.getStart());
+    while (!queue.isEmpty()) {
+      final InstructionHandle handle = queue.poll();
+      final Instruction instruction = handle.getInstruction();
+      final List<InstructionHandle> next = new ArrayList<>();
+      if (instruction instanceof BranchInstruction) {
+        next.add(((BranchInstruction) instruction).getTarget());
+      }
+      if (instruction instanceof Select) {
+        next.addAll(Arrays.asList(((Select) instruction).getTargets()));
+      }
+      if (!(instruction instanceof UnconditionalBranch || instruction instanceof Select
+          || instruction instanceof ReturnInstruction) && handle.getNext() != null) {
+        next.add(handle.getNext());
+      }
+      for (final InstructionHandle target : next) {
+        if (reachable.add(target)) {
+          queue.add(target);
+        }
+      }
+    }
+
+    int result = 0;
+    InstructionHandle handle = list.getStart();
+    while (handle != null) {
+      if (reachable.contains(handle)) {
+        handle = handle.getNext();
+        continue;
+      }
+      InstructionHandle last = handle;
+      while (last.getNext() != null && !reachable.contains(last.getNext())) {
+        last = last.getNext();
+      }
+      final InstructionHandle after = last.getNext();
+      final InstructionHandle newTarget = after == null ? handle.getPrev() : after;
+      for (InstructionHandle removed = handle; removed != after; removed = removed.getNext()) {
+        result++;
+        for (final InstructionTargeter targeter : removed.getTargeters()) {
+          if (targeter instanceof LineNumberGen) {
+            method.removeLineNumber((LineNumberGen) targeter);
+          }
+        }
+      }
+      deleteAndRedirect(list, handle, last, newTarget);
+      handle = after;
+    }
+    return result;
+  }
+
+  /**
+   * Values of the operand stack and local variables, null is an unknown value.
+   */
+  private static final class Frame {
+
+    private final List<Integer> stack;
+    private final Integer[] locals;
+
+    private Frame(final int locals) {
+      this.stack = new ArrayList<>();
+      this.locals = new Integer[locals];
+    }
+
+    private Frame(final Frame frame) {
+      this.stack = new ArrayList<>(frame.stack);
+      this.locals = frame.locals.clone();
+    }
+
+    private Frame copy() {
+      return new Frame(this);
+    }
+
+    private Integer peek(final int depth) {
+      return this.stack.get(this.stack.size() - 1 - depth);
+    }
+
+    /**
+     * Remove words from the stack.
+     *
+     * @param words number of words
+     * @return the last removed value
+     */
+    private Integer pop(final int words) {
+      Integer result = null;
+      for (int i = 0; i < words; i++) {
+        result = this.stack.remove(this.stack.size() - 1);
+      }
+      return result;
+    }
+
+    /**
+     * Merge values of other frame, different values become unknown.
+     *
+     * @param other the other frame with the same stack size, must not be null
+     * @return true if the frame is changed
+     */
+    private boolean merge(final Frame other) {
+      boolean result = false;
+      for (int i = 0; i < this.stack.size(); i++) {
+        if (this.stack.get(i) != null && !Objects.equals(this.stack.get(i), other.stack.get(i))) {
+          this.stack.set(i, null);
+          result = true;
+        }
+      }
+      for (int i = 0; i < this.locals.length; i++) {
+        if (this.locals[i] != null && !Objects.equals(this.locals[i], other.locals[i])) {
+          this.locals[i] = null;
+          result = true;
+        }
+      }
+      return result;
+    }
+  }
+}
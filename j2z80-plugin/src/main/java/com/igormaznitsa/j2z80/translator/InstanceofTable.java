@@ -13,137 +13,112 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package com.igormaznitsa.j2z80.translator;
 
 import com.igormaznitsa.j2z80.ClassContext;
 import com.igormaznitsa.j2z80.TranslatorContext;
+import com.igormaznitsa.j2z80.api.additional.NeedsInstanceofManager;
 import com.igormaznitsa.j2z80.ids.ClassID;
 import com.igormaznitsa.j2z80.utils.LabelAndFrameUtils;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.apache.bcel.generic.ClassGen;
 
+/**
+ * The class describes data for INSTANCEOF and CHECKCAST. Class ids are numbered in preorder of the
+ * class tree so that a class check needs only the number of successors of the checked class, the
+ * object is compatible if its class id is in the interval started by the checked class id. Every
+ * checked interface gets a bit in the bitmap row of each class, the bit is set for classes
+ * implementing the interface.
+ *
+ * @author Igor Maznitsa (igor.maznitsa@igormaznitsa.com)
+ */
 public final class InstanceofTable {
 
-  private final List<RowInstance> rows = new ArrayList<>();
+  /**
+   * Label of the bitmap row size in bytes.
+   */
+  public static final String ROW_SIZE_LABEL = "___INSTANCEOF_ROW_SIZE";
+
+  private final TranslatorContext translator;
+  private final Map<ClassID, Integer> successorsNumbers = new LinkedHashMap<>();
+  private final Map<ClassID, Integer> interfaceBits = new LinkedHashMap<>();
 
   public InstanceofTable(final TranslatorContext translator,
                          final Set<ClassID> classesToBeChecked) {
+    this.translator = translator;
     final ClassContext classContext = translator.getClassContext();
 
-    for (final ClassID c : classesToBeChecked) {
-      final RowInstance row = addRow(c);
+    // sorted to make the same text for the same program
+    final List<ClassID> classes = new ArrayList<>(classesToBeChecked);
+    classes.sort(Comparator.comparing(ClassID::getClassName));
 
+    for (final ClassID c : classes) {
       final ClassGen classGen = classContext.findClassForID(c);
-
-      final List<String> allSuccessors =
-          classContext.findAllClassSuccessors(classGen.getClassName());
-      final Set<ClassID> allImplementingInterface =
-          classContext.findAllClassesImplementInterface(classGen.getClassName());
-
-      final Set<ClassID> allCompatible = new HashSet<>();
-      for (final String s : allSuccessors) {
-        allCompatible.add(new ClassID(s));
-      }
-      allCompatible.addAll(allImplementingInterface);
-
-      row.addClass(c);
-      for (final ClassID cc : allCompatible) {
-        row.addClass(cc);
+      if (classGen.isInterface()) {
+        this.interfaceBits.put(c, this.interfaceBits.size());
+      } else {
+        this.successorsNumbers.put(c,
+            classContext.findAllClassSuccessors(classGen.getClassName()).size());
       }
     }
   }
 
-  public void clear() {
-    this.rows.clear();
-  }
-
-  public int size() {
-    return this.rows.size();
-  }
-
-  public RowInstance addRow(final ClassID classId) {
-    RowInstance row = new RowInstance(classId);
-
-    final int existRowIndex = this.rows.indexOf(row);
-    if (existRowIndex < 0) {
-      this.rows.add(row);
-    } else {
-      row = this.rows.get(existRowIndex);
-    }
-
-    return row;
+  /**
+   * Get size of the bitmap row of a class.
+   *
+   * @return the row size in bytes, zero if there is no checked interface
+   */
+  public int getRowSize() {
+    return (this.interfaceBits.size() + 7) / 8;
   }
 
   public String toAsm() {
-    final StringBuilder result = new StringBuilder();
-    result.append("DEFB ").append(this.rows.size()).append('\n');
-    for (final RowInstance row : this.rows) {
-      result.append(row.toAsm()).append('\n');
-    }
-    return result.toString();
-  }
+    final ClassContext classContext = this.translator.getClassContext();
+    final StringBuilder result = new StringBuilder("; GENERATED INSTANCEOF TABLE\n");
 
-  public final static class RowInstance {
-    private final ClassID classId;
-    private final Set<ClassID> compatibleClasses = new HashSet<>();
-
-    public RowInstance(final ClassID classId) {
-      this.classId = classId;
+    for (final Map.Entry<ClassID, Integer> e : this.successorsNumbers.entrySet()) {
+      result.append(LabelAndFrameUtils.makeLabelForClassSuccessorsNumber(e.getKey()))
+          .append(": EQU ").append(e.getValue()).append('\n');
     }
-
-    public ClassID getClassID() {
-      return this.classId;
+    for (final Map.Entry<ClassID, Integer> e : this.interfaceBits.entrySet()) {
+      result.append(LabelAndFrameUtils.makeLabelForInterfaceBitmapOffset(e.getKey()))
+          .append(": EQU ").append(e.getValue() >> 3).append('\n');
+      result.append(LabelAndFrameUtils.makeLabelForInterfaceBitmapMask(e.getKey()))
+          .append(": EQU ").append(1 << (e.getValue() & 7)).append('\n');
     }
 
-    public void addClass(final ClassID classId) {
-      this.compatibleClasses.add(classId);
-    }
+    final int rowSize = this.getRowSize();
+    result.append(ROW_SIZE_LABEL).append(": EQU ").append(rowSize).append('\n');
+    result.append(NeedsInstanceofManager.INSTANCEOF_TABLE_POINTER).append(":\n");
 
-    public void addClasses(final ClassID... ids) {
-      for (final ClassID i : ids) {
-        this.addClass(i);
+    if (rowSize > 0) {
+      int classNumber = 0;
+      for (final ClassID ignored : classContext.getAllClasses()) {
+        classNumber++;
       }
-    }
-
-    public String toAsm() {
-      final StringBuilder result = new StringBuilder();
-      result.append("DEFW ").append(LabelAndFrameUtils.makeLabelForClassID(this.classId))
-          .append("\n");
-
-      result.append("DEFB ").append(compatibleClasses.size()).append("\n");
-      result.append("DEFW ");
-      boolean first = true;
-      for (final ClassID compatibleClass : compatibleClasses) {
-        if (!first) {
-          result.append(',');
+      final int[][] rows = new int[classNumber][rowSize];
+      for (final Map.Entry<ClassID, Integer> e : this.interfaceBits.entrySet()) {
+        final int bit = e.getValue();
+        for (final ClassID c : classContext.findAllClassesImplementInterface(e.getKey().getClassName())) {
+          rows[classContext.findClassUID(c)][bit >> 3] |= 1 << (bit & 7);
         }
-        result.append(LabelAndFrameUtils.makeLabelForClassID(compatibleClass));
-        first = false;
       }
-      return result.toString();
-    }
-
-    @Override
-    public int hashCode() {
-      return this.classId.hashCode();
-    }
-
-    @Override
-    public boolean equals(final Object obj) {
-      if (obj == null) {
-        return false;
-      }
-      if (this == obj) {
-        return true;
-      }
-      if (obj instanceof RowInstance) {
-        return this.classId.equals(((RowInstance) obj).classId);
+      for (final int[] row : rows) {
+        result.append("DEFB ");
+        for (int i = 0; i < row.length; i++) {
+          if (i > 0) {
+            result.append(',');
+          }
+          result.append(row[i]);
+        }
+        result.append('\n');
       }
-      return false;
     }
+    return result.toString();
   }
 }
@@ -25,89 +25,87 @@ import com.igormaznitsa.j2z80.ids.ClassMethodInfo;
 import com.igormaznitsa.j2z80.ids.MethodID;
 import com.igormaznitsa.j2z80.utils.LabelAndFrameUtils;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import org.apache.bcel.classfile.Method;
 import org.apache.bcel.generic.ClassGen;
 import org.apache.bcel.generic.MethodGen;
 
 /**
- * The class describes an invoke virtual table.
+ * The class describes invoke virtual tables. Every virtual method signature gets a slot index
+ * which is the same for a class and all its successors because a class layout starts with the
+ * layout of its superclass. Every non-abstract class gets a table of method addresses and frame
+ * sizes for all its slots and the class id table keeps table address for each class id, so that
+ * INVOKEVIRTUAL needs only indexed reads to find the called method.
  *
  * @author Igor Maznitsa (igor.maznitsa@igormaznitsa.com)
  */
 public class InvokeVirtualTable {
 
-  private final Map<String, Record> allVirtualMethods = new HashMap<>();
+  /**
+   * Label of the table contains virtual table address for every class id.
+   */
+  public static final String CLASS_TABLE_LABEL = "___VIRTUAL_TABLES";
+
+  /**
+   * Size of a virtual table slot in bytes, it contains the method address and the frame size.
+   */
+  public static final int SLOT_SIZE = 4;
+
   private final TranslatorContext translator;
+  private final Map<String, Layout> layouts = new LinkedHashMap<>();
+  private final int classNumber;
 
   public InvokeVirtualTable(final TranslatorContext translator) {
     this.translator = translator;
-    this.processClassesWithVirtualMethods();
-  }
-
-  private void processClassesWithVirtualMethods() {
-    for (final ClassID cg : this.translator.getClassContext().getAllClasses()) {
-      this.processClass(cg);
+    int classCounter = 0;
+    for (final ClassID classId : this.translator.getClassContext().getAllClasses()) {
+      classCounter++;
+      final ClassGen classGen = this.translator.getClassContext().findClassForID(classId);
+      if (!classGen.isInterface()) {
+        this.findLayout(classGen);
+      }
     }
+    this.classNumber = classCounter;
   }
 
-  private void processClass(final ClassID classId) {
-    final ClassGen classGen = this.translator.getClassContext().findClassForID(classId);
-
-    final Map<String, ClassMethodInfo> visibleMethods =
-        this.collectAllVisibleVirtualMethodsToRoot(classGen, new HashMap<>());
-
-    if (!visibleMethods.isEmpty()) {
-      this.makeRecordsForVirtualMethods(classGen, visibleMethods.values());
-    }
+  private static String makeMethodUID(final Method method) {
+    return method.getName() + method.getSignature();
   }
 
-  private void makeRecordsForVirtualMethods(final ClassGen classGen, final Collection<ClassMethodInfo> methods) {
-    final ClassContext classContext = translator.getClassContext();
-
-    final List<String> allAncestors = new ArrayList<>(classContext.findAllClassAncestors(classGen.getClassName()));
-    allAncestors.add(classGen.getClassName());
-
-    for (final String className : allAncestors) {
-      final ClassGen ancestor = classContext.findClassForID(new ClassID(className));
-
-      for (final ClassMethodInfo m : methods) {
-        final Record record = findRecord(new ClassID(ancestor.getClassName()), m.getMethodInfo());
+  private static boolean isVirtual(final Method method) {
+    return !method.isStatic() && !method.getName().startsWith("<");
+  }
 
-        if (!m.getMethodInfo().isAbstract() && classContext.isAccessible(m.getClassInfo(), ancestor.getClassName())) {
-          record.addCase(m);
+  private Layout findLayout(final ClassGen classGen) {
+    Layout result = this.layouts.get(classGen.getClassName());
+    if (result == null) {
+      final String superClassName = classGen.getSuperclassName();
+      final Layout parent = isJ2Z80ObjectClass(superClassName) ? null :
+          this.findLayout(this.translator.getClassContext()
+              .findClassForID(new ClassID(superClassName)));
+
+      result = new Layout(classGen, parent);
+      for (final Method m : findBoostrapAwareMethods(classGen)) {
+        if (isVirtual(m)) {
+          result.addSlot(m);
         }
       }
+      this.layouts.put(classGen.getClassName(), result);
     }
-  }
-
-  private Record findRecord(final ClassID cid, final Method method) {
-    final String recordUid = cid.getClassName() + "!" + makeMethodUID(method);
-    Record record = this.allVirtualMethods.get(recordUid);
-    if (record == null) {
-      record = new Record(cid, method);
-      this.allVirtualMethods.put(recordUid, record);
-    }
-    return record;
-  }
-
-  private String makeMethodUID(final Method method) {
-    return method.getName() + method.getSignature();
+    return result;
   }
 
   private Map<String, ClassMethodInfo> collectAllVisibleVirtualMethodsToRoot(
       final ClassGen classGen, final Map<String, ClassMethodInfo> map) {
     for (final Method m : findBoostrapAwareMethods(classGen)) {
-      if (m.isStatic() || m.getName().equals("<init>") || m.isAbstract()) {
+      if (!isVirtual(m) || m.isAbstract()) {
         continue;
       }
 
-      final String textMethodUid = this.makeMethodUID(m);
+      final String textMethodUid = makeMethodUID(m);
       if (!map.containsKey(textMethodUid)) {
         final MethodID methodId = new MethodID(classGen, m);
         final ClassMethodInfo classMethodInfo =
@@ -128,62 +126,110 @@ public class InvokeVirtualTable {
         map);
   }
 
+  /**
+   * Get slot index of a method in the virtual table of a class.
+   *
+   * @param className  the class name, must not be null
+   * @param methodName the method name, must not be null
+   * @param signature  the method signature, must not be null
+   * @return the slot index or -1 if not found
+   */
+  public int findSlot(final String className, final String methodName, final String signature) {
+    final Layout layout = this.layouts.get(className);
+    if (layout == null) {
+      return -1;
+    }
+    final Integer slot = layout.slots.get(methodName + signature);
+    return slot == null ? -1 : slot;
+  }
+
   public String toAsm() {
+    final ClassContext classContext = this.translator.getClassContext();
     final StringBuilder result = new StringBuilder("; GENERATED INVOKEVIRTUAL TABLE\n");
 
-    for (final Record r : this.allVirtualMethods.values()) {
-      final Method method = r.method;
-      // make record label
-      result.append(LabelAndFrameUtils.makeLabelForVirtualMethodRecord(r.classId.getClassName(),
-          method.getName(), method.getReturnType(), method.getArgumentTypes())).append(":\n");
-      // records
-      result.append(r.toAsm());
+    // virtual table address for every class id, zero for classes can't have instances
+    final String[] tableForClassId = new String[this.classNumber];
+    for (final Layout layout : this.layouts.values()) {
+      if (layout.hasTable()) {
+        tableForClassId[classContext.findClassUID(new ClassID(layout.classGen))] =
+            LabelAndFrameUtils.makeLabelForVirtualTable(layout.classGen.getClassName());
+      }
+    }
+    result.append(CLASS_TABLE_LABEL).append(":\n");
+    for (final String label : tableForClassId) {
+      result.append("DEFW ").append(label == null ? "0" : label).append('\n');
+    }
+
+    for (final Layout layout : this.layouts.values()) {
+      // offsets of slots in bytes, they are used by INVOKEVIRTUAL as record labels
+      for (final Map.Entry<String, Integer> slot : layout.slots.entrySet()) {
+        final Method method = layout.methods.get(slot.getValue());
+        result.append(LabelAndFrameUtils.makeLabelForVirtualMethodRecord(
+                layout.classGen.getClassName(), method.getName(), method.getReturnType(),
+                method.getArgumentTypes()))
+            .append(": EQU ").append(slot.getValue() * SLOT_SIZE).append('\n');
+      }
+      if (layout.hasTable()) {
+        result.append(layout.toAsm());
+      }
     }
 
     return result.toString();
   }
 
   /**
-   * The class describes a record in a invoke virtual table
+   * The class describes slot layout of a class virtual table.
    *
    * @author Igor Maznitsa (igor.maznitsa@igormaznitsa.com)
    */
-  private class Record {
+  private final class Layout {
+
+    private final ClassGen classGen;
+    private final Map<String, Integer> slots;
+    private final List<Method> methods;
 
-    private final ClassID classId;
-    private final Method method;
-    private final Set<ClassMethodInfo> cases = new HashSet<>();
+    private Layout(final ClassGen classGen, final Layout parent) {
+      this.classGen = classGen;
+      this.slots = parent == null ? new LinkedHashMap<>() : new LinkedHashMap<>(parent.slots);
+      this.methods = parent == null ? new ArrayList<>() : new ArrayList<>(parent.methods);
+    }
 
-    private Record(final ClassID classId, final Method method) {
-      this.classId = classId;
-      this.method = method;
+    private void addSlot(final Method method) {
+      final String uid = makeMethodUID(method);
+      final Integer slot = this.slots.get(uid);
+      if (slot == null) {
+        this.slots.put(uid, this.methods.size());
+        this.methods.add(method);
+      } else {
+        this.methods.set(slot, method);
+      }
     }
 
-    private void addCase(final ClassMethodInfo classMethodInfo) {
-      this.cases.add(classMethodInfo);
+    private boolean hasTable() {
+      return !this.classGen.isAbstract() && !this.slots.isEmpty();
     }
 
     private String toAsm() {
-      final StringBuilder result = new StringBuilder();
-      result.append("DEFB ").append(this.cases.size()).append('\n');
+      final Map<String, ClassMethodInfo> implementations =
+          collectAllVisibleVirtualMethodsToRoot(this.classGen, new HashMap<>());
 
-      for (final ClassMethodInfo r : this.cases) {
-        result.append(generateAsmForMethod(r));
+      final StringBuilder result = new StringBuilder();
+      result.append(LabelAndFrameUtils.makeLabelForVirtualTable(this.classGen.getClassName()))
+          .append(":\n");
+      for (final Method method : this.methods) {
+        final ClassMethodInfo implementation = implementations.get(makeMethodUID(method));
+        if (implementation == null) {
+          result.append("DEFW 0,0\n");
+        } else {
+          final MethodGen methGen = implementation.getMethodGen();
+          result.append("DEFW ")
+              .append(LabelAndFrameUtils.makeLabelNameForMethod(implementation)).append(',')
+              .append(LabelAndFrameUtils.calculateFrameSizeForMethod(
+                  methGen.getArgumentTypes().length, methGen.getMaxLocals(), false))
+              .append('\n');
+        }
       }
-
       return result.toString();
     }
-
-    private String generateAsmForMethod(final ClassMethodInfo classMethodInfo) {
-      final MethodGen methGen = classMethodInfo.getMethodGen();
-      final String methodLabel = LabelAndFrameUtils.makeLabelNameForMethod(classMethodInfo);
-      final int classId =
-          translator.getClassContext().findClassUID(new ClassID(classMethodInfo.getClassInfo()));
-      final int frameSize = LabelAndFrameUtils.calculateFrameSizeForMethod(methGen.getArgumentTypes().length, methGen.getMaxLocals(), false);
-
-      return "DEFW " + classId + ','
-          + methodLabel + ','
-          + frameSize + '\n';
-    }
   }
 }
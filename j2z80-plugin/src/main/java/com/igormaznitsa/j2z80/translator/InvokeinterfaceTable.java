@@ -20,68 +20,151 @@ import com.igormaznitsa.j2z80.TranslatorContext;
 import com.igormaznitsa.j2z80.ids.ClassID;
 import com.igormaznitsa.j2z80.ids.MethodID;
 import com.igormaznitsa.j2z80.utils.LabelAndFrameUtils;
-import org.apache.bcel.generic.MethodGen;
-
+import com.igormaznitsa.meta.common.utils.Assertions;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import org.apache.bcel.generic.MethodGen;
 
+/**
+ * The class describes interface method tables. Every interface method called through
+ * INVOKEINTERFACE gets a selector which is the record index in interface tables of all its
+ * implementors. Selectors are colored, two methods get the same selector only if there is no class
+ * implementing both of them, so that tables stay short. Every non-abstract implementor gets a table
+ * of method addresses, frame sizes and interface method ids and the class id table keeps table
+ * address for each class id, so that INVOKEINTERFACE needs only indexed reads to find the called
+ * method. The interface method id of the found record is checked because a class which doesn't
+ * implement the called interface can have a record of another method for the same selector.
+ *
+ * @author Igor Maznitsa (igor.maznitsa@igormaznitsa.com)
+ */
 public class InvokeinterfaceTable {
+
+  /**
+   * Label of the table contains interface table address for every class id.
+   */
+  public static final String CLASS_TABLE_LABEL = "___INTERFACE_TABLES";
+
+  /**
+   * Size of an interface table record in bytes, it contains the method address, the frame size and
+   * the interface method id.
+   */
+  public static final int RECORD_SIZE = 6;
+
   private final TranslatorContext translator;
-  private final List<Record> records = new ArrayList<>();
+  private final Map<MethodID, Integer> selectors = new LinkedHashMap<>();
+  private final Map<ClassID, List<Record>> tables = new LinkedHashMap<>();
 
   public InvokeinterfaceTable(final TranslatorContext translator, final Set<MethodID> calledInterfaceMethods) {
     this.translator = translator;
     final ClassContext classContext = translator.getClassContext();
-    for (final MethodID method : calledInterfaceMethods) {
-      final Set<ClassID> successors = classContext.findAllClassesImplementInterface(method.getClassName());
-      final Record newRecord = new Record(method);
-      for (final ClassID s : successors) {
-        newRecord.addInheritedMethod(new MethodID(s.getClassName(), method.getMethodName(), method.getReturnType(), method.getArgs()));
+
+    // sorted to make the same text for the same program
+    final List<MethodID> methods = new ArrayList<>(calledInterfaceMethods);
+    methods.sort(Comparator.comparing(MethodID::getMethodLabel));
+
+    for (final MethodID method : methods) {
+      final List<ClassID> implementors = new ArrayList<>();
+      final BitSet usedSelectors = new BitSet();
+      for (final ClassID classId : classContext.findAllClassesImplementInterface(method.getClassName())) {
+        if (!classContext.findClassForID(classId).isAbstract()) {
+          implementors.add(classId);
+          final List<Record> table = this.tables.get(classId);
+          if (table != null) {
+            for (int i = 0; i < table.size(); i++) {
+              if (table.get(i) != null) {
+                usedSelectors.set(i);
+              }
+            }
+          }
+        }
+      }
+
+      final int selector = usedSelectors.nextClearBit(0);
+      this.selectors.put(method, selector);
+
+      for (final ClassID classId : implementors) {
+        final MethodGen implementation = translator.getMethodContext().findMethod(
+            new MethodID(classId.getClassName(), method.getMethodName(), method.getReturnType(), method.getArgs()));
+        final List<Record> table = this.tables.computeIfAbsent(classId, x -> new ArrayList<>());
+        while (table.size() <= selector) {
+          table.add(null);
+        }
+        table.set(selector, implementation == null || implementation.isAbstract() ? null
+            : new Record(method, implementation));
       }
-      records.add(newRecord);
     }
   }
 
-  public String generateAsm() {
-    final StringBuilder result = new StringBuilder("; GENERATED INVOKEINTERFACE TABLE\nDEFB ");
-    result.append(records.size()).append('\n');
-    for (final Record r : records) {
-      result.append(r.generateAsm());
-    }
-    return result.toString();
+  /**
+   * Get selector of an interface method.
+   *
+   * @param method the interface method, must not be null
+   * @return the selector or -1 if the method is not in the table
+   */
+  public int findSelector(final MethodID method) {
+    final Integer selector = this.selectors.get(method);
+    return selector == null ? -1 : selector;
   }
 
-  private class Record {
-    private final MethodID interfaceMethod;
-    private final List<MethodID> inheritedMethods = new ArrayList<>();
+  public String generateAsm() {
+    final ClassContext classContext = this.translator.getClassContext();
+    final StringBuilder result = new StringBuilder("; GENERATED INVOKEINTERFACE TABLE\n");
 
-    private Record(final MethodID interfaceMethod) {
-      this.interfaceMethod = interfaceMethod;
+    // offsets of records in bytes, they are used by INVOKEINTERFACE as selectors
+    for (final Map.Entry<MethodID, Integer> selector : this.selectors.entrySet()) {
+      result.append(LabelAndFrameUtils.makeLabelForInterfaceMethodSelector(selector.getKey()))
+          .append(": EQU ").append(selector.getValue() * RECORD_SIZE).append('\n');
     }
 
-    private void addInheritedMethod(final MethodID method) {
-      inheritedMethods.add(method);
+    // interface table address for every class id, zero for classes don't have the table
+    int classNumber = 0;
+    for (final ClassID ignored : classContext.getAllClasses()) {
+      classNumber++;
+    }
+    final String[] tableForClassId = new String[classNumber];
+    for (final ClassID classId : this.tables.keySet()) {
+      tableForClassId[classContext.findClassUID(classId)] =
+          LabelAndFrameUtils.makeLabelForInterfaceTable(classId.getClassName());
+    }
+    result.append(CLASS_TABLE_LABEL).append(":\n");
+    for (final String label : tableForClassId) {
+      result.append("DEFW ").append(label == null ? "0" : label).append('\n');
     }
 
-    private String generateAsm() {
-      final StringBuilder result = new StringBuilder("DEFW ");
-
-      result.append(LabelAndFrameUtils.makeLabelForMethodID(interfaceMethod)).append('\n');
-
-      result.append("DEFB ").append(inheritedMethods.size()).append('\n');
-
-      for (final MethodID method : inheritedMethods) {
-        final MethodGen meth = translator.getMethodContext().findMethod(method);
-        final int frameSize = LabelAndFrameUtils.calculateFrameSizeForMethod(meth.getArgumentTypes().length, meth.getMaxLocals(), false);
+    for (final Map.Entry<ClassID, List<Record>> table : this.tables.entrySet()) {
+      result.append(LabelAndFrameUtils.makeLabelForInterfaceTable(table.getKey().getClassName()))
+          .append(": DEFW ").append(table.getValue().size() * RECORD_SIZE).append('\n');
+      for (final Record record : table.getValue()) {
+        if (record == null) {
+          result.append("DEFW 0,0,0\n");
+        } else {
+          final MethodGen method = record.implementation;
+          final Integer interfaceMethodUid =
+              this.translator.getMethodContext().findMethodUID(record.interfaceMethod);
+          Assertions.assertNotNull("Interface method must have UID [" + record.interfaceMethod + ']',
+              interfaceMethodUid);
+          result.append("DEFW ").append(LabelAndFrameUtils.makeLabelNameForMethod(method)).append(',')
+              .append(LabelAndFrameUtils.calculateFrameSizeForMethod(method.getArgumentTypes().length, method.getMaxLocals(), false))
+              .append(',').append(interfaceMethodUid)
+              .append('\n');
+        }
+      }
+    }
+    return result.toString();
+  }
 
-        result.append("DEFW ").append(LabelAndFrameUtils.makeLabelForClassID(method.getClassID())).append(',')
-            .append(method.getMethodLabel()).append(',')
-            .append(frameSize)
-            .append('\n');
+  private static final class Record {
+    private final MethodID interfaceMethod;
+    private final MethodGen implementation;
 
-      }
-      return result.toString();
+    private Record(final MethodID interfaceMethod, final MethodGen implementation) {
+      this.interfaceMethod = interfaceMethod;
+      this.implementation = implementation;
     }
   }
 }
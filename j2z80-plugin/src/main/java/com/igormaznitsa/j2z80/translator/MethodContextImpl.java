@@ -20,6 +20,7 @@ import static com.igormaznitsa.j2z80.translator.utils.ClassUtils.hasJ2Z80Ignore;
 import com.igormaznitsa.j2z80.MethodContext;
 import com.igormaznitsa.j2z80.ids.ClassMethodInfo;
 import com.igormaznitsa.j2z80.ids.MethodID;
+import com.igormaznitsa.j2z80.jvmprocessors.AbstractInvokeProcessor;
 import com.igormaznitsa.j2z80.translator.utils.ClassUtils;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -55,11 +56,13 @@ class MethodContextImpl implements MethodContext {
       for (final Method method : ClassUtils.findBoostrapAwareMethods(classGen)) {
         final MethodID methodId = new MethodID(classGen, method);
 
-        this.methodIds.put(methodId, new ClassMethodInfo(classGen, method, idCounter));
+        final ClassMethodInfo info = new ClassMethodInfo(classGen, method, idCounter);
+        this.methodIds.put(methodId, info);
         idCounter++;
 
         if (!(classGen.isInterface() || classGen.isEnum()) &&
             !(method.isNative() || method.isAbstract())) {
+          info.setCallingConvention(AbstractInvokeProcessor.findCallingConvention(method));
           methodsToProcess.add(methodId);
         }
       }
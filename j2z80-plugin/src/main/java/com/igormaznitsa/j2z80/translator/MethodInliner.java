@@ -0,0 +1,269 @@
+/*
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80.translator;
+
+import com.igormaznitsa.j2z80.ClassContext;
+import com.igormaznitsa.j2z80.ids.ClassID;
+import com.igormaznitsa.j2z80.ids.ClassMethodInfo;
+import com.igormaznitsa.j2z80.ids.MethodID;
+import org.apache.bcel.classfile.Code;
+import org.apache.bcel.classfile.Method;
+import org.apache.bcel.generic.ClassGen;
+import org.apache.bcel.generic.ConstantPoolGen;
+import org.apache.bcel.generic.CPInstruction;
+import org.apache.bcel.generic.GOTO;
+import org.apache.bcel.generic.IINC;
+import org.apache.bcel.generic.INVOKESPECIAL;
+import org.apache.bcel.generic.INVOKESTATIC;
+import org.apache.bcel.generic.INVOKEVIRTUAL;
+import org.apache.bcel.generic.Instruction;
+import org.apache.bcel.generic.InstructionFactory;
+import org.apache.bcel.generic.InstructionHandle;
+import org.apache.bcel.generic.InstructionList;
+import org.apache.bcel.generic.InstructionTargeter;
+import org.apache.bcel.generic.InvokeInstruction;
+import org.apache.bcel.generic.JsrInstruction;
+import org.apache.bcel.generic.LoadInstruction;
+import org.apache.bcel.generic.LocalVariableInstruction;
+import org.apache.bcel.generic.MethodGen;
+import org.apache.bcel.generic.ObjectType;
+import org.apache.bcel.generic.RET;
+import org.apache.bcel.generic.ReferenceType;
+import org.apache.bcel.generic.ReturnInstruction;
+import org.apache.bcel.generic.TargetLostException;
+import org.apache.bcel.generic.Type;
+
+/**
+ * The class inlines calls of small methods into their callers before translation. Only leaf methods
+ * are inlined so that there is no recursion and inlined code doesn't contain calls. Calls of static
+ * methods, private methods and final methods are inlined. Arguments of an inlined method are
+ * stored into new local variables placed after local variables of the caller, returns are replaced
+ * by jumps to the instruction after the call.
+ *
+ * @author Igor Maznitsa (igor.maznitsa@igormaznitsa.com)
+ */
+final class MethodInliner {
+
+  /**
+   * Max number of local variables of a method after inlining, the stack frame is addressed by IX
+   * with 8 bit offset.
+   */
+  static final int MAX_LOCALS = 64;
+
+  /**
+   * Max bytecode size of a method inlined if the program size is more important than speed, such
+   * methods (getters, setters and constants) are not bigger than a call with frame setup.
+   */
+  static final int SIZE_BUDGET = 5;
+
+  private final MethodContextImpl methodContext;
+  private final ClassContext classContext;
+  private final int budget;
+
+  /**
+   * Constructor.
+   *
+   * @param methodContext method context of the program, must not be null
+   * @param classContext  class context of the program, must not be null
+   * @param budget        max bytecode size of inlined methods in bytes
+   */
+  MethodInliner(final MethodContextImpl methodContext, final ClassContext classContext,
+                final int budget) {
+    this.methodContext = methodContext;
+    this.classContext = classContext;
+    this.budget = budget;
+  }
+
+  /**
+   * Calculate max bytecode size of inlined methods.
+   *
+   * @param budget  the configured budget in bytes
+   * @param forSize true if the program size is more important than speed
+   * @return the budget to be used
+   */
+  static int calculateBudget(final int budget, final boolean forSize) {
+    return forSize ? Math.min(budget, SIZE_BUDGET) : budget;
+  }
+
+  /**
+   * Check that a method can be inlined. The method must have body not bigger than the budget, it
+   * must not contain calls, subroutines and exception handlers.
+   *
+   * @param method the method to be checked, must not be null
+   * @param budget max bytecode size of the method in bytes
+   * @return true if calls of the method can be inlined
+   */
+  static boolean isCandidate(final Method method, final int budget) {
+    final Code code = method.getCode();
+    if (code == null || method.isSynchronized() || method.getName().startsWith("<")
+        || code.getCode().length > budget || code.getExceptionTable().length > 0
+        || method.getReturnType().getSize() > 1) {
+      return false;
+    }
+    for (final Type arg : method.getArgumentTypes()) {
+      if (arg.getSize() != 1) {
+        return false;
+      }
+    }
+    for (final Instruction instruction : new InstructionList(code.getCode()).getInstructions()) {
+      if (instruction instanceof InvokeInstruction || instruction instanceof JsrInstruction
+          || instruction instanceof RET) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Inline calls in a method. Instruction list and max locals of the method are changed.
+   *
+   * @param caller the method to be processed, must not be null
+   * @return number of inlined calls
+   */
+  int inline(final ClassMethodInfo caller) {
+    final MethodGen callerGen = caller.getMethodGen();
+    if (this.budget <= 0 || callerGen == null || callerGen.getInstructionList() == null
+        || "<clinit>".equals(callerGen.getName())) {
+      return 0;
+    }
+
+    final InstructionList list = callerGen.getInstructionList();
+    final ConstantPoolGen callerPool = callerGen.getConstantPool();
+    // all inlined methods use the same locals because their code doesn't overlap
+    final int base = callerGen.getMaxLocals();
+    int maxLocals = base;
+    int result = 0;
+
+    for (final InstructionHandle handle : list.getInstructionHandles()) {
+      if (!(handle.getInstruction() instanceof InvokeInstruction)) {
+        continue;
+      }
+      final MethodGen callee =
+          this.findInlinedMethod((InvokeInstruction) handle.getInstruction(), callerPool);
+      if (callee == null || base + callee.getMaxLocals() > MAX_LOCALS) {
+        continue;
+      }
+      this.inlineCall(list, handle, callee, callerPool, base);
+      maxLocals = Math.max(maxLocals, base + callee.getMaxLocals());
+      result++;
+    }
+
+    if (result > 0) {
+      callerGen.setMaxLocals(maxLocals);
+      list.setPositions();
+    }
+    return result;
+  }
+
+  private MethodGen findInlinedMethod(final InvokeInstruction instruction,
+                                      final ConstantPoolGen pool) {
+    if (!(instruction instanceof INVOKESTATIC || instruction instanceof INVOKESPECIAL
+        || instruction instanceof INVOKEVIRTUAL)) {
+      return null;
+    }
+    final ReferenceType referenceType = instruction.getReferenceType(pool);
+    if (!(referenceType instanceof ObjectType)) {
+      return null;
+    }
+    final String className = ((ObjectType) referenceType).getClassName();
+
+    final MethodID methodId = new MethodID(className, instruction.getMethodName(pool),
+        instruction.getReturnType(pool), instruction.getArgumentTypes(pool));
+    ClassMethodInfo info = this.methodContext.findMethodInfo(methodId);
+    if (info == null) {
+      info = this.methodContext.findInheritedMethod(methodId);
+    }
+    if (info == null || info.getMethodInfo() == null
+        || !isCandidate(info.getMethodInfo(), this.budget)) {
+      return null;
+    }
+
+    final Method method = info.getMethodInfo();
+    if (instruction instanceof INVOKESTATIC) {
+      return method.isStatic() ? info.getMethodGen() : null;
+    }
+    if (method.isStatic()) {
+      return null;
+    }
+    if (instruction instanceof INVOKESPECIAL) {
+      return method.isPrivate() ? info.getMethodGen() : null;
+    }
+    final ClassGen receiver = this.classContext.findClassForID(new ClassID(className));
+    return method.isPrivate() || method.isFinal() || (receiver != null && receiver.isFinal())
+        ? info.getMethodGen() : null;
+  }
+
+  private void inlineCall(final InstructionList list, final InstructionHandle call,
+                          final MethodGen callee, final ConstantPoolGen callerPool,
+                          final int base) {
+    // the call is not the last instruction because a method can't fall off its end
+    final InstructionHandle next = call.getNext();
+    final InstructionList code = new InstructionList();
+
+    // arguments are taken from the stack into locals, the last one is on the top
+    final Type[] args = callee.getArgumentTypes();
+    final int firstArg = callee.isStatic() ? 0 : 1;
+    for (int i = args.length - 1; i >= 0; i--) {
+      code.append(InstructionFactory.createStore(args[i], base + firstArg + i));
+    }
+    if (!callee.isStatic()) {
+      code.append(InstructionFactory.createStore(Type.OBJECT, base));
+    }
+
+    final InstructionList body = callee.getInstructionList().copy();
+    final ConstantPoolGen calleePool = callee.getConstantPool();
+    for (final InstructionHandle handle : body.getInstructionHandles()) {
+      final Instruction instruction = handle.getInstruction();
+      if (instruction instanceof IINC) {
+        final IINC iinc = (IINC) instruction;
+        handle.setInstruction(new IINC(base + iinc.getIndex(), iinc.getIncrement()));
+      } else if (instruction instanceof LocalVariableInstruction) {
+        final LocalVariableInstruction variable = (LocalVariableInstruction) instruction;
+        final Type type = variable.getType(calleePool);
+        final int index = base + variable.getIndex();
+        handle.setInstruction(instruction instanceof LoadInstruction
+            ? InstructionFactory.createLoad(type, index)
+            : InstructionFactory.createStore(type, index));
+      } else if (instruction instanceof CPInstruction) {
+        final CPInstruction cpInstruction = (CPInstruction) instruction;
+        cpInstruction.setIndex(
+            callerPool.addConstant(calleePool.getConstant(cpInstruction.getIndex()), calleePool));
+      } else if (instruction instanceof ReturnInstruction) {
+        // the result is already on the stack
+        final InstructionHandle target = handle.getNext() == null ? next
+            : body.insert(handle, new GOTO(next));
+        deleteAndRedirect(body, handle, target);
+      }
+    }
+    code.append(body);
+
+    final InstructionHandle first = code.isEmpty() ? next : list.insert(call, code);
+    deleteAndRedirect(list, call, first);
+  }
+
+  private static void deleteAndRedirect(final InstructionList list, final InstructionHandle handle,
+                                        final InstructionHandle newTarget) {
+    try {
+      list.delete(handle);
+    } catch (TargetLostException ex) {
+      for (final InstructionHandle target : ex.getTargets()) {
+        for (final InstructionTargeter targeter : target.getTargeters()) {
+          targeter.updateTarget(target, newTarget);
+        }
+      }
+    }
+  }
+}
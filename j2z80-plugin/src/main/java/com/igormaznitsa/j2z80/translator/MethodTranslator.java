@@ -17,23 +17,34 @@ package com.igormaznitsa.j2z80.translator;
 
 import com.igormaznitsa.j2z80.TranslatorContext;
 import com.igormaznitsa.j2z80.ids.ClassMethodInfo;
+import com.igormaznitsa.j2z80.ids.ClassMethodInfo.CallingConvention;
 import com.igormaznitsa.j2z80.jvmprocessors.AbstractJvmCommandProcessor;
+import com.igormaznitsa.j2z80.jvmprocessors.OperandStackCache;
 import com.igormaznitsa.j2z80.utils.LabelAndFrameUtils;
 import com.igormaznitsa.j2z80.utils.Utils;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import org.apache.bcel.classfile.Constant;
 import org.apache.bcel.classfile.ConstantString;
 import org.apache.bcel.classfile.ConstantUtf8;
+import org.apache.bcel.generic.BIPUSH;
+import org.apache.bcel.generic.CodeExceptionGen;
 import org.apache.bcel.generic.ConstantPoolGen;
+import org.apache.bcel.generic.ConstantPushInstruction;
+import org.apache.bcel.generic.ICONST;
 import org.apache.bcel.generic.Instruction;
 import org.apache.bcel.generic.InstructionHandle;
 import org.apache.bcel.generic.InstructionList;
 import org.apache.bcel.generic.InstructionTargeter;
+import org.apache.bcel.generic.LDC;
 import org.apache.bcel.generic.MethodGen;
+import org.apache.bcel.generic.SIPUSH;
 
 /**
  * The class is a method translator. It translates a parsed class method into Z80 assembler.
@@ -44,10 +55,26 @@ public class MethodTranslator {
 
   private final TranslatorContext translatorContext;
   private final ClassMethodInfo method;
+  private final boolean optimized;
+  private Set<InstructionHandle> tailCalls = Collections.emptySet();
 
   public MethodTranslator(final TranslatorContext context, final ClassMethodInfo method) {
+    this(context, method, false);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param context   the translator context, must not be null
+   * @param method    the method to be translated, must not be null
+   * @param optimized true if values of the operand stack top should be kept in registers within
+   *                  basic blocks and tail calls should be made by jumps
+   */
+  public MethodTranslator(final TranslatorContext context, final ClassMethodInfo method,
+                          final boolean optimized) {
     this.translatorContext = context;
     this.method = method;
+    this.optimized = optimized;
   }
 
   public TranslatorContext getTranslatorContext() {
@@ -68,17 +95,43 @@ public class MethodTranslator {
     return this.method;
   }
 
+  /**
+   * Check that an invoke instruction of the translated method is a tail call, such call can be
+   * made by a jump because nothing is done after it except return of its result.
+   *
+   * @param handle the handle of an invoke instruction, must not be null
+   * @return true if the call is a tail one and tail calls are allowed
+   */
+  public boolean isTailCall(final InstructionHandle handle) {
+    return this.tailCalls.contains(handle);
+  }
+
   private List<String> method2asm(final ClassLoader bootstrapClassLoader) throws IOException {
     final List<String> result = new ArrayList<>();
     result.add(LabelAndFrameUtils.makeLabelNameForMethod(this.method) + ':');
 
     final MethodGen methodG = this.method.getMethodGen();
 
+    final boolean argumentsInRegisters =
+        this.method.getCallingConvention() == CallingConvention.REGISTERS;
+    if (argumentsInRegisters) {
+      // the method doesn't have stack frame, arguments come in BC and DE and saved into cells
+      final int argNumber = methodG.getArgumentTypes().length;
+      result.add("LD (" + LabelAndFrameUtils.makeLabelForLocalVariableCell(this.method, 0) + "),BC");
+      if (argNumber > 1) {
+        result.add("LD (" + LabelAndFrameUtils.makeLabelForLocalVariableCell(this.method, 1) + "),DE");
+      }
+    }
+
     final InstructionList list = methodG.getInstructionList();
     list.setPositions();
     final InstructionHandle[] handles = list.getInstructionHandles();
+    final OperandStackCache stackCache = this.optimized ? new OperandStackCache() : null;
+    this.tailCalls = this.optimized ? TailCallOptimizer.findTailCalls(methodG)
+        : Collections.emptySet();
 
-    for (final InstructionHandle handler : handles) {
+    for (int i = 0; i < handles.length; i++) {
+      final InstructionHandle handler = handles[i];
       final Instruction instruction = handler.getInstruction();
       final AbstractJvmCommandProcessor processor = AbstractJvmCommandProcessor.findProcessor(instruction.getClass());
 
@@ -87,11 +140,29 @@ public class MethodTranslator {
             "J2Z80 doesn't support JVM instruction: " + instruction.getName());
       }
 
-      getTranslatorContext().registerAdditionsUsedByClass(processor.getClass());
+      getTranslatorContext()
+          .registerAdditionsUsedByClass(processor.findClassOfAdditions(this, instruction));
+
+      if (stackCache != null && isBasicBlockStart(handler)) {
+        // cached values are placed onto the stack before the label, all jumps come with empty cache
+        final String flushed = stackCache.flush();
+        if (!flushed.isEmpty()) {
+          result.add(flushed);
+        }
+      }
 
       final StringWriter writer = new StringWriter(256);
       try {
-        processor.process(this, instruction, handler, bootstrapClassLoader, writer);
+        if (i + 1 < handles.length
+            && this.processWithConstantOperand(handler, handles[i + 1], stackCache, writer)) {
+          // the next instruction has been processed together with the constant
+          i++;
+        } else if (stackCache == null) {
+          processor.process(this, instruction, handler, bootstrapClassLoader, writer);
+        } else if (!processor.processWithStackCache(this, instruction, handler, stackCache, writer)) {
+          writer.write(stackCache.flush());
+          processor.process(this, instruction, handler, bootstrapClassLoader, writer);
+        }
       } catch (IllegalArgumentException ex) {
         getTranslatorContext().getLogger().logError(this.method + " [" + ex.getMessage() + ']');
         throw ex;
@@ -108,9 +179,58 @@ public class MethodTranslator {
       result.add(writer.toString());
     }
 
+    if (this.method.getCallingConvention() != CallingConvention.FRAME) {
+      for (int i = 0; i < methodG.getMaxLocals(); i++) {
+        result.add(LabelAndFrameUtils.makeLabelForLocalVariableCell(this.method, i) + ": DEFW 0");
+      }
+    }
+
     return result;
   }
 
+  private boolean processWithConstantOperand(final InstructionHandle handle,
+                                             final InstructionHandle next,
+                                             final OperandStackCache stackCache,
+                                             final Writer out) throws IOException {
+    final Integer constant = this.findIntConstant(handle.getInstruction());
+    if (constant == null || isBasicBlockStart(next)) {
+      return false;
+    }
+    final Instruction nextInstruction = next.getInstruction();
+    final AbstractJvmCommandProcessor processor =
+        AbstractJvmCommandProcessor.findProcessor(nextInstruction.getClass());
+    if (processor == null || !processor.processWithConstantOperand(this, nextInstruction, next,
+        constant, stackCache, out)) {
+      return false;
+    }
+    getTranslatorContext()
+        .registerAdditionsUsedByClass(processor.findClassOfAdditions(this, nextInstruction));
+    return true;
+  }
+
+  private Integer findIntConstant(final Instruction instruction) {
+    if (instruction instanceof ICONST || instruction instanceof BIPUSH
+        || instruction instanceof SIPUSH) {
+      return ((ConstantPushInstruction) instruction).getValue().intValue();
+    }
+    if (instruction instanceof LDC) {
+      final Object value = ((LDC) instruction).getValue(this.getConstantPool());
+      return value instanceof Integer ? (Integer) value : null;
+    }
+    return null;
+  }
+
+  private static boolean isBasicBlockStart(final InstructionHandle handle) {
+    if (handle.hasTargeters()) {
+      for (final InstructionTargeter targeter : handle.getTargeters()) {
+        if (targeter instanceof Instruction || targeter instanceof CodeExceptionGen) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
   private boolean checkHandleForInstructionTargeters(final InstructionHandle handle) {
     if (handle.hasTargeters()) {
       for (final InstructionTargeter targeter : handle.getTargeters()) {
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80.translator;
+
+import com.igormaznitsa.j2z80.ClassContext;
+import com.igormaznitsa.j2z80.MethodContext;
+import com.igormaznitsa.j2z80.TranslationMetricsListener;
+import com.igormaznitsa.j2z80.TranslatorContext;
+import com.igormaznitsa.j2z80.TranslatorLogger;
+import com.igormaznitsa.j2z80.bootstrap.AbstractBootstrapClass;
+import com.igormaznitsa.j2z80.ids.ClassID;
+import com.igormaznitsa.j2z80.ids.MethodID;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.bcel.classfile.Constant;
+
+/**
+ * The class is a translator context which collects all registrations made during translation of
+ * a single method instead of writing them into the shared translator registries. Collected
+ * registrations can be replayed later into a target context in their original order, so several
+ * methods can be translated concurrently and merged deterministically.
+ *
+ * @author Igor Maznitsa (igor.maznitsa@igormaznitsa.com)
+ */
+final class RecordingTranslatorContext implements TranslatorContext {
+
+  private final TranslatorContext parent;
+  private final List<Class<?>> classesWithAdditions = new ArrayList<>();
+  private final List<ClassID> classesForCastCheck = new ArrayList<>();
+  private final List<MethodID> interfaceMethods = new ArrayList<>();
+  private final Map<String, Constant> constantPoolItems = new LinkedHashMap<>();
+  private final List<AbstractBootstrapClass> bootClassProcessors = new ArrayList<>();
+
+  RecordingTranslatorContext(final TranslatorContext parent) {
+    this.parent = parent;
+  }
+
+  /**
+   * Replay all collected registrations into a context.
+   *
+   * @param target the context to get registrations, must not be null
+   */
+  void replay(final TranslatorContext target) {
+    this.classesWithAdditions.forEach(target::registerAdditionsUsedByClass);
+    this.classesForCastCheck.forEach(target::registerClassForCastCheck);
+    this.interfaceMethods.forEach(target::registerInterfaceMethodForINVOKEINTERFACE);
+    this.constantPoolItems.forEach(target::registerConstantPoolItem);
+    this.bootClassProcessors.forEach(target::registerCalledBootClassProcesser);
+  }
+
+  List<Class<?>> getClassesWithAdditions() {
+    return Collections.unmodifiableList(this.classesWithAdditions);
+  }
+
+  List<ClassID> getClassesForCastCheck() {
+    return Collections.unmodifiableList(this.classesForCastCheck);
+  }
+
+  List<MethodID> getInterfaceMethods() {
+    return Collections.unmodifiableList(this.interfaceMethods);
+  }
+
+  Map<String, Constant> getConstantPoolItems() {
+    return Collections.unmodifiableMap(this.constantPoolItems);
+  }
+
+  List<AbstractBootstrapClass> getBootClassProcessors() {
+    return Collections.unmodifiableList(this.bootClassProcessors);
+  }
+
+  @Override
+  public List<String> translate(final String mainClassName, final int startAddress,
+                                final int stackTopAddress, final String[] excludeBinResPatterns,
+                                final ClassLoader bootstrapClassLoader) throws IOException {
+    return this.parent.translate(mainClassName, startAddress, stackTopAddress,
+        excludeBinResPatterns, bootstrapClassLoader);
+  }
+
+  @Override
+  public ClassContext getClassContext() {
+    return this.parent.getClassContext();
+  }
+
+  @Override
+  public MethodContext getMethodContext() {
+    return this.parent.getMethodContext();
+  }
+
+  @Override
+  public TranslatorLogger getLogger() {
+    return this.parent.getLogger();
+  }
+
+  @Override
+  public TranslationMetricsListener getMetricsListener() {
+    return this.parent.getMetricsListener();
+  }
+
+  @Override
+  public void registerAdditionsUsedByClass(final Class<?> classToCheck) {
+    if (!this.classesWithAdditions.contains(classToCheck)) {
+      this.classesWithAdditions.add(classToCheck);
+    }
+  }
+
+  @Override
+  public Integer registerClassForCastCheck(final ClassID classId) {
+    this.classesForCastCheck.add(classId);
+    return this.getClassContext().findClassUID(classId);
+  }
+
+  @Override
+  public Integer registerInterfaceMethodForINVOKEINTERFACE(final MethodID methodId) {
+    this.interfaceMethods.add(methodId);
+    return this.getMethodContext().findMethodUID(methodId);
+  }
+
+  @Override
+  public void registerConstantPoolItem(final String constantLabel, final Constant item) {
+    this.constantPoolItems.put(constantLabel, item);
+  }
+
+  @Override
+  public void registerCalledBootClassProcesser(final AbstractBootstrapClass classProcessor) {
+    this.bootClassProcessors.add(classProcessor);
+  }
+
+  @Override
+  public byte[] loadResourceForPath(final String path) throws IOException {
+    return this.parent.loadResourceForPath(path);
+  }
+}
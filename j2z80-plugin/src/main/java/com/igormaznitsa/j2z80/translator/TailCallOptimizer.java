@@ -0,0 +1,236 @@
+/*
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80.translator;
+
+import com.igormaznitsa.j2z80.ids.ClassMethodInfo;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.apache.bcel.generic.BranchInstruction;
+import org.apache.bcel.generic.CodeExceptionGen;
+import org.apache.bcel.generic.ConstantPoolGen;
+import org.apache.bcel.generic.GOTO;
+import org.apache.bcel.generic.INVOKESPECIAL;
+import org.apache.bcel.generic.INVOKESTATIC;
+import org.apache.bcel.generic.Instruction;
+import org.apache.bcel.generic.InstructionFactory;
+import org.apache.bcel.generic.InstructionHandle;
+import org.apache.bcel.generic.InstructionList;
+import org.apache.bcel.generic.InstructionTargeter;
+import org.apache.bcel.generic.InvokeInstruction;
+import org.apache.bcel.generic.JsrInstruction;
+import org.apache.bcel.generic.MethodGen;
+import org.apache.bcel.generic.ObjectType;
+import org.apache.bcel.generic.RET;
+import org.apache.bcel.generic.ReferenceType;
+import org.apache.bcel.generic.ReturnInstruction;
+import org.apache.bcel.generic.Select;
+import org.apache.bcel.generic.TargetLostException;
+import org.apache.bcel.generic.Type;
+import org.apache.bcel.generic.UnconditionalBranch;
+
+/**
+ * The class finds tail calls in methods, a tail call is a call followed by return of its result
+ * when there is nothing on the operand stack except arguments of the call. Self tail calls are
+ * replaced by stores of arguments into local variables and a jump to the method start, so that
+ * recursion becomes a loop and doesn't take stack memory.
+ *
+ * @author Igor Maznitsa (igor.maznitsa@igormaznitsa.com)
+ */
+final class TailCallOptimizer {
+
+  private TailCallOptimizer() {
+  }
+
+  /**
+   * Find tail calls in a method. Calls within exception handler ranges and calls in synchronized
+   * methods or methods with subroutines are not tail calls.
+   *
+   * @param method the method to be processed, must not be null
+   * @return handles of invoke instructions which are tail calls
+   */
+  static Set<InstructionHandle> findTailCalls(final MethodGen method) {
+    final InstructionList list = method.getInstructionList();
+    if (list == null || method.isSynchronized()) {
+      return Collections.emptySet();
+    }
+    final Map<InstructionHandle, Integer> depths = calculateStackDepths(method);
+    if (depths == null) {
+      return Collections.emptySet();
+    }
+
+    final Set<InstructionHandle> guarded = new HashSet<>();
+    for (final CodeExceptionGen exception : method.getExceptionHandlers()) {
+      for (InstructionHandle handle = exception.getStartPC(); handle != null;
+           handle = handle.getNext()) {
+        guarded.add(handle);
+        if (handle == exception.getEndPC()) {
+          break;
+        }
+      }
+    }
+
+    final ConstantPoolGen pool = method.getConstantPool();
+    final Set<InstructionHandle> result = new HashSet<>();
+    for (final InstructionHandle handle : list.getInstructionHandles()) {
+      if (handle.getInstruction() instanceof InvokeInstruction
+          && handle.getNext() != null
+          && handle.getNext().getInstruction() instanceof ReturnInstruction
+          && !guarded.contains(handle)) {
+        final InvokeInstruction invoke = (InvokeInstruction) handle.getInstruction();
+        final ReturnInstruction ret = (ReturnInstruction) handle.getNext().getInstruction();
+        final Integer depth = depths.get(handle);
+        if (depth != null && depth == invoke.consumeStack(pool)
+            && invoke.getReturnType(pool).getSize() == ret.getType().getSize()) {
+          result.add(handle);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Replace self tail calls of a method by jumps to the method start. Only static methods called by
+   * INVOKESTATIC and private methods called by INVOKESPECIAL are processed.
+   *
+   * @param method the method to be processed, must not be null
+   * @return number of replaced calls
+   */
+  static int eliminateSelfTailCalls(final ClassMethodInfo method) {
+    final MethodGen methodGen = method.getMethodGen();
+    if (methodGen == null || methodGen.getInstructionList() == null
+        || methodGen.getName().startsWith("<")) {
+      return 0;
+    }
+    for (final Type arg : methodGen.getArgumentTypes()) {
+      if (arg.getSize() != 1) {
+        return 0;
+      }
+    }
+
+    final InstructionList list = methodGen.getInstructionList();
+    final ConstantPoolGen pool = methodGen.getConstantPool();
+    int result = 0;
+    for (final InstructionHandle handle : findTailCalls(methodGen)) {
+      if (isSelfCall(methodGen, (InvokeInstruction) handle.getInstruction(), pool)) {
+        replaceByJump(list, handle, methodGen);
+        result++;
+      }
+    }
+    if (result > 0) {
+      list.setPositions();
+    }
+    return result;
+  }
+
+  private static boolean isSelfCall(final MethodGen method, final InvokeInstruction invoke,
+                                    final ConstantPoolGen pool) {
+    if (invoke instanceof INVOKESTATIC) {
+      if (!method.isStatic()) {
+        return false;
+      }
+    } else if (!(invoke instanceof INVOKESPECIAL) || method.isStatic() || !method.isPrivate()) {
+      return false;
+    }
+    final ReferenceType referenceType = invoke.getReferenceType(pool);
+    return referenceType instanceof ObjectType
+        && method.getClassName().equals(((ObjectType) referenceType).getClassName())
+        && method.getName().equals(invoke.getMethodName(pool))
+        && method.getSignature().equals(invoke.getSignature(pool));
+  }
+
+  private static void replaceByJump(final InstructionList list, final InstructionHandle call,
+                                    final MethodGen method) {
+    final InstructionList code = new InstructionList();
+    // arguments are taken from the stack into their locals, the last one is on the top
+    final Type[] args = method.getArgumentTypes();
+    final int firstArg = method.isStatic() ? 0 : 1;
+    for (int i = args.length - 1; i >= 0; i--) {
+      code.append(InstructionFactory.createStore(args[i], firstArg + i));
+    }
+    if (!method.isStatic()) {
+      code.append(InstructionFactory.createStore(Type.OBJECT, 0));
+    }
+    code.append(new GOTO(list.getStart()));
+
+    // the return after the call is kept because it can be a jump target
+    final InstructionHandle first = list.insert(call, code);
+    try {
+      list.delete(call);
+    } catch (TargetLostException ex) {
+      for (final InstructionHandle target : ex.getTargets()) {
+        for (final InstructionTargeter targeter : target.getTargeters()) {
+          targeter.updateTarget(target, first);
+        }
+      }
+    }
+  }
+
+  /**
+   * Calculate depth of the operand stack in words before each reachable instruction.
+   *
+   * @param method the method to be processed, must not be null
+   * @return the map of depths, null if the method contains subroutines
+   */
+  private static Map<InstructionHandle, Integer> calculateStackDepths(final MethodGen method) {
+    final ConstantPoolGen pool = method.getConstantPool();
+    final Map<InstructionHandle, Integer> result = new HashMap<>();
+    final Deque<InstructionHandle> queue = new ArrayDeque<>();
+
+    result.put(method.getInstructionList().getStart(), 0);
+    queue.add(method.getInstructionList().getStart());
+    for (final CodeExceptionGen exception : method.getExceptionHandlers()) {
+      // an exception handler starts with the exception object on the stack
+      result.put(exception.getHandlerPC(), 1);
+      queue.add(exception.getHandlerPC());
+    }
+
+    while (!queue.isEmpty()) {
+      final InstructionHandle handle = queue.poll();
+      final Instruction instruction = handle.getInstruction();
+      if (instruction instanceof JsrInstruction || instruction instanceof RET) {
+        return null;
+      }
+      final int depth =
+          result.get(handle) - instruction.consumeStack(pool) + instruction.produceStack(pool);
+
+      final Set<InstructionHandle> next = new HashSet<>();
+      if (instruction instanceof BranchInstruction) {
+        next.add(((BranchInstruction) instruction).getTarget());
+      }
+      if (instruction instanceof Select) {
+        next.addAll(Arrays.asList(((Select) instruction).getTargets()));
+      }
+      if (!(instruction instanceof UnconditionalBranch || instruction instanceof Select
+          || instruction instanceof ReturnInstruction) && handle.getNext() != null) {
+        next.add(handle.getNext());
+      }
+
+      for (final InstructionHandle target : next) {
+        if (!result.containsKey(target)) {
+          result.put(target, depth);
+          queue.add(target);
+        }
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,515 @@
+/*
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80.translator;
+
+import com.igormaznitsa.j2z80.MethodContext;
+import com.igormaznitsa.j2z80.TranslatorContext;
+import com.igormaznitsa.j2z80.TranslatorLogger;
+import com.igormaznitsa.j2z80.bootstrap.AbstractBootstrapClass;
+import com.igormaznitsa.j2z80.ids.ClassID;
+import com.igormaznitsa.j2z80.ids.ClassMethodInfo;
+import com.igormaznitsa.j2z80.ids.MethodID;
+import com.igormaznitsa.j2z80.jvmprocessors.AbstractInvokeProcessor;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.bcel.classfile.Constant;
+import org.apache.bcel.classfile.ConstantInteger;
+import org.apache.bcel.classfile.ConstantUtf8;
+import org.apache.bcel.classfile.ConstantValue;
+import org.apache.bcel.classfile.Field;
+import org.apache.bcel.classfile.Method;
+import org.apache.bcel.generic.ClassGen;
+import org.apache.bcel.generic.Type;
+
+/**
+ * The class is a persistent cache of translated methods. Records are grouped by classes and every
+ * class is saved as a file which name is a digest of the class body and of the translation
+ * environment (translator code, optimization level and structure of the class path), so a record
+ * can be reused only if nothing which can affect translation of the class has been changed.
+ * Every record contains the assembler text of a method and registrations made during its translation,
+ * which are replayed on cache hit.
+ *
+ * @author Igor Maznitsa (igor.maznitsa@igormaznitsa.com)
+ */
+final class TranslationCache {
+
+  // version of the cache file layout, changes of generated code are tracked by the translator checksum
+  private static final int FORMAT_VERSION = 1;
+  private static final String FILE_EXTENSION = ".j2zcache";
+
+  private static final int CONSTANT_INTEGER = 0;
+  private static final int CONSTANT_UTF8 = 1;
+
+  private static String translatorChecksum;
+
+  private final Path folder;
+  private final String environment;
+  private final ClassLoader bootstrapClassLoader;
+  private final TranslatorLogger logger;
+  private final Map<String, CachedClass> classes = new HashMap<>();
+  private final Map<ClassGen, String> classKeys = new IdentityHashMap<>();
+
+  private int hits;
+  private int misses;
+
+  /**
+   * Constructor.
+   *
+   * @param folder               folder to keep cache files, must not be null
+   * @param environment          digest of the translation environment, must not be null
+   * @param bootstrapClassLoader class loader to restore bootstrap class processors
+   * @param logger               logger, must not be null
+   * @see #makeEnvironment(Collection, MethodContext, int, String...)
+   */
+  TranslationCache(final Path folder, final String environment,
+                   final ClassLoader bootstrapClassLoader, final TranslatorLogger logger) {
+    this.folder = folder;
+    this.environment = environment;
+    this.bootstrapClassLoader = bootstrapClassLoader;
+    this.logger = logger;
+  }
+
+  /**
+   * Make digest of translation environment. Translation of a method depends not only on its class
+   * but also on signatures of all classes in the class path (offsets, identifiers, call frames and
+   * calling conventions), so signatures of classes and all their members are included. Bodies of
+   * bootstrap classes are included completely because they generate code directly. Bodies of
+   * methods which can be inlined are included because they become a part of their callers. Number
+   * of local variables is taken from the method context because inlining changes frame size of a
+   * callee which is used by its callers.
+   *
+   * @param classes       all classes of the class path in their processing order, must not be null
+   * @param methodContext method context with processed methods, must not be null
+   * @param inlineBudget  max bytecode size of inlined methods, zero if inlining is disabled
+   * @param options       translation options which can affect generated code
+   * @return the digest as a hex string
+   */
+  static String makeEnvironment(final Collection<ClassGen> classes,
+                                final MethodContext methodContext, final int inlineBudget,
+                                final String... options) {
+    final MessageDigest digest = newDigest();
+    update(digest, Integer.toString(FORMAT_VERSION));
+    update(digest, Integer.toString(inlineBudget));
+    for (final String option : options) {
+      update(digest, String.valueOf(option));
+    }
+
+    for (final ClassGen classGen : classes) {
+      if (isBootstrapClass(classGen)) {
+        digest.update(classGen.getJavaClass().getBytes());
+        continue;
+      }
+      update(digest, classGen.getClassName());
+      update(digest, classGen.getSuperclassName());
+      update(digest, Integer.toString(classGen.getAccessFlags()));
+      for (final String interfaceName : classGen.getInterfaceNames()) {
+        update(digest, interfaceName);
+      }
+      for (final Field field : classGen.getFields()) {
+        update(digest, field.getName());
+        update(digest, field.getSignature());
+        update(digest, Integer.toString(field.getAccessFlags()));
+        final ConstantValue value = field.getConstantValue();
+        update(digest, value == null ? "" : value.toString());
+      }
+      for (final Method method : classGen.getMethods()) {
+        update(digest, method.getName());
+        update(digest, method.getSignature());
+        update(digest, Integer.toString(method.getAccessFlags()));
+        update(digest, Integer.toString(findMaxLocals(methodContext, classGen, method)));
+        update(digest, AbstractInvokeProcessor.findCallingConvention(method).name());
+        if (inlineBudget > 0 && MethodInliner.isCandidate(method, inlineBudget)) {
+          update(digest, method.getCode().toString());
+        }
+      }
+    }
+    return toHex(digest.digest());
+  }
+
+  /**
+   * Get checksum of the translator, it is a digest of jar files (or class folders) of the plugin
+   * and its API, so that any change of the translator code or processor templates makes all
+   * cached records stale. If the checksum can't be made then a random value is returned and cached
+   * records are never reused.
+   *
+   * @param logger logger to report problems, must not be null
+   * @return the checksum as a hex string
+   */
+  static synchronized String getTranslatorChecksum(final TranslatorLogger logger) {
+    if (translatorChecksum == null) {
+      try {
+        translatorChecksum = makeChecksum(findCodeSource(TranslationCache.class),
+            findCodeSource(TranslatorContext.class));
+      } catch (IOException ex) {
+        logger.logWarning("Can't make checksum of translator, cached methods are not reused ["
+            + ex.getMessage() + ']');
+        translatorChecksum = UUID.randomUUID().toString();
+      }
+    }
+    return translatorChecksum;
+  }
+
+  /**
+   * Make digest of files, a folder is processed with all its files in the order of their paths.
+   *
+   * @param paths jar files or class folders, must not be null
+   * @return the digest as a hex string
+   * @throws IOException it will be thrown for error during reading
+   */
+  static String makeChecksum(final Path... paths) throws IOException {
+    final MessageDigest digest = newDigest();
+    for (final Path path : paths) {
+      if (Files.isDirectory(path)) {
+        final List<Path> files;
+        try (final Stream<Path> stream = Files.walk(path)) {
+          files = stream.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        for (final Path file : files) {
+          update(digest, path.relativize(file).toString());
+          digest.update(Files.readAllBytes(file));
+        }
+      } else {
+        digest.update(Files.readAllBytes(path));
+      }
+    }
+    return toHex(digest.digest());
+  }
+
+  private static Path findCodeSource(final Class<?> klazz) throws IOException {
+    final CodeSource codeSource = klazz.getProtectionDomain().getCodeSource();
+    if (codeSource == null || codeSource.getLocation() == null) {
+      throw new IOException("Can't find code source of " + klazz.getName());
+    }
+    try {
+      return Path.of(codeSource.getLocation().toURI());
+    } catch (URISyntaxException | IllegalArgumentException ex) {
+      throw new IOException("Can't find code source of " + klazz.getName(), ex);
+    }
+  }
+
+  private static int findMaxLocals(final MethodContext methodContext, final ClassGen classGen,
+                                   final Method method) {
+    if (method.getCode() == null) {
+      return -1;
+    }
+    final ClassMethodInfo info = methodContext.findMethodInfo(new MethodID(classGen, method));
+    return info == null ? method.getCode().getMaxLocals() : info.getMethodGen().getMaxLocals();
+  }
+
+  private static boolean isBootstrapClass(final ClassGen classGen) {
+    return classGen.getClassName().startsWith(AbstractBootstrapClass.J2Z80_BOOTSTRAP_PACKAGE_PREFIX + '.')
+        || AbstractBootstrapClass.class.getName().equals(classGen.getSuperclassName());
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException("Can't find SHA-256 digest", ex);
+    }
+  }
+
+  private static void update(final MessageDigest digest, final String text) {
+    digest.update(text.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+  }
+
+  private static String toHex(final byte[] data) {
+    final String hex = new BigInteger(1, data).toString(16);
+    final StringBuilder result = new StringBuilder(data.length * 2);
+    for (int i = hex.length(); i < data.length * 2; i++) {
+      result.append('0');
+    }
+    return result.append(hex).toString();
+  }
+
+  private static String makeMethodKey(final ClassMethodInfo method) {
+    return method.getMethodName() + method.getMethodSignature();
+  }
+
+  private static String makeBootstrapClassName(final AbstractBootstrapClass processor) {
+    // bootstrap processors of standard classes are registered by their emulated names
+    final String name = processor.getClass().getName();
+    final String prefix = AbstractBootstrapClass.J2Z80_BOOTSTRAP_PACKAGE_PREFIX + '.';
+    if (name.startsWith(prefix + "java.") || name.startsWith(prefix + "javax.")) {
+      return name.substring(prefix.length());
+    }
+    return name;
+  }
+
+  int getHits() {
+    return this.hits;
+  }
+
+  int getMisses() {
+    return this.misses;
+  }
+
+  /**
+   * Find translated method in the cache and replay its registrations into a context.
+   *
+   * @param method the method to find, must not be null
+   * @param target the context to get registrations of the cached method, must not be null
+   * @return the cached assembler text of the method or null if it is not found
+   */
+  synchronized String[] find(final ClassMethodInfo method, final TranslatorContext target) {
+    final byte[] record = this.findClass(method.getClassInfo()).records.get(makeMethodKey(method));
+    if (record == null) {
+      this.misses++;
+      return null;
+    }
+
+    final RecordingTranslatorContext restored = new RecordingTranslatorContext(target);
+    final String[] result;
+    try {
+      result = this.readRecord(record, restored);
+    } catch (IOException ex) {
+      this.logger.logWarning("Can't restore cached method " + method + " [" + ex.getMessage() + ']');
+      this.misses++;
+      return null;
+    }
+    restored.replay(target);
+    this.hits++;
+    return result;
+  }
+
+  /**
+   * Put translated method into the cache.
+   *
+   * @param method   the translated method, must not be null
+   * @param asm      the assembler text of the method, must not be null
+   * @param recorded registrations made during translation of the method, must not be null
+   */
+  synchronized void put(final ClassMethodInfo method, final String[] asm,
+                        final RecordingTranslatorContext recorded) {
+    final byte[] record;
+    try {
+      record = makeRecord(asm, recorded);
+    } catch (IOException ex) {
+      this.logger.logDebug("Method " + method + " can't be cached [" + ex.getMessage() + ']');
+      return;
+    }
+    final CachedClass cachedClass = this.findClass(method.getClassInfo());
+    cachedClass.records.put(makeMethodKey(method), record);
+    cachedClass.changed = true;
+  }
+
+  /**
+   * Save changed classes and remove cache files which have not been used.
+   *
+   * @throws IOException it will be thrown for error during writing
+   */
+  synchronized void flush() throws IOException {
+    Files.createDirectories(this.folder);
+    for (final CachedClass cachedClass : this.classes.values()) {
+      if (!cachedClass.changed) {
+        continue;
+      }
+      final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      final DataOutputStream out = new DataOutputStream(buffer);
+      out.writeInt(FORMAT_VERSION);
+      out.writeInt(cachedClass.records.size());
+      for (final Map.Entry<String, byte[]> e : cachedClass.records.entrySet()) {
+        out.writeUTF(e.getKey());
+        out.writeInt(e.getValue().length);
+        out.write(e.getValue());
+      }
+      out.flush();
+      Files.write(this.folder.resolve(cachedClass.key + FILE_EXTENSION), buffer.toByteArray());
+      cachedClass.changed = false;
+    }
+
+    try (final DirectoryStream<Path> files = Files.newDirectoryStream(this.folder, '*' + FILE_EXTENSION)) {
+      for (final Path file : files) {
+        final String name = file.getFileName().toString();
+        if (!this.classes.containsKey(name.substring(0, name.length() - FILE_EXTENSION.length()))) {
+          Files.deleteIfExists(file);
+        }
+      }
+    }
+  }
+
+  private CachedClass findClass(final ClassGen classGen) {
+    final String key = this.classKeys.computeIfAbsent(classGen, x -> {
+      final MessageDigest digest = newDigest();
+      update(digest, this.environment);
+      digest.update(x.getJavaClass().getBytes());
+      return toHex(digest.digest());
+    });
+
+    CachedClass result = this.classes.get(key);
+    if (result == null) {
+      result = new CachedClass(key);
+      final Path file = this.folder.resolve(key + FILE_EXTENSION);
+      if (Files.isRegularFile(file)) {
+        try (final DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file)))) {
+          if (in.readInt() == FORMAT_VERSION) {
+            final int records = in.readInt();
+            for (int i = 0; i < records; i++) {
+              final String methodKey = in.readUTF();
+              final byte[] record = new byte[in.readInt()];
+              in.readFully(record);
+              result.records.put(methodKey, record);
+            }
+          }
+        } catch (IOException ex) {
+          this.logger.logWarning("Can't read cache file " + file + " [" + ex.getMessage() + ']');
+          result.records.clear();
+        }
+      }
+      this.classes.put(key, result);
+    }
+    return result;
+  }
+
+  private static byte[] makeRecord(final String[] asm, final RecordingTranslatorContext recorded)
+      throws IOException {
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    final DataOutputStream out = new DataOutputStream(buffer);
+
+    out.writeInt(asm.length);
+    for (final String line : asm) {
+      out.writeUTF(line);
+    }
+
+    out.writeInt(recorded.getClassesWithAdditions().size());
+    for (final Class<?> klazz : recorded.getClassesWithAdditions()) {
+      out.writeUTF(klazz.getName());
+    }
+
+    out.writeInt(recorded.getClassesForCastCheck().size());
+    for (final ClassID classId : recorded.getClassesForCastCheck()) {
+      out.writeUTF(classId.getClassName());
+    }
+
+    out.writeInt(recorded.getInterfaceMethods().size());
+    for (final MethodID methodId : recorded.getInterfaceMethods()) {
+      out.writeUTF(methodId.getClassName());
+      out.writeUTF(methodId.getMethodName());
+      out.writeUTF(Type.getMethodSignature(methodId.getReturnType(), methodId.getArgs()));
+    }
+
+    out.writeInt(recorded.getConstantPoolItems().size());
+    for (final Map.Entry<String, Constant> e : recorded.getConstantPoolItems().entrySet()) {
+      out.writeUTF(e.getKey());
+      final Constant constant = e.getValue();
+      if (constant instanceof ConstantInteger) {
+        out.writeByte(CONSTANT_INTEGER);
+        out.writeInt(((ConstantInteger) constant).getBytes());
+      } else if (constant instanceof ConstantUtf8) {
+        out.writeByte(CONSTANT_UTF8);
+        out.writeUTF(((ConstantUtf8) constant).getBytes());
+      } else {
+        throw new IOException("Unsupported constant " + constant);
+      }
+    }
+
+    out.writeInt(recorded.getBootClassProcessors().size());
+    for (final AbstractBootstrapClass processor : recorded.getBootClassProcessors()) {
+      out.writeUTF(makeBootstrapClassName(processor));
+    }
+
+    out.flush();
+    return buffer.toByteArray();
+  }
+
+  private String[] readRecord(final byte[] record, final RecordingTranslatorContext target)
+      throws IOException {
+    final DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+
+    final String[] asm = new String[in.readInt()];
+    for (int i = 0; i < asm.length; i++) {
+      asm[i] = in.readUTF();
+    }
+
+    for (int i = in.readInt(); i > 0; i--) {
+      final String className = in.readUTF();
+      try {
+        target.registerAdditionsUsedByClass(
+            Class.forName(className, false, TranslationCache.class.getClassLoader()));
+      } catch (ClassNotFoundException ex) {
+        throw new IOException("Can't find class " + className, ex);
+      }
+    }
+
+    for (int i = in.readInt(); i > 0; i--) {
+      target.registerClassForCastCheck(new ClassID(in.readUTF()));
+    }
+
+    for (int i = in.readInt(); i > 0; i--) {
+      final String className = in.readUTF();
+      final String methodName = in.readUTF();
+      final String signature = in.readUTF();
+      target.registerInterfaceMethodForINVOKEINTERFACE(new MethodID(className, methodName,
+          Type.getReturnType(signature), Type.getArgumentTypes(signature)));
+    }
+
+    for (int i = in.readInt(); i > 0; i--) {
+      final String label = in.readUTF();
+      final int type = in.readByte();
+      if (type == CONSTANT_INTEGER) {
+        target.registerConstantPoolItem(label, new ConstantInteger(in.readInt()));
+      } else if (type == CONSTANT_UTF8) {
+        target.registerConstantPoolItem(label, new ConstantUtf8(in.readUTF()));
+      } else {
+        throw new IOException("Unexpected constant type " + type);
+      }
+    }
+
+    for (int i = in.readInt(); i > 0; i--) {
+      final String className = in.readUTF();
+      final AbstractBootstrapClass processor = this.bootstrapClassLoader == null ? null
+          : AbstractBootstrapClass.findProcessor(className, this.bootstrapClassLoader);
+      if (processor == null) {
+        throw new IOException("Can't find bootstrap class " + className);
+      }
+      target.registerCalledBootClassProcesser(processor);
+    }
+
+    return asm;
+  }
+
+  private static final class CachedClass {
+    private final String key;
+    private final Map<String, byte[]> records = new LinkedHashMap<>();
+    private boolean changed;
+
+    private CachedClass(final String key) {
+      this.key = key;
+    }
+  }
+}
@@ -31,6 +31,7 @@ import static java.util.Collections.unmodifiableList;
 
 import com.igormaznitsa.j2z80.ClassContext;
 import com.igormaznitsa.j2z80.MethodContext;
+import com.igormaznitsa.j2z80.TranslationMetricsListener;
 import com.igormaznitsa.j2z80.TranslatorContext;
 import com.igormaznitsa.j2z80.TranslatorLogger;
 import com.igormaznitsa.j2z80.api.additional.J2Z80AdditionPath;
@@ -42,7 +43,9 @@ import com.igormaznitsa.j2z80.api.additional.NeedsMemoryManager;
 import com.igormaznitsa.j2z80.bootstrap.AbstractBootstrapClass;
 import com.igormaznitsa.j2z80.ids.ClassID;
 import com.igormaznitsa.j2z80.ids.ClassMethodInfo;
+import com.igormaznitsa.j2z80.ids.ClassMethodInfo.CallingConvention;
 import com.igormaznitsa.j2z80.ids.MethodID;
+import com.igormaznitsa.j2z80.jvmprocessors.AbstractInvokeProcessor;
 import com.igormaznitsa.j2z80.jvmprocessors.AbstractJvmCommandProcessor;
 import com.igormaznitsa.j2z80.jvmprocessors.Processor_INVOKESTATIC;
 import com.igormaznitsa.j2z80.translator.jar.ZClassPath;
@@ -50,6 +53,7 @@ import com.igormaznitsa.j2z80.translator.jar.ZParsedJar;
 import com.igormaznitsa.j2z80.translator.optimizator.AsmOptimizerChain;
 import com.igormaznitsa.j2z80.translator.optimizator.OptimizationLevel;
 import com.igormaznitsa.j2z80.translator.utils.ClassUtils;
+import com.igormaznitsa.j2z80.translator.utils.MetricsMeter;
 import com.igormaznitsa.j2z80.utils.LabelAndFrameUtils;
 import com.igormaznitsa.j2z80.utils.Utils;
 import com.igormaznitsa.z80asm.asmcommands.ParsedAsmLine;
@@ -59,12 +63,16 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import org.apache.bcel.classfile.Constant;
 import org.apache.bcel.classfile.ConstantInteger;
@@ -82,6 +90,26 @@ import org.apache.bcel.generic.MethodGen;
  */
 public class TranslatorImpl implements TranslatorContext {
 
+  /**
+   * Phase names reported to the metrics listener.
+   */
+  public static final String PHASE_TRANSLATION = "translation";
+  public static final String PHASE_CLASSES = "classes";
+  public static final String PHASE_INLINING = "inlining";
+  public static final String PHASE_CONSTANT_FOLDING = "constant folding";
+  public static final String PHASE_TAIL_CALLS = "tail calls";
+  public static final String PHASE_STATIC_FRAMES = "static frames";
+  public static final String PHASE_METHODS = "methods";
+  public static final String PHASE_BOOTSTRAP_CLASSES = "bootstrap classes";
+  public static final String PHASE_CLASS_FIELDS = "class fields";
+  public static final String PHASE_CONSTANT_POOL = "constant pool";
+  public static final String PHASE_JNI = "jni";
+  public static final String PHASE_IDS = "ids";
+  public static final String PHASE_BINARY_DATA = "binary data";
+  public static final String PHASE_ADDITIONS = "additions";
+  public static final String PHASE_CLASS_SIZES = "class sizes";
+  public static final String PHASE_OPTIMIZATION = "optimization";
+
   final ZClassPath workingClassPath;
 
   private final ClassContextImpl classContext = new ClassContextImpl(this);
@@ -94,38 +122,88 @@ public class TranslatorImpl implements TranslatorContext {
   private final Set<AbstractBootstrapClass> bootstrapClasses = new HashSet<>();
   private final Map<String, Constant> classPoolConstants = new HashMap<>();
   private final Set<ClassID> classesForCheckCast = new HashSet<>();
+  private final List<MethodID> staticFrameMethods = new ArrayList<>();
   private String[] excludeResourcePatterns;
   private final OptimizationLevel optimizationLevel;
+  private int translationThreads = 1;
+  private int inlineBudget;
+  private boolean inlineForSize;
+  private Path translationCacheFolder;
+  private TranslationCache translationCache;
+  private volatile TranslationMetricsListener metricsListener = TranslationMetricsListener.NULL;
 
   public TranslatorImpl(final TranslatorLogger logger, final OptimizationLevel optimization,
                         final List<Path> jarArchives) {
+    this(logger, optimization, jarArchives, false);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param logger           logger, can be null
+   * @param optimization     optimization level, can be null
+   * @param jarArchives      jar archives forming the class path, must not be null
+   * @param lazyClassLoading if true then only classes reachable from the main class are loaded
+   *                         and validated
+   */
+  public TranslatorImpl(final TranslatorLogger logger, final OptimizationLevel optimization,
+                        final List<Path> jarArchives, final boolean lazyClassLoading) {
     this.optimizationLevel = optimization;
     this.messageLogger = logger == null ? new DefaultTranslatorLogger() : logger;
 
     this.workingClassPath = new ZClassPath(this,
-        jarArchives.stream().map(ZParsedJar::new).collect(Collectors.toList()));
+        jarArchives.stream().map(x -> new ZParsedJar(x, lazyClassLoading))
+            .collect(Collectors.toList()));
 
-    if (this.workingClassPath.getAllClasses().isEmpty()) {
+    if (!this.workingClassPath.hasClasses()) {
       throw new IllegalStateException(
           "There is not any class in formed class path: " + this.workingClassPath);
     }
   }
 
+  /**
+   * Parse text lines, every processed item of the list is replaced by null so that the text can be
+   * collected before the whole list is parsed.
+   *
+   * @param list text lines to be parsed, can be null
+   * @return parsed lines without empty ones
+   */
   private static List<ParsedAsmLine> asParsedLines(final List<String> list) {
     if (list == null) {
       return new ArrayList<>(0);
     }
     final List<ParsedAsmLine> result = new ArrayList<>(list.size());
-    for (final String str : list) {
-      final ParsedAsmLine line = new ParsedAsmLine(str);
-      if (line.isEmpty()) {
-        continue;
+    final List<String> comments = new ArrayList<>();
+    for (int i = 0; i < list.size(); i++) {
+      final String str = list.set(i, null);
+      if (str.indexOf('\n') >= 0) {
+        for (final String s : Utils.breakToLines(str)) {
+          addParsedLine(result, comments, s);
+        }
+      } else {
+        addParsedLine(result, comments, str);
       }
-      result.add(line);
     }
     return result;
   }
 
+  // comment lines are kept by the next line, so they don't break patterns of optimizers
+  private static void addParsedLine(final List<ParsedAsmLine> result, final List<String> comments,
+                                    final String str) {
+    final ParsedAsmLine line = new ParsedAsmLine(str);
+    if (line.isEmpty()) {
+      if (line.getComment() != null) {
+        comments.add(line.getComment());
+      }
+      return;
+    }
+    if (!comments.isEmpty()) {
+      line.setLeadingComments(comments.toArray(new String[0]));
+      comments.clear();
+    }
+    result.add(line);
+  }
+
   private static List<String> asStringLines(final List<ParsedAsmLine> list) {
     if (list == null) {
       return new ArrayList<>(0);
@@ -137,6 +215,98 @@ public class TranslatorImpl implements TranslatorContext {
     return result;
   }
 
+  /**
+   * Get number of threads to be used for translation of methods.
+   *
+   * @return number of threads, one means sequential translation
+   */
+  public int getTranslationThreads() {
+    return this.translationThreads;
+  }
+
+  /**
+   * Set number of threads to be used for translation of methods.
+   *
+   * @param threads number of threads, must be greater than zero
+   */
+  public void setTranslationThreads(final int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException(
+          "Number of translation threads must be greater than zero [" + threads + ']');
+    }
+    this.translationThreads = threads;
+  }
+
+  /**
+   * Get max bytecode size of methods to be inlined into their callers.
+   *
+   * @return the size in bytes, zero means that inlining is disabled
+   */
+  public int getInlineBudget() {
+    return this.inlineBudget;
+  }
+
+  /**
+   * Set max bytecode size of methods to be inlined into their callers. Only static, private and
+   * final methods which don't call other methods are inlined and only if optimization is enabled.
+   *
+   * @param budget the size in bytes, zero disables inlining
+   */
+  public void setInlineBudget(final int budget) {
+    if (budget < 0) {
+      throw new IllegalArgumentException("Inline budget must not be negative [" + budget + ']');
+    }
+    this.inlineBudget = budget;
+  }
+
+  /**
+   * Check that inlining prefers size of the program to its speed.
+   *
+   * @return true if only methods not bigger than their call are inlined
+   */
+  public boolean isInlineForSize() {
+    return this.inlineForSize;
+  }
+
+  /**
+   * Set preference of inlining, if the program size is more important then only methods not bigger
+   * than their call are inlined.
+   *
+   * @param forSize true to prefer the program size, false to prefer speed
+   */
+  public void setInlineForSize(final boolean forSize) {
+    this.inlineForSize = forSize;
+  }
+
+  /**
+   * Get methods which keep their local variables in static memory cells because they are never
+   * re-entered, the list is filled during translation with optimization.
+   *
+   * @return the list of methods in processing order
+   */
+  public List<MethodID> getStaticFrameMethods() {
+    return unmodifiableList(this.staticFrameMethods);
+  }
+
+  /**
+   * Get folder of the persistent translation cache.
+   *
+   * @return the cache folder, null if the cache is not used
+   */
+  public Path getTranslationCacheFolder() {
+    return this.translationCacheFolder;
+  }
+
+  /**
+   * Set folder of the persistent translation cache. Translated methods of unchanged classes are
+   * taken from the cache instead of their translation.
+   *
+   * @param folder the cache folder, null to disable the cache
+   */
+  public void setTranslationCacheFolder(final Path folder) {
+    this.translationCacheFolder = folder;
+  }
+
   public ClassGen findOverriddenMethodOnPath(final String className, final String superClassName,
                                              final MethodGen method) {
     ClassGen classGen = this.workingClassPath.findClassForName(className);
@@ -175,9 +345,155 @@ public class TranslatorImpl implements TranslatorContext {
                                 final int stackTop, final String[] patternsExcludeBinResources,
                                 final ClassLoader bootstrapClassLoader)
       throws IOException {
+    final MetricsMeter meter = MetricsMeter.start();
+    final List<String> result = this.translateToText(mainClassName, startAddress, stackTop,
+        patternsExcludeBinResources, bootstrapClassLoader);
+
+    final List<String> translated;
+    if (this.isOptimizationEnabled()) {
+      final List<String> optimizedAsString =
+          asStringLines(this.optimize(asParsedLines(result)));
+
+      optimizedAsString.add(0,
+          "; optimization level is '" + this.optimizationLevel + '\'');
+
+      translated = optimizedAsString;
+    } else {
+      this.getLogger().logInfo("No optimization");
+
+      translated = result;
+    }
+    this.notifyPhase(PHASE_TRANSLATION, meter, translated.size());
+    return translated;
+  }
+
+  /**
+   * Translate the class path into parsed assembler lines which can be passed directly to the
+   * assembler, every line is parsed only once and text is not formed for optimized lines.
+   *
+   * @param mainClassName               the main class name, null for auto-search
+   * @param startAddress                the start address of the program
+   * @param stackTop                    the stack top address
+   * @param patternsExcludeBinResources patterns of binary resources to be excluded, can be null
+   * @param bootstrapClassLoader        the class loader to find bootstrap classes
+   * @return list of parsed assembler lines without empty ones
+   * @throws IOException it will be thrown for translation errors
+   * @see com.igormaznitsa.z80asm.Z80Asm#Z80Asm(ParsedAsmLine[])
+   */
+  public List<ParsedAsmLine> translateToParsedLines(final String mainClassName,
+                                                    final int startAddress, final int stackTop,
+                                                    final String[] patternsExcludeBinResources,
+                                                    final ClassLoader bootstrapClassLoader)
+      throws IOException {
+    final MetricsMeter meter = MetricsMeter.start();
+    final List<ParsedAsmLine> result = asParsedLines(this.translateToText(mainClassName,
+        startAddress, stackTop, patternsExcludeBinResources, bootstrapClassLoader));
+
+    final List<ParsedAsmLine> translated;
+    if (this.isOptimizationEnabled()) {
+      translated = this.optimize(result);
+      if (!translated.isEmpty()) {
+        final ParsedAsmLine first = translated.get(0);
+        final List<String> comments = new ArrayList<>();
+        comments.add("; optimization level is '" + this.optimizationLevel + '\'');
+        comments.addAll(asList(first.getLeadingComments()));
+        first.setLeadingComments(comments.toArray(new String[0]));
+      }
+    } else {
+      this.getLogger().logInfo("No optimization");
+      translated = result;
+    }
+    this.notifyPhase(PHASE_TRANSLATION, meter, translated.size());
+    return translated;
+  }
+
+  private boolean isOptimizationEnabled() {
+    return this.optimizationLevel != null && this.optimizationLevel != OptimizationLevel.NONE;
+  }
+
+  private List<ParsedAsmLine> optimize(final List<ParsedAsmLine> asmLines) {
+    this.getLogger().logWarning("Optimization level: " + this.optimizationLevel);
+    final MetricsMeter meter = MetricsMeter.start();
+    final AsmOptimizerChain chain = getOptimizators(this, this.optimizationLevel);
+    final List<ParsedAsmLine> result = chain.processSources(asmLines);
+    this.notifyPhase(PHASE_OPTIMIZATION, meter, result.size());
+    return result;
+  }
+
+  private void notifyPhase(final String phase, final MetricsMeter meter, final int lines) {
+    this.metricsListener.onPhase(phase, meter.getWallTimeNanos(), meter.getAllocatedBytes(), lines,
+        -1);
+  }
+
+  private void processPhase(final String phase, final List<String> text, final TextPhase processor)
+      throws IOException {
+    final MetricsMeter meter = MetricsMeter.start();
+    final int linesBefore = text.size();
+    processor.process(text);
+    this.notifyPhase(phase, meter, text.size() - linesBefore);
+  }
+
+  private List<String> translateToText(final String mainClassName, final int startAddress,
+                                       final int stackTop,
+                                       final String[] patternsExcludeBinResources,
+                                       final ClassLoader bootstrapClassLoader)
+      throws IOException {
+    // the main class must be found first because it defines class set for lazy class loading
+    MetricsMeter meter = MetricsMeter.start();
+    final MethodID mainMethodID = this.findMainMethod(mainClassName);
+    this.getLogger().logInfo(
+        "Found main method: " + mainMethodID.getClassName() + "#" + mainMethodID.getMethodName());
+
     this.classContext.init();
     final List<MethodID> methodsToProcess =
         unmodifiableList(this.methodContext.findMethodsForProcessingInClassPath());
+    this.notifyPhase(PHASE_CLASSES, meter, 0);
+
+    final int effectiveInlineBudget = this.calculateEffectiveInlineBudget();
+    if (effectiveInlineBudget > 0) {
+      meter = MetricsMeter.start();
+      final MethodInliner inliner =
+          new MethodInliner(this.methodContext, this.classContext, effectiveInlineBudget);
+      int inlinedCalls = 0;
+      for (final MethodID methodId : methodsToProcess) {
+        inlinedCalls += inliner.inline(this.methodContext.findMethodInfo(methodId));
+      }
+      this.getLogger().logInfo("Inlined calls: " + inlinedCalls);
+      this.notifyPhase(PHASE_INLINING, meter, 0);
+    }
+
+    // static final fields with constant values are never initialized by translated code so that
+    // they are replaced by their values even without optimization
+    meter = MetricsMeter.start();
+    final ConstantFolder folder = new ConstantFolder(this.classContext);
+    final boolean folding = this.isOptimizationEnabled();
+    int foldedInstructions = 0;
+    for (final MethodID methodId : methodsToProcess) {
+      final ClassMethodInfo info = this.methodContext.findMethodInfo(methodId);
+      // constant arguments of inlined calls are folded too
+      foldedInstructions += folding ? folder.fold(info) : folder.replaceConstantFields(info);
+    }
+    this.getLogger().logInfo("Instructions changed by constant folding: " + foldedInstructions);
+    this.notifyPhase(PHASE_CONSTANT_FOLDING, meter, 0);
+
+    if (folding) {
+      // recursive methods which become loops can get static frames
+      meter = MetricsMeter.start();
+      int eliminatedCalls = 0;
+      for (final MethodID methodId : methodsToProcess) {
+        eliminatedCalls +=
+            TailCallOptimizer.eliminateSelfTailCalls(this.methodContext.findMethodInfo(methodId));
+      }
+      this.getLogger().logInfo("Self tail calls replaced by jumps: " + eliminatedCalls);
+      this.notifyPhase(PHASE_TAIL_CALLS, meter, 0);
+    }
+
+    this.staticFrameMethods.clear();
+    if (this.isOptimizationEnabled()) {
+      meter = MetricsMeter.start();
+      this.findStaticFrameMethods(methodsToProcess, mainMethodID);
+      this.notifyPhase(PHASE_STATIC_FRAMES, meter, 0);
+    }
 
     this.reset();
 
@@ -189,10 +505,11 @@ public class TranslatorImpl implements TranslatorContext {
     this.getLogger().logInfo("Stack top: " + intToString(stackTop));
 
     this.excludeResourcePatterns = patternsExcludeBinResources;
-    final MethodID mainMethodID = this.findMainMethod(mainClassName);
-    this.getLogger().logInfo(
-        "Found main method: " + mainMethodID.getClassName() + "#" + mainMethodID.getMethodName());
+    this.translationCache = this.translationCacheFolder == null ? null :
+        new TranslationCache(this.translationCacheFolder, this.makeTranslationCacheEnvironment(),
+            bootstrapClassLoader, this.getLogger());
 
+    meter = MetricsMeter.start();
     final ClassMethodInfo mainMethod = this.methodContext.findMethodInfo(mainMethodID);
     final String[] mainMethodAsm = this.translateMethod(mainMethodID, bootstrapClassLoader);
     final MainPrefixPostfixGenerator prefixPostfixGenerator =
@@ -208,14 +525,31 @@ public class TranslatorImpl implements TranslatorContext {
     methodsToProcess.forEach(x -> this.getLogger().logDebug(x.toString()));
     this.getLogger().logDebug("-----------------------");
 
-    for (final MethodID methodToProcess : methodsToProcess) {
-      if (!mainMethodID.equals(methodToProcess)) {
+    final List<MethodID> otherMethods = methodsToProcess.stream()
+        .filter(x -> !mainMethodID.equals(x))
+        .collect(Collectors.toList());
+
+    if (this.translationThreads > 1 && otherMethods.size() > 1) {
+      this.translateMethodsInParallel(otherMethods, bootstrapClassLoader);
+    } else {
+      for (final MethodID methodToProcess : otherMethods) {
         this.translateMethod(methodToProcess, bootstrapClassLoader);
       }
     }
 
+    if (this.translationCache != null) {
+      this.getLogger().logInfo("Translation cache: " + this.translationCache.getHits() +
+          " hit(s), " + this.translationCache.getMisses() + " miss(es)");
+      this.translationCache.flush();
+      this.translationCache = null;
+    }
+
+    // method text is moved into the result to not keep two copies of the program
     final List<String> result = new ArrayList<>();
-    for (final String[] text : asmForMethods.values()) {
+    for (final Iterator<String[]> iterator = this.asmForMethods.values().iterator();
+         iterator.hasNext(); ) {
+      final String[] text = iterator.next();
+      iterator.remove();
       for (final String str : text) {
         final String trimmed = str.trim();
         if (trimmed.isEmpty()) {
@@ -224,34 +558,18 @@ public class TranslatorImpl implements TranslatorContext {
         result.add(str);
       }
     }
+    this.notifyPhase(PHASE_METHODS, meter, result.size());
 
-    this.processBootstrapClasses(result);
-    this.processClassFields(result);
-    this.processConstantPool(result);
-    this.processJniClasses(result);
-    this.processIDs(result);
-    this.processBinaryData(result);
-    this.processAdditions(result);
-
-    result.addAll(makeClassSizeArray());
-
-    if (this.optimizationLevel != null && this.optimizationLevel != OptimizationLevel.NONE) {
-      this.getLogger().logWarning(
-          "Optimization level: " + this.optimizationLevel);
-
-      final List<ParsedAsmLine> asmLines = asParsedLines(result);
-      final AsmOptimizerChain chain = getOptimizators(this, optimizationLevel);
-      final List<String> optimizedAsString = asStringLines(chain.processSources(asmLines));
-
-      optimizedAsString.add(0,
-          "; optimization level is '" + this.optimizationLevel + '\'');
-
-      return optimizedAsString;
-    } else {
-      this.getLogger().logInfo("No optimization");
+    this.processPhase(PHASE_BOOTSTRAP_CLASSES, result, this::processBootstrapClasses);
+    this.processPhase(PHASE_CLASS_FIELDS, result, this::processClassFields);
+    this.processPhase(PHASE_CONSTANT_POOL, result, this::processConstantPool);
+    this.processPhase(PHASE_JNI, result, this::processJniClasses);
+    this.processPhase(PHASE_IDS, result, this::processIDs);
+    this.processPhase(PHASE_BINARY_DATA, result, this::processBinaryData);
+    this.processPhase(PHASE_ADDITIONS, result, this::processAdditions);
+    this.processPhase(PHASE_CLASS_SIZES, result, x -> x.addAll(makeClassSizeArray()));
 
-      return result;
-    }
+    return result;
   }
 
   private String[] processStaticInitializingBlocks() {
@@ -485,22 +803,149 @@ public class TranslatorImpl implements TranslatorContext {
   private String[] translateMethod(final MethodID methodId, final ClassLoader bootstrapClassLoader)
       throws IOException {
     final ClassMethodInfo method = this.methodContext.findMethodInfo(methodId);
+    final String[] resultAsm;
+    if (this.translationCache == null) {
+      resultAsm = this.translateMethodWithMetrics(this, method, bootstrapClassLoader);
+    } else {
+      final RecordingTranslatorContext recorder = new RecordingTranslatorContext(this);
+      resultAsm = this.translateMethodWithMetrics(recorder, method, bootstrapClassLoader);
+      recorder.replay(this);
+    }
+    if (resultAsm != null) {
+      this.asmForMethods.put(method, resultAsm);
+    }
+    return resultAsm;
+  }
+
+  private String[] translateMethod(final TranslatorContext context, final ClassMethodInfo method,
+                                   final ClassLoader bootstrapClassLoader) throws IOException {
     this.getLogger()
-        .logInfo("Translating method: " + methodId.getClassName() + '#' + methodId.getMethodName());
+        .logInfo("Translating method: " + method.getCanonicalClassName() + '#' +
+            method.getMethodName());
 
     String[] resultAsm = null;
     try {
       if (!method.isNative()) {
-        resultAsm = new MethodTranslator(this, method).translate(bootstrapClassLoader);
-        this.asmForMethods.put(method, resultAsm);
+        resultAsm = new MethodTranslator(context, method, this.isOptimizationEnabled())
+            .translate(bootstrapClassLoader);
       }
     } catch (Exception ex) {
-      getLogger().logError("Exception during " + methodId + " [" + ex + ']');
-      throw new IOException("Can't translate " + methodId, ex);
+      getLogger().logError("Exception during " + method + " [" + ex + ']');
+      throw new IOException("Can't translate " + method, ex);
+    }
+    return resultAsm;
+  }
+
+  private String[] translateMethodWithMetrics(final TranslatorContext context,
+                                              final ClassMethodInfo method,
+                                              final ClassLoader bootstrapClassLoader)
+      throws IOException {
+    final MetricsMeter meter = MetricsMeter.start();
+    final String[] resultAsm = this.translationCache == null
+        ? this.translateMethod(context, method, bootstrapClassLoader)
+        : this.translateMethodThroughCache((RecordingTranslatorContext) context, method,
+        bootstrapClassLoader);
+    if (resultAsm != null) {
+      this.metricsListener.onMethod(method, meter.getWallTimeNanos(), meter.getAllocatedBytes(),
+          resultAsm.length);
+    }
+    return resultAsm;
+  }
+
+  private String[] translateMethodThroughCache(final RecordingTranslatorContext recorder,
+                                              final ClassMethodInfo method,
+                                              final ClassLoader bootstrapClassLoader)
+      throws IOException {
+    String[] resultAsm = this.translationCache.find(method, recorder);
+    if (resultAsm == null) {
+      resultAsm = this.translateMethod(recorder, method, bootstrapClassLoader);
+      if (resultAsm != null) {
+        this.translationCache.put(method, resultAsm, recorder);
+      }
+    } else {
+      this.getLogger().logDebug("Method has been found in translation cache: " + method);
     }
     return resultAsm;
   }
 
+  private void findStaticFrameMethods(final List<MethodID> methodsToProcess,
+                                      final MethodID mainMethodID) {
+    final Set<MethodID> reentrantMethods =
+        new CallGraph(this.methodContext, methodsToProcess).findReentrantMethods();
+    for (final MethodID methodId : methodsToProcess) {
+      final ClassMethodInfo info = this.methodContext.findMethodInfo(methodId);
+      // the main method gets stack frame from the start code
+      if (info.getCallingConvention() == CallingConvention.FRAME
+          && !methodId.equals(mainMethodID)
+          && !reentrantMethods.contains(methodId)
+          && AbstractInvokeProcessor.isStaticFrameAllowed(info.getMethodGen())) {
+        info.setCallingConvention(CallingConvention.STATIC_FRAME);
+        this.staticFrameMethods.add(methodId);
+      }
+    }
+  }
+
+  private int calculateEffectiveInlineBudget() {
+    // bytecode is translated as is without optimization
+    return this.isOptimizationEnabled()
+        ? MethodInliner.calculateBudget(this.inlineBudget, this.inlineForSize) : 0;
+  }
+
+  private String makeTranslationCacheEnvironment() {
+    return TranslationCache.makeEnvironment(this.workingClassPath.getAllClasses().values(),
+        this.methodContext,
+        this.calculateEffectiveInlineBudget(),
+        TranslationCache.getTranslatorChecksum(this.messageLogger),
+        String.valueOf(this.optimizationLevel),
+        this.staticFrameMethods.stream().map(MethodID::getMethodLabel)
+            .collect(Collectors.joining(",")));
+  }
+
+  private void translateMethodsInParallel(final List<MethodID> methods,
+                                          final ClassLoader bootstrapClassLoader)
+      throws IOException {
+    this.getLogger().logInfo("Translating " + methods.size() + " method(s) in " +
+        this.translationThreads + " thread(s)");
+
+    final List<ClassMethodInfo> infos = new ArrayList<>(methods.size());
+    final List<RecordingTranslatorContext> recorders = new ArrayList<>(methods.size());
+    final List<Future<String[]>> results = new ArrayList<>(methods.size());
+
+    final ForkJoinPool pool = new ForkJoinPool(this.translationThreads);
+    try {
+      for (final MethodID methodId : methods) {
+        final ClassMethodInfo info = this.methodContext.findMethodInfo(methodId);
+        final RecordingTranslatorContext recorder = new RecordingTranslatorContext(this);
+        infos.add(info);
+        recorders.add(recorder);
+        results.add(
+            pool.submit(() -> this.translateMethodWithMetrics(recorder, info, bootstrapClassLoader)));
+      }
+
+      // merge in the same order as the sequential translation does
+      for (int i = 0; i < results.size(); i++) {
+        final String[] asm;
+        try {
+          asm = results.get(i).get();
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Translation has been interrupted", ex);
+        } catch (ExecutionException ex) {
+          if (ex.getCause() instanceof IOException) {
+            throw (IOException) ex.getCause();
+          }
+          throw new IOException("Can't translate " + infos.get(i), ex.getCause());
+        }
+        recorders.get(i).replay(this);
+        if (asm != null) {
+          this.asmForMethods.put(infos.get(i), asm);
+        }
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
   private MethodID findMainMethod(final String mainClassName) {
     if (mainClassName == null) {
       this.getLogger().logWarning("Auto-search of the main class");
@@ -549,6 +994,20 @@ public class TranslatorImpl implements TranslatorContext {
     return this.messageLogger;
   }
 
+  @Override
+  public TranslationMetricsListener getMetricsListener() {
+    return this.metricsListener;
+  }
+
+  /**
+   * Set the listener of translation metrics.
+   *
+   * @param listener the listener, null to ignore metrics
+   */
+  public void setMetricsListener(final TranslationMetricsListener listener) {
+    this.metricsListener = listener == null ? TranslationMetricsListener.NULL : listener;
+  }
+
   @Override
   public byte[] loadResourceForPath(final String path) {
     return this.workingClassPath.findNonClassForPath(path);
@@ -563,4 +1022,9 @@ public class TranslatorImpl implements TranslatorContext {
   public MethodContext getMethodContext() {
     return this.methodContext;
   }
+
+  @FunctionalInterface
+  private interface TextPhase {
+    void process(List<String> text) throws IOException;
+  }
 }
@@ -19,20 +19,29 @@ import static java.util.Collections.unmodifiableMap;
 
 import com.igormaznitsa.j2z80.TranslatorContext;
 import java.io.File;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import org.apache.bcel.classfile.Constant;
+import org.apache.bcel.classfile.ConstantClass;
+import org.apache.bcel.classfile.ConstantPool;
 import org.apache.bcel.classfile.Method;
 import org.apache.bcel.generic.ClassGen;
 
 /**
  * The class implements inside virtual class and resource storage for the translator.
  * The Storage is formed through parsing all jar files and extract all their classes and resources.
+ * Classes of lazy jars are only indexed, they are loaded and validated on request and when the main
+ * class is found then the storage contains only classes reachable from the main class.
  *
  * @author Igor Maznitsa (igor.maznitsa@igormaznitsa.com)
  */
@@ -41,6 +50,7 @@ public class ZClassPath {
   private final Map<String, ClassGen> classMap = new HashMap<>();
   private final Map<String, byte[]> jniCodeStorage = new HashMap<>();
   private final Map<String, byte[]> binaryDataStorage = new HashMap<>();
+  private final Map<String, ZParsedJar> lazyClassIndex = new HashMap<>();
   private final TranslatorContext context;
   private final List<ZParsedJar> jarFiles;
   private ClassGen mainClass;
@@ -60,9 +70,10 @@ public class ZClassPath {
 
   public ClassGen findMainClass(final String mainClassName, final String mainMethod, final String mainMethodSignature) {
     if (mainClassName != null) {
-      this.mainClass = classMap.get(mainClassName);
+      this.mainClass = this.findClassForName(mainClassName);
       if (this.mainClass != null) {
         this.mainMethod = findMainMethodInClass(mainClass, mainMethod, mainMethodSignature);
+        this.loadReachableClasses();
       }
       return this.mainClass;
     }
@@ -70,26 +81,105 @@ public class ZClassPath {
     final List<ZParsedJar> reversed = new ArrayList<>(this.jarFiles);
     Collections.reverse(reversed);
 
-    return reversed.stream().flatMap(processingJar -> {
-      for (final ClassGen classGen : processingJar.getAllJavaClasses()) {
+    final ClassGen result = reversed.stream().flatMap(processingJar -> {
+      for (final String className : processingJar.getClassNames()) {
+        if (!isClassPresented(processingJar, className)) {
+          continue;
+        }
+        final ClassGen classGen = processingJar.findClass(className);
         final Method foundMethod = findMainMethodInClass(classGen, mainMethod, mainMethodSignature);
-        if (foundMethod != null && isClassPresented(classGen)) {
-          this.mainClass = classGen;
+        if (foundMethod != null) {
+          this.mainClass = this.findClassForName(className);
           this.mainMethod = foundMethod;
           return Stream.of(this.mainClass);
         }
       }
       return Stream.empty();
     }).findFirst().orElse(null);
+
+    if (result != null) {
+      this.loadReachableClasses();
+    }
+    return result;
+  }
+
+  private boolean isClassPresented(final ZParsedJar jar, final String className) {
+    if (this.lazyClassIndex.get(className) == jar) {
+      return true;
+    }
+    final ClassGen classGen = this.classMap.get(className);
+    return classGen != null && classGen == jar.findClass(className);
   }
 
-  private boolean isClassPresented(final ClassGen classData) {
-    for (final ClassGen cgen : classMap.values()) {
-      if (cgen == classData) {
-        return true;
+  private ClassGen loadLazyClass(final String className) {
+    final ZParsedJar jar = this.lazyClassIndex.get(className);
+    if (jar == null) {
+      return null;
+    }
+    final ClassGen result = jar.findClass(className);
+    final String message = ClassValidator.validateClass(result);
+    if (message != null) {
+      throw new IllegalStateException(
+          "Disallowed class detected " + className + " [" + message + ']');
+    }
+    this.classMap.put(className, result);
+    return result;
+  }
+
+  private void loadReachableClasses() {
+    if (this.lazyClassIndex.isEmpty()) {
+      return;
+    }
+
+    final int indexedClasses = this.lazyClassIndex.size();
+    final Deque<ClassGen> queue = new ArrayDeque<>(this.classMap.values());
+    while (!queue.isEmpty()) {
+      for (final String className : findReferencedClasses(queue.poll())) {
+        if (!this.classMap.containsKey(className)) {
+          final ClassGen loaded = this.loadLazyClass(className);
+          if (loaded != null) {
+            queue.add(loaded);
+          }
+        }
       }
     }
-    return false;
+    // all reachable classes are loaded, the class set must not be changed since the moment
+    this.lazyClassIndex.clear();
+
+    this.context.getLogger().logInfo("Loaded " + this.classMap.size() +
+        " reachable class(es), lazy indexed " + indexedClasses + " class(es)");
+  }
+
+  private static Set<String> findReferencedClasses(final ClassGen classGen) {
+    final Set<String> result = new LinkedHashSet<>();
+    result.add(classGen.getSuperclassName());
+    Collections.addAll(result, classGen.getInterfaceNames());
+
+    final ConstantPool constantPool = classGen.getConstantPool().getConstantPool();
+    for (final Constant constant : constantPool.getConstantPool()) {
+      if (constant instanceof ConstantClass) {
+        String name = ((ConstantClass) constant).getBytes(constantPool).replace('/', '.');
+        if (name.startsWith("[")) {
+          // array descriptor, only arrays of objects refer classes
+          final int typeStart = name.lastIndexOf('[') + 1;
+          if (name.charAt(typeStart) != 'L') {
+            continue;
+          }
+          name = name.substring(typeStart + 1, name.length() - 1);
+        }
+        result.add(name);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Check that the class path contains any class.
+   *
+   * @return true if there is a class in the class path
+   */
+  public boolean hasClasses() {
+    return !(this.classMap.isEmpty() && this.lazyClassIndex.isEmpty());
   }
 
   private Method findMainMethodInClass(final ClassGen classGen, final String mainMethodName, final String mainMethodSignature) {
@@ -118,13 +208,17 @@ public class ZClassPath {
   }
 
   private void processClasses(final ZParsedJar archive) {
-    for (final ClassGen classData : archive.getAllJavaClasses()) {
-      final String className = classData.getClassName();
-
-      if (this.classMap.containsKey(className)) {
+    for (final String className : archive.getClassNames()) {
+      if (this.classMap.containsKey(className) || this.lazyClassIndex.containsKey(className)) {
         this.context.getLogger().logWarning("Detected overridden class " + className);
       }
-      this.classMap.put(className, classData);
+      if (archive.isLazy()) {
+        this.classMap.remove(className);
+        this.lazyClassIndex.put(className, archive);
+      } else {
+        this.lazyClassIndex.remove(className);
+        this.classMap.put(className, archive.findClass(className));
+      }
     }
   }
 
@@ -165,7 +259,8 @@ public class ZClassPath {
   }
 
   public ClassGen findClassForName(final String name) {
-    return this.classMap.get(name);
+    final ClassGen result = this.classMap.get(name);
+    return result == null ? this.loadLazyClass(name) : result;
   }
 
   public Map<String, byte[]> getAllBinaryResources() {
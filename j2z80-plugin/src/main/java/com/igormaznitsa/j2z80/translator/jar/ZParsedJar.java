@@ -22,12 +22,14 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Path;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import org.apache.bcel.classfile.ClassParser;
@@ -35,6 +37,8 @@ import org.apache.bcel.generic.ClassGen;
 
 /**
  * The class allows to parse a Jar file and extract its entries.
+ * In lazy mode classes are only indexed by their names and parsed on the first request, their
+ * validation is the responsibility of the caller.
  *
  * @author Igor Maznitsa (igor.maznitsa@igormaznitsa.com)
  */
@@ -42,18 +46,31 @@ public class ZParsedJar {
 
   private final Path path;
   private final JarFile jarFile;
+  private final boolean lazy;
 
-  private final List<ClassGen> classList = new ArrayList<>();
+  private final Map<String, JarEntry> classEntries = new LinkedHashMap<>();
+  private final Map<String, ClassGen> parsedClasses = new HashMap<>();
   private final Map<String, byte[]> nativeCodeFiles = new HashMap<>();
   private final Map<String, byte[]> binaryResources = new HashMap<>();
 
   public ZParsedJar(final Path jarFile) {
+    this(jarFile, false);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param jarFile the jar file to be parsed, must not be null
+   * @param lazy    if true then classes are parsed only on request and they are not validated
+   */
+  public ZParsedJar(final Path jarFile, final boolean lazy) {
     this.path = jarFile;
+    this.lazy = lazy;
     try {
       this.jarFile = new JarFile(jarFile.toFile());
       this.extractAll();
     } catch (IOException ex) {
-      throw new RuntimeException("Can't extract jar file: " + jarFile);
+      throw new RuntimeException("Can't extract jar file: " + jarFile, ex);
     }
   }
 
@@ -71,23 +88,35 @@ public class ZParsedJar {
     return this.path.toAbsolutePath().toString();
   }
 
+  private static String makeClassName(final String entryName) {
+    final String name = normalizeEntryPath(entryName);
+    return name.substring(0, name.length() - ".class".length()).replace('/', '.');
+  }
+
   private void extractAll() throws IOException {
     final Enumeration<JarEntry> entries = jarFile.entries();
     while (entries.hasMoreElements()) {
       final JarEntry entry = entries.nextElement();
       if (!entry.isDirectory()) {
-        final byte[] entryData = extractEntry(entry);
-        final String name = normalizeEntryPath(entry.getName());
         if (isJavaClass(entry)) {
-          final ClassGen classGen = new ClassGen(
-              new ClassParser(new ByteArrayInputStream(entryData), entry.getName()).parse());
-          final String message = ClassValidator.validateClass(classGen);
-          if (message != null) {
-            throw new IOException(
-                "Disallowed class detected " + classGen.getClassName() + " [" + message + ']');
+          if (this.lazy) {
+            this.classEntries.put(makeClassName(entry.getName()), entry);
+          } else {
+            final ClassGen classGen = this.parseClass(entry);
+            final String message = ClassValidator.validateClass(classGen);
+            if (message != null) {
+              throw new IOException(
+                  "Disallowed class detected " + classGen.getClassName() + " [" + message + ']');
+            }
+            this.classEntries.put(classGen.getClassName(), entry);
+            this.parsedClasses.put(classGen.getClassName(), classGen);
           }
-          this.classList.add(classGen);
-        } else if (isNativeCodeFile(entry)) {
+          continue;
+        }
+
+        final byte[] entryData = extractEntry(entry);
+        final String name = normalizeEntryPath(entry.getName());
+        if (isNativeCodeFile(entry)) {
           nativeCodeFiles.put(name, entryData);
         } else {
           binaryResources.put(name, entryData);
@@ -96,8 +125,49 @@ public class ZParsedJar {
     }
   }
 
+  private ClassGen parseClass(final JarEntry entry) throws IOException {
+    return new ClassGen(
+        new ClassParser(new ByteArrayInputStream(extractEntry(entry)), entry.getName()).parse());
+  }
+
+  public boolean isLazy() {
+    return this.lazy;
+  }
+
+  /**
+   * Get names of all classes in the jar, classes are not parsed.
+   *
+   * @return names of classes in order of their jar entries
+   */
+  public Set<String> getClassNames() {
+    return Collections.unmodifiableSet(this.classEntries.keySet());
+  }
+
+  /**
+   * Find a class in the jar, in lazy mode the class is parsed during the first call.
+   *
+   * @param className the class name, must not be null
+   * @return found class or null if there is no such class in the jar
+   */
+  public synchronized ClassGen findClass(final String className) {
+    ClassGen result = this.parsedClasses.get(className);
+    if (result == null) {
+      final JarEntry entry = this.classEntries.get(className);
+      if (entry != null) {
+        try {
+          result = this.parseClass(entry);
+        } catch (IOException ex) {
+          throw new RuntimeException("Can't parse class " + className + " in " + this, ex);
+        }
+        this.parsedClasses.put(className, result);
+      }
+    }
+    return result;
+  }
+
   public List<ClassGen> getAllJavaClasses() {
-    return Collections.unmodifiableList(this.classList);
+    return this.classEntries.keySet().stream().map(this::findClass)
+        .collect(Collectors.collectingAndThen(Collectors.toList(), Collections::unmodifiableList));
   }
 
   public Map<String, byte[]> getAllJNIData() {
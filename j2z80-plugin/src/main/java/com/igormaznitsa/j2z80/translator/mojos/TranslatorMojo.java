@@ -18,27 +18,32 @@ package com.igormaznitsa.j2z80.translator.mojos;
 
 import static java.util.stream.Stream.concat;
 
-import com.igormaznitsa.j2z80.TranslatorContext;
 import com.igormaznitsa.j2z80.TranslatorLogger;
+import com.igormaznitsa.j2z80.ids.MethodID;
 import com.igormaznitsa.j2z80.translator.Format;
 import com.igormaznitsa.j2z80.translator.TranslatorImpl;
 import com.igormaznitsa.j2z80.translator.optimizator.OptimizationLevel;
 import com.igormaznitsa.j2z80.translator.utils.JarClassLoaderFactory;
+import com.igormaznitsa.j2z80.translator.utils.MetricsReport;
 import com.igormaznitsa.j2z80.translator.utils.Sna48Writer;
 import com.igormaznitsa.z80asm.Z80Asm;
+import com.igormaznitsa.z80asm.asmcommands.ParsedAsmLine;
 import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.inject.Inject;
+import org.apache.bcel.generic.Type;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
@@ -64,12 +69,21 @@ public class TranslatorMojo extends AbstractMojo implements TranslatorLogger {
 
   private final ArtifactResolver artifactResolver;
 
+  @Parameter(defaultValue = "${mojoExecution}", readonly = true, required = true)
+  private MojoExecution mojoExecution;
+
   @Parameter(name = "jarFile", defaultValue = "${project.build.directory}${file.separator}${project.build.finalName}.jar")
   private File jarFile;
 
   @Parameter(name = "formats")
   private Set<Format> formats = Set.of(Format.A80);
 
+  /**
+   * Name of output files without extension, they are written into the project build folder.
+   */
+  @Parameter(name = "targetName", defaultValue = "${project.build.finalName}")
+  private String targetName;
+
   @Parameter(name = "startAddress", defaultValue = "28672")
   private int startAddress;
 
@@ -85,6 +99,54 @@ public class TranslatorMojo extends AbstractMojo implements TranslatorLogger {
   @Parameter(name = "optimization")
   private OptimizationLevel optimization;
 
+  /**
+   * Number of threads to translate methods, zero or negative value means number of available processors.
+   */
+  @Parameter(name = "translationThreads", defaultValue = "1")
+  private int translationThreads;
+
+  /**
+   * Max bytecode size in bytes of a static, private or final method to be inlined into its callers with optimization, zero disables inlining.
+   */
+  @Parameter(name = "inlineBudget", defaultValue = "16")
+  private int inlineBudget;
+
+  /**
+   * Prefer size of the program to its speed during inlining, only methods not bigger than their call are inlined.
+   */
+  @Parameter(name = "inlineForSize", defaultValue = "false")
+  private boolean inlineForSize;
+
+  /**
+   * Load and validate only classes reachable from the main class, static initializers of not reachable classes are not called.
+   */
+  @Parameter(name = "lazyClassLoading", defaultValue = "false")
+  private boolean lazyClassLoading;
+
+  /**
+   * Use persistent cache of translated methods, methods of unchanged classes are not translated again.
+   */
+  @Parameter(name = "useTranslationCache", defaultValue = "false")
+  private boolean useTranslationCache;
+
+  /**
+   * Folder to keep the persistent cache of translated methods, every execution keeps its records in its own sub-folder.
+   */
+  @Parameter(name = "translationCacheFolder", defaultValue = "${project.build.directory}${file.separator}j2z80-cache")
+  private File translationCacheFolder;
+
+  /**
+   * Assemble translated code in one pass with fixups, two passes are used only if the code can't be assembled in one pass.
+   */
+  @Parameter(name = "onePassAssembler", defaultValue = "true")
+  private boolean onePassAssembler;
+
+  /**
+   * Write wall time, allocated memory, line and byte counts of translation phases and methods into a JSON report next to the output.
+   */
+  @Parameter(name = "metricsReport", defaultValue = "false")
+  private boolean metricsReport;
+
   @Inject
   public TranslatorMojo(
       final MavenProject project,
@@ -102,6 +164,14 @@ public class TranslatorMojo extends AbstractMojo implements TranslatorLogger {
     this.jarFile = jarFile;
   }
 
+  public String getTargetName() {
+    return this.targetName;
+  }
+
+  public void setTargetName(String targetName) {
+    this.targetName = targetName;
+  }
+
   public int getStartAddress() {
     return startAddress;
   }
@@ -142,6 +212,70 @@ public class TranslatorMojo extends AbstractMojo implements TranslatorLogger {
     this.optimization = optimization;
   }
 
+  public int getTranslationThreads() {
+    return this.translationThreads;
+  }
+
+  public void setTranslationThreads(int translationThreads) {
+    this.translationThreads = translationThreads;
+  }
+
+  public int getInlineBudget() {
+    return this.inlineBudget;
+  }
+
+  public void setInlineBudget(int inlineBudget) {
+    this.inlineBudget = inlineBudget;
+  }
+
+  public boolean isInlineForSize() {
+    return this.inlineForSize;
+  }
+
+  public void setInlineForSize(boolean inlineForSize) {
+    this.inlineForSize = inlineForSize;
+  }
+
+  public boolean isLazyClassLoading() {
+    return this.lazyClassLoading;
+  }
+
+  public void setLazyClassLoading(boolean lazyClassLoading) {
+    this.lazyClassLoading = lazyClassLoading;
+  }
+
+  public boolean isUseTranslationCache() {
+    return this.useTranslationCache;
+  }
+
+  public void setUseTranslationCache(boolean useTranslationCache) {
+    this.useTranslationCache = useTranslationCache;
+  }
+
+  public boolean isOnePassAssembler() {
+    return this.onePassAssembler;
+  }
+
+  public void setOnePassAssembler(boolean onePassAssembler) {
+    this.onePassAssembler = onePassAssembler;
+  }
+
+  public boolean isMetricsReport() {
+    return this.metricsReport;
+  }
+
+  public void setMetricsReport(boolean metricsReport) {
+    this.metricsReport = metricsReport;
+  }
+
+  public File getTranslationCacheFolder() {
+    return this.translationCacheFolder;
+  }
+
+  public void setTranslationCacheFolder(File translationCacheFolder) {
+    this.translationCacheFolder = translationCacheFolder;
+  }
+
   public Set<Format> getFormats() {
     return this.formats;
   }
@@ -162,35 +296,25 @@ public class TranslatorMojo extends AbstractMojo implements TranslatorLogger {
           JarClassLoaderFactory.create(z80ClassPath, this.getClass().getClassLoader());
 
       logInfo("Target formats : " + this.formats);
-      logInfo("Target final name : " + this.project.getBuild().getFinalName());
+      logInfo("Target final name : " + this.getTargetFileName());
       logInfo("Z80 Class loader path: " + z80ClassPath);
 
-      final OptimizationLevel optimizationLevel =
-          this.optimization == null ? OptimizationLevel.NONE : this.optimization;
-
-      final TranslatorContext translator =
-          new TranslatorImpl(this, optimizationLevel, z80ClassPath);
-      final List<String> translatedAsmText =
-          translator.translate(null, this.startAddress, this.stackTop, this.excludeResources,
-              z80classLoader);
+      final MetricsReport metrics = this.metricsReport ? new MetricsReport() : null;
 
-      if (this.logAsmText) {
-        int lineIndex = 1;
-        for (final String s : translatedAsmText) {
-          logInfo("ASM: " + lineIndex + ": " + s);
-          lineIndex++;
-        }
-      }
+      // the list is dropped after conversion, the assembler keeps the only copy of the program
+      final Z80Asm targetA80 = new Z80Asm(this.translate(z80ClassPath, z80classLoader, metrics)
+          .toArray(new ParsedAsmLine[0]));
+      targetA80.setOnePassMode(this.onePassAssembler);
+      targetA80.setMetricsListener(metrics);
+      final byte[] translatedBin = targetA80.process();
+      this.getLog().debug("Assembled in " + targetA80.getPasses() + " pass(es)");
 
-      if (this.formats.contains(Format.A80)) {
-        final Path pathA80 = this.makeTargetFilePath("a80");
-        this.logInfo("Writing A80 assembler file: " + pathA80);
-        Files.write(pathA80, translatedAsmText, StandardCharsets.UTF_8, StandardOpenOption.CREATE);
+      if (metrics != null) {
+        final Path pathMetrics = this.makeTargetFilePath("metrics.json");
+        this.getLog().info("Writing metrics report: " + pathMetrics);
+        metrics.write(pathMetrics);
       }
 
-      final Z80Asm targetA80 = new Z80Asm(translatedAsmText);
-      final byte[] translatedBin = targetA80.process();
-
       if (this.formats.contains(Format.BIN)) {
         final Path pathBin = this.makeTargetFilePath("bin");
         this.getLog().info("Writing BIN file: " + pathBin);
@@ -209,6 +333,72 @@ public class TranslatorMojo extends AbstractMojo implements TranslatorLogger {
     }
   }
 
+  private List<ParsedAsmLine> translate(final List<Path> z80ClassPath,
+                                        final ClassLoader z80classLoader,
+                                        final MetricsReport metrics) throws IOException {
+    final OptimizationLevel optimizationLevel =
+        this.optimization == null ? OptimizationLevel.NONE : this.optimization;
+
+    final TranslatorImpl translator =
+        new TranslatorImpl(this, optimizationLevel, z80ClassPath, this.lazyClassLoading);
+    translator.setTranslationThreads(this.translationThreads > 0 ? this.translationThreads :
+        Runtime.getRuntime().availableProcessors());
+    translator.setInlineBudget(Math.max(0, this.inlineBudget));
+    translator.setInlineForSize(this.inlineForSize);
+    if (this.useTranslationCache && this.translationCacheFolder != null) {
+      // stale records are removed from the cache folder, so executions must not share it
+      final Path cacheFolder = this.translationCacheFolder.toPath()
+          .resolve(this.project.getArtifactId() + '-' + this.mojoExecution.getExecutionId());
+      logInfo("Translation cache folder: " + cacheFolder);
+      translator.setTranslationCacheFolder(cacheFolder);
+    }
+    translator.setMetricsListener(metrics);
+    final List<ParsedAsmLine> translatedAsm =
+        translator.translateToParsedLines(null, this.startAddress, this.stackTop,
+            this.excludeResources, z80classLoader);
+
+    final List<MethodID> staticFrameMethods = translator.getStaticFrameMethods();
+    logInfo("Methods with static frames: " + staticFrameMethods.size());
+    for (final MethodID method : staticFrameMethods) {
+      logDebug("  " + method.getClassName() + '#' + method.getMethodName()
+          + Type.getMethodSignature(method.getReturnType(), method.getArgs()));
+    }
+
+    if (this.logAsmText || this.formats.contains(Format.A80)) {
+      this.writeAsmText(translatedAsm);
+    }
+    return translatedAsm;
+  }
+
+  private void writeAsmText(final List<ParsedAsmLine> translatedAsm) throws IOException {
+    final Path pathA80 = this.formats.contains(Format.A80) ? this.makeTargetFilePath("a80") : null;
+    if (pathA80 != null) {
+      this.logInfo("Writing A80 assembler file: " + pathA80);
+    }
+    // every line is formed once and written immediately, the whole text is never kept in memory
+    try (final Writer writer = pathA80 == null ? null :
+        Files.newBufferedWriter(pathA80, StandardCharsets.UTF_8)) {
+      int lineIndex = 1;
+      for (final ParsedAsmLine line : translatedAsm) {
+        for (final String comment : line.getLeadingComments()) {
+          this.writeAsmLine(writer, lineIndex++, comment);
+        }
+        this.writeAsmLine(writer, lineIndex++, line.toAsmText());
+      }
+    }
+  }
+
+  private void writeAsmLine(final Writer writer, final int lineIndex, final String text)
+      throws IOException {
+    if (this.logAsmText) {
+      logInfo("ASM: " + lineIndex + ": " + text);
+    }
+    if (writer != null) {
+      writer.write(text);
+      writer.write(System.lineSeparator());
+    }
+  }
+
   private List<Path> getDependencyFilePaths() {
     final List<Path> foundFiles = new ArrayList<>();
     for (final Artifact artifact : this.project.getArtifacts()) {
@@ -229,9 +419,13 @@ public class TranslatorMojo extends AbstractMojo implements TranslatorLogger {
     return foundFiles;
   }
 
+  private String getTargetFileName() {
+    return this.targetName == null ? this.project.getBuild().getFinalName() : this.targetName;
+  }
+
   private Path makeTargetFilePath(final String extension) {
     return Path.of(this.project.getBuild().getDirectory() + File.separator +
-        this.project.getBuild().getFinalName() + '.' + extension);
+        this.getTargetFileName() + '.' + extension);
   }
 
   @Override
@@ -15,10 +15,6 @@
  */
 package com.igormaznitsa.j2z80.translator.optimizator.base;
 
-import com.igormaznitsa.z80asm.asmcommands.ParsedAsmLine;
-
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 import static java.util.Arrays.asList;
@@ -38,35 +34,13 @@ public enum OptimizationState implements OptimizationConst {
   PUSH_POP_IY(asList("PUSH IY", "POP IY"), NONE),
   PUSH_CLRLOC_IY(asList("PUSH IY", CLRLOC_STR, "POP IY"), CLRLOC);
 
-  private final List<ParsedAsmLine> theCase = new ArrayList<>();
-  private final List<ParsedAsmLine> replacement = new ArrayList<>();
+  private final PeepholeRule rule;
 
   OptimizationState(final List<String> theCase, final List<String> replacement) {
-    theCase.stream().map(ParsedAsmLine::new).forEach(this.theCase::add);
-    replacement.stream().map(ParsedAsmLine::new).forEach(this.replacement::add);
+    this.rule = new PeepholeRule(theCase, replacement);
   }
 
-  public boolean process(final List<ParsedAsmLine> lines) {
-    boolean changed = false;
-    while (!Thread.currentThread().isInterrupted()) {
-      final int index = Collections.indexOfSubList(lines, theCase);
-      if (index >= 0) {
-        changed = true;
-        int count = theCase.size();
-        while (count != 0) {
-          lines.remove(index);
-          count--;
-        }
-        if (!replacement.isEmpty()) {
-          for (int i = 0; i < replacement.size(); i++) {
-            lines.add(index + i, replacement.get(i));
-          }
-        }
-      } else {
-        break;
-      }
-    }
-    return changed;
+  public PeepholeRule getRule() {
+    return this.rule;
   }
-
 }
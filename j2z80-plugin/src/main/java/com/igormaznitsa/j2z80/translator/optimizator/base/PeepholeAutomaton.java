@@ -0,0 +1,134 @@
+/* 
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80.translator.optimizator.base;
+
+import static java.util.Arrays.asList;
+
+import com.igormaznitsa.z80asm.asmcommands.ParsedAsmLine;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The class is a compiled set of peephole rules. Rule cases are placed into a trie in reversed
+ * order so that the automaton can check the tail of already emitted lines for a match. Sources are
+ * processed in one pass, each new line is appended to the result and the result tail is rewritten
+ * while it matches some rule, so the whole work takes O(lines * window) where the window is the
+ * longest rule case.
+ *
+ * @author Igor Maznitsa (igor.maznitsa@igormaznitsa.com)
+ */
+public final class PeepholeAutomaton {
+
+  private final Node root = new Node();
+  private final int window;
+
+  /**
+   * The Constructor.
+   *
+   * @param rules rules to be compiled into the automaton, must not be null
+   */
+  public PeepholeAutomaton(final Collection<PeepholeRule> rules) {
+    int maxCase = 0;
+    for (final PeepholeRule rule : rules) {
+      final List<ParsedAsmLine> theCase = rule.getCase();
+      Node node = this.root;
+      for (int i = theCase.size() - 1; i >= 0; i--) {
+        node = node.children.computeIfAbsent(theCase.get(i), x -> new Node());
+      }
+      if (node.rule != null) {
+        throw new IllegalArgumentException("Duplicated rule case detected: " + rule);
+      }
+      node.rule = rule;
+      maxCase = Math.max(maxCase, theCase.size());
+    }
+    this.window = maxCase;
+  }
+
+  /**
+   * Get the longest rule case size.
+   *
+   * @return the size of the longest case in lines
+   */
+  public int getWindow() {
+    return this.window;
+  }
+
+  /**
+   * Rewrite assembler lines by the rules. Every match gets its own copies of replacement lines and
+   * leading comments of removed lines are moved to the next line in the result.
+   *
+   * @param lines parsed assembler lines, must not be null
+   * @return new list contains rewritten lines
+   */
+  public List<ParsedAsmLine> rewrite(final List<ParsedAsmLine> lines) {
+    final List<ParsedAsmLine> result = new ArrayList<>(lines.size());
+    final List<String> comments = new ArrayList<>();
+    for (final ParsedAsmLine line : lines) {
+      result.add(comments.isEmpty() ? line : addLeadingComments(copy(line), comments));
+      PeepholeRule matched;
+      while ((matched = this.findRuleForTail(result)) != null) {
+        final List<ParsedAsmLine> removed =
+            result.subList(result.size() - matched.getCase().size(), result.size());
+        for (final ParsedAsmLine removedLine : removed) {
+          comments.addAll(asList(removedLine.getLeadingComments()));
+        }
+        removed.clear();
+        for (final ParsedAsmLine replacement : matched.getReplacement()) {
+          result.add(addLeadingComments(copy(replacement), comments));
+        }
+      }
+    }
+    return result;
+  }
+
+  private static ParsedAsmLine copy(final ParsedAsmLine line) {
+    return line.withLabel(line.getLabel());
+  }
+
+  private static ParsedAsmLine addLeadingComments(final ParsedAsmLine line,
+                                                  final List<String> comments) {
+    if (!comments.isEmpty()) {
+      comments.addAll(asList(line.getLeadingComments()));
+      line.setLeadingComments(comments.toArray(new String[0]));
+      comments.clear();
+    }
+    return line;
+  }
+
+  private PeepholeRule findRuleForTail(final List<ParsedAsmLine> lines) {
+    PeepholeRule result = null;
+    Node node = this.root;
+    final int lowest = Math.max(0, lines.size() - this.window);
+    for (int i = lines.size() - 1; i >= lowest; i--) {
+      node = node.children.get(lines.get(i));
+      if (node == null) {
+        break;
+      }
+      if (node.rule != null) {
+        result = node.rule;
+      }
+    }
+    return result;
+  }
+
+  private static final class Node {
+    private final Map<ParsedAsmLine, Node> children = new HashMap<>();
+    private PeepholeRule rule;
+  }
+}
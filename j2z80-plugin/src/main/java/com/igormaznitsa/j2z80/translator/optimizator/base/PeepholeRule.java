@@ -0,0 +1,68 @@
+/* 
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80.translator.optimizator.base;
+
+import static java.util.Collections.unmodifiableList;
+
+import com.igormaznitsa.z80asm.asmcommands.ParsedAsmLine;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The class describes a peephole rule, a sequence of assembler lines to be replaced by another
+ * sequence. The replacement must be shorter than the case so that rewriting always terminates.
+ *
+ * @author Igor Maznitsa (igor.maznitsa@igormaznitsa.com)
+ */
+public final class PeepholeRule {
+
+  private final List<ParsedAsmLine> theCase;
+  private final List<ParsedAsmLine> replacement;
+
+  /**
+   * The Constructor.
+   *
+   * @param theCase     assembler lines to be found, must not be null or empty
+   * @param replacement assembler lines to replace the found lines, must not be null
+   */
+  public PeepholeRule(final List<String> theCase, final List<String> replacement) {
+    this.theCase = unmodifiableList(
+        theCase.stream().map(ParsedAsmLine::new).collect(Collectors.toList()));
+    this.replacement = unmodifiableList(
+        replacement.stream().map(ParsedAsmLine::new).collect(Collectors.toList()));
+
+    if (this.theCase.isEmpty()) {
+      throw new IllegalArgumentException("Rule case must not be empty");
+    }
+    if (this.replacement.size() >= this.theCase.size()) {
+      throw new IllegalArgumentException(
+          "Rule replacement must be shorter than its case " + theCase + " -> " + replacement);
+    }
+  }
+
+  public List<ParsedAsmLine> getCase() {
+    return this.theCase;
+  }
+
+  public List<ParsedAsmLine> getReplacement() {
+    return this.replacement;
+  }
+
+  @Override
+  public String toString() {
+    return this.theCase + " -> " + this.replacement;
+  }
+}
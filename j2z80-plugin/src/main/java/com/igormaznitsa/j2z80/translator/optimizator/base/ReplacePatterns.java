@@ -19,28 +19,42 @@ import com.igormaznitsa.j2z80.TranslatorContext;
 import com.igormaznitsa.j2z80.translator.optimizator.AsmOptimizer;
 import com.igormaznitsa.z80asm.asmcommands.ParsedAsmLine;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public class ReplacePatterns implements AsmOptimizer {
 
-  @Override
-  public List<ParsedAsmLine> optimizeAsmText(final TranslatorContext context, final List<ParsedAsmLine> lines) {
-    final List<ParsedAsmLine> result = new LinkedList<>(lines);
-
-    boolean loop = true;
-
-    while (loop && !Thread.currentThread().isInterrupted()) {
-      loop = false;
-      for (final OptimizationState optCase : OptimizationState.values()) {
-        if (optCase.process(result)) {
-          loop = true;
-          break;
-        }
-      }
-    }
+  private static final PeepholeAutomaton DEFAULT_AUTOMATON = new PeepholeAutomaton(defaultRules());
+
+  private final PeepholeAutomaton automaton;
 
+  public ReplacePatterns() {
+    this.automaton = DEFAULT_AUTOMATON;
+  }
+
+  /**
+   * The Constructor allows to extend the default rule set.
+   *
+   * @param additionalRules rules to be used together with default ones, must not be null
+   */
+  public ReplacePatterns(final Collection<PeepholeRule> additionalRules) {
+    final List<PeepholeRule> rules = defaultRules();
+    rules.addAll(additionalRules);
+    this.automaton = new PeepholeAutomaton(rules);
+  }
+
+  private static List<PeepholeRule> defaultRules() {
+    final List<PeepholeRule> result = new ArrayList<>();
+    for (final OptimizationState state : OptimizationState.values()) {
+      result.add(state.getRule());
+    }
     return result;
   }
 
+  @Override
+  public List<ParsedAsmLine> optimizeAsmText(final TranslatorContext context, final List<ParsedAsmLine> lines) {
+    return this.automaton.rewrite(lines);
+  }
+
 }
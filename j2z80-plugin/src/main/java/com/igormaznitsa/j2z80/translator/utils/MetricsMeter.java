@@ -0,0 +1,93 @@
+/*
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80.translator.utils;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Auxiliary class to measure wall time and bytes allocated by the current thread since the meter
+ * start. Allocated bytes are measured only if the JVM supports that, otherwise -1 is returned.
+ *
+ * @author Igor Maznitsa (igor.maznitsa@igormaznitsa.com)
+ */
+public final class MetricsMeter {
+
+  private static final com.sun.management.ThreadMXBean THREAD_BEAN;
+
+  static {
+    final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    com.sun.management.ThreadMXBean found = null;
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      found = (com.sun.management.ThreadMXBean) bean;
+      try {
+        if (found.isThreadAllocatedMemorySupported()) {
+          found.setThreadAllocatedMemoryEnabled(true);
+        } else {
+          found = null;
+        }
+      } catch (UnsupportedOperationException | SecurityException ex) {
+        found = null;
+      }
+    }
+    THREAD_BEAN = found;
+  }
+
+  private final long startNanos;
+  private final long startAllocatedBytes;
+
+  private MetricsMeter() {
+    this.startAllocatedBytes = findAllocatedBytes();
+    this.startNanos = System.nanoTime();
+  }
+
+  /**
+   * Start new meter for the current thread.
+   *
+   * @return new meter, must not be null
+   */
+  public static MetricsMeter start() {
+    return new MetricsMeter();
+  }
+
+  private static long findAllocatedBytes() {
+    return THREAD_BEAN == null ? -1L :
+        THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * Get wall time since the meter start.
+   *
+   * @return time in nanoseconds
+   */
+  public long getWallTimeNanos() {
+    return System.nanoTime() - this.startNanos;
+  }
+
+  /**
+   * Get number of bytes allocated by the current thread since the meter start, it makes sense only
+   * for the thread which started the meter.
+   *
+   * @return number of allocated bytes, -1 if unknown
+   */
+  public long getAllocatedBytes() {
+    if (this.startAllocatedBytes < 0L) {
+      return -1L;
+    }
+    final long current = findAllocatedBytes();
+    return current < 0L ? -1L : current - this.startAllocatedBytes;
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80.translator.utils;
+
+import com.igormaznitsa.j2z80.TranslationMetricsListener;
+import com.igormaznitsa.j2z80.ids.ClassMethodInfo;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Metrics listener which collects all notifications in order of their arrival and can save them as
+ * JSON document.
+ *
+ * @author Igor Maznitsa (igor.maznitsa@igormaznitsa.com)
+ */
+public final class MetricsReport implements TranslationMetricsListener {
+
+  private final List<String> phases = new ArrayList<>();
+  private final List<String> methods = new ArrayList<>();
+
+  private static void escape(final StringBuilder buffer, final String text) {
+    if (text == null) {
+      buffer.append("null");
+      return;
+    }
+    buffer.append('"');
+    for (int i = 0; i < text.length(); i++) {
+      final char c = text.charAt(i);
+      switch (c) {
+        case '"':
+          buffer.append("\\\"");
+          break;
+        case '\\':
+          buffer.append("\\\\");
+          break;
+        default:
+          if (c < 0x20) {
+            buffer.append(String.format("\\u%04x", (int) c));
+          } else {
+            buffer.append(c);
+          }
+          break;
+      }
+    }
+    buffer.append('"');
+  }
+
+  @Override
+  public synchronized void onPhase(final String phase, final long wallTimeNanos,
+                                   final long allocatedBytes, final int lines, final int bytes) {
+    final StringBuilder buffer = new StringBuilder("{\"name\":");
+    escape(buffer, phase);
+    buffer.append(",\"wallTimeNanos\":").append(wallTimeNanos)
+        .append(",\"allocatedBytes\":").append(allocatedBytes)
+        .append(",\"lines\":").append(lines)
+        .append(",\"bytes\":").append(bytes)
+        .append('}');
+    this.phases.add(buffer.toString());
+  }
+
+  @Override
+  public synchronized void onMethod(final ClassMethodInfo method, final long wallTimeNanos,
+                                    final long allocatedBytes, final int lines) {
+    final StringBuilder buffer = new StringBuilder("{\"class\":");
+    escape(buffer, method.getCanonicalClassName());
+    buffer.append(",\"method\":");
+    escape(buffer, method.getMethodName());
+    buffer.append(",\"signature\":");
+    escape(buffer, method.getMethodSignature());
+    buffer.append(",\"wallTimeNanos\":").append(wallTimeNanos)
+        .append(",\"allocatedBytes\":").append(allocatedBytes)
+        .append(",\"lines\":").append(lines)
+        .append('}');
+    this.methods.add(buffer.toString());
+  }
+
+  /**
+   * Make JSON text of collected metrics.
+   *
+   * @return JSON object contains arrays of phases and methods
+   */
+  public synchronized String toJson() {
+    final StringBuilder buffer = new StringBuilder("{\n  \"phases\": [");
+    appendAll(buffer, this.phases);
+    buffer.append("],\n  \"methods\": [");
+    appendAll(buffer, this.methods);
+    return buffer.append("]\n}\n").toString();
+  }
+
+  private static void appendAll(final StringBuilder buffer, final List<String> items) {
+    for (int i = 0; i < items.size(); i++) {
+      buffer.append(i == 0 ? "\n    " : ",\n    ").append(items.get(i));
+    }
+    if (!items.isEmpty()) {
+      buffer.append("\n  ");
+    }
+  }
+
+  /**
+   * Write collected metrics as JSON file.
+   *
+   * @param path target file path, must not be null
+   * @throws IOException thrown if the file can't be written
+   */
+  public void write(final Path path) throws IOException {
+    Files.write(path, this.toJson().getBytes(StandardCharsets.UTF_8));
+  }
+}
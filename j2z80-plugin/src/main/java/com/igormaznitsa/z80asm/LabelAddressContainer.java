@@ -61,6 +61,11 @@ public class LabelAddressContainer {
     return address;
   }
 
+  public void removeLabel(final String labelName) {
+    Assertions.assertNotNull("Name must not be null", labelName);
+    labelMap.remove(labelName);
+  }
+
   public void clear() {
     labelMap.clear();
   }
@@ -75,6 +75,12 @@ public class PositioningByteBuffer {
     insideArray[address - offset] = data;
   }
 
+  public void clear() {
+    Arrays.fill(insideArray, (byte) 0);
+    maxAddressWritten = -1;
+    offset = -1;
+  }
+
   public int getDataStartOffset() {
     return offset;
   }
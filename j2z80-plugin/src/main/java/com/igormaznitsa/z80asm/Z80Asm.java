@@ -18,7 +18,9 @@ package com.igormaznitsa.z80asm;
 
 import static com.igormaznitsa.meta.common.utils.Assertions.assertNotNull;
 
+import com.igormaznitsa.j2z80.TranslationMetricsListener;
 import com.igormaznitsa.j2z80.translator.utils.AsmAssertions;
+import com.igormaznitsa.j2z80.translator.utils.MetricsMeter;
 import com.igormaznitsa.j2z80.utils.Utils;
 import com.igormaznitsa.meta.common.utils.Assertions;
 import com.igormaznitsa.z80asm.asmcommands.AbstractAsmCommand;
@@ -40,11 +42,24 @@ import java.util.stream.Stream;
 /**
  * The class implements a small Z80 assembler translator.
  * It allows only documented Z80 commands and supports only light expressions as command arguments.
+ * <p>
+ * By default sources are processed in two passes. In one-pass mode code is written immediately,
+ * every command referencing a not yet defined global label is remembered as a fixup and its code is
+ * remade when all labels are known. If remade code changes its size or the program counter then
+ * the translator falls back to two passes.
  *
  * @author Igor Maznitsa (igor.maznitsa@igormaznitsa.com)
  */
 public class Z80Asm implements AsmTranslator {
 
+  /**
+   * Phase names reported to the metrics listener.
+   */
+  public static final String PHASE_ONE_PASS = "assembler: one pass";
+  public static final String PHASE_REJECTED_ONE_PASS = "assembler: rejected one pass";
+  public static final String PHASE_FIRST_PASS = "assembler: first pass";
+  public static final String PHASE_SECOND_PASS = "assembler: second pass";
+
   private final PositioningByteBuffer codeBuffer = new PositioningByteBuffer(0xFFFF);
   private final Set<String> nonAssignedLabels = new HashSet<>();
   private final LabelAddressContainer globalLabelMap = new LabelAddressContainer();
@@ -54,7 +69,17 @@ public class Z80Asm implements AsmTranslator {
   private int programCounter;
   private int entryPoint;
   private boolean firstPassFlag;
+  private final List<Fixup> fixups = new ArrayList<>();
+  private boolean onePassMode;
+  private boolean onePassFlag;
+  private boolean fixupFlag;
+  private boolean unresolvedLabelFlag;
+  private boolean zeroForUnresolvedLabelFlag;
+  private boolean multiPassNeededFlag;
+  private int passes;
+  private TranslationMetricsListener metricsListener = TranslationMetricsListener.NULL;
   private final String[] sources;
+  private final ParsedAsmLine[] parsedSources;
 
   public Z80Asm(final File file) throws IOException {
     this(Arrays.asList(Utils.readTextFileAsStringArray(file, "UTF-8")));
@@ -68,6 +93,18 @@ public class Z80Asm implements AsmTranslator {
     assertNotNull("Source array must not be null", (Object) sourceToBeCompiled);
     this.sources = sourceToBeCompiled.stream()
         .flatMap(x -> Stream.of(Utils.breakToLines(x))).toArray(String[]::new);
+    this.parsedSources = new ParsedAsmLine[this.sources.length];
+  }
+
+  /**
+   * Make assembler for already parsed lines, they are not changed during processing.
+   *
+   * @param parsedSourceToBeCompiled parsed source lines, must not be null
+   */
+  public Z80Asm(final ParsedAsmLine[] parsedSourceToBeCompiled) {
+    assertNotNull("Source array must not be null", (Object) parsedSourceToBeCompiled);
+    this.sources = null;
+    this.parsedSources = parsedSourceToBeCompiled.clone();
   }
 
   private static boolean isLocalLabelName(final String labelName) {
@@ -82,8 +119,7 @@ public class Z80Asm implements AsmTranslator {
     final AbstractAsmCommand equCmnd = AbstractAsmCommand.findCommandForName("EQU");
     for (final EquDirectiveContainer.EquDirectiveRecord record : equContainer.getValuesAsList()) {
       setPC(record.getPC());
-      record.getParsedAsmLine().setLabel(record.getAssociatedLabel());
-      equCmnd.makeMachineCode(this, record.getParsedAsmLine());
+      equCmnd.makeMachineCode(this, record.getParsedAsmLine().withLabel(record.getAssociatedLabel()));
     }
     equContainer.clear();
     globalLabelMap.setReplaceAllowed(false);
@@ -91,11 +127,62 @@ public class Z80Asm implements AsmTranslator {
   }
 
   public byte[] process() {
-    firstPass();
-    secondPass();
+    MetricsMeter meter = MetricsMeter.start();
+    if (this.onePassMode && onePass()) {
+      passes = 1;
+      notifyPhase(PHASE_ONE_PASS, meter, codeBuffer.size());
+    } else {
+      if (this.onePassMode) {
+        notifyPhase(PHASE_REJECTED_ONE_PASS, meter, -1);
+        meter = MetricsMeter.start();
+      }
+      firstPass();
+      notifyPhase(PHASE_FIRST_PASS, meter, -1);
+      meter = MetricsMeter.start();
+      secondPass();
+      notifyPhase(PHASE_SECOND_PASS, meter, codeBuffer.size());
+      passes = 2;
+    }
     return codeBuffer.toByteArray();
   }
 
+  private void notifyPhase(final String phase, final MetricsMeter meter, final int bytes) {
+    this.metricsListener.onPhase(phase, meter.getWallTimeNanos(), meter.getAllocatedBytes(),
+        this.parsedSources.length, bytes);
+  }
+
+  /**
+   * Set listener to get metrics of assembler passes.
+   *
+   * @param listener the listener, null to ignore metrics
+   */
+  public void setMetricsListener(final TranslationMetricsListener listener) {
+    this.metricsListener = listener == null ? TranslationMetricsListener.NULL : listener;
+  }
+
+  public boolean isOnePassMode() {
+    return this.onePassMode;
+  }
+
+  /**
+   * Allow processing of sources in one pass with fixups, two passes will be used only if the
+   * sources can't be processed in one pass.
+   *
+   * @param flag true to allow one pass, false to use two passes
+   */
+  public void setOnePassMode(final boolean flag) {
+    this.onePassMode = flag;
+  }
+
+  /**
+   * Get number of passes made by the last processing.
+   *
+   * @return 1 if sources were processed in one pass, 2 if in two passes, 0 if not processed
+   */
+  public int getPasses() {
+    return this.passes;
+  }
+
   public AsmTranslator getContext() {
     return this;
   }
@@ -120,6 +207,119 @@ public class Z80Asm implements AsmTranslator {
     processEquCommands();
   }
 
+  // return false if sources can't be processed in one pass, all made changes are dropped in the case
+  private boolean onePass() {
+    resetInsideTables();
+    fixups.clear();
+    multiPassNeededFlag = false;
+    onePassFlag = true;
+    try {
+      processSources();
+      if (!multiPassNeededFlag) {
+        final int pc = getPC();
+        processDeferredEquCommands();
+        processFixups();
+        setPC(pc);
+      }
+    } finally {
+      onePassFlag = false;
+      fixupFlag = false;
+      fixups.clear();
+      equContainer.clear();
+    }
+
+    if (multiPassNeededFlag) {
+      multiPassNeededFlag = false;
+      codeBuffer.clear();
+      globalLabelMap.clear();
+      return false;
+    }
+    return true;
+  }
+
+  // return false if value of the EQU depends on a not yet defined label, the label is not registered in the case
+  private boolean processOnePassEqu(final AbstractAsmCommand equCmnd, final String label, final ParsedAsmLine parsed, final int address) {
+    setPC(address);
+    unresolvedLabelFlag = false;
+    equCmnd.makeMachineCode(this, parsed.withLabel(label));
+    if (unresolvedLabelFlag) {
+      globalLabelMap.removeLabel(label);
+      return false;
+    }
+    return true;
+  }
+
+  private void processDeferredEquCommands() {
+    final AbstractAsmCommand equCmnd = AbstractAsmCommand.findCommandForName(AsmCommandEQU.NAME);
+
+    List<EquDirectiveContainer.EquDirectiveRecord> waiting = equContainer.getValuesAsList();
+    boolean progress = true;
+    while (progress && !waiting.isEmpty()) {
+      progress = false;
+      final List<EquDirectiveContainer.EquDirectiveRecord> next = new ArrayList<>();
+      for (final EquDirectiveContainer.EquDirectiveRecord record : waiting) {
+        if (processOnePassEqu(equCmnd, record.getAssociatedLabel(), record.getParsedAsmLine(), record.getPC())) {
+          progress = true;
+        } else {
+          next.add(record);
+        }
+      }
+      waiting = next;
+    }
+
+    // all labels are defined at the moment, so that rest directives must throw error for unknown label
+    fixupFlag = true;
+    for (final EquDirectiveContainer.EquDirectiveRecord record : waiting) {
+      processOnePassEqu(equCmnd, record.getAssociatedLabel(), record.getParsedAsmLine(), record.getPC());
+    }
+  }
+
+  private void processFixups() {
+    fixupFlag = true;
+    // local labels are not accessible for fixups, command using them can't be remade
+    localLabelMap.clear();
+
+    for (final Fixup fixup : fixups) {
+      try {
+        setPC(fixup.address);
+        final byte[] code = fixup.command.makeMachineCode(this, fixup.parsed);
+        if (multiPassNeededFlag || code.length != fixup.length || getPC() != fixup.address) {
+          multiPassNeededFlag = true;
+          return;
+        }
+        writeCode(code);
+      } catch (Exception ex) {
+        throwExceptionForAsmErrorString(String.valueOf(fixup.parsed), fixup.stringIndex, ex);
+      }
+    }
+  }
+
+  private byte[] makeMachineCode(final AbstractAsmCommand command, final ParsedAsmLine parsed, final int stringIndex) {
+    final int address = getPC();
+    unresolvedLabelFlag = false;
+    byte[] result;
+    try {
+      result = command.makeMachineCode(this, parsed);
+    } catch (RuntimeException ex) {
+      if (!onePassFlag || !unresolvedLabelFlag) {
+        throw ex;
+      }
+      // the PC used as value of not defined label can be out of allowed range, f.e. for (IX+d)
+      setPC(address);
+      unresolvedLabelFlag = false;
+      zeroForUnresolvedLabelFlag = true;
+      try {
+        result = command.makeMachineCode(this, parsed);
+      } finally {
+        zeroForUnresolvedLabelFlag = false;
+      }
+    }
+    if (onePassFlag && unresolvedLabelFlag) {
+      fixups.add(new Fixup(command, parsed, stringIndex, address, result.length));
+    }
+    return result;
+  }
+
   private void secondPass() {
     resetInsideTables();
     firstPassFlag = false;
@@ -127,19 +327,25 @@ public class Z80Asm implements AsmTranslator {
   }
 
   private void processSources() {
-    for (int strIndex = 0; strIndex < sources.length; strIndex++) {
-      final String line = sources[strIndex];
-      assertNotNull("Line at " + (strIndex + 1) + " is null", line);
+    for (int strIndex = 0; strIndex < parsedSources.length; strIndex++) {
+      ParsedAsmLine parsed = parsedSources[strIndex];
+      final String line = sources == null ? null : sources[strIndex];
+      assertNotNull("Line at " + (strIndex + 1) + " is null", parsed == null ? line : parsed);
       try {
-        if (processOneLine(line, strIndex + 1)) {
+        if (parsed == null) {
+          // text line is parsed only once and reused in the next pass
+          parsed = new ParsedAsmLine(line);
+          parsedSources[strIndex] = parsed;
+        }
+        if (processOneLine(parsed, strIndex + 1) || multiPassNeededFlag) {
           break;
         }
       } catch (Exception ex) {
-        throwExceptionForAsmErrorString(line, strIndex + 1, ex);
+        throwExceptionForAsmErrorString(line == null ? String.valueOf(parsed) : line, strIndex + 1, ex);
       }
     }
 
-    if (firstPassFlag) {
+    if (firstPassFlag || onePassFlag) {
       for (final String label : nonAssignedLabels) {
         if (isLocalLabelName(label)) {
           registerLocalLabelAddress(label, getPC());
@@ -153,9 +359,7 @@ public class Z80Asm implements AsmTranslator {
   }
 
   // return true if need to interrupt processing, otherwise false
-  private boolean processOneLine(final String asmString, final int stringIndex) {
-    final ParsedAsmLine parsed = new ParsedAsmLine(asmString);
-
+  private boolean processOneLine(final ParsedAsmLine parsed, final int stringIndex) {
     boolean result = false;
 
     if (!parsed.isEmpty()) {
@@ -165,22 +369,20 @@ public class Z80Asm implements AsmTranslator {
         final AbstractAsmCommand command = AbstractAsmCommand.findCommandForName(parsed.getCommand());
 
         assertNotNull("Unsupported command detected [" + parsed.getCommand() + ']', command);
-        Assertions.assertTrue("The command must be compatible in its argument number and their types [" + asmString + ']', command.getAllowedArgumentsNumber().check(parsed.getArgs()));
+        Assertions.assertTrue("The command must be compatible in its argument number and their types [" + parsed + ']', command.getAllowedArgumentsNumber().check(parsed.getArgs()));
 
         final String currentLabel = parsed.getLabel();
 
         if (currentLabel != null) {
           nonAssignedLabels.add(currentLabel);
-          parsed.setLabel(null);
         }
 
         if (command.isSpecialDirective()) {
-          result = processSpecialDirective(command, asmString, stringIndex, parsed);
+          result = processSpecialDirective(command, stringIndex, parsed);
         } else {
           registerNonAssignedLabels();
 
-          final int currentPC = getPC();
-          final byte[] machineCode = command.makeMachineCode(this, parsed);
+          final byte[] machineCode = makeMachineCode(command, parsed, stringIndex);
 
           writeCode(machineCode);
         }
@@ -192,7 +394,7 @@ public class Z80Asm implements AsmTranslator {
   private String[] registerNonAssignedLabels() {
     List<String> result = null;
     final int address = getPC();
-    if (firstPassFlag) {
+    if (firstPassFlag || onePassFlag) {
       for (final String lbl : nonAssignedLabels) {
         if (isLocalLabelName(lbl)) {
           registerLocalLabelAddress(lbl, address);
@@ -220,22 +422,30 @@ public class Z80Asm implements AsmTranslator {
     return result == null ? new String[0] : result.toArray(new String[nonAssignedLabels.size()]);
   }
 
-  private boolean processSpecialDirective(final AbstractAsmCommand asmCommand, final String rawString, final int strIndex, final ParsedAsmLine parsed) {
+  private boolean processSpecialDirective(final AbstractAsmCommand asmCommand, final int strIndex, final ParsedAsmLine parsed) {
     if (asmCommand instanceof AsmCommandEQU) {
       if (firstPassFlag) {
-        Assertions.assertFalse("Each EQU directive must be labeled [" + rawString + ']', nonAssignedLabels.isEmpty());
+        Assertions.assertFalse("Each EQU directive must be labeled [" + parsed + ']', nonAssignedLabels.isEmpty());
         final int address = getPC();
         for (final String lbl : registerNonAssignedLabels()) {
           equContainer.addRecord(lbl, parsed, address);
         }
+      } else if (onePassFlag) {
+        Assertions.assertFalse("Each EQU directive must be labeled [" + parsed + ']', nonAssignedLabels.isEmpty());
+        final int address = getPC();
+        for (final String lbl : nonAssignedLabels) {
+          if (!processOnePassEqu(asmCommand, lbl, parsed, address)) {
+            equContainer.addRecord(lbl, parsed, address);
+          }
+        }
+        nonAssignedLabels.clear();
       }
     } else {
       if (asmCommand instanceof AsmCommandEND) {
         return true;
       } else {
         registerNonAssignedLabels();
-        final byte[] compiled = asmCommand.makeMachineCode(this, parsed);
-        final int address = getPC();
+        final byte[] compiled = makeMachineCode(asmCommand, parsed, strIndex);
         writeCode(compiled);
       }
     }
@@ -249,8 +459,14 @@ public class Z80Asm implements AsmTranslator {
     } else {
       if (isLocalLabelName(label)) {
         return localLabelMap.hasLabel(label) ? localLabelMap.getLabelAddress(label) : null;
+      } else if (globalLabelMap.hasLabel(label)) {
+        return globalLabelMap.getLabelAddress(label);
+      } else if (onePassFlag && !fixupFlag) {
+        // the label can be defined later, the current PC is used as value like in the first pass
+        unresolvedLabelFlag = true;
+        return zeroForUnresolvedLabelFlag ? 0 : getPC();
       } else {
-        return globalLabelMap.hasLabel(label) ? globalLabelMap.getLabelAddress(label) : null;
+        return null;
       }
     }
   }
@@ -275,10 +491,17 @@ public class Z80Asm implements AsmTranslator {
 
     final List<LocalLabelExpectant> listeners = localLabelExpectants.get(label);
     if (listeners != null) {
+      final boolean unresolvedLabel = unresolvedLabelFlag;
+      unresolvedLabelFlag = false;
       for (final LocalLabelExpectant listener : listeners) {
         listener.onLabelIsAccessible(this, label, address);
       }
       localLabelExpectants.remove(label);
+      if (onePassFlag && unresolvedLabelFlag) {
+        // remade code still needs a global label but local labels will not be accessible for fixup
+        multiPassNeededFlag = true;
+      }
+      unresolvedLabelFlag = unresolvedLabel;
     }
   }
 
@@ -288,6 +511,11 @@ public class Z80Asm implements AsmTranslator {
     assertNotNull("Expectant must not be null", expectant);
     AsmAssertions.assertLocalLabelName(label);
 
+    if (fixupFlag) {
+      multiPassNeededFlag = true;
+      return;
+    }
+
     List<LocalLabelExpectant> listeners = localLabelExpectants.computeIfAbsent(label, k -> new ArrayList<>());
     listeners.add(expectant);
   }
@@ -347,4 +575,20 @@ public class Z80Asm implements AsmTranslator {
     Assertions.assertTrue("There must not be any waiting expectant for local label " + Arrays.toString(localLabelExpectants.keySet().toArray()), localLabelExpectants.isEmpty());
     localLabelMap.clear();
   }
+
+  private static final class Fixup {
+    private final AbstractAsmCommand command;
+    private final ParsedAsmLine parsed;
+    private final int stringIndex;
+    private final int address;
+    private final int length;
+
+    private Fixup(final AbstractAsmCommand command, final ParsedAsmLine parsed, final int stringIndex, final int address, final int length) {
+      this.command = command;
+      this.parsed = parsed;
+      this.stringIndex = stringIndex;
+      this.address = address;
+      this.length = length;
+    }
+  }
 }
@@ -42,6 +42,8 @@ public class ParsedAsmLine {
   private final String signature;
   private final int hashCode;
   private String label;
+  private String comment;
+  private String[] leadingComments = EMPTY_ARRAY;
 
   public ParsedAsmLine(final String label, final String command, final String... args) {
     this.label = label == null ? null : label.trim();
@@ -63,6 +65,16 @@ public class ParsedAsmLine {
     this.hashCode = this.command.hashCode() * 31 + signature.hashCode();
   }
 
+  private ParsedAsmLine(final ParsedAsmLine source, final String label) {
+    this.label = label;
+    this.command = source.command;
+    this.arguments = source.arguments;
+    this.signature = source.signature;
+    this.hashCode = source.hashCode;
+    this.comment = source.comment;
+    this.leadingComments = source.leadingComments;
+  }
+
   public ParsedAsmLine(final String asmString) {
     final String trimmed = asmString.trim();
     if (trimmed.isEmpty() || trimmed.charAt(0) == ';') {
@@ -71,6 +83,7 @@ public class ParsedAsmLine {
       label = null;
       arguments = EMPTY_ARRAY;
       signature = makeSignatureFromNormalizedArgs(arguments);
+      comment = trimmed.isEmpty() ? null : trimmed;
       return;
     }
 
@@ -93,6 +106,9 @@ public class ParsedAsmLine {
     signature = makeSignatureFromNormalizedArgs(arguments);
 
     hashCode = command.hashCode() * 31 + signature.hashCode();
+
+    final String rest = removeComment(asmString);
+    comment = rest.length() == asmString.length() ? null : asmString.substring(rest.length()).trim();
   }
 
   private static int findLabelPosition(final String line) {
@@ -356,6 +372,50 @@ public class ParsedAsmLine {
     this.label = label;
   }
 
+  /**
+   * Make copy of the line with another label, the line is not changed.
+   *
+   * @param label the label for the copy, can be null
+   * @return the copy of the line with the label
+   */
+  public ParsedAsmLine withLabel(final String label) {
+    return new ParsedAsmLine(this, label);
+  }
+
+  /**
+   * Get the comment of the line.
+   *
+   * @return the comment started with ';', null if the line doesn't have comment
+   */
+  public String getComment() {
+    return comment;
+  }
+
+  /**
+   * Get comment lines placed in the source before the line.
+   *
+   * @return array of comment lines, must not be null
+   */
+  public String[] getLeadingComments() {
+    return leadingComments;
+  }
+
+  public void setLeadingComments(final String... comments) {
+    this.leadingComments = comments == null ? EMPTY_ARRAY : comments;
+  }
+
+  /**
+   * Make text of the line with its comment, leading comment lines are not included.
+   *
+   * @return the text of the line
+   */
+  public String toAsmText() {
+    if (comment == null) {
+      return toString();
+    }
+    return isEmpty() ? comment : toString().trim() + ' ' + comment;
+  }
+
   public String getCommand() {
     return command;
   }
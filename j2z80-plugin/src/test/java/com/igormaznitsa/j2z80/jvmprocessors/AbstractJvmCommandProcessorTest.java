@@ -15,6 +15,7 @@
  */
 package com.igormaznitsa.j2z80.jvmprocessors;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyInt;
@@ -51,6 +52,7 @@ import org.apache.bcel.classfile.ConstantUtf8;
 import org.apache.bcel.classfile.JavaClass;
 import org.apache.bcel.generic.ClassGen;
 import org.apache.bcel.generic.ConstantPoolGen;
+import org.apache.bcel.generic.InstructionConst;
 import org.apache.bcel.generic.InstructionList;
 import org.apache.bcel.generic.MethodGen;
 import org.apache.bcel.generic.Type;
@@ -166,6 +168,17 @@ public abstract class AbstractJvmCommandProcessorTest extends Z80 {
     when(CLASS_PROCESSOR_MOCK.getTranslatorContext()).thenReturn(TRANSLATOR_MOCK);
   }
 
+  protected ClassMethodInfo registerMethodWithStaticCells() {
+    final ClassGen classGen = new ClassGen("com.test.cells", "java.lang.Object", "cells.java", Const.ACC_PUBLIC, new String[0]);
+    final InstructionList code = new InstructionList();
+    code.append(InstructionConst.RETURN);
+    final MethodGen method = new MethodGen(Const.ACC_STATIC, Type.VOID, new Type[] {Type.INT, Type.INT}, new String[] {"a", "b"}, "cells", classGen.getClassName(), code, classGen.getConstantPool());
+    final ClassMethodInfo result = new ClassMethodInfo(classGen, method.getMethod(), method);
+    result.setCallingConvention(ClassMethodInfo.CallingConvention.REGISTERS);
+    when(CLASS_PROCESSOR_MOCK.getMethod()).thenReturn(result);
+    return result;
+  }
+
   protected MethodGen makeMethodMockup() {
     return new MethodGen(Const.ACC_STATIC, Type.VOID, new Type[0], new String[0], "MOCK_METHOD", MOCK_CLASS_NAME, new InstructionList(), CP_GEN_MOCK);
   }
@@ -174,6 +187,22 @@ public abstract class AbstractJvmCommandProcessorTest extends Z80 {
     breakpointAddresses.put(labelName, Integer.valueOf(0));
   }
 
+  /**
+   * Assemble text in one pass with fixups as the translator does and check that two passes make
+   * the same code, so every template is checked through both ways of the assembler.
+   *
+   * @param asm     the assembler to process the text in one pass, must not be null
+   * @param asmText the text processed by the assembler, must not be null
+   * @return the assembled code
+   */
+  protected static byte[] assemble(final Z80Asm asm, final String[] asmText) {
+    asm.setOnePassMode(true);
+    final byte[] result = asm.process();
+    assertArrayEquals("One pass and two passes must make the same code",
+        new Z80Asm(Arrays.asList(asmText)).process(), result);
+    return result;
+  }
+
   private Z80Asm processAsm(final String asm) {
     final String[] asmArray = new String[] {
         getAsmBeforeAll(),
@@ -189,7 +218,7 @@ public abstract class AbstractJvmCommandProcessorTest extends Z80 {
     }
 
     final Z80Asm z80asm = new Z80Asm(Arrays.asList(asmArray));
-    final byte[] bindata = z80asm.process();
+    final byte[] bindata = assemble(z80asm, asmArray);
     endAddress = z80asm.findLabelAddress(END_LABEL).intValue();
 
     if (!breakpointAddresses.isEmpty()) {
@@ -97,7 +97,7 @@ public abstract class AbstractTestBasedOnMemoryManager extends AbstractJvmComman
 
     final Z80Asm asm = new Z80Asm(Arrays.asList(asmText));
 
-    final byte[] compiled = asm.process();
+    final byte[] compiled = assemble(asm, asmText);
 
     System.arraycopy(compiled, 0, memory, asm.getDataOffset(), compiled.length);
 
@@ -130,7 +130,7 @@ public abstract class AbstractTestBasedOnMemoryManager extends AbstractJvmComman
 
     final Z80Asm asm = new Z80Asm(Arrays.asList(asmText));
 
-    final byte[] compiled = asm.process();
+    final byte[] compiled = assemble(asm, asmText);
 
     System.arraycopy(compiled, 0, memory, asm.getDataOffset(), compiled.length);
 
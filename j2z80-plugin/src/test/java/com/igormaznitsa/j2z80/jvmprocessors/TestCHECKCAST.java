@@ -29,11 +29,13 @@ import com.igormaznitsa.j2z80.utils.Utils;
 import com.igormaznitsa.z80asm.Z80Asm;
 import java.io.IOException;
 import java.io.StringWriter;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.Collections;
 import org.apache.bcel.Const;
 import org.apache.bcel.classfile.ConstantClass;
 import org.apache.bcel.classfile.ConstantUtf8;
 import org.apache.bcel.generic.CHECKCAST;
+import org.apache.bcel.generic.ClassGen;
 import org.apache.bcel.generic.InstructionHandle;
 import org.junit.Before;
 import org.junit.Test;
@@ -46,11 +48,11 @@ public class TestCHECKCAST extends AbstractTestBasedOnMemoryManager implements N
   private static final int EXCEPTION_FLAG_ADDRESS = 0x100;
   private static final int EXCEPTION_FLAG = 0xFF;
   private static final String TEST_CLASS_NAME1 = "test.instanceof.class1";
-  private static final Integer TEST_CLASS_NAME1_ID = Integer.valueOf(0x101);
+  private static final Integer TEST_CLASS_NAME1_ID = Integer.valueOf(0);
   private static final String TEST_CLASS_NAME2 = "test.instanceof.class2";
-  private static final Integer TEST_CLASS_NAME2_ID = Integer.valueOf(0x102);
+  private static final Integer TEST_CLASS_NAME2_ID = Integer.valueOf(1);
   private static final String TEST_CLASS_NAME3 = "test.instanceof.class3";
-  private static final Integer TEST_CLASS_NAME3_ID = Integer.valueOf(0x103);
+  private static final Integer TEST_CLASS_NAME3_ID = Integer.valueOf(2);
   private static final int CLASS_NAME_INDEX = CONSTANT_USER_DEFINED + 1;
   private static final int CLASS_INDEX = CONSTANT_USER_DEFINED + 2;
   private static final int CLASS_FIELD_NUMBER = 32;
@@ -94,15 +96,15 @@ public class TestCHECKCAST extends AbstractTestBasedOnMemoryManager implements N
   private void prepareTabe(final boolean successor) {
     final StringBuilder bldr = new StringBuilder();
 
-    final InstanceofTable table = new InstanceofTable(TRANSLATOR_MOCK, new HashSet<ClassID>());
+    final ClassID cid1 = new ClassID(TEST_CLASS_NAME1);
+    when(CLASSCONTEXT_MOCK.findClassForID(eq(cid1))).thenReturn(new ClassGen(TEST_CLASS_NAME1,
+        "java.lang.Object", "Test.java", Const.ACC_PUBLIC, new String[0]));
     if (successor) {
-      final InstanceofTable.RowInstance r = table.addRow(new ClassID(TEST_CLASS_NAME1));
-      r.addClass(new ClassID(TEST_CLASS_NAME2));
-      r.addClass(new ClassID(TEST_CLASS_NAME3));
+      when(CLASSCONTEXT_MOCK.findAllClassSuccessors(TEST_CLASS_NAME1)).thenReturn(Arrays.asList(TEST_CLASS_NAME2, TEST_CLASS_NAME3));
     } else {
-      final InstanceofTable.RowInstance r = table.addRow(new ClassID(TEST_CLASS_NAME1));
-      r.addClass(new ClassID(TEST_CLASS_NAME2));
+      when(CLASSCONTEXT_MOCK.findAllClassSuccessors(TEST_CLASS_NAME1)).thenReturn(Arrays.asList(TEST_CLASS_NAME2));
     }
+    final InstanceofTable table = new InstanceofTable(TRANSLATOR_MOCK, Collections.singleton(cid1));
 
     // add class ids
     bldr.append(LabelAndFrameUtils.makeLabelForClassID(new ClassID(TEST_CLASS_NAME1))).append(": EQU ").append(TEST_CLASS_NAME1_ID.intValue()).append('\n');
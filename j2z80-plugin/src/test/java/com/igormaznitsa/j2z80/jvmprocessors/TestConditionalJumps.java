@@ -0,0 +1,123 @@
+/*
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80.jvmprocessors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import com.igormaznitsa.j2z80.jvmprocessors.AbstractConditionalJumpProcessor.Condition;
+import com.igormaznitsa.j2z80.utils.Utils;
+import java.io.IOException;
+import org.junit.Test;
+
+public class TestConditionalJumps extends AbstractJvmCommandProcessorTest {
+
+  private static final String TARGET = "TARGET";
+
+  private static final int[] VALUES =
+      new int[] {-32768, -32767, -257, -256, -1, 0, 1, 255, 256, 32766, 32767};
+
+  private static boolean check(final Condition condition, final int a, final int b) {
+    switch (condition) {
+      case EQ:
+        return a == b;
+      case NE:
+        return a != b;
+      case LT:
+        return a < b;
+      case GE:
+        return a >= b;
+      case GT:
+        return a > b;
+      default:
+        return a <= b;
+    }
+  }
+
+  private void assertJump(final String message, final boolean expected, final String code) {
+    assertLinearExecutionToEnd(
+        code + "LD HL,0\nJP " + END_LABEL + "\n" + TARGET + ": LD HL,1\n");
+    assertEquals(message, expected ? 1 : 0, HL());
+    assertStackEmpty();
+  }
+
+  private static String loadTemplate(final String name) throws IOException {
+    return Utils.readTextResource(AbstractJvmCommandProcessor.class, name + ".a80")
+        .replace(AbstractJvmCommandProcessor.MACROS_ADDRESS, TARGET) + '\n';
+  }
+
+  @Test(timeout = 30000L)
+  public void testComparisonOfTwoValues() throws IOException {
+    for (final Condition condition : Condition.values()) {
+      final String template = loadTemplate("IF_ICMP" + condition.name());
+      final String fused = AbstractConditionalJumpProcessor.generateComparison(condition, TARGET);
+      assertFalse(fused.contains("PUSH") || fused.contains("POP"));
+
+      for (final int a : VALUES) {
+        for (final int b : VALUES) {
+          final String message = a + " " + condition + " " + b;
+          final boolean expected = check(condition, a, b);
+
+          push(a);
+          push(b);
+          assertJump(message, expected, template);
+
+          assertJump(message, expected, "LD DE," + a + "\nLD HL," + b + "\n" + fused);
+        }
+      }
+    }
+  }
+
+  @Test(timeout = 30000L)
+  public void testComparisonWithConstant() {
+    for (final Condition condition : Condition.values()) {
+      for (final int b : VALUES) {
+        final String fused =
+            AbstractConditionalJumpProcessor.generateComparisonWithConstant(condition, b, TARGET);
+        assertFalse(fused.contains("SBC HL"));
+        for (final int a : VALUES) {
+          assertJump(a + " " + condition + " " + b, check(condition, a, b),
+              "LD HL," + a + "\n" + fused);
+        }
+      }
+    }
+  }
+
+  @Test(timeout = 30000L)
+  public void testComparisonWithZero() throws IOException {
+    for (final Condition condition : Condition.values()) {
+      final String template = loadTemplate("IF" + condition.name());
+      final String fused =
+          AbstractConditionalJumpProcessor.generateComparisonWithConstant(condition, 0, TARGET);
+      for (final int a : VALUES) {
+        final String message = a + " " + condition + " 0";
+        push(a);
+        assertJump(message, check(condition, a, 0), template);
+        assertJump(message, check(condition, a, 0), "LD HL," + a + "\n" + fused);
+      }
+    }
+  }
+
+  @Test
+  public void testEqualityIsTestedWithoutSubtraction() {
+    assertEquals("LD A,H\nOR L\nJP Z,TARGET\n", AbstractConditionalJumpProcessor
+        .generateComparisonWithConstant(Condition.EQ, 0, TARGET).replace("\r", ""));
+    assertEquals("LD A,L\nXOR 10\nOR H\nJP NZ,TARGET\n", AbstractConditionalJumpProcessor
+        .generateComparisonWithConstant(Condition.NE, 10, TARGET).replace("\r", ""));
+    assertEquals("BIT 7,H\nJP Z,TARGET\n", AbstractConditionalJumpProcessor
+        .generateComparisonWithConstant(Condition.GT, -1, TARGET).replace("\r", ""));
+  }
+}
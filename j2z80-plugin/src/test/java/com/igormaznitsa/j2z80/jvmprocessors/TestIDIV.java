@@ -15,10 +15,17 @@
  */
 package com.igormaznitsa.j2z80.jvmprocessors;
 
+import com.igormaznitsa.j2z80.api.additional.NeedsINTArithmeticManager;
+import java.io.StringWriter;
 import org.apache.bcel.generic.IDIV;
+import org.apache.bcel.generic.InstructionHandle;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
 
 public class TestIDIV extends AbstractIntMathManagerBasedTest {
 
@@ -123,4 +130,74 @@ public class TestIDIV extends AbstractIntMathManagerBasedTest {
     assertException(asm);
   }
 
+  private String prepareForConstant(final int constant, final OperandStackCache cache) throws Exception {
+    final StringWriter writer = new StringWriter();
+    assertTrue(AbstractJvmCommandProcessor.findProcessor(IDIV.class).processWithConstantOperand(CLASS_PROCESSOR_MOCK,
+        new IDIV(), mock(InstructionHandle.class), constant, cache, writer));
+    return writer.toString();
+  }
+
+  @Test(timeout = 5000L)
+  public void testConstantDivisor() throws Exception {
+    final int[] constants = new int[] {1, -1, 2, -2, 8, 128, 256, -512, 4096, 16384, -32768, 3, -10, 1000, 32767};
+    final int[] values = new int[] {0, 1, -1, 7, -7, 1234, -1234, 32767, -32767, -32768};
+    for (final int constant : constants) {
+      final String asm = prepareForConstant(constant, null);
+      for (final int value : values) {
+        push(value);
+
+        assertLinearExecutionToEnd(asm);
+        assertEquals(value + " / " + constant, (short) (value / constant), (short) pop());
+        assertStackEmpty();
+      }
+    }
+  }
+
+  @Test(timeout = 3000L)
+  public void testConstantDivisorWithCachedOperands() throws Exception {
+    for (final int constant : new int[] {16, -300}) {
+      final OperandStackCache cache = new OperandStackCache();
+      push(-55);
+      push(-1234);
+
+      assertLinearExecutionToEnd(cache.load(2) + prepareForConstant(constant, cache));
+      assertEquals(2, cache.getSize());
+      assertEquals((short) (-1234 / constant), (short) HL());
+      assertEquals(-55, (short) DE());
+      assertStackEmpty();
+    }
+  }
+
+  @Test
+  public void testZeroConstantDivisorIsNotProcessed() throws Exception {
+    final StringWriter writer = new StringWriter();
+    assertFalse(AbstractJvmCommandProcessor.findProcessor(IDIV.class).processWithConstantOperand(CLASS_PROCESSOR_MOCK,
+        new IDIV(), mock(InstructionHandle.class), 0, null, writer));
+    assertEquals("", writer.toString());
+  }
+
+  @Test
+  public void testPowerOfTwoDivisorIsInlined() {
+    assertFalse(AbstractIntDivisionProcessor.generateConstantDivision(-1024, false).contains("CALL"));
+    assertFalse(AbstractIntDivisionProcessor.generateConstantDivision(64, true).contains("CALL"));
+    assertNull(AbstractIntDivisionProcessor.generateConstantDivision(10, false));
+  }
+
+  @Test(timeout = 3000L)
+  public void testQuotientAndRemainderAreMadeByOneDivision() throws Exception {
+    final String divrem = "LD BC,-1234\nLD DE,100\nCALL " + NeedsINTArithmeticManager.SUB_INT_DIVREM + "\n";
+
+    assertLinearExecutionToEnd(divrem);
+    assertEquals(-12, (short) BC());
+    assertEquals(-34, (short) HL());
+
+    // the same operands take the result of the previous division
+    assertLinearExecutionToEnd(divrem + "LD HL,777\nLD (___INT_MATH_DIVREM_QUOTIENT),HL\n" + divrem);
+    assertEquals(777, BC());
+    assertEquals(-34, (short) HL());
+
+    assertLinearExecutionToEnd(divrem + "LD BC,1234\nCALL " + NeedsINTArithmeticManager.SUB_INT_DIVREM + "\n");
+    assertEquals(12, BC());
+    assertEquals(34, HL());
+  }
 }
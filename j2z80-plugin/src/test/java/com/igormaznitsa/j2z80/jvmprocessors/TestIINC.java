@@ -18,6 +18,8 @@ package com.igormaznitsa.j2z80.jvmprocessors;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.mock;
 
+import com.igormaznitsa.j2z80.ids.ClassMethodInfo;
+import com.igormaznitsa.j2z80.utils.LabelAndFrameUtils;
 import java.io.IOException;
 import java.io.StringWriter;
 import org.apache.bcel.generic.IINC;
@@ -46,4 +48,26 @@ public class TestIINC extends AbstractJvmCommandProcessorTest {
     assertEquals(VALUE + INC_VALUE, (short) peekw(IX_ADDRESS - (INDEX << 1)));
     assertEquals(INIT_SP, SP);
   }
+
+  @Test
+  public void testExecutionForStaticCell() throws IOException {
+    final AbstractJvmCommandProcessor processor = AbstractJvmCommandProcessor.findProcessor(IINC.class);
+    final StringWriter writer = new StringWriter();
+    final int INDEX = 1;
+    final int VALUE = 10823;
+    final int INC_VALUE = -22;
+
+    final ClassMethodInfo method = registerMethodWithStaticCells();
+    final String cell = LabelAndFrameUtils.makeLabelForLocalVariableCell(method, INDEX);
+
+    processor.process(CLASS_PROCESSOR_MOCK, new IINC(INDEX, INC_VALUE),
+        mock(InstructionHandle.class), this.getClass().getClassLoader(),
+        writer);
+    writer.write("JP " + END_LABEL + "\n");
+    writer.write(cell + ": DEFW " + VALUE + "\n");
+    final int cellAddress = assertLinearExecutionToEnd(writer.toString()).findLabelAddress(cell);
+
+    assertEquals(VALUE + INC_VALUE, (short) peekw(cellAddress));
+    assertEquals(INIT_SP, SP);
+  }
 }
@@ -18,6 +18,8 @@ package com.igormaznitsa.j2z80.jvmprocessors;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.mock;
 
+import com.igormaznitsa.j2z80.ids.ClassMethodInfo;
+import com.igormaznitsa.j2z80.utils.LabelAndFrameUtils;
 import java.io.IOException;
 import java.io.StringWriter;
 import org.apache.bcel.generic.ILOAD;
@@ -47,4 +49,24 @@ public class TestILOAD extends AbstractJvmCommandProcessorTest {
     assertEquals(VALUE, pop());
     assertStackEmpty();
   }
+
+  @Test
+  public void testExecutionForStaticCell() throws IOException {
+    final AbstractJvmCommandProcessor processor = AbstractJvmCommandProcessor.findProcessor(ILOAD.class);
+    final StringWriter writer = new StringWriter();
+    final int VALUE = 0xCAFE;
+    final int VAR_INDEX = 1;
+
+    final ClassMethodInfo method = registerMethodWithStaticCells();
+
+    processor.process(CLASS_PROCESSOR_MOCK, new ILOAD(VAR_INDEX), mock(InstructionHandle.class),
+        this.getClass().getClassLoader(),
+        writer);
+    writer.write("JP " + END_LABEL + "\n");
+    writer.write(LabelAndFrameUtils.makeLabelForLocalVariableCell(method, VAR_INDEX) + ": DEFW " + VALUE + "\n");
+    assertLinearExecutionToEnd(writer.toString());
+
+    assertEquals(VALUE, pop());
+    assertStackEmpty();
+  }
 }
@@ -15,10 +15,16 @@
  */
 package com.igormaznitsa.j2z80.jvmprocessors;
 
+import java.io.StringWriter;
 import org.apache.bcel.generic.IMUL;
+import org.apache.bcel.generic.InstructionHandle;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
 
 public class TestIMUL extends AbstractIntMathManagerBasedTest {
 
@@ -162,4 +168,64 @@ public class TestIMUL extends AbstractIntMathManagerBasedTest {
     assertEquals((short) (FIRST * SECOND), (short) pop());
     assertStackEmpty();
   }
+
+  @Test(timeout = 3000L)
+  public void testEightBitOperand() throws Exception {
+    final int[][] pairs = new int[][] {{12345, 7}, {7, 12345}, {-12345, 200}, {255, -300}, {3, 0}};
+    for (final int[] pair : pairs) {
+      push(pair[0]);
+      push(pair[1]);
+
+      assertLinearExecutionToEnd(prepareForTest(new IMUL()));
+      assertEquals((short) (pair[0] * pair[1]), (short) pop());
+      assertStackEmpty();
+    }
+  }
+
+  private String prepareForConstant(final int constant, final OperandStackCache cache) throws Exception {
+    final StringWriter writer = new StringWriter();
+    AbstractJvmCommandProcessor.findProcessor(IMUL.class).processWithConstantOperand(CLASS_PROCESSOR_MOCK,
+        new IMUL(), mock(InstructionHandle.class), constant, cache, writer);
+    return writer.toString();
+  }
+
+  @Test(timeout = 3000L)
+  public void testConstantMultiplier() throws Exception {
+    final int[] constants = new int[] {0, 1, -1, 2, 3, 5, 10, 256, 320, -7, 1000, -32768, 0x7FFF, -12345};
+    final int[] values = new int[] {0, 1, -1, 37, -1234, 32767};
+    for (final int constant : constants) {
+      final String asm = prepareForConstant(constant, null);
+      for (final int value : values) {
+        push(value);
+
+        assertLinearExecutionToEnd(asm);
+        assertEquals(constant + " * " + value, (short) (value * constant), (short) pop());
+        assertStackEmpty();
+      }
+    }
+  }
+
+  @Test
+  public void testConstantMultiplierIsInlined() {
+    assertEquals("ADD HL,HL\nADD HL,HL\n", Processor_IMUL.generateConstantMultiplication(4).replace("\r", ""));
+    assertNotNull(Processor_IMUL.generateConstantMultiplication(320));
+    assertNotNull(Processor_IMUL.generateConstantMultiplication(-10));
+    assertFalse(Processor_IMUL.generateConstantMultiplication(1000).contains("CALL"));
+    assertNull(Processor_IMUL.generateConstantMultiplication(0x7FFF));
+  }
+
+  @Test(timeout = 3000L)
+  public void testConstantMultiplierWithCachedOperands() throws Exception {
+    for (final int constant : new int[] {320, 0x7FFF}) {
+      final OperandStackCache cache = new OperandStackCache();
+      push(-55);
+      push(1234);
+
+      assertLinearExecutionToEnd(cache.load(2) + prepareForConstant(constant, cache));
+      assertEquals(2, cache.getSize());
+      assertEquals((short) (1234 * constant), (short) HL());
+      assertEquals(-55, (short) DE());
+      assertStackEmpty();
+    }
+  }
 }
@@ -16,6 +16,7 @@
 package com.igormaznitsa.j2z80.jvmprocessors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -26,10 +27,13 @@ import com.igormaznitsa.j2z80.translator.InstanceofTable;
 import com.igormaznitsa.j2z80.utils.LabelAndFrameUtils;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import org.apache.bcel.Const;
 import org.apache.bcel.classfile.ConstantClass;
 import org.apache.bcel.classfile.ConstantUtf8;
+import org.apache.bcel.generic.ClassGen;
 import org.apache.bcel.generic.INSTANCEOF;
 import org.apache.bcel.generic.InstructionHandle;
 import org.junit.Before;
@@ -37,22 +41,22 @@ import org.junit.Test;
 
 public class TestINSTANCEOF extends AbstractTestBasedOnMemoryManager implements NeedsInstanceofManager {
   private static final String TEST_CLASS_NAME1 = "test.instanceof.class1";
-  private static final Integer TEST_CLASS_NAME1_ID = Integer.valueOf(0x101);
+  private static final Integer TEST_CLASS_NAME1_ID = Integer.valueOf(0);
 
   private static final String TEST_CLASS_NAME2 = "test.instanceof.class2";
-  private static final Integer TEST_CLASS_NAME2_ID = Integer.valueOf(0x102);
+  private static final Integer TEST_CLASS_NAME2_ID = Integer.valueOf(1);
 
   private static final String TEST_CLASS_NAME3 = "test.instanceof.class3";
-  private static final Integer TEST_CLASS_NAME3_ID = Integer.valueOf(0x103);
+  private static final Integer TEST_CLASS_NAME3_ID = Integer.valueOf(2);
 
   private static final String TEST_CLASS_NAME4 = "test.instanceof.class4";
-  private static final Integer TEST_CLASS_NAME4_ID = Integer.valueOf(0x104);
+  private static final Integer TEST_CLASS_NAME4_ID = Integer.valueOf(3);
 
   private static final String TEST_CLASS_NAME5 = "test.instanceof.class5";
-  private static final Integer TEST_CLASS_NAME5_ID = Integer.valueOf(0x105);
+  private static final Integer TEST_CLASS_NAME5_ID = Integer.valueOf(4);
 
   private static final String TEST_CLASS_NAME6 = "test.instanceof.class6";
-  private static final Integer TEST_CLASS_NAME6_ID = Integer.valueOf(0x106);
+  private static final Integer TEST_CLASS_NAME6_ID = Integer.valueOf(5);
 
   private static final int CLASS_NAME_INDEX = CONSTANT_USER_DEFINED + 1;
   private static final int CLASS_INDEX = CONSTANT_USER_DEFINED + 2;
@@ -96,42 +100,43 @@ public class TestINSTANCEOF extends AbstractTestBasedOnMemoryManager implements
   private void prepareTabe(final TestingState state) {
     final StringBuilder bldr = new StringBuilder();
 
-    final InstanceofTable table = new InstanceofTable(TRANSLATOR_MOCK, new HashSet<ClassID>());
+    final ClassID cid1 = new ClassID(TEST_CLASS_NAME1);
+    final boolean checkInterface = state == TestingState.IMPLEMENTS || state == TestingState.NOT_IMPLEMENTS;
+    final ClassGen checkedClass = new ClassGen(TEST_CLASS_NAME1, "java.lang.Object", "Test.java",
+        checkInterface ? Const.ACC_PUBLIC | Const.ACC_INTERFACE | Const.ACC_ABSTRACT : Const.ACC_PUBLIC, new String[0]);
+    when(CLASSCONTEXT_MOCK.findClassForID(eq(cid1))).thenReturn(checkedClass);
+    when(CLASSCONTEXT_MOCK.getAllClasses()).thenReturn(Arrays.asList(cid1, new ClassID(TEST_CLASS_NAME2),
+        new ClassID(TEST_CLASS_NAME3), new ClassID(TEST_CLASS_NAME4), new ClassID(TEST_CLASS_NAME5),
+        new ClassID(TEST_CLASS_NAME6)));
 
     switch (state) {
       case SUCESSOR: {
-        final InstanceofTable.RowInstance r1 = table.addRow(new ClassID(TEST_CLASS_NAME4));
-        r1.addClass(new ClassID(TEST_CLASS_NAME5));
-        r1.addClass(new ClassID(TEST_CLASS_NAME6));
-
-        final InstanceofTable.RowInstance r = table.addRow(new ClassID(TEST_CLASS_NAME1));
-        r.addClass(new ClassID(TEST_CLASS_NAME2));
-        r.addClass(new ClassID(TEST_CLASS_NAME3));
+        when(CLASSCONTEXT_MOCK.findAllClassSuccessors(TEST_CLASS_NAME1)).thenReturn(Arrays.asList(TEST_CLASS_NAME2, TEST_CLASS_NAME3));
       }
       break;
       case NOT_SUCCESSOR: {
-        final InstanceofTable.RowInstance r1 = table.addRow(new ClassID(TEST_CLASS_NAME4));
-        r1.addClass(new ClassID(TEST_CLASS_NAME5));
-        r1.addClass(new ClassID(TEST_CLASS_NAME6));
-        r1.addClass(new ClassID(TEST_CLASS_NAME3));
-
-        final InstanceofTable.RowInstance r = table.addRow(new ClassID(TEST_CLASS_NAME1));
-        r.addClass(new ClassID(TEST_CLASS_NAME2));
+        when(CLASSCONTEXT_MOCK.findAllClassSuccessors(TEST_CLASS_NAME1)).thenReturn(Arrays.asList(TEST_CLASS_NAME2));
       }
       break;
       case NOT_IN_LIST: {
-        final InstanceofTable.RowInstance r1 = table.addRow(new ClassID(TEST_CLASS_NAME4));
-        r1.addClass(new ClassID(TEST_CLASS_NAME5));
-        r1.addClass(new ClassID(TEST_CLASS_NAME6));
-
-        final InstanceofTable.RowInstance r = table.addRow(new ClassID(TEST_CLASS_NAME1));
-        r.addClass(new ClassID(TEST_CLASS_NAME2));
+        when(CLASSCONTEXT_MOCK.findAllClassSuccessors(TEST_CLASS_NAME1)).thenReturn(Collections.emptyList());
+      }
+      break;
+      case IMPLEMENTS: {
+        when(CLASSCONTEXT_MOCK.findAllClassesImplementInterface(TEST_CLASS_NAME1))
+            .thenReturn(new HashSet<>(Arrays.asList(new ClassID(TEST_CLASS_NAME3), new ClassID(TEST_CLASS_NAME5))));
+      }
+      break;
+      case NOT_IMPLEMENTS: {
+        when(CLASSCONTEXT_MOCK.findAllClassesImplementInterface(TEST_CLASS_NAME1))
+            .thenReturn(new HashSet<>(Arrays.asList(new ClassID(TEST_CLASS_NAME2), new ClassID(TEST_CLASS_NAME4))));
       }
       break;
       default:
         throw new IllegalArgumentException("Unsupported state");
     }
 
+    final InstanceofTable table = new InstanceofTable(TRANSLATOR_MOCK, Collections.singleton(cid1));
 
     // add class ids
     bldr.append(LabelAndFrameUtils.makeLabelForClassID(new ClassID(TEST_CLASS_NAME1))).append(": EQU ").append(TEST_CLASS_NAME1_ID.intValue()).append('\n');
@@ -194,6 +199,39 @@ public class TestINSTANCEOF extends AbstractTestBasedOnMemoryManager implements
     assertEquals("Must be false because the class is not at list at all", 0, stacktop);
   }
 
+  @Test(timeout = 3000L)
+  public void testClassImplementsInterface() throws IOException {
+    prepareTabe(TestingState.IMPLEMENTS);
+
+    final AbstractJvmCommandProcessor processor = AbstractJvmCommandProcessor.findProcessor(INSTANCEOF.class);
+    final StringWriter writer = new StringWriter();
+
+    processor.process(CLASS_PROCESSOR_MOCK, new INSTANCEOF(CLASS_INDEX),
+        mock(InstructionHandle.class), this.getClass().getClassLoader(),
+        writer);
+    assertTrue(writer.toString().contains(SUB_INSTANCEOF_INTERFACE));
+    assertLinearExecutionToEnd(writer.toString(), (CLASS_FIELD_NUMBER << 1) + 4);
+    final int stacktop = pop();
+    assertStackEmpty();
+    assertEquals("The class implements the interface", 1, stacktop);
+  }
+
+  @Test(timeout = 3000L)
+  public void testClassDoesNotImplementInterface() throws IOException {
+    prepareTabe(TestingState.NOT_IMPLEMENTS);
+
+    final AbstractJvmCommandProcessor processor = AbstractJvmCommandProcessor.findProcessor(INSTANCEOF.class);
+    final StringWriter writer = new StringWriter();
+
+    processor.process(CLASS_PROCESSOR_MOCK, new INSTANCEOF(CLASS_INDEX),
+        mock(InstructionHandle.class), this.getClass().getClassLoader(),
+        writer);
+    assertLinearExecutionToEnd(writer.toString(), (CLASS_FIELD_NUMBER << 1) + 4);
+    final int stacktop = pop();
+    assertStackEmpty();
+    assertEquals("The class doesn't implement the interface", 0, stacktop);
+  }
+
   @Override
   public String getAsmPrefix() {
     return "LD BC, " + CLASS_FIELD_NUMBER + "\n"
@@ -210,7 +248,9 @@ public class TestINSTANCEOF extends AbstractTestBasedOnMemoryManager implements
   private enum TestingState {
     SUCESSOR,
     NOT_SUCCESSOR,
-    NOT_IN_LIST
+    NOT_IN_LIST,
+    IMPLEMENTS,
+    NOT_IMPLEMENTS
   }
 
 }
@@ -24,13 +24,13 @@ import com.igormaznitsa.j2z80.api.additional.NeedsATHROWManager;
 import com.igormaznitsa.j2z80.api.additional.NeedsINVOKEINTERFACEManager;
 import com.igormaznitsa.j2z80.ids.ClassID;
 import com.igormaznitsa.j2z80.ids.MethodID;
+import com.igormaznitsa.j2z80.translator.InvokeinterfaceTable;
 import com.igormaznitsa.j2z80.utils.LabelAndFrameUtils;
 import com.igormaznitsa.j2z80.utils.MutableObjectContainer;
 import com.igormaznitsa.j2z80.utils.Utils;
 import com.igormaznitsa.z80asm.Z80Asm;
 import java.io.IOException;
 import java.io.StringWriter;
-import java.util.Locale;
 import javassist.bytecode.AccessFlag;
 import org.apache.bcel.generic.INVOKEINTERFACE;
 import org.apache.bcel.generic.InstructionHandle;
@@ -58,7 +58,8 @@ public class TestINVOKEINTERFACE extends AbstractInvokeTest implements NeedsINVO
   private static final String TEST_333_LABEL = "TEST_333_LABEL";
   private static final int TEST_LOCALS_NUMBER = 28;
   private static final int FAKE_OBJECT_ADDRESS = 0xAFA0;
-  private static final int FAKE_OBJECT_CLASS_ID = 0x1122;
+  private static final int FAKE_OBJECT_CLASS_ID = 3;
+  private static final int TEST_SELECTOR = 2;
   protected static String invokeInterfaceManager;
   protected static String athrowManager;
 
@@ -77,7 +78,7 @@ public class TestINVOKEINTERFACE extends AbstractInvokeTest implements NeedsINVO
 
   private final MutableObjectContainer<MethodID> MOCK_METHOD_ID = new MutableObjectContainer<MethodID>();
   private final MutableObjectContainer<ClassID> MOCK_CLASS_ID = new MutableObjectContainer<ClassID>();
-  protected String invokeinterfaceTable = "DEFB 0";
+  protected String invokeinterfaceTable = InvokeinterfaceTable.CLASS_TABLE_LABEL + ": DEFW 0";
   protected String asmPrefix = "";
 
   private void prepareFakeObjectInMemory() {
@@ -98,30 +99,30 @@ public class TestINVOKEINTERFACE extends AbstractInvokeTest implements NeedsINVO
     return interfaceMethodID;
   }
 
-  protected String generateInvokeInterfaceTable(final String interfaceMethodId, final long packedClassIDFrameSize, final String methodAddress) {
+  protected String generateInvokeInterfaceTable(final int records, final long packedClassIDFrameSize, final String methodAddress) {
+    return generateInvokeInterfaceTable(records, packedClassIDFrameSize, methodAddress, MOCK_INTERFACE_METHOD_ID);
+  }
+
+  protected String generateInvokeInterfaceTable(final int records, final long packedClassIDFrameSize, final String methodAddress, final int interfaceMethodId) {
+    final int classId = (int) (packedClassIDFrameSize >>> 32);
     final StringBuilder result = new StringBuilder();
-    final int RECORDS = 8;
 
-    result.append("DEFB ").append(RECORDS + 1).append('\n');
+    result.append(InvokeinterfaceTable.CLASS_TABLE_LABEL).append(":\n");
+    for (int i = 0; i <= Math.max(classId, FAKE_OBJECT_CLASS_ID); i++) {
+      result.append("DEFW ").append(i == classId ? "TEST_ITABLE" : i == 1 ? "OTHER_ITABLE" : "0").append('\n');
+    }
 
-    for (int i = 0; i < RECORDS; i++) {
-      result.append("DEFW ").append(i).append('\n');
-      final int SUCCESSORS = 4;
-      result.append("DEFB ").append(SUCCESSORS).append('\n');
+    result.append("OTHER_ITABLE: DEFW ").append(2 * InvokeinterfaceTable.RECORD_SIZE).append('\n');
+    result.append("DEFW 1,12,1\nDEFW 2,12,2\n");
 
-      for (int l = 0; l < SUCCESSORS; l++) {
-        result.append("DEFW ").append(i).append(',').append(l).append(',').append(12).append('\n');
+    result.append("TEST_ITABLE: DEFW ").append(records * InvokeinterfaceTable.RECORD_SIZE).append('\n');
+    for (int i = 0; i < records; i++) {
+      if (i == TEST_SELECTOR) {
+        result.append("DEFW ").append(methodAddress).append(',').append(packedClassIDFrameSize & 0xFFFFL).append(',').append(interfaceMethodId).append('\n');
+      } else {
+        result.append("DEFW ").append(i + 10).append(",12,").append(i + 100).append('\n');
       }
     }
-    // save with the class in successors
-    result.append("DEFW ").append(interfaceMethodId).append('\n');
-    final int SUCCESSORS = 6;
-    result.append("DEFB ").append(SUCCESSORS).append('\n');
-    int i = 11;
-    for (int l = 0; l < SUCCESSORS - 1; l++) {
-      result.append("DEFW ").append(i++).append(',').append(l).append(',').append(12).append('\n');
-    }
-    result.append("DEFW #").append(Long.toHexString(packedClassIDFrameSize >>> 32).toUpperCase(Locale.ENGLISH)).append(',').append(methodAddress).append(',').append(packedClassIDFrameSize & 0xFFFFL).append('\n');
 
     return result.toString();
   }
@@ -147,11 +148,9 @@ public class TestINVOKEINTERFACE extends AbstractInvokeTest implements NeedsINVO
     final Type RESULT_TYPE = Type.VOID;
     final int LOCALS = 0;
 
-    final String LABEL_METHOD_ID = LabelAndFrameUtils.makeLabelForMethodID(new MethodID(MOCK_INTERFACE_NAME, MOCK_INTERFACE_METHOD_NAME, RESULT_TYPE, ARGS_NULL));
-
     mockupOfInvokedMethod = makeSuccessorMethod(MOCK_METHOD_ID, MOCK_CLASS_ID, LOCALS, RESULT_TYPE, ARGS_NULL);
     final long packedClassFrameInfo = registerInterfaceMockMethod(LOCALS, RESULT_TYPE, ARGS_NULL);
-    invokeinterfaceTable = generateInvokeInterfaceTable(LABEL_METHOD_ID, packedClassFrameInfo, MOCK_METHOD_ID.get().getMethodLabel());
+    invokeinterfaceTable = generateInvokeInterfaceTable(TEST_SELECTOR + 2, packedClassFrameInfo, MOCK_METHOD_ID.get().getMethodLabel());
 
     final StringWriter writer = new StringWriter();
     processor.process(CLASS_PROCESSOR_MOCK, new INVOKEINTERFACE(MOCK_INTERFACE_METHOD_INDEX, 1),
@@ -179,11 +178,9 @@ public class TestINVOKEINTERFACE extends AbstractInvokeTest implements NeedsINVO
     final Type RESULT_TYPE = Type.VOID;
     final int LOCALS = TEST_LOCALS_NUMBER;
 
-    final String LABEL_METHOD_ID = LabelAndFrameUtils.makeLabelForMethodID(new MethodID(MOCK_INTERFACE_NAME, MOCK_INTERFACE_METHOD_NAME, RESULT_TYPE, ARGS_NULL));
-
     mockupOfInvokedMethod = makeSuccessorMethod(MOCK_METHOD_ID, MOCK_CLASS_ID, LOCALS, RESULT_TYPE, ARGS_NULL);
     final long packedClassFrameInfo = registerInterfaceMockMethod(LOCALS, RESULT_TYPE, ARGS_NULL);
-    invokeinterfaceTable = generateInvokeInterfaceTable(LABEL_METHOD_ID, packedClassFrameInfo, MOCK_METHOD_ID.get().getMethodLabel());
+    invokeinterfaceTable = generateInvokeInterfaceTable(TEST_SELECTOR + 2, packedClassFrameInfo, MOCK_METHOD_ID.get().getMethodLabel());
 
     final StringWriter writer = new StringWriter();
     processor.process(CLASS_PROCESSOR_MOCK, new INVOKEINTERFACE(MOCK_INTERFACE_METHOD_INDEX, 1),
@@ -204,11 +201,9 @@ public class TestINVOKEINTERFACE extends AbstractInvokeTest implements NeedsINVO
     final Type RESULT_TYPE = Type.INT;
     final int LOCALS = 0;
 
-    final String LABEL_METHOD_ID = LabelAndFrameUtils.makeLabelForMethodID(new MethodID(MOCK_INTERFACE_NAME, MOCK_INTERFACE_METHOD_NAME, RESULT_TYPE, ARGS_NULL));
-
     mockupOfInvokedMethod = makeSuccessorMethod(MOCK_METHOD_ID, MOCK_CLASS_ID, LOCALS, RESULT_TYPE, ARGS_NULL);
     final long packedClassFrameInfo = registerInterfaceMockMethod(LOCALS, RESULT_TYPE, ARGS_NULL);
-    invokeinterfaceTable = generateInvokeInterfaceTable(LABEL_METHOD_ID, packedClassFrameInfo, MOCK_METHOD_ID.get().getMethodLabel());
+    invokeinterfaceTable = generateInvokeInterfaceTable(TEST_SELECTOR + 2, packedClassFrameInfo, MOCK_METHOD_ID.get().getMethodLabel());
 
     final StringWriter writer = new StringWriter();
     processor.process(CLASS_PROCESSOR_MOCK, new INVOKEINTERFACE(MOCK_INTERFACE_METHOD_INDEX, 1),
@@ -233,11 +228,9 @@ public class TestINVOKEINTERFACE extends AbstractInvokeTest implements NeedsINVO
     final Type RESULT_TYPE = Type.INT;
     final int LOCALS = TEST_LOCALS_NUMBER;
 
-    final String LABEL_METHOD_ID = LabelAndFrameUtils.makeLabelForMethodID(new MethodID(MOCK_INTERFACE_NAME, MOCK_INTERFACE_METHOD_NAME, RESULT_TYPE, ARGS_NULL));
-
     mockupOfInvokedMethod = makeSuccessorMethod(MOCK_METHOD_ID, MOCK_CLASS_ID, LOCALS, RESULT_TYPE, ARGS_NULL);
     final long packedClassFrameInfo = registerInterfaceMockMethod(LOCALS, RESULT_TYPE, ARGS_NULL);
-    invokeinterfaceTable = generateInvokeInterfaceTable(LABEL_METHOD_ID, packedClassFrameInfo, MOCK_METHOD_ID.get().getMethodLabel());
+    invokeinterfaceTable = generateInvokeInterfaceTable(TEST_SELECTOR + 2, packedClassFrameInfo, MOCK_METHOD_ID.get().getMethodLabel());
 
     final StringWriter writer = new StringWriter();
     processor.process(CLASS_PROCESSOR_MOCK, new INVOKEINTERFACE(MOCK_INTERFACE_METHOD_INDEX, 1),
@@ -263,12 +256,10 @@ public class TestINVOKEINTERFACE extends AbstractInvokeTest implements NeedsINVO
     final int LOCALS = 0;
     final Type[] args = ARGS_FOUR_INT;
 
-    final String LABEL_METHOD_ID = LabelAndFrameUtils.makeLabelForMethodID(new MethodID(MOCK_INTERFACE_NAME, MOCK_INTERFACE_METHOD_NAME, RESULT_TYPE, args));
-
 
     mockupOfInvokedMethod = makeSuccessorMethod(MOCK_METHOD_ID, MOCK_CLASS_ID, LOCALS, RESULT_TYPE, args);
     final long packedClassFrameInfo = registerInterfaceMockMethod(LOCALS, RESULT_TYPE, args);
-    invokeinterfaceTable = generateInvokeInterfaceTable(LABEL_METHOD_ID, packedClassFrameInfo, MOCK_METHOD_ID.get().getMethodLabel());
+    invokeinterfaceTable = generateInvokeInterfaceTable(TEST_SELECTOR + 2, packedClassFrameInfo, MOCK_METHOD_ID.get().getMethodLabel());
 
     final StringWriter writer = new StringWriter();
     processor.process(CLASS_PROCESSOR_MOCK,
@@ -304,11 +295,9 @@ public class TestINVOKEINTERFACE extends AbstractInvokeTest implements NeedsINVO
     final int LOCALS = TEST_LOCALS_NUMBER;
     final Type[] args = ARGS_FOUR_INT;
 
-    final String LABEL_METHOD_ID = LabelAndFrameUtils.makeLabelForMethodID(new MethodID(MOCK_INTERFACE_NAME, MOCK_INTERFACE_METHOD_NAME, RESULT_TYPE, args));
-
     mockupOfInvokedMethod = makeSuccessorMethod(MOCK_METHOD_ID, MOCK_CLASS_ID, LOCALS, RESULT_TYPE, args);
     final long packedClassFrameInfo = registerInterfaceMockMethod(LOCALS, RESULT_TYPE, args);
-    invokeinterfaceTable = generateInvokeInterfaceTable(LABEL_METHOD_ID, packedClassFrameInfo, MOCK_METHOD_ID.get().getMethodLabel());
+    invokeinterfaceTable = generateInvokeInterfaceTable(TEST_SELECTOR + 2, packedClassFrameInfo, MOCK_METHOD_ID.get().getMethodLabel());
 
     final StringWriter writer = new StringWriter();
     processor.process(CLASS_PROCESSOR_MOCK,
@@ -344,7 +333,8 @@ public class TestINVOKEINTERFACE extends AbstractInvokeTest implements NeedsINVO
     final Type[] args = ARGS_FOUR_INT;
     mockupOfInvokedMethod = makeSuccessorMethod(MOCK_METHOD_ID, MOCK_CLASS_ID, LOCALS, RESULT_TYPE, args);
     final long packedClassFrameInfo = registerInterfaceMockMethod(LOCALS, RESULT_TYPE, args);
-    invokeinterfaceTable = generateInvokeInterfaceTable("#" + Integer.toHexString(MOCK_INTERFACE_METHOD_ID).toUpperCase(Locale.ENGLISH), packedClassFrameInfo ^ 0x0000FFFFFFFF0000L, MOCK_METHOD_ID.get().getMethodLabel());
+    // the object class id doesn't have interface table
+    invokeinterfaceTable = generateInvokeInterfaceTable(TEST_SELECTOR + 2, (packedClassFrameInfo & 0xFFFFL) | (2L << 32), MOCK_METHOD_ID.get().getMethodLabel());
 
     // make asm prefix to notify us about exception
     asmPrefix = EXCEPTION_PROCESSING_BLOCK;
@@ -383,10 +373,9 @@ public class TestINVOKEINTERFACE extends AbstractInvokeTest implements NeedsINVO
     final Type[] args = ARGS_FOUR_INT;
     mockupOfInvokedMethod = makeSuccessorMethod(MOCK_METHOD_ID, MOCK_CLASS_ID, LOCALS, RESULT_TYPE, args);
 
-    final String NOTINTABLE_INTERFACE_ID = "#1010";
-
     final long packedClassFrameInfo = registerInterfaceMockMethod(LOCALS, RESULT_TYPE, args);
-    invokeinterfaceTable = generateInvokeInterfaceTable(NOTINTABLE_INTERFACE_ID, packedClassFrameInfo, MOCK_METHOD_ID.get().getMethodLabel());
+    // the selector is out of the class interface table
+    invokeinterfaceTable = generateInvokeInterfaceTable(TEST_SELECTOR, packedClassFrameInfo, MOCK_METHOD_ID.get().getMethodLabel());
 
     // make asm prefix to notify us about exception
     asmPrefix = EXCEPTION_PROCESSING_BLOCK;
@@ -418,16 +407,53 @@ public class TestINVOKEINTERFACE extends AbstractInvokeTest implements NeedsINVO
     assertElementsOnStack(6);
   }
 
+  @Test(timeout = 3000L)
+  public void testExceptionBecauseRecordBelongsToAnotherInterface() throws Exception {
+    final Type RESULT_TYPE = Type.INT;
+    final int LOCALS = 0;
+    final Type[] args = ARGS_FOUR_INT;
+    mockupOfInvokedMethod = makeSuccessorMethod(MOCK_METHOD_ID, MOCK_CLASS_ID, LOCALS, RESULT_TYPE, args);
+
+    final long packedClassFrameInfo = registerInterfaceMockMethod(LOCALS, RESULT_TYPE, args);
+    // the class doesn't implement the interface but has a record of another interface method with the same selector
+    invokeinterfaceTable = generateInvokeInterfaceTable(TEST_SELECTOR + 2, packedClassFrameInfo, MOCK_METHOD_ID.get().getMethodLabel(), MOCK_INTERFACE_METHOD_ID + 1);
+
+    // make asm prefix to notify us about exception
+    asmPrefix = EXCEPTION_PROCESSING_BLOCK;
+
+    final StringWriter writer = new StringWriter();
+    processor.process(CLASS_PROCESSOR_MOCK,
+        new INVOKEINTERFACE(MOCK_INTERFACE_METHOD_INDEX, args.length + 1),
+        mock(InstructionHandle.class), this.getClass().getClassLoader(),
+        writer);
+    makePostfixWithBreakPoint(TEST_EXPRESSION_4_LABEL, MOCK_CLASS_NAME, TEST_METHOD, args, RESULT_TYPE, writer);
+
+    push(FAKE_OBJECT_ADDRESS);
+    push(0xCAFE);
+    push(0xBABE);
+    push(0xC0FF);
+    push(0x1234);
+
+    registerBreakPoint(TEST_EXPRESSION_4_LABEL);
+    IX(INITIAL_IX);
+    assertLinearExecutionToEnd(writer.toString());
+
+    assertEquals("Exception must be thrown", EXCEPTION_FLAG, pop());
+    assertEquals("Method must not be called", 0, peekb(FLAG_ADDRESS));
+
+    assertElementsOnStack(6);
+  }
+
   private int testExpression(final int a, final int b, final int c, final int d) {
     return a + b - c * d;
   }
 
   private String makePostfixWithBreakPoint(final String breakPoint, final String className, final String methodName, final Type[] args, final Type result, final StringWriter out) throws Exception {
     final String processingLabel = LabelAndFrameUtils.makeLabelNameForMethod(className, methodName, result, args);
-    final String interfaceIdLabel = LabelAndFrameUtils.makeLabelForMethodID(new MethodID(MOCK_INTERFACE_NAME, MOCK_INTERFACE_METHOD_NAME, result, args));
+    final String selectorLabel = LabelAndFrameUtils.makeLabelForInterfaceMethodSelector(new MethodID(MOCK_INTERFACE_NAME, MOCK_INTERFACE_METHOD_NAME, result, args));
 
     out.write("JP " + END_LABEL + "\n");
-    out.write(interfaceIdLabel + ": EQU " + MOCK_INTERFACE_METHOD_ID + "\n");
+    out.write(selectorLabel + ": EQU " + TEST_SELECTOR * InvokeinterfaceTable.RECORD_SIZE + "\n");
     out.write(processingLabel + ":\n");
     if (breakPoint == null) {
       out.write("LD A," + FLAG_METHOD_CALLED + "\n LD (" + FLAG_ADDRESS + "),A\n JP " + END_LABEL + "\n");
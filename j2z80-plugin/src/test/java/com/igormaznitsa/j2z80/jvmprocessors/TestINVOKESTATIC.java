@@ -16,12 +16,28 @@
 package com.igormaznitsa.j2z80.jvmprocessors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
+import com.igormaznitsa.j2z80.ids.ClassMethodInfo;
+import com.igormaznitsa.j2z80.ids.ClassMethodInfo.CallingConvention;
+import com.igormaznitsa.j2z80.ids.MethodID;
+import com.igormaznitsa.j2z80.utils.LabelAndFrameUtils;
+import com.igormaznitsa.z80asm.Z80Asm;
 import java.io.StringWriter;
 import javassist.bytecode.AccessFlag;
+import org.apache.bcel.Const;
+import org.apache.bcel.classfile.Method;
+import org.apache.bcel.generic.ConstantPoolGen;
 import org.apache.bcel.generic.INVOKESTATIC;
+import org.apache.bcel.generic.InstructionConst;
 import org.apache.bcel.generic.InstructionHandle;
+import org.apache.bcel.generic.InstructionList;
+import org.apache.bcel.generic.MethodGen;
 import org.apache.bcel.generic.Type;
 import org.junit.Test;
 
@@ -29,6 +45,7 @@ public class TestINVOKESTATIC extends AbstractInvokeTest {
 
   private static final String TEST_EXPRESSION_4_LABEL = "TEST_EXPRESSION_4";
   private static final String TEST_333_LABEL = "TEST_333_LABEL";
+  private static final String TEST_REGISTERS_LABEL = "TEST_REGISTERS";
   private static final int TEST_LOCALS_NUMBER = 28;
 
   private final INVOKESTATIC INSTRUCTION_INSTANCE = new INVOKESTATIC(CONSTANT_MOCK_METHOD);
@@ -185,6 +202,149 @@ public class TestINVOKESTATIC extends AbstractInvokeTest {
     assertStackEmpty();
   }
 
+  @Test(timeout = 3000L)
+  public void testExecutionWithArgumentsInRegisters() throws Exception {
+    final Type RESULT_TYPE = Type.INT;
+
+    mockupOfInvokedMethod = registerMockMethod(CONSTANT_MOCK_METHOD, TEST_INVOKED_CLASS, TEST_INVOKED_METHOD, AccessFlag.STATIC, 2, new Type[] {Type.INT, Type.INT}, RESULT_TYPE);
+    final ClassMethodInfo invokedMethodInfo = new ClassMethodInfo(CLASS_GEN_MOCK, null, mockupOfInvokedMethod);
+    invokedMethodInfo.setCallingConvention(CallingConvention.REGISTERS);
+    when(METHODCONTEXT_MOCK.findMethodInfo(eq(new MethodID(mockupOfInvokedMethod)))).thenReturn(invokedMethodInfo);
+
+    final StringWriter writer = new StringWriter();
+    processor.process(CLASS_PROCESSOR_MOCK, INSTRUCTION_INSTANCE, mock(InstructionHandle.class),
+        this.getClass().getClassLoader(),
+        writer);
+    makePostfixWithBreakPoint(TEST_REGISTERS_LABEL, writer);
+
+    push(0x1234);
+    push(0x0FF0);
+
+    registerBreakPoint(TEST_REGISTERS_LABEL);
+    IX(INITIAL_IX);
+    assertLinearExecutionToEnd(writer.toString());
+    assertEquals(FLAG_METHOD_CALLED, peekb(FLAG_ADDRESS));
+    assertEquals(INITIAL_IX, IX);
+    assertEquals(0x1234 - 0x0FF0, pop());
+    assertStackEmpty();
+  }
+
+  @Test(timeout = 3000L)
+  public void testArgumentsAreStoredIntoStaticCells() throws Exception {
+    final ClassMethodInfo invokedMethodInfo = registerMethodWithStaticCells();
+    invokedMethodInfo.setCallingConvention(CallingConvention.STATIC_FRAME);
+    final String cell0 = LabelAndFrameUtils.makeLabelForLocalVariableCell(invokedMethodInfo, 0);
+    final String cell1 = LabelAndFrameUtils.makeLabelForLocalVariableCell(invokedMethodInfo, 1);
+
+    final StringWriter writer = new StringWriter();
+    writer.write(AbstractInvokeProcessor.generateStaticFrameArgumentsPrefix(invokedMethodInfo));
+    writer.write("JP " + END_LABEL + "\n");
+    writer.write(cell0 + ": DEFW 0\n");
+    writer.write(cell1 + ": DEFW 0\n");
+
+    push(0x1234);
+    push(0x0FF0);
+
+    final Z80Asm asm = assertLinearExecutionToEnd(writer.toString());
+    assertEquals(0x1234, peekw(asm.findLabelAddress(cell0)));
+    assertEquals(0x0FF0, peekw(asm.findLabelAddress(cell1)));
+    assertStackEmpty();
+  }
+
+  @Test(timeout = 3000L)
+  public void testTailCallReusesFrameOfCaller() throws Exception {
+    final Type RESULT_TYPE = Type.INT;
+    final int FRAME_IX = 0xC000;
+
+    mockupOfInvokedMethod = registerMockMethod(CONSTANT_MOCK_METHOD, TEST_INVOKED_CLASS, TEST_INVOKED_METHOD, AccessFlag.STATIC, 4, ARGS_FOUR_INT, RESULT_TYPE);
+    final MethodGen caller = makeMethodGen(Const.ACC_STATIC, TEST_LOCALS_NUMBER, ARGS_NULL, true);
+    when(CLASS_PROCESSOR_MOCK.getMethod()).thenReturn(new ClassMethodInfo(CLASS_GEN_MOCK, caller.getMethod(), caller));
+    when(CLASS_PROCESSOR_MOCK.isTailCall(any(InstructionHandle.class))).thenReturn(true);
+
+    final StringWriter writer = new StringWriter();
+    // the caller of the current method
+    writer.write("CALL TAIL_CALLER\nPUSH BC\nJP " + END_LABEL + "\n");
+    writer.write("TAIL_CALLER:\n");
+    for (final int arg : new int[] {0xCAFE, 0xBABE, 0xC0FF, 0x1234}) {
+      writer.write("LD HL," + arg + "\nPUSH HL\n");
+    }
+    processor.process(CLASS_PROCESSOR_MOCK, INSTRUCTION_INSTANCE, mock(InstructionHandle.class),
+        this.getClass().getClassLoader(),
+        writer);
+    assertFalse(writer.toString().contains("CALL " + AbstractInvokeProcessor.SUB_BEFORE_INVOKE));
+    makePostfixWithBreakPoint(TEST_EXPRESSION_4_LABEL, writer);
+
+    registerBreakPoint(TEST_EXPRESSION_4_LABEL);
+    IX(FRAME_IX);
+    assertLinearExecutionToEnd(writer.toString());
+    assertEquals(FLAG_METHOD_CALLED, peekb(FLAG_ADDRESS));
+    assertEquals(FRAME_IX, IX);
+    assertEquals((short) testExpression(0xCAFE, 0xBABE, 0xC0FF, 0x1234), (short) pop());
+    assertStackEmpty();
+  }
+
+  @Test
+  public void testTailCallIsNotMadeIfFrameOfCallerIsSmall() throws Exception {
+    mockupOfInvokedMethod = registerMockMethod(CONSTANT_MOCK_METHOD, TEST_INVOKED_CLASS, TEST_INVOKED_METHOD, AccessFlag.STATIC, 4, ARGS_FOUR_INT, Type.INT);
+    final MethodGen caller = makeMethodGen(Const.ACC_STATIC, 3, ARGS_NULL, true);
+    when(CLASS_PROCESSOR_MOCK.getMethod()).thenReturn(new ClassMethodInfo(CLASS_GEN_MOCK, caller.getMethod(), caller));
+    when(CLASS_PROCESSOR_MOCK.isTailCall(any(InstructionHandle.class))).thenReturn(true);
+
+    final StringWriter writer = new StringWriter();
+    processor.process(CLASS_PROCESSOR_MOCK, INSTRUCTION_INSTANCE, mock(InstructionHandle.class),
+        this.getClass().getClassLoader(),
+        writer);
+    assertTrue(writer.toString().contains("CALL " + AbstractInvokeProcessor.SUB_BEFORE_INVOKE));
+    assertFalse(writer.toString().contains("JP "));
+  }
+
+  @Test
+  public void testStaticFrameAllowed() {
+    final Type[] twoArgs = new Type[] {Type.INT, Type.INT};
+    assertTrue(AbstractInvokeProcessor.isStaticFrameAllowed(makeMethodGen(Const.ACC_STATIC, 2, twoArgs, true)));
+    assertTrue(AbstractInvokeProcessor.isStaticFrameAllowed(makeMethodGen(Const.ACC_STATIC, 3, ARGS_NULL, false)));
+
+    assertFalse(AbstractInvokeProcessor.isStaticFrameAllowed(makeMethodGen(Const.ACC_STATIC, 0, ARGS_NULL, false)));
+    assertFalse(AbstractInvokeProcessor.isStaticFrameAllowed(makeMethodGen(Const.ACC_STATIC, 2, new Type[] {Type.LONG}, false)));
+    assertFalse(AbstractInvokeProcessor.isStaticFrameAllowed(makeMethodGen(Const.ACC_PUBLIC, 3, twoArgs, false)));
+  }
+
+  private static MethodGen makeMethodGen(final int accessFlags, final int maxLocals, final Type[] args, final boolean withInvoke) {
+    final ConstantPoolGen constantPool = new ConstantPoolGen();
+    final InstructionList code = new InstructionList();
+    code.append(InstructionConst.ICONST_0);
+    if (withInvoke) {
+      code.append(new INVOKESTATIC(constantPool.addMethodref("test.Test", "other", "(I)I")));
+    }
+    code.append(InstructionConst.IRETURN);
+
+    final String[] argNames = new String[args.length];
+    for (int i = 0; i < args.length; i++) {
+      argNames[i] = "a" + i;
+    }
+    final MethodGen result = new MethodGen(accessFlags, Type.INT, args, argNames, "test", "test.Test", code, constantPool);
+    result.setMaxStack();
+    result.setMaxLocals(maxLocals);
+    return result;
+  }
+
+  private static Method makeMethod(final int accessFlags, final int maxLocals, final Type[] args, final boolean withInvoke) {
+    return makeMethodGen(accessFlags, maxLocals, args, withInvoke).getMethod();
+  }
+
+  @Test
+  public void testCallingConvention() {
+    final Type[] twoArgs = new Type[] {Type.INT, Type.INT};
+    assertEquals(CallingConvention.REGISTERS, AbstractInvokeProcessor.findCallingConvention(makeMethod(Const.ACC_STATIC, 2, twoArgs, false)));
+    assertEquals(CallingConvention.REGISTERS, AbstractInvokeProcessor.findCallingConvention(makeMethod(Const.ACC_STATIC, 1, new Type[] {Type.CHAR}, false)));
+
+    assertEquals(CallingConvention.FRAME, AbstractInvokeProcessor.findCallingConvention(makeMethod(Const.ACC_STATIC, 2, twoArgs, true)));
+    assertEquals(CallingConvention.FRAME, AbstractInvokeProcessor.findCallingConvention(makeMethod(Const.ACC_STATIC, 3, twoArgs, false)));
+    assertEquals(CallingConvention.FRAME, AbstractInvokeProcessor.findCallingConvention(makeMethod(Const.ACC_STATIC, 3, ARGS_FOUR_INT, false)));
+    assertEquals(CallingConvention.FRAME, AbstractInvokeProcessor.findCallingConvention(makeMethod(Const.ACC_STATIC, 0, ARGS_NULL, false)));
+    assertEquals(CallingConvention.FRAME, AbstractInvokeProcessor.findCallingConvention(makeMethod(Const.ACC_PUBLIC, 3, twoArgs, false)));
+  }
+
   private int testExpression(final int a, final int b, final int c, final int d) {
     return a + b - c * d;
   }
@@ -198,6 +358,8 @@ public class TestINVOKESTATIC extends AbstractInvokeTest {
     } else if (TEST_333_LABEL.equals(label)) {
       BC(333);
       breakpointmet = true;
+    } else if (TEST_REGISTERS_LABEL.equals(label)) {
+      BC((BC() - DE()) & 0xFFFF);
     }
 
     if (breakpointmet && mockupOfInvokedMethod.getMaxLocals() != 0) {
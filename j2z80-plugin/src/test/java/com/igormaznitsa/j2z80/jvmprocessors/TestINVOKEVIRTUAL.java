@@ -16,19 +16,29 @@
 package com.igormaznitsa.j2z80.jvmprocessors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import com.igormaznitsa.j2z80.api.additional.NeedsINVOKEVIRTUALManager;
 import com.igormaznitsa.j2z80.ids.ClassID;
+import com.igormaznitsa.j2z80.ids.MethodID;
+import com.igormaznitsa.j2z80.translator.InvokeVirtualTable;
 import com.igormaznitsa.j2z80.utils.LabelAndFrameUtils;
 import com.igormaznitsa.j2z80.utils.Utils;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.util.Collections;
 import javassist.bytecode.AccessFlag;
+import org.apache.bcel.Const;
+import org.apache.bcel.generic.ClassGen;
+import org.apache.bcel.generic.ConstantPoolGen;
 import org.apache.bcel.generic.INVOKEVIRTUAL;
 import org.apache.bcel.generic.InstructionHandle;
+import org.apache.bcel.generic.InstructionList;
+import org.apache.bcel.generic.MethodGen;
 import org.apache.bcel.generic.Type;
 import org.junit.Test;
 
@@ -39,7 +49,8 @@ public class TestINVOKEVIRTUAL extends AbstractInvokeTest implements NeedsINVOKE
   private static final int TEST_LOCALS_NUMBER = 28;
 
   private static final int FAKE_OBJECT_ADDRESS = 0xAFA0;
-  private static final int FAKE_OBJECT_CLASS_ID = 0x11CC;
+  private static final int FAKE_OBJECT_CLASS_ID = 3;
+  private static final int COUNTER_ADDRESS = 0x102;
   private static final String INVOKE_VIRTUAL_MANAGER;
 
   static {
@@ -53,6 +64,7 @@ public class TestINVOKEVIRTUAL extends AbstractInvokeTest implements NeedsINVOKE
   private final INVOKEVIRTUAL INSTRUCTION_INSTANCE = new INVOKEVIRTUAL(CONSTANT_MOCK_METHOD);
   private final AbstractJvmCommandProcessor processor = AbstractJvmCommandProcessor.findProcessor(INVOKEVIRTUAL.class);
   private String virtualTable;
+  private int breakPointCounter;
 
   private void prepareFakeObjectInMemory() {
     pokew(FAKE_OBJECT_ADDRESS - 2, FAKE_OBJECT_CLASS_ID);
@@ -62,10 +74,11 @@ public class TestINVOKEVIRTUAL extends AbstractInvokeTest implements NeedsINVOKE
     final String virtualTableRecordLabel = LabelAndFrameUtils.makeLabelForVirtualMethodRecord(mockupOfInvokedMethod.getClassName(), mockupOfInvokedMethod.getName(), mockupOfInvokedMethod.getReturnType(), mockupOfInvokedMethod.getArgumentTypes());
     final String processingLabel = LabelAndFrameUtils.makeLabelNameForMethod(mockupOfInvokedMethod.getClassName(), mockupOfInvokedMethod.getName(), mockupOfInvokedMethod.getReturnType(), mockupOfInvokedMethod.getArgumentTypes());
 
-    virtualTable = virtualTableRecordLabel + ':' + "DEFB 3\n "
-        + "DEFW " + (FAKE_OBJECT_CLASS_ID - 1) + ",0,#FFFF\n"
-        + "DEFW " + (FAKE_OBJECT_CLASS_ID - 2) + ",0,#FFFF\n"
-        + "DEFW " + FAKE_OBJECT_CLASS_ID + ',' + processingLabel + ',' + LabelAndFrameUtils.calculateFrameSizeForMethod(mockupOfInvokedMethod.getArgumentTypes().length, mockupOfInvokedMethod.getMaxLocals(), false);
+    // the object class has the second slot for the method, other classes don't have tables
+    virtualTable = InvokeVirtualTable.CLASS_TABLE_LABEL + ": DEFW 0,0,0,FAKE_VTABLE\n"
+        + "FAKE_VTABLE: DEFW 0,#FFFF\n"
+        + "DEFW " + processingLabel + ',' + LabelAndFrameUtils.calculateFrameSizeForMethod(mockupOfInvokedMethod.getArgumentTypes().length, mockupOfInvokedMethod.getMaxLocals(), false) + '\n'
+        + virtualTableRecordLabel + ": EQU " + InvokeVirtualTable.SLOT_SIZE;
 
     final ClassID mockClassID = new ClassID(mockupOfInvokedMethod.getClassName());
 
@@ -240,6 +253,96 @@ public class TestINVOKEVIRTUAL extends AbstractInvokeTest implements NeedsINVOKE
     assertStackEmpty();
   }
 
+  @Test(timeout = 3000L)
+  public void testMonomorphicCallIsDirect() throws Exception {
+    final Type RESULT_TYPE = Type.INT;
+
+    mockupOfInvokedMethod = registerMockMethod(CONSTANT_MOCK_METHOD, TEST_INVOKED_CLASS, TEST_INVOKED_METHOD, AccessFlag.PUBLIC, TEST_LOCALS_NUMBER, ARGS_FOUR_INT, RESULT_TYPE);
+    prepareVirtualTable();
+    // the class doesn't have successors so that it has the only implementation
+    when(CLASSCONTEXT_MOCK.findClassForID(eq(new ClassID(TEST_INVOKED_CLASS)))).thenReturn(
+        new ClassGen(TEST_INVOKED_CLASS, "java.lang.Object", "Test.java", Const.ACC_PUBLIC, new String[0]));
+
+    assertEquals(AbstractInvokeProcessor.class, processor.findClassOfAdditions(CLASS_PROCESSOR_MOCK, INSTRUCTION_INSTANCE));
+
+    final StringWriter writer = new StringWriter();
+    processor.process(CLASS_PROCESSOR_MOCK, INSTRUCTION_INSTANCE, mock(InstructionHandle.class),
+        this.getClass().getClassLoader(),
+        writer);
+    assertFalse(writer.toString().contains("__PREPAREINVOKEVIRTUAL"));
+    assertTrue(writer.toString().contains("CALL " + LabelAndFrameUtils.makeLabelNameForMethod(mockupOfInvokedMethod)));
+    makePostfixWithBreakPoint(TEST_EXPRESSION_4_LABEL, writer);
+
+    final int arg1 = 0x1234;
+    final int arg2 = 0x0102;
+    final int arg3 = 0x0003;
+    final int arg4 = 0x0010;
+
+    push(FAKE_OBJECT_ADDRESS);
+    push(arg1);
+    push(arg2);
+    push(arg3);
+    push(arg4);
+
+    registerBreakPoint(TEST_EXPRESSION_4_LABEL);
+    IX(INITIAL_IX);
+    assertLinearExecutionToEnd(writer.toString());
+    assertEquals(FLAG_METHOD_CALLED, peekb(FLAG_ADDRESS));
+    assertEquals(INITIAL_IX, IX);
+    assertEquals((short) testExpression(arg1, arg2, arg3, arg4), (short) pop());
+    assertStackEmpty();
+  }
+
+  @Test(timeout = 3000L)
+  public void testSecondCallUsesInlineCache() throws Exception {
+    final Type RESULT_TYPE = Type.INT;
+
+    mockupOfInvokedMethod = registerMockMethod(CONSTANT_MOCK_METHOD, TEST_INVOKED_CLASS, TEST_INVOKED_METHOD, AccessFlag.PUBLIC, 0, ARGS_NULL, RESULT_TYPE);
+    prepareVirtualTable();
+
+    final StringWriter writer = new StringWriter();
+    writer.write("LD A,2\nLD (" + COUNTER_ADDRESS + "),A\n");
+    writer.write("CALL_LOOP:\nLD BC," + FAKE_OBJECT_ADDRESS + "\nPUSH BC\n");
+    processor.process(CLASS_PROCESSOR_MOCK, INSTRUCTION_INSTANCE, mock(InstructionHandle.class),
+        this.getClass().getClassLoader(),
+        writer);
+    // the virtual table is broken after the first call so that the second call can be made only through the cache
+    writer.write("POP BC\nLD HL,0\nLD (FAKE_VTABLE+4),HL\nLD (FAKE_VTABLE+6),HL\n");
+    writer.write("LD HL," + COUNTER_ADDRESS + "\nDEC (HL)\nJP NZ,CALL_LOOP\n");
+    makePostfixWithBreakPoint(TEST_333_LABEL, writer);
+
+    registerBreakPoint(TEST_333_LABEL);
+
+    IX(INITIAL_IX);
+    assertLinearExecutionToEnd(writer.toString());
+
+    assertEquals(2, this.breakPointCounter);
+    assertEquals(INITIAL_IX, IX);
+    assertStackEmpty();
+  }
+
+  @Test
+  public void testPolymorphicCallUsesVirtualTables() throws Exception {
+    mockupOfInvokedMethod = registerMockMethod(CONSTANT_MOCK_METHOD, TEST_INVOKED_CLASS, TEST_INVOKED_METHOD, AccessFlag.PUBLIC, 0, ARGS_NULL, Type.VOID);
+    prepareVirtualTable();
+    final String successor = TEST_INVOKED_CLASS + "Successor";
+    when(CLASSCONTEXT_MOCK.findClassForID(eq(new ClassID(TEST_INVOKED_CLASS)))).thenReturn(
+        new ClassGen(TEST_INVOKED_CLASS, "java.lang.Object", "Test.java", Const.ACC_PUBLIC, new String[0]));
+    when(CLASSCONTEXT_MOCK.findClassForID(eq(new ClassID(successor)))).thenReturn(
+        new ClassGen(successor, TEST_INVOKED_CLASS, "Test.java", Const.ACC_PUBLIC, new String[0]));
+    when(CLASSCONTEXT_MOCK.findAllClassSuccessors(eq(TEST_INVOKED_CLASS))).thenReturn(Collections.singletonList(successor));
+    when(METHODCONTEXT_MOCK.findMethod(eq(new MethodID(successor, TEST_INVOKED_METHOD, Type.VOID, ARGS_NULL))))
+        .thenReturn(new MethodGen(AccessFlag.PUBLIC, Type.VOID, ARGS_NULL, null, TEST_INVOKED_METHOD, successor, new InstructionList(), new ConstantPoolGen()));
+
+    assertEquals(Processor_INVOKEVIRTUAL.class, processor.findClassOfAdditions(CLASS_PROCESSOR_MOCK, INSTRUCTION_INSTANCE));
+
+    final StringWriter writer = new StringWriter();
+    processor.process(CLASS_PROCESSOR_MOCK, INSTRUCTION_INSTANCE, mock(InstructionHandle.class),
+        this.getClass().getClassLoader(),
+        writer);
+    assertTrue(writer.toString().contains("CALL __PREPAREINVOKEVIRTUAL"));
+  }
+
   private int testExpression(final int a, final int b, final int c, final int d) {
     return a + b - c * d;
   }
@@ -255,6 +358,7 @@ public class TestINVOKEVIRTUAL extends AbstractInvokeTest implements NeedsINVOKE
       BC(333);
       breakpointmet = true;
     }
+    this.breakPointCounter++;
 
     if (breakpointmet && mockupOfInvokedMethod.getMaxLocals() != 0) {
       // clear all locals
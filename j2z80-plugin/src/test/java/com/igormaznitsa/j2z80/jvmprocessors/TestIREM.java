@@ -15,10 +15,15 @@
  */
 package com.igormaznitsa.j2z80.jvmprocessors;
 
+import java.io.StringWriter;
 import org.apache.bcel.generic.IREM;
+import org.apache.bcel.generic.InstructionHandle;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
 
 public class TestIREM extends AbstractIntMathManagerBasedTest {
 
@@ -123,4 +128,49 @@ public class TestIREM extends AbstractIntMathManagerBasedTest {
     assertException(asm);
   }
 
+  private String prepareForConstant(final int constant, final OperandStackCache cache) throws Exception {
+    final StringWriter writer = new StringWriter();
+    assertTrue(AbstractJvmCommandProcessor.findProcessor(IREM.class).processWithConstantOperand(CLASS_PROCESSOR_MOCK,
+        new IREM(), mock(InstructionHandle.class), constant, cache, writer));
+    return writer.toString();
+  }
+
+  @Test(timeout = 5000L)
+  public void testConstantDivisor() throws Exception {
+    final int[] constants = new int[] {1, -1, 2, -2, 8, 128, 256, -512, 4096, 16384, -32768, 3, -10, 1000, 32767};
+    final int[] values = new int[] {0, 1, -1, 7, -7, 1234, -1234, 32767, -32767, -32768};
+    for (final int constant : constants) {
+      final String asm = prepareForConstant(constant, null);
+      for (final int value : values) {
+        push(value);
+
+        assertLinearExecutionToEnd(asm);
+        assertEquals(value + " % " + constant, (short) (value % constant), (short) pop());
+        assertStackEmpty();
+      }
+    }
+  }
+
+  @Test(timeout = 3000L)
+  public void testConstantDivisorWithCachedOperands() throws Exception {
+    for (final int constant : new int[] {16, -300}) {
+      final OperandStackCache cache = new OperandStackCache();
+      push(-55);
+      push(-1234);
+
+      assertLinearExecutionToEnd(cache.load(2) + prepareForConstant(constant, cache));
+      assertEquals(2, cache.getSize());
+      assertEquals((short) (-1234 % constant), (short) HL());
+      assertEquals(-55, (short) DE());
+      assertStackEmpty();
+    }
+  }
+
+  @Test
+  public void testZeroConstantDivisorIsNotProcessed() throws Exception {
+    final StringWriter writer = new StringWriter();
+    assertFalse(AbstractJvmCommandProcessor.findProcessor(IREM.class).processWithConstantOperand(CLASS_PROCESSOR_MOCK,
+        new IREM(), mock(InstructionHandle.class), 0, null, writer));
+    assertEquals("", writer.toString());
+  }
 }
@@ -16,6 +16,8 @@
 package com.igormaznitsa.j2z80.jvmprocessors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 
 import java.io.IOException;
@@ -26,6 +28,8 @@ import org.junit.Test;
 
 public class TestISHR extends AbstractJvmCommandProcessorTest {
 
+  private static final int[] VALUES = new int[] {0, 1, -1, 0x1234, 0x8421, 0x7FFF, -32768};
+
   @Test
   public void testExecution_zeroShift() throws IOException {
     final AbstractJvmCommandProcessor processor = AbstractJvmCommandProcessor.findProcessor(ISHR.class);
@@ -82,4 +86,45 @@ public class TestISHR extends AbstractJvmCommandProcessorTest {
     assertEquals(VAL >> SHIFT, (short) pop());
     assertEquals(INIT_SP, SP);
   }
+
+  @Test(timeout = 5000L)
+  public void testExecution_allCounts() throws IOException {
+    final AbstractJvmCommandProcessor processor = AbstractJvmCommandProcessor.findProcessor(ISHR.class);
+    final StringWriter writer = new StringWriter();
+    processor.process(CLASS_PROCESSOR_MOCK, new ISHR(), mock(InstructionHandle.class),
+        this.getClass().getClassLoader(), writer);
+
+    for (int shift = -1; shift < 34; shift++) {
+      for (final int value : VALUES) {
+        push(value);
+        push(shift);
+
+        assertLinearExecutionToEnd(writer.toString());
+
+        assertEquals(value + " >> " + shift, ((short) value >> shift) & 0xFFFF, pop());
+        assertEquals(INIT_SP, SP);
+      }
+    }
+  }
+
+  @Test(timeout = 5000L)
+  public void testExecution_constantCount() throws IOException {
+    final AbstractJvmCommandProcessor processor = AbstractJvmCommandProcessor.findProcessor(ISHR.class);
+
+    for (int shift = -1; shift < 34; shift++) {
+      final StringWriter writer = new StringWriter();
+      assertTrue(processor.processWithConstantOperand(CLASS_PROCESSOR_MOCK, new ISHR(),
+          mock(InstructionHandle.class), shift, null, writer));
+      assertFalse(writer.toString().contains("JP"));
+
+      for (final int value : VALUES) {
+        push(value);
+
+        assertLinearExecutionToEnd(writer.toString());
+
+        assertEquals(value + " >> " + shift, ((short) value >> shift) & 0xFFFF, pop());
+        assertEquals(INIT_SP, SP);
+      }
+    }
+  }
 }
@@ -18,6 +18,8 @@ package com.igormaznitsa.j2z80.jvmprocessors;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.mock;
 
+import com.igormaznitsa.j2z80.ids.ClassMethodInfo;
+import com.igormaznitsa.j2z80.utils.LabelAndFrameUtils;
 import java.io.IOException;
 import java.io.StringWriter;
 import org.apache.bcel.generic.ISTORE;
@@ -45,4 +47,27 @@ public class TestISTORE extends AbstractJvmCommandProcessorTest {
     assertEquals(VALUE, readLocalFrameVariable(INDEX));
     assertStackEmpty();
   }
+
+  @Test
+  public void testExecutionForStaticCell() throws IOException {
+    final AbstractJvmCommandProcessor processor = AbstractJvmCommandProcessor.findProcessor(ISTORE.class);
+    final StringWriter writer = new StringWriter();
+    final int INDEX = 0;
+    final int VALUE = 10823;
+
+    final ClassMethodInfo method = registerMethodWithStaticCells();
+    final String cell = LabelAndFrameUtils.makeLabelForLocalVariableCell(method, INDEX);
+
+    push(VALUE);
+
+    processor.process(CLASS_PROCESSOR_MOCK, new ISTORE(INDEX), mock(InstructionHandle.class),
+        this.getClass().getClassLoader(),
+        writer);
+    writer.write("JP " + END_LABEL + "\n");
+    writer.write(cell + ": DEFW 0\n");
+    final int cellAddress = assertLinearExecutionToEnd(writer.toString()).findLabelAddress(cell);
+
+    assertEquals(VALUE, peekw(cellAddress));
+    assertStackEmpty();
+  }
 }
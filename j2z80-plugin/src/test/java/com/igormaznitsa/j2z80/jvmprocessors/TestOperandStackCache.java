@@ -0,0 +1,137 @@
+/*
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80.jvmprocessors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import org.apache.bcel.generic.BIPUSH;
+import org.apache.bcel.generic.DUP;
+import org.apache.bcel.generic.IADD;
+import org.apache.bcel.generic.ICONST;
+import org.apache.bcel.generic.IINC;
+import org.apache.bcel.generic.ILOAD;
+import org.apache.bcel.generic.IMUL;
+import org.apache.bcel.generic.ISTORE;
+import org.apache.bcel.generic.ISUB;
+import org.apache.bcel.generic.IXOR;
+import org.apache.bcel.generic.Instruction;
+import org.apache.bcel.generic.InstructionHandle;
+import org.apache.bcel.generic.POP;
+import org.apache.bcel.generic.SIPUSH;
+import org.junit.Test;
+
+public class TestOperandStackCache extends AbstractJvmCommandProcessorTest {
+
+  private static final int IX_ADDRESS = 0x8000;
+
+  private final OperandStackCache cache = new OperandStackCache();
+
+  private String translate(final Instruction... instructions) throws IOException {
+    final StringWriter writer = new StringWriter();
+    for (final Instruction instruction : instructions) {
+      final AbstractJvmCommandProcessor processor =
+          AbstractJvmCommandProcessor.findProcessor(instruction.getClass());
+      assertTrue(instruction.getName(), processor.processWithStackCache(CLASS_PROCESSOR_MOCK,
+          instruction, mock(InstructionHandle.class), this.cache, writer));
+    }
+    return writer.toString();
+  }
+
+  @Test
+  public void testExpressionIsCalculatedInRegisters() throws IOException {
+    IX = IX_ADDRESS;
+    writeLocalFrameVariable(1, 1000);
+    writeLocalFrameVariable(2, -45);
+
+    // c = a - b + 3
+    final String asm = translate(new ILOAD(1), new ILOAD(2), new ISUB(), new ICONST(3), new IADD(),
+        new ISTORE(3));
+    assertFalse(asm.contains("PUSH"));
+    assertFalse(asm.contains("POP"));
+    assertTrue(this.cache.isEmpty());
+
+    assertLinearExecutionToEnd(asm);
+
+    assertEquals(1048, readLocalFrameVariable(3));
+    assertStackEmpty();
+  }
+
+  @Test
+  public void testValuesAreSpilledOntoStack() throws IOException {
+    final String asm = translate(new ICONST(1), new BIPUSH((byte) -2), new SIPUSH((short) 3000),
+        new DUP());
+    assertEquals(OperandStackCache.MAX_SIZE, this.cache.getSize());
+
+    assertLinearExecutionToEnd(asm + this.cache.flush());
+
+    assertEquals(3000, pop());
+    assertEquals(3000, pop());
+    assertEquals(-2, (short) pop());
+    assertEquals(1, pop());
+    assertStackEmpty();
+  }
+
+  @Test
+  public void testOperandsAreTakenFromStack() throws IOException {
+    final int VAL1 = 0x1234;
+    final int VAL2 = 0x0FF0;
+    final int VAL3 = 0x7777;
+
+    push(VAL1);
+    push(VAL2);
+    push(VAL3);
+
+    final String asm = translate(new POP(), new IXOR());
+    assertEquals(1, this.cache.getSize());
+
+    assertLinearExecutionToEnd(asm);
+
+    assertEquals(VAL1 ^ VAL2, HL());
+    assertStackEmpty();
+  }
+
+  @Test
+  public void testIincKeepsCachedValues() throws IOException {
+    IX = IX_ADDRESS;
+    writeLocalFrameVariable(1, 0x00F0);
+
+    // x - (x += 300)
+    final String asm = translate(new ILOAD(1), new IINC(1, 300), new ILOAD(1), new ISUB());
+
+    assertLinearExecutionToEnd(asm);
+
+    assertEquals(0x00F0 + 300, readLocalFrameVariable(1));
+    assertEquals(-300, (short) HL());
+    assertStackEmpty();
+  }
+
+  @Test
+  public void testUnsupportedInstructionWritesNothing() throws IOException {
+    final StringWriter writer = new StringWriter();
+    assertFalse(AbstractJvmCommandProcessor.findProcessor(IMUL.class)
+        .processWithStackCache(CLASS_PROCESSOR_MOCK, new IMUL(), mock(InstructionHandle.class),
+            this.cache, writer));
+    assertFalse(AbstractJvmCommandProcessor.findProcessor(IINC.class)
+        .processWithStackCache(CLASS_PROCESSOR_MOCK, new IINC(1, 1), mock(InstructionHandle.class),
+            this.cache, writer));
+    assertEquals("", writer.toString());
+  }
+}
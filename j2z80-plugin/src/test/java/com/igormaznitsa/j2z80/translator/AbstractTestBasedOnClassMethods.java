@@ -0,0 +1,73 @@
+/*
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80.translator;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.igormaznitsa.j2z80.ids.ClassMethodInfo;
+import com.igormaznitsa.j2z80.ids.MethodID;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.bcel.Const;
+import org.apache.bcel.classfile.Method;
+import org.apache.bcel.generic.ClassGen;
+import org.apache.bcel.generic.Instruction;
+import org.apache.bcel.generic.InstructionList;
+import org.apache.bcel.generic.MethodGen;
+import org.apache.bcel.generic.Type;
+
+/**
+ * Base for tests of bytecode processing, methods are made in one test class and can be found
+ * through a mocked method context.
+ */
+public abstract class AbstractTestBasedOnClassMethods {
+
+  protected static final String CLASS_NAME = "test.A";
+
+  protected final ClassGen classGen =
+      new ClassGen(CLASS_NAME, "java.lang.Object", "Test.java", Const.ACC_PUBLIC, new String[0]);
+  protected final Map<MethodID, ClassMethodInfo> methods = new LinkedHashMap<>();
+
+  protected static Instruction[] instructions(final ClassMethodInfo info) {
+    return info.getMethodGen().getInstructionList().getInstructions();
+  }
+
+  protected ClassMethodInfo addMethod(final String name, final int flags, final Type[] args,
+                                      final Type result, final InstructionList code) {
+    final MethodGen methodGen = new MethodGen(Const.ACC_PUBLIC | flags, result, args, null, name,
+        CLASS_NAME, code, this.classGen.getConstantPool());
+    methodGen.setMaxLocals();
+    methodGen.setMaxStack();
+    final Method method = methodGen.getMethod();
+    this.classGen.addMethod(method);
+    final ClassMethodInfo info = new ClassMethodInfo(this.classGen, method, methodGen);
+    this.methods.put(new MethodID(this.classGen, method), info);
+    return info;
+  }
+
+  protected int addMethodRef(final String name, final String signature) {
+    return this.classGen.getConstantPool().addMethodref(CLASS_NAME, name, signature);
+  }
+
+  protected MethodContextImpl makeMethodContext() {
+    final MethodContextImpl methodContext = mock(MethodContextImpl.class);
+    when(methodContext.findMethodInfo(any(MethodID.class)))
+        .thenAnswer(x -> this.methods.get(x.getArgument(0)));
+    return methodContext;
+  }
+}
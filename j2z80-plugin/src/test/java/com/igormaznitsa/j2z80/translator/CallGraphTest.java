@@ -0,0 +1,87 @@
+/*
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80.translator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.igormaznitsa.j2z80.ids.ClassMethodInfo;
+import com.igormaznitsa.j2z80.ids.MethodID;
+import java.util.Arrays;
+import java.util.HashSet;
+import org.apache.bcel.Const;
+import org.apache.bcel.generic.INVOKESTATIC;
+import org.apache.bcel.generic.INVOKEVIRTUAL;
+import org.apache.bcel.generic.InstructionConst;
+import org.apache.bcel.generic.InstructionList;
+import org.apache.bcel.generic.Type;
+import org.junit.Test;
+
+public class CallGraphTest extends AbstractTestBasedOnClassMethods {
+
+  // void name() { called1(); called2(); ... }
+  private MethodID addMethod(final String name, final int flags, final String... called) {
+    final InstructionList code = new InstructionList();
+    for (final String calledName : called) {
+      final int index = this.addMethodRef(calledName, "()V");
+      code.append((flags & Const.ACC_STATIC) == 0 ? new INVOKEVIRTUAL(index)
+          : new INVOKESTATIC(index));
+    }
+    code.append(InstructionConst.RETURN);
+
+    final ClassMethodInfo info = this.addMethod(name, flags, Type.NO_ARGS, Type.VOID, code);
+    return new MethodID(this.classGen, info.getMethodInfo());
+  }
+
+  private CallGraph makeGraph() {
+    return new CallGraph(this.makeMethodContext(), this.methods.keySet());
+  }
+
+  @Test
+  public void testChainIsNotReentrant() {
+    final MethodID first = this.addMethod("first", Const.ACC_STATIC, "second", "third");
+    final MethodID second = this.addMethod("second", Const.ACC_STATIC, "third");
+    final MethodID third = this.addMethod("third", Const.ACC_STATIC);
+
+    final CallGraph graph = this.makeGraph();
+    assertEquals(new HashSet<>(Arrays.asList(second, third)), graph.findCalledMethods(first));
+    assertEquals(new HashSet<>(Arrays.asList(third)), graph.findCalledMethods(second));
+    assertTrue(graph.findCalledMethods(third).isEmpty());
+    assertTrue(graph.findReentrantMethods().isEmpty());
+  }
+
+  @Test
+  public void testRecursion() {
+    this.addMethod("main", Const.ACC_STATIC, "self", "ping");
+    final MethodID self = this.addMethod("self", Const.ACC_STATIC, "self");
+    final MethodID ping = this.addMethod("ping", Const.ACC_STATIC, "pong", "leaf");
+    final MethodID pong = this.addMethod("pong", Const.ACC_STATIC, "ping");
+    this.addMethod("leaf", Const.ACC_STATIC);
+
+    assertEquals(new HashSet<>(Arrays.asList(self, ping, pong)),
+        this.makeGraph().findReentrantMethods());
+  }
+
+  @Test
+  public void testVirtualCallIsLinkedBySignature() {
+    final MethodID caller = this.addMethod("caller", Const.ACC_STATIC, "run");
+    final MethodID run = this.addMethod("run", 0, "caller");
+
+    final CallGraph graph = this.makeGraph();
+    assertEquals(new HashSet<>(Arrays.asList(run)), graph.findCalledMethods(caller));
+    assertEquals(new HashSet<>(Arrays.asList(caller, run)), graph.findReentrantMethods());
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80.translator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.apache.bcel.Const;
+import org.apache.bcel.generic.ClassGen;
+import org.junit.Test;
+
+public class ClassHierarchyIndexTest {
+
+  private static final ClassGen C = makeClass("test.C", "test.B", false);
+  private static final ClassGen B = makeClass("test.B", "test.A", false, "test.J");
+  private static final ClassGen A = makeClass("test.A", "java.lang.Object", false);
+  private static final ClassGen D = makeClass("test.D", "test.A", false);
+  private static final ClassGen E = makeClass("test.E", "java.lang.Object", false, "test.I");
+  private static final ClassGen I = makeClass("test.I", "java.lang.Object", true);
+  private static final ClassGen J = makeClass("test.J", "java.lang.Object", true, "test.I");
+  private static final ClassGen K = makeClass("test.K", "java.lang.Object", true);
+
+  private static final ClassHierarchyIndex INDEX =
+      new ClassHierarchyIndex(Arrays.asList(C, B, A, D, E, I, J, K));
+
+  private static ClassGen makeClass(final String name, final String superName,
+                                    final boolean isInterface, final String... interfaces) {
+    return new ClassGen(name, superName, "Test.java",
+        isInterface ? Const.ACC_PUBLIC | Const.ACC_INTERFACE | Const.ACC_ABSTRACT :
+            Const.ACC_PUBLIC, interfaces);
+  }
+
+  private static Set<String> names(final List<ClassGen> classes) {
+    return classes.stream().map(ClassGen::getClassName).collect(Collectors.toSet());
+  }
+
+  @Test
+  public void testAccessible() {
+    assertTrue(INDEX.contains(C));
+    assertFalse(INDEX.contains(makeClass("test.C", "test.B", false)));
+
+    assertTrue(INDEX.isAccessible(C, "test.B"));
+    assertTrue(INDEX.isAccessible(C, "test.A"));
+    assertTrue(INDEX.isAccessible(C, "java.lang.Object"));
+    assertTrue(INDEX.isAccessible(D, "test.A"));
+    assertFalse(INDEX.isAccessible(D, "test.B"));
+    assertFalse(INDEX.isAccessible(A, "test.C"));
+    assertFalse(INDEX.isAccessible(E, "test.A"));
+    assertFalse(INDEX.isAccessible(A, "some.Unknown"));
+  }
+
+  @Test
+  public void testSuccessors() {
+    assertEquals(Arrays.asList("test.C", "test.B", "test.D"), INDEX.findAllSuccessors("test.A"));
+    assertEquals(Arrays.asList("test.C"), INDEX.findAllSuccessors("test.B"));
+    assertTrue(INDEX.findAllSuccessors("test.C").isEmpty());
+    assertNull(INDEX.findAllSuccessors("java.lang.Object"));
+  }
+
+  @Test
+  public void testPreorder() {
+    final List<String> preorder = INDEX.getClassesInPreorder().stream()
+        .map(ClassGen::getClassName).collect(Collectors.toList());
+    assertEquals(8, preorder.size());
+    for (final String name : Arrays.asList("test.A", "test.B", "test.E", "test.I", "test.J", "test.K")) {
+      final List<String> successors = INDEX.findAllSuccessors(name);
+      final int start = preorder.indexOf(name);
+      assertEquals(new HashSet<>(successors),
+          new HashSet<>(preorder.subList(start + 1, start + 1 + successors.size())));
+    }
+  }
+
+  @Test
+  public void testImplementors() {
+    assertEquals(new HashSet<>(Arrays.asList("test.B", "test.C", "test.E")),
+        names(INDEX.findAllImplementors("test.I")));
+    assertEquals(new HashSet<>(Arrays.asList("test.B", "test.C")),
+        names(INDEX.findAllImplementors("test.J")));
+    assertTrue(INDEX.findAllImplementors("test.K").isEmpty());
+    assertTrue(INDEX.findAllImplementors("test.A").isEmpty());
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80.translator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.igormaznitsa.j2z80.ClassContext;
+import com.igormaznitsa.j2z80.ids.ClassID;
+import com.igormaznitsa.j2z80.ids.ClassMethodInfo;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import org.apache.bcel.Const;
+import org.apache.bcel.generic.BIPUSH;
+import org.apache.bcel.generic.ConstantPushInstruction;
+import org.apache.bcel.generic.FieldGen;
+import org.apache.bcel.generic.GETSTATIC;
+import org.apache.bcel.generic.GOTO;
+import org.apache.bcel.generic.IFEQ;
+import org.apache.bcel.generic.IF_ICMPLT;
+import org.apache.bcel.generic.ILOAD;
+import org.apache.bcel.generic.ISTORE;
+import org.apache.bcel.generic.InstructionConst;
+import org.apache.bcel.generic.InstructionHandle;
+import org.apache.bcel.generic.InstructionList;
+import org.apache.bcel.generic.SIPUSH;
+import org.apache.bcel.generic.Type;
+import org.junit.Test;
+
+public class ConstantFolderTest extends AbstractTestBasedOnClassMethods {
+
+  private String fold(final InstructionList code) {
+    return this.process(code, true);
+  }
+
+  private String process(final InstructionList code, final boolean folding) {
+    final ClassContext classContext = mock(ClassContext.class);
+    when(classContext.findClassForID(any(ClassID.class))).thenAnswer(
+        x -> CLASS_NAME.equals(((ClassID) x.getArgument(0)).getClassName()) ? this.classGen
+            : null);
+
+    final ClassMethodInfo method =
+        this.addMethod("test", Const.ACC_STATIC, new Type[] {Type.INT}, Type.INT, code);
+    final ConstantFolder folder = new ConstantFolder(classContext);
+    if (folding) {
+      folder.fold(method);
+    } else {
+      folder.replaceConstantFields(method);
+    }
+    return Arrays.stream(instructions(method))
+        .map(x -> x instanceof ConstantPushInstruction
+            ? "push " + ((ConstantPushInstruction) x).getValue() : x.getName())
+        .collect(Collectors.joining(","));
+  }
+
+  @Test
+  public void testCalculationFollowsTranslatedCode() {
+    assertEquals(-5536, (int) ConstantFolder.calculate(Const.IADD, 30000, 30000));
+    assertEquals(-32768, (int) ConstantFolder.calculate(Const.IDIV, -32768, -1));
+    assertEquals(-1, (int) ConstantFolder.calculate(Const.IREM, -7, 2));
+    assertEquals(0, (int) ConstantFolder.calculate(Const.ISHL, 1, 16));
+    assertEquals(2, (int) ConstantFolder.calculate(Const.ISHL, 1, 33));
+    assertEquals(0x0FFF, (int) ConstantFolder.calculate(Const.IUSHR, -1, 4));
+    assertEquals(-1, (int) ConstantFolder.calculate(Const.ISHR, -1, 4));
+    assertEquals(44, (int) ConstantFolder.calculate(Const.I2C, 300, 0));
+    assertEquals(-128, (int) ConstantFolder.calculate(Const.I2B, 128, 0));
+    assertNull(ConstantFolder.calculate(Const.IDIV, 1, 0));
+  }
+
+  @Test
+  public void testArithmeticIsFolded() {
+    // return 3 * 4 + x
+    final InstructionList code = new InstructionList();
+    code.append(InstructionConst.ICONST_3);
+    code.append(InstructionConst.ICONST_4);
+    code.append(InstructionConst.IMUL);
+    code.append(new ILOAD(0));
+    code.append(InstructionConst.IADD);
+    code.append(InstructionConst.IRETURN);
+    assertEquals("push 12,iload_0,iadd,ireturn", this.fold(code));
+  }
+
+  @Test
+  public void testDivisionByZeroIsKept() {
+    final InstructionList code = new InstructionList();
+    code.append(InstructionConst.ICONST_1);
+    code.append(InstructionConst.ICONST_0);
+    code.append(InstructionConst.IDIV);
+    code.append(InstructionConst.IRETURN);
+    assertEquals("push 1,push 0,idiv,ireturn", this.fold(code));
+  }
+
+  @Test
+  public void testConstantIsPropagatedThroughLocals() {
+    // int y = 200; return (byte) (y * y) - x
+    final InstructionList code = new InstructionList();
+    code.append(new SIPUSH((short) 200));
+    code.append(new ISTORE(1));
+    code.append(new ILOAD(1));
+    code.append(new ILOAD(1));
+    code.append(InstructionConst.IMUL);
+    code.append(InstructionConst.I2B);
+    code.append(new ILOAD(0));
+    code.append(InstructionConst.ISUB);
+    code.append(InstructionConst.IRETURN);
+    assertEquals("push 200,istore_1,push " + (byte) (short) 40000 + ",iload_0,isub,ireturn",
+        this.fold(code));
+  }
+
+  @Test
+  public void testDifferentValuesOfLocalAreNotPropagated() {
+    // int y = x == 0 ? 1 : 2; return y
+    final InstructionList code = new InstructionList();
+    code.append(new ILOAD(0));
+    final InstructionHandle one = code.append(InstructionConst.ICONST_1);
+    code.append(new ISTORE(1));
+    final InstructionHandle two = code.append(InstructionConst.ICONST_2);
+    code.append(new ISTORE(1));
+    final InstructionHandle result = code.append(new ILOAD(1));
+    code.append(InstructionConst.IRETURN);
+    code.insert(one, new IFEQ(two));
+    code.insert(two, new GOTO(result));
+    assertEquals("iload_0,ifeq,push 1,istore_1,goto,push 2,istore_1,iload_1,ireturn",
+        this.fold(code));
+  }
+
+  @Test
+  public void testBranchOnConstantIsSimplified() {
+    // int y = 5; if (y < 10) return 1; else return x
+    final InstructionList code = new InstructionList();
+    code.append(InstructionConst.ICONST_5);
+    code.append(new ISTORE(1));
+    code.append(new ILOAD(1));
+    code.append(new BIPUSH((byte) 10));
+    final InstructionHandle otherwise = code.append(new ILOAD(0));
+    code.append(InstructionConst.IRETURN);
+    final InstructionHandle then = code.append(InstructionConst.ICONST_1);
+    code.append(InstructionConst.IRETURN);
+    code.insert(otherwise, new IF_ICMPLT(then));
+    assertEquals("push 5,istore_1,goto,push 1,ireturn", this.fold(code));
+  }
+
+  @Test
+  public void testStaticFinalFieldIsConstant() {
+    final FieldGen field = new FieldGen(Const.ACC_STATIC | Const.ACC_FINAL, Type.INT, "SIZE",
+        this.classGen.getConstantPool());
+    field.setInitValue(1000);
+    this.classGen.addField(field.getField());
+
+    // return SIZE / 2
+    final InstructionList code = new InstructionList();
+    code.append(
+        new GETSTATIC(this.classGen.getConstantPool().addFieldref(CLASS_NAME, "SIZE", "I")));
+    code.append(InstructionConst.ICONST_2);
+    code.append(InstructionConst.IDIV);
+    code.append(InstructionConst.IRETURN);
+    assertEquals("push 500,ireturn", this.fold(code));
+  }
+
+  @Test
+  public void testStaticFinalFieldIsReplacedWithoutFolding() {
+    final FieldGen field = new FieldGen(Const.ACC_STATIC | Const.ACC_FINAL, Type.INT, "SIZE",
+        this.classGen.getConstantPool());
+    field.setInitValue(1000);
+    this.classGen.addField(field.getField());
+    this.classGen.addField(new FieldGen(Const.ACC_STATIC, Type.INT, "counter",
+        this.classGen.getConstantPool()).getField());
+
+    // return SIZE / 2 + counter
+    final InstructionList code = new InstructionList();
+    code.append(
+        new GETSTATIC(this.classGen.getConstantPool().addFieldref(CLASS_NAME, "SIZE", "I")));
+    code.append(InstructionConst.ICONST_2);
+    code.append(InstructionConst.IDIV);
+    code.append(
+        new GETSTATIC(this.classGen.getConstantPool().addFieldref(CLASS_NAME, "counter", "I")));
+    code.append(InstructionConst.IADD);
+    code.append(InstructionConst.IRETURN);
+    assertEquals("push 1000,push 2,idiv,getstatic,iadd,ireturn", this.process(code, false));
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80.translator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.igormaznitsa.j2z80.ClassContext;
+import com.igormaznitsa.j2z80.MethodContext;
+import com.igormaznitsa.j2z80.TranslatorContext;
+import com.igormaznitsa.j2z80.ids.ClassID;
+import com.igormaznitsa.j2z80.ids.ClassMethodInfo;
+import com.igormaznitsa.j2z80.ids.MethodID;
+import com.igormaznitsa.j2z80.utils.LabelAndFrameUtils;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.bcel.Const;
+import org.apache.bcel.classfile.Method;
+import org.apache.bcel.generic.ClassGen;
+import org.apache.bcel.generic.InstructionConst;
+import org.apache.bcel.generic.InstructionList;
+import org.apache.bcel.generic.MethodGen;
+import org.apache.bcel.generic.Type;
+import org.junit.Test;
+
+public class InvokeVirtualTableTest {
+
+  private static void addMethod(final ClassGen classGen, final String name, final int flags) {
+    final InstructionList code = new InstructionList();
+    if ((flags & Const.ACC_ABSTRACT) == 0) {
+      code.append(InstructionConst.RETURN);
+    }
+    final MethodGen methodGen = new MethodGen(flags, Type.VOID, Type.NO_ARGS, new String[0], name,
+        classGen.getClassName(), (flags & Const.ACC_ABSTRACT) == 0 ? code : null,
+        classGen.getConstantPool());
+    methodGen.setMaxLocals();
+    methodGen.setMaxStack();
+    classGen.addMethod(methodGen.getMethod());
+  }
+
+  private static ClassGen makeClass(final String name, final String superName, final int flags,
+                                    final String... methods) {
+    final ClassGen result = new ClassGen(name, superName, "Test.java", flags, new String[0]);
+    for (final String m : methods) {
+      if (m.startsWith("!")) {
+        addMethod(result, m.substring(1), Const.ACC_PUBLIC | Const.ACC_ABSTRACT);
+      } else {
+        addMethod(result, m, Const.ACC_PUBLIC);
+      }
+    }
+    return result;
+  }
+
+  private static InvokeVirtualTable makeTable(final List<ClassGen> classes) {
+    final Map<ClassID, ClassGen> classMap = new LinkedHashMap<>();
+    final Map<MethodID, ClassMethodInfo> methodMap = new LinkedHashMap<>();
+    for (final ClassGen c : classes) {
+      classMap.put(new ClassID(c), c);
+      for (final Method m : c.getMethods()) {
+        methodMap.put(new MethodID(c, m), new ClassMethodInfo(c, m, methodMap.size()));
+      }
+    }
+    final List<ClassID> ids = Arrays.asList(classMap.keySet().toArray(new ClassID[0]));
+
+    final ClassContext classContext = mock(ClassContext.class);
+    when(classContext.getAllClasses()).thenReturn(ids);
+    when(classContext.findClassForID(any(ClassID.class)))
+        .thenAnswer(x -> classMap.get(x.getArgument(0)));
+    when(classContext.findClassUID(any(ClassID.class)))
+        .thenAnswer(x -> ids.indexOf(x.getArgument(0)));
+
+    final MethodContext methodContext = mock(MethodContext.class);
+    when(methodContext.findMethodInfo(any(MethodID.class)))
+        .thenAnswer(x -> methodMap.get(x.getArgument(0)));
+
+    final TranslatorContext context = mock(TranslatorContext.class);
+    when(context.getClassContext()).thenReturn(classContext);
+    when(context.getMethodContext()).thenReturn(methodContext);
+    return new InvokeVirtualTable(context);
+  }
+
+  private static String slotLabel(final String className, final String method) {
+    return LabelAndFrameUtils.makeLabelForVirtualMethodRecord(className, method, Type.VOID,
+        Type.NO_ARGS);
+  }
+
+  private static String methodLabel(final String className, final String method) {
+    return LabelAndFrameUtils.makeLabelNameForMethod(className, method, Type.VOID, Type.NO_ARGS);
+  }
+
+  @Test
+  public void testSlotsAreInheritedBySuccessors() {
+    final InvokeVirtualTable table = makeTable(Arrays.asList(
+        makeClass("test.C", "test.B", Const.ACC_PUBLIC, "c", "b"),
+        makeClass("test.B", "test.A", Const.ACC_PUBLIC | Const.ACC_ABSTRACT, "!b", "a2"),
+        makeClass("test.A", "java.lang.Object", Const.ACC_PUBLIC, "a1", "a2", "<init>"),
+        makeClass("test.D", "test.A", Const.ACC_PUBLIC, "d", "a1")));
+
+    assertEquals(0, table.findSlot("test.A", "a1", "()V"));
+    assertEquals(1, table.findSlot("test.A", "a2", "()V"));
+    assertEquals(-1, table.findSlot("test.A", "<init>", "()V"));
+    assertEquals(-1, table.findSlot("test.A", "b", "()V"));
+
+    for (final String successor : new String[] {"test.B", "test.C", "test.D"}) {
+      assertEquals(0, table.findSlot(successor, "a1", "()V"));
+      assertEquals(1, table.findSlot(successor, "a2", "()V"));
+    }
+    assertEquals(2, table.findSlot("test.B", "b", "()V"));
+    assertEquals(2, table.findSlot("test.C", "b", "()V"));
+    assertEquals(3, table.findSlot("test.C", "c", "()V"));
+    assertEquals(2, table.findSlot("test.D", "d", "()V"));
+  }
+
+  @Test
+  public void testAsm() {
+    final String asm = makeTable(Arrays.asList(
+        makeClass("test.C", "test.B", Const.ACC_PUBLIC, "c", "b"),
+        makeClass("test.B", "test.A", Const.ACC_PUBLIC | Const.ACC_ABSTRACT, "!b", "a2"),
+        makeClass("test.A", "java.lang.Object", Const.ACC_PUBLIC, "a1", "a2"))).toAsm();
+
+    // methods without arguments have only the object reference as local
+    final String frame = "," + LabelAndFrameUtils.calculateFrameSizeForMethod(0, 1, false) + '\n';
+    final String tableC = LabelAndFrameUtils.makeLabelForVirtualTable("test.C");
+    final String tableA = LabelAndFrameUtils.makeLabelForVirtualTable("test.A");
+    assertTrue(asm.contains(InvokeVirtualTable.CLASS_TABLE_LABEL + ":\nDEFW " + tableC
+        + "\nDEFW 0\nDEFW " + tableA + '\n'));
+    assertFalse(asm.contains(LabelAndFrameUtils.makeLabelForVirtualTable("test.B") + ':'));
+
+    assertTrue(asm.contains(tableA + ":\nDEFW " + methodLabel("test.A", "a1") + frame + "DEFW "
+        + methodLabel("test.A", "a2") + frame));
+    assertTrue(asm.contains(tableC + ":\nDEFW " + methodLabel("test.A", "a1") + frame + "DEFW "
+        + methodLabel("test.B", "a2") + frame + "DEFW " + methodLabel("test.C", "b") + frame + "DEFW "
+        + methodLabel("test.C", "c") + frame));
+
+    assertTrue(asm.contains(slotLabel("test.B", "b") + ": EQU 8\n"));
+    assertTrue(asm.contains(slotLabel("test.C", "b") + ": EQU 8\n"));
+    assertTrue(asm.contains(slotLabel("test.C", "c") + ": EQU 12\n"));
+    assertTrue(asm.contains(slotLabel("test.A", "a2") + ": EQU 4\n"));
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80.translator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.igormaznitsa.j2z80.ClassContext;
+import com.igormaznitsa.j2z80.MethodContext;
+import com.igormaznitsa.j2z80.TranslatorContext;
+import com.igormaznitsa.j2z80.ids.ClassID;
+import com.igormaznitsa.j2z80.ids.MethodID;
+import com.igormaznitsa.j2z80.utils.LabelAndFrameUtils;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.apache.bcel.Const;
+import org.apache.bcel.classfile.Method;
+import org.apache.bcel.generic.ClassGen;
+import org.apache.bcel.generic.InstructionConst;
+import org.apache.bcel.generic.InstructionList;
+import org.apache.bcel.generic.MethodGen;
+import org.apache.bcel.generic.Type;
+import org.junit.Test;
+
+public class InvokeinterfaceTableTest {
+
+  private static final ClassGen I = makeClass("test.I", Const.ACC_INTERFACE | Const.ACC_ABSTRACT, new String[0], "!i");
+  private static final ClassGen J = makeClass("test.J", Const.ACC_INTERFACE | Const.ACC_ABSTRACT, new String[0], "!j");
+  private static final ClassGen K = makeClass("test.K", Const.ACC_INTERFACE | Const.ACC_ABSTRACT, new String[0], "!k");
+  private static final ClassGen A = makeClass("test.A", 0, new String[] {"test.I", "test.J"}, "i", "j");
+  private static final ClassGen B = makeClass("test.B", 0, new String[] {"test.K"}, "k");
+  private static final ClassGen X = makeClass("test.X", Const.ACC_ABSTRACT, new String[] {"test.I"}, "!i");
+
+  private static final MethodID METHOD_I = new MethodID("test.I", "i", Type.VOID, Type.NO_ARGS);
+  private static final MethodID METHOD_J = new MethodID("test.J", "j", Type.VOID, Type.NO_ARGS);
+  private static final MethodID METHOD_K = new MethodID("test.K", "k", Type.VOID, Type.NO_ARGS);
+
+  private static ClassGen makeClass(final String name, final int flags, final String[] interfaces,
+                                    final String... methods) {
+    final ClassGen result = new ClassGen(name, "java.lang.Object", "Test.java", Const.ACC_PUBLIC | flags, interfaces);
+    for (final String m : methods) {
+      final boolean isAbstract = m.startsWith("!");
+      final InstructionList code = new InstructionList();
+      code.append(InstructionConst.RETURN);
+      final MethodGen methodGen = new MethodGen(Const.ACC_PUBLIC | (isAbstract ? Const.ACC_ABSTRACT : 0),
+          Type.VOID, Type.NO_ARGS, new String[0], isAbstract ? m.substring(1) : m, name,
+          isAbstract ? null : code, result.getConstantPool());
+      methodGen.setMaxLocals();
+      methodGen.setMaxStack();
+      result.addMethod(methodGen.getMethod());
+    }
+    return result;
+  }
+
+  private static InvokeinterfaceTable makeTable(final Set<MethodID> calledMethods) {
+    final List<ClassGen> classes = Arrays.asList(I, J, K, A, B, X);
+    final Map<ClassID, ClassGen> classMap = new LinkedHashMap<>();
+    final Map<MethodID, MethodGen> methodMap = new LinkedHashMap<>();
+    for (final ClassGen c : classes) {
+      classMap.put(new ClassID(c), c);
+      for (final Method m : c.getMethods()) {
+        methodMap.put(new MethodID(c, m), new MethodGen(m, c.getClassName(), c.getConstantPool()));
+      }
+    }
+    final List<ClassID> ids = Arrays.asList(classMap.keySet().toArray(new ClassID[0]));
+
+    final ClassContext classContext = mock(ClassContext.class);
+    when(classContext.getAllClasses()).thenReturn(ids);
+    when(classContext.findClassForID(any(ClassID.class)))
+        .thenAnswer(x -> classMap.get(x.getArgument(0)));
+    when(classContext.findClassUID(any(ClassID.class)))
+        .thenAnswer(x -> ids.indexOf(x.getArgument(0)));
+    when(classContext.findAllClassesImplementInterface(anyString()))
+        .thenAnswer(x -> classes.stream()
+            .filter(c -> Arrays.asList(c.getInterfaceNames()).contains(x.getArgument(0)))
+            .map(ClassID::new).collect(Collectors.toSet()));
+
+    final List<MethodID> methodIds = Arrays.asList(methodMap.keySet().toArray(new MethodID[0]));
+    final MethodContext methodContext = mock(MethodContext.class);
+    when(methodContext.findMethod(any(MethodID.class)))
+        .thenAnswer(x -> methodMap.get(x.getArgument(0)));
+    when(methodContext.findMethodUID(any(MethodID.class)))
+        .thenAnswer(x -> methodIds.indexOf(x.getArgument(0)) + 100);
+
+    final TranslatorContext context = mock(TranslatorContext.class);
+    when(context.getClassContext()).thenReturn(classContext);
+    when(context.getMethodContext()).thenReturn(methodContext);
+    return new InvokeinterfaceTable(context, calledMethods);
+  }
+
+  private static String methodLabel(final String className, final String method) {
+    return LabelAndFrameUtils.makeLabelNameForMethod(className, method, Type.VOID, Type.NO_ARGS);
+  }
+
+  @Test
+  public void testSelectorsAreSharedByMethodsWithoutCommonImplementor() {
+    final InvokeinterfaceTable table = makeTable(new HashSet<>(Arrays.asList(METHOD_I, METHOD_J, METHOD_K)));
+
+    assertEquals(0, table.findSelector(METHOD_I));
+    assertEquals(1, table.findSelector(METHOD_J));
+    assertEquals(0, table.findSelector(METHOD_K));
+    assertEquals(-1, table.findSelector(new MethodID("test.I", "unknown", Type.VOID, Type.NO_ARGS)));
+  }
+
+  @Test
+  public void testAsm() {
+    final String asm = makeTable(new HashSet<>(Arrays.asList(METHOD_I, METHOD_J, METHOD_K))).generateAsm();
+
+    // methods without arguments have only the object reference as local
+    final String frame = "," + LabelAndFrameUtils.calculateFrameSizeForMethod(0, 1, false) + ',';
+    final String tableA = LabelAndFrameUtils.makeLabelForInterfaceTable("test.A");
+    final String tableB = LabelAndFrameUtils.makeLabelForInterfaceTable("test.B");
+
+    assertTrue(asm.contains(InvokeinterfaceTable.CLASS_TABLE_LABEL + ":\nDEFW 0\nDEFW 0\nDEFW 0\nDEFW "
+        + tableA + "\nDEFW " + tableB + "\nDEFW 0\n"));
+    assertFalse(asm.contains(LabelAndFrameUtils.makeLabelForInterfaceTable("test.X") + ':'));
+
+    // records of methods sharing a selector have different interface method ids
+    assertTrue(asm.contains(tableA + ": DEFW 12\nDEFW " + methodLabel("test.A", "i") + frame + "100\n"
+        + "DEFW " + methodLabel("test.A", "j") + frame + "101\n"));
+    assertTrue(asm.contains(tableB + ": DEFW 6\nDEFW " + methodLabel("test.B", "k") + frame + "102\n"));
+
+    assertTrue(asm.contains(LabelAndFrameUtils.makeLabelForInterfaceMethodSelector(METHOD_I) + ": EQU 0\n"));
+    assertTrue(asm.contains(LabelAndFrameUtils.makeLabelForInterfaceMethodSelector(METHOD_J) + ": EQU 6\n"));
+    assertTrue(asm.contains(LabelAndFrameUtils.makeLabelForInterfaceMethodSelector(METHOD_K) + ": EQU 0\n"));
+  }
+}
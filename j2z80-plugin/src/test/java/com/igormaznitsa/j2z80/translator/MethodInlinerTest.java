@@ -0,0 +1,118 @@
+/*
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80.translator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import com.igormaznitsa.j2z80.ClassContext;
+import com.igormaznitsa.j2z80.ids.ClassMethodInfo;
+import java.util.Arrays;
+import org.apache.bcel.Const;
+import org.apache.bcel.classfile.Method;
+import org.apache.bcel.generic.GOTO;
+import org.apache.bcel.generic.IINC;
+import org.apache.bcel.generic.ILOAD;
+import org.apache.bcel.generic.INVOKESTATIC;
+import org.apache.bcel.generic.IRETURN;
+import org.apache.bcel.generic.ISTORE;
+import org.apache.bcel.generic.Instruction;
+import org.apache.bcel.generic.InstructionConst;
+import org.apache.bcel.generic.InstructionList;
+import org.apache.bcel.generic.InvokeInstruction;
+import org.apache.bcel.generic.SIPUSH;
+import org.apache.bcel.generic.Type;
+import org.junit.Test;
+
+public class MethodInlinerTest extends AbstractTestBasedOnClassMethods {
+
+  private MethodInliner makeInliner(final int budget) {
+    return new MethodInliner(this.makeMethodContext(), mock(ClassContext.class), budget);
+  }
+
+  // static int inc(int a) { a++; return a; }
+  private ClassMethodInfo addIncrement() {
+    final InstructionList code = new InstructionList();
+    code.append(new IINC(0, 1));
+    code.append(new ILOAD(0));
+    code.append(new IRETURN());
+    return this.addMethod("inc", Const.ACC_STATIC, new Type[] {Type.INT}, Type.INT, code);
+  }
+
+  // static int caller() { int x = 1000; return inc(x); }
+  private ClassMethodInfo addCaller() {
+    final InstructionList code = new InstructionList();
+    code.append(new SIPUSH((short) 1000));
+    code.append(new ISTORE(0));
+    code.append(new ILOAD(0));
+    code.append(new INVOKESTATIC(this.addMethodRef("inc", "(I)I")));
+    code.append(new IRETURN());
+    return this.addMethod("caller", Const.ACC_STATIC, Type.NO_ARGS, Type.INT, code);
+  }
+
+  @Test
+  public void testCandidate() {
+    final Method increment = this.addIncrement().getMethodInfo();
+    assertTrue(MethodInliner.isCandidate(increment, 16));
+    assertFalse(MethodInliner.isCandidate(increment, 4));
+    assertFalse(MethodInliner.isCandidate(this.addCaller().getMethodInfo(), 16));
+
+    final InstructionList longCode = new InstructionList();
+    longCode.append(InstructionConst.LCONST_1);
+    longCode.append(InstructionConst.LRETURN);
+    assertFalse(MethodInliner.isCandidate(
+        this.addMethod("getLong", Const.ACC_STATIC, Type.NO_ARGS, Type.LONG, longCode).getMethodInfo(), 16));
+  }
+
+  @Test
+  public void testBudget() {
+    assertEquals(16, MethodInliner.calculateBudget(16, false));
+    assertEquals(MethodInliner.SIZE_BUDGET, MethodInliner.calculateBudget(16, true));
+    assertEquals(0, MethodInliner.calculateBudget(0, true));
+  }
+
+  @Test
+  public void testCallIsReplacedByBody() {
+    this.addIncrement();
+    final ClassMethodInfo caller = this.addCaller();
+
+    assertEquals(1, this.makeInliner(16).inline(caller));
+
+    final Instruction[] code = instructions(caller);
+    assertFalse(Arrays.stream(code).anyMatch(x -> x instanceof InvokeInstruction));
+    assertFalse(Arrays.stream(code).anyMatch(x -> x instanceof GOTO));
+    assertEquals(2, caller.getMethodGen().getMaxLocals());
+
+    // the argument is stored into the local placed after locals of the caller
+    assertEquals(1, ((ISTORE) code[3]).getIndex());
+    assertEquals(1, ((IINC) code[4]).getIndex());
+    assertEquals(1, ((ILOAD) code[5]).getIndex());
+    assertTrue(code[6] instanceof IRETURN);
+    assertEquals(7, code.length);
+  }
+
+  @Test
+  public void testCallIsNotInlinedForSmallBudget() {
+    this.addIncrement();
+    final ClassMethodInfo caller = this.addCaller();
+
+    assertEquals(0, this.makeInliner(4).inline(caller));
+    assertTrue(instructions(caller)[3] instanceof INVOKESTATIC);
+    assertEquals(1, caller.getMethodGen().getMaxLocals());
+  }
+}
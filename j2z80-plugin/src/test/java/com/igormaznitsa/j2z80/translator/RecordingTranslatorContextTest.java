@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80.translator;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.igormaznitsa.j2z80.ClassContext;
+import com.igormaznitsa.j2z80.TranslatorContext;
+import com.igormaznitsa.j2z80.ids.ClassID;
+import org.apache.bcel.classfile.ConstantInteger;
+import org.apache.bcel.classfile.ConstantUtf8;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+public class RecordingTranslatorContextTest {
+
+  @Test
+  public void testRegistrationsAreNotPassedToParentBeforeReplay() {
+    final TranslatorContext parent = mock(TranslatorContext.class);
+    final RecordingTranslatorContext recorder = new RecordingTranslatorContext(parent);
+
+    recorder.registerAdditionsUsedByClass(String.class);
+    recorder.registerConstantPoolItem("label", new ConstantInteger(1));
+
+    verify(parent, never()).registerAdditionsUsedByClass(String.class);
+    verify(parent, never()).registerConstantPoolItem("label", new ConstantInteger(1));
+  }
+
+  @Test
+  public void testReplayKeepsOrder() {
+    final TranslatorContext parent = mock(TranslatorContext.class);
+    final TranslatorContext target = mock(TranslatorContext.class);
+    final RecordingTranslatorContext recorder = new RecordingTranslatorContext(parent);
+
+    final ConstantInteger first = new ConstantInteger(1);
+    final ConstantUtf8 second = new ConstantUtf8("hello");
+
+    recorder.registerAdditionsUsedByClass(Integer.class);
+    recorder.registerAdditionsUsedByClass(String.class);
+    recorder.registerAdditionsUsedByClass(Integer.class);
+    recorder.registerConstantPoolItem("first", first);
+    recorder.registerConstantPoolItem("second", second);
+
+    recorder.replay(target);
+
+    final InOrder order = inOrder(target);
+    order.verify(target).registerAdditionsUsedByClass(Integer.class);
+    order.verify(target).registerAdditionsUsedByClass(String.class);
+    order.verify(target).registerConstantPoolItem("first", first);
+    order.verify(target).registerConstantPoolItem("second", second);
+  }
+
+  @Test
+  public void testCastCheckRegistrationReturnsUidFromParentContext() {
+    final TranslatorContext parent = mock(TranslatorContext.class);
+    final ClassContext classContext = mock(ClassContext.class);
+    final ClassID classId = new ClassID("some.Class");
+    when(parent.getClassContext()).thenReturn(classContext);
+    when(classContext.findClassUID(classId)).thenReturn(42);
+
+    final RecordingTranslatorContext recorder = new RecordingTranslatorContext(parent);
+    assertEquals(Integer.valueOf(42), recorder.registerClassForCastCheck(classId));
+    verify(parent, never()).registerClassForCastCheck(classId);
+  }
+}
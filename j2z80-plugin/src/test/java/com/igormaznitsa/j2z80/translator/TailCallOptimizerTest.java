@@ -0,0 +1,127 @@
+/*
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80.translator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.igormaznitsa.j2z80.ids.ClassMethodInfo;
+import java.util.Arrays;
+import org.apache.bcel.Const;
+import org.apache.bcel.generic.GOTO;
+import org.apache.bcel.generic.IFEQ;
+import org.apache.bcel.generic.IINC;
+import org.apache.bcel.generic.ILOAD;
+import org.apache.bcel.generic.INVOKESTATIC;
+import org.apache.bcel.generic.ISTORE;
+import org.apache.bcel.generic.Instruction;
+import org.apache.bcel.generic.InstructionConst;
+import org.apache.bcel.generic.InstructionHandle;
+import org.apache.bcel.generic.InstructionList;
+import org.apache.bcel.generic.InvokeInstruction;
+import org.apache.bcel.generic.Type;
+import org.junit.Test;
+
+public class TailCallOptimizerTest extends AbstractTestBasedOnClassMethods {
+
+  // static int count(int n, int acc) { if (n == 0) return acc; return count(n - 1, acc + 1); }
+  private ClassMethodInfo addCount() {
+    final InstructionList code = new InstructionList();
+    final InstructionHandle start = code.append(new ILOAD(0));
+    final InstructionHandle recursion = code.append(new ILOAD(0));
+    code.append(InstructionConst.ICONST_1);
+    code.append(InstructionConst.ISUB);
+    code.append(new ILOAD(1));
+    code.append(InstructionConst.ICONST_1);
+    code.append(InstructionConst.IADD);
+    code.append(new INVOKESTATIC(this.addMethodRef("count", "(II)I")));
+    code.append(InstructionConst.IRETURN);
+    final InstructionHandle exit = code.append(new ILOAD(1));
+    code.append(InstructionConst.IRETURN);
+    code.insert(recursion, new IFEQ(exit));
+    assertSame(start, code.getStart());
+    return this.addMethod("count", Const.ACC_STATIC, new Type[] {Type.INT, Type.INT}, Type.INT, code);
+  }
+
+  // static int twice(int n) { return 2 * other(n); }
+  private ClassMethodInfo addTwice() {
+    final InstructionList code = new InstructionList();
+    code.append(InstructionConst.ICONST_2);
+    code.append(new ILOAD(0));
+    code.append(new INVOKESTATIC(this.addMethodRef("other", "(I)I")));
+    code.append(InstructionConst.IMUL);
+    code.append(InstructionConst.IRETURN);
+    return this.addMethod("twice", Const.ACC_STATIC, new Type[] {Type.INT}, Type.INT, code);
+  }
+
+  // static int under(int n) { 2; return other(n); } with a value left under the argument
+  private ClassMethodInfo addCallWithValueUnderArguments() {
+    final InstructionList code = new InstructionList();
+    code.append(InstructionConst.ICONST_2);
+    code.append(new ILOAD(0));
+    code.append(new INVOKESTATIC(this.addMethodRef("other", "(I)I")));
+    code.append(InstructionConst.IRETURN);
+    return this.addMethod("under", Const.ACC_STATIC, new Type[] {Type.INT}, Type.INT, code);
+  }
+
+  // static int forward(int n) { n++; return other(n); }
+  private ClassMethodInfo addForward() {
+    final InstructionList code = new InstructionList();
+    code.append(new IINC(0, 1));
+    code.append(new ILOAD(0));
+    code.append(new INVOKESTATIC(this.addMethodRef("other", "(I)I")));
+    code.append(InstructionConst.IRETURN);
+    return this.addMethod("forward", Const.ACC_STATIC, new Type[] {Type.INT}, Type.INT, code);
+  }
+
+  @Test
+  public void testTailCallsAreFound() {
+    final ClassMethodInfo forward = this.addForward();
+    assertEquals(1, TailCallOptimizer.findTailCalls(forward.getMethodGen()).size());
+    assertEquals(1, TailCallOptimizer.findTailCalls(this.addCount().getMethodGen()).size());
+
+    assertTrue(TailCallOptimizer.findTailCalls(this.addTwice().getMethodGen()).isEmpty());
+    assertTrue(TailCallOptimizer.findTailCalls(
+        this.addCallWithValueUnderArguments().getMethodGen()).isEmpty());
+  }
+
+  @Test
+  public void testSelfTailCallIsReplacedByJump() {
+    final ClassMethodInfo count = this.addCount();
+    final InstructionHandle start = count.getMethodGen().getInstructionList().getStart();
+
+    assertEquals(1, TailCallOptimizer.eliminateSelfTailCalls(count));
+
+    final Instruction[] code = instructions(count);
+    assertFalse(Arrays.stream(code).anyMatch(x -> x instanceof InvokeInstruction));
+
+    // arguments are stored in reverse order and the method is restarted
+    assertEquals(1, ((ISTORE) code[8]).getIndex());
+    assertEquals(0, ((ISTORE) code[9]).getIndex());
+    assertSame(start, ((GOTO) count.getMethodGen().getInstructionList().getInstructionHandles()[10]
+        .getInstruction()).getTarget());
+    assertEquals(2, count.getMethodGen().getMaxLocals());
+  }
+
+  @Test
+  public void testCallOfOtherMethodIsKept() {
+    final ClassMethodInfo forward = this.addForward();
+    assertEquals(0, TailCallOptimizer.eliminateSelfTailCalls(forward));
+    assertTrue(instructions(forward)[2] instanceof INVOKESTATIC);
+  }
+}
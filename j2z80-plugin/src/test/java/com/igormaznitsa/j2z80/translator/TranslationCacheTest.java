@@ -0,0 +1,214 @@
+/*
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80.translator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.igormaznitsa.j2z80.ClassContext;
+import com.igormaznitsa.j2z80.MethodContext;
+import com.igormaznitsa.j2z80.TranslatorContext;
+import com.igormaznitsa.j2z80.TranslatorLogger;
+import com.igormaznitsa.j2z80.ids.ClassID;
+import com.igormaznitsa.j2z80.ids.ClassMethodInfo;
+import com.igormaznitsa.j2z80.ids.MethodID;
+import com.igormaznitsa.j2z80.jvmprocessors.Processor_ILOAD;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import org.apache.bcel.Const;
+import org.apache.bcel.classfile.ConstantInteger;
+import org.apache.bcel.classfile.ConstantUtf8;
+import org.apache.bcel.classfile.Method;
+import org.apache.bcel.generic.ClassGen;
+import org.apache.bcel.generic.FieldGen;
+import org.apache.bcel.generic.InstructionConst;
+import org.apache.bcel.generic.InstructionList;
+import org.apache.bcel.generic.MethodGen;
+import org.apache.bcel.generic.Type;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TranslationCacheTest {
+
+  private static final String[] ASM = new String[] {"LD A,1", "RET"};
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static ClassGen makeClass() {
+    final ClassGen classGen =
+        new ClassGen("test.Cached", "java.lang.Object", "Cached.java", Const.ACC_PUBLIC,
+            new String[0]);
+    final InstructionList code = new InstructionList();
+    code.append(InstructionConst.RETURN);
+    final MethodGen methodGen =
+        new MethodGen(Const.ACC_PUBLIC | Const.ACC_STATIC, Type.VOID, Type.NO_ARGS, new String[0],
+            "test", classGen.getClassName(), code, classGen.getConstantPool());
+    methodGen.setMaxLocals();
+    methodGen.setMaxStack();
+    classGen.addMethod(methodGen.getMethod());
+    return classGen;
+  }
+
+  private static TranslatorContext makeContext() {
+    final TranslatorContext context = mock(TranslatorContext.class);
+    when(context.getClassContext()).thenReturn(mock(ClassContext.class));
+    when(context.getMethodContext()).thenReturn(mock(MethodContext.class));
+    return context;
+  }
+
+  private TranslationCache makeCache(final String environment) {
+    return new TranslationCache(this.folder.getRoot().toPath(), environment, null,
+        mock(TranslatorLogger.class));
+  }
+
+  private void putAndFlush(final ClassMethodInfo method, final RecordingTranslatorContext recorder)
+      throws Exception {
+    final TranslationCache cache = this.makeCache("env");
+    assertNull(cache.find(method, recorder));
+    cache.put(method, ASM, recorder);
+    cache.flush();
+  }
+
+  @Test
+  public void testRestoreMethodWithRegistrations() throws Exception {
+    final ClassGen classGen = makeClass();
+    final ClassMethodInfo method = new ClassMethodInfo(classGen, classGen.getMethods()[0]);
+
+    final MethodID interfaceMethod =
+        new MethodID("test.Iface", "call", Type.INT, new Type[] {Type.INT, Type.SHORT});
+    final RecordingTranslatorContext recorder = new RecordingTranslatorContext(makeContext());
+    recorder.registerAdditionsUsedByClass(Processor_ILOAD.class);
+    recorder.registerClassForCastCheck(new ClassID("test.Other"));
+    recorder.registerInterfaceMethodForINVOKEINTERFACE(interfaceMethod);
+    recorder.registerConstantPoolItem("int", new ConstantInteger(1234));
+    recorder.registerConstantPoolItem("str", new ConstantUtf8("hello"));
+    this.putAndFlush(method, recorder);
+
+    final TranslatorContext target = makeContext();
+    final TranslationCache cache = this.makeCache("env");
+    assertArrayEquals(ASM, cache.find(method, target));
+    assertEquals(1, cache.getHits());
+
+    verify(target).registerAdditionsUsedByClass(Processor_ILOAD.class);
+    verify(target).registerClassForCastCheck(new ClassID("test.Other"));
+    verify(target).registerInterfaceMethodForINVOKEINTERFACE(interfaceMethod);
+    verify(target).registerConstantPoolItem("int", new ConstantInteger(1234));
+    verify(target).registerConstantPoolItem("str", new ConstantUtf8("hello"));
+  }
+
+  @Test
+  public void testChangedClassIsNotTakenFromCache() throws Exception {
+    final ClassGen classGen = makeClass();
+    this.putAndFlush(new ClassMethodInfo(classGen, classGen.getMethods()[0]),
+        new RecordingTranslatorContext(makeContext()));
+
+    final ClassGen changedClassGen = makeClass();
+    changedClassGen.addField(
+        new FieldGen(Const.ACC_PUBLIC, Type.INT, "field", changedClassGen.getConstantPool())
+            .getField());
+    final TranslationCache cache = this.makeCache("env");
+    assertNull(cache.find(new ClassMethodInfo(changedClassGen, changedClassGen.getMethods()[0]),
+        makeContext()));
+    assertEquals(1, cache.getMisses());
+
+    cache.flush();
+    final File[] files = this.folder.getRoot().listFiles();
+    assertEquals("Stale record must be removed", 0, files == null ? -1 : files.length);
+  }
+
+  @Test
+  public void testChangedEnvironmentIsNotTakenFromCache() throws Exception {
+    final ClassGen classGen = makeClass();
+    final ClassMethodInfo method = new ClassMethodInfo(classGen, classGen.getMethods()[0]);
+    this.putAndFlush(method, new RecordingTranslatorContext(makeContext()));
+
+    assertNull(this.makeCache("other env").find(method, makeContext()));
+    assertArrayEquals(ASM, this.makeCache("env").find(method, makeContext()));
+  }
+
+  @Test
+  public void testEnvironmentDependsOnClassStructure() {
+    final ClassGen classGen = makeClass();
+    final MethodContext methods = mock(MethodContext.class);
+    final String environment =
+        TranslationCache.makeEnvironment(Collections.singletonList(classGen), methods, 0, "BASIC");
+
+    assertEquals(environment, TranslationCache.makeEnvironment(
+        Collections.singletonList(makeClass()), methods, 0, "BASIC"));
+    assertNotEquals(environment,
+        TranslationCache.makeEnvironment(Collections.singletonList(classGen), methods, 0, "NONE"));
+
+    classGen.addField(
+        new FieldGen(Const.ACC_PUBLIC, Type.INT, "field", classGen.getConstantPool()).getField());
+    assertNotEquals(environment,
+        TranslationCache.makeEnvironment(Collections.singletonList(classGen), methods, 0, "BASIC"));
+  }
+
+  @Test
+  public void testEnvironmentDependsOnLocalsOfProcessedMethods() {
+    final ClassGen classGen = makeClass();
+    final Method method = classGen.getMethods()[0];
+    final MethodContext methods = mock(MethodContext.class);
+    final String environment = TranslationCache.makeEnvironment(
+        Collections.singletonList(classGen), methods, 0, "BASIC");
+
+    // the callee gets more local variables after inlining but its class file is the same
+    final MethodGen inlined =
+        new MethodGen(method, classGen.getClassName(), classGen.getConstantPool());
+    inlined.setMaxLocals(method.getCode().getMaxLocals() + 2);
+    when(methods.findMethodInfo(new MethodID(classGen, method)))
+        .thenReturn(new ClassMethodInfo(classGen, method, inlined));
+
+    assertNotEquals(environment, TranslationCache.makeEnvironment(
+        Collections.singletonList(classGen), methods, 0, "BASIC"));
+  }
+
+  @Test
+  public void testChecksumDependsOnTranslatorFiles() throws Exception {
+    final Path classes = this.folder.newFolder("classes").toPath();
+    final Path template = Files.createDirectories(classes.resolve("processors")).resolve("ADD.a80");
+    Files.write(template, "POP HL".getBytes(StandardCharsets.UTF_8));
+    final Path jar = this.folder.newFile("api.jar").toPath();
+    Files.write(jar, new byte[] {1, 2, 3});
+
+    final String checksum = TranslationCache.makeChecksum(classes, jar);
+    assertEquals(checksum, TranslationCache.makeChecksum(classes, jar));
+
+    Files.write(template, "POP DE".getBytes(StandardCharsets.UTF_8));
+    final String changedTemplate = TranslationCache.makeChecksum(classes, jar);
+    assertNotEquals(checksum, changedTemplate);
+
+    Files.write(jar, new byte[] {1, 2, 4});
+    assertNotEquals(changedTemplate, TranslationCache.makeChecksum(classes, jar));
+
+    final TranslatorLogger logger = mock(TranslatorLogger.class);
+    assertEquals(TranslationCache.getTranslatorChecksum(logger),
+        TranslationCache.getTranslatorChecksum(logger));
+    verify(logger, never()).logWarning(anyString());
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80.translator.jar;
+
+import static com.igormaznitsa.j2z80.TranslatorContext.Z80_MAIN_METHOD_NAME;
+import static com.igormaznitsa.j2z80.TranslatorContext.Z80_MAIN_METHOD_SIGNATURE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.igormaznitsa.j2z80.TranslatorContext;
+import com.igormaznitsa.j2z80.TranslatorLogger;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import org.apache.bcel.Const;
+import org.apache.bcel.generic.ClassGen;
+import org.apache.bcel.generic.InstructionConst;
+import org.apache.bcel.generic.InstructionFactory;
+import org.apache.bcel.generic.InstructionList;
+import org.apache.bcel.generic.MethodGen;
+import org.apache.bcel.generic.Type;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ZClassPathTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static ClassGen makeMainClass() {
+    final ClassGen classGen =
+        new ClassGen("test.Main", "java.lang.Object", "Main.java", Const.ACC_PUBLIC, new String[0]);
+    final InstructionFactory factory = new InstructionFactory(classGen);
+    final InstructionList code = new InstructionList();
+    code.append(factory.createNew("test.Used"));
+    code.append(InstructionConst.POP);
+    code.append(InstructionConst.RETURN);
+    final MethodGen methodGen =
+        new MethodGen(Const.ACC_PUBLIC | Const.ACC_STATIC, Type.VOID, Type.NO_ARGS, new String[0],
+            Z80_MAIN_METHOD_NAME, classGen.getClassName(), code, classGen.getConstantPool());
+    methodGen.setMaxLocals();
+    methodGen.setMaxStack();
+    classGen.addMethod(methodGen.getMethod());
+    return classGen;
+  }
+
+  private static TranslatorContext makeContext() {
+    final TranslatorContext context = mock(TranslatorContext.class);
+    when(context.getLogger()).thenReturn(mock(TranslatorLogger.class));
+    return context;
+  }
+
+  private Path makeJar() throws Exception {
+    final File jar = this.folder.newFile("test.jar");
+    try (final JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+      for (final ClassGen classGen : Arrays.asList(
+          makeMainClass(),
+          new ClassGen("test.Used", "java.lang.Object", "Used.java", Const.ACC_PUBLIC,
+              new String[0]),
+          // enums are not supported so that the class can't be loaded
+          new ClassGen("test.Unused", "java.lang.Object", "Unused.java",
+              Const.ACC_PUBLIC | Const.ACC_ENUM, new String[0]))) {
+        out.putNextEntry(new JarEntry(classGen.getClassName().replace('.', '/') + ".class"));
+        out.write(classGen.getJavaClass().getBytes());
+        out.closeEntry();
+      }
+    }
+    return jar.toPath();
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void testEagerModeValidatesAllClasses() throws Exception {
+    new ZParsedJar(this.makeJar());
+  }
+
+  @Test
+  public void testLazyModeLoadsOnlyReachableClasses() throws Exception {
+    final ZParsedJar jar = new ZParsedJar(this.makeJar(), true);
+    assertEquals(new HashSet<>(Arrays.asList("test.Main", "test.Used", "test.Unused")),
+        jar.getClassNames());
+
+    final ZClassPath classPath =
+        new ZClassPath(makeContext(), Collections.singletonList(jar));
+    assertNotNull(
+        classPath.findMainClass(null, Z80_MAIN_METHOD_NAME, Z80_MAIN_METHOD_SIGNATURE));
+    assertEquals("test.Main", classPath.getMainClass().getClassName());
+    assertNotNull(classPath.getMainMethod());
+
+    assertEquals(new HashSet<>(Arrays.asList("test.Main", "test.Used")),
+        classPath.getAllClasses().keySet());
+    assertNull(classPath.findClassForName("test.Unused"));
+  }
+
+  @Test
+  public void testLazyModeFindsMainClassForName() throws Exception {
+    final ZClassPath classPath = new ZClassPath(makeContext(),
+        Collections.singletonList(new ZParsedJar(this.makeJar(), true)));
+    assertNotNull(
+        classPath.findMainClass("test.Main", Z80_MAIN_METHOD_NAME, Z80_MAIN_METHOD_SIGNATURE));
+    assertEquals(new HashSet<>(Arrays.asList("test.Main", "test.Used")),
+        classPath.getAllClasses().keySet());
+  }
+}
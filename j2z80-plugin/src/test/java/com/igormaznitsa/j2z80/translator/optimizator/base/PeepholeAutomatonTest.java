@@ -0,0 +1,125 @@
+/*
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80.translator.optimizator.base;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import com.igormaznitsa.z80asm.asmcommands.ParsedAsmLine;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class PeepholeAutomatonTest {
+
+  private static List<ParsedAsmLine> parse(final String... lines) {
+    final List<ParsedAsmLine> result = new ArrayList<>();
+    for (final String s : lines) {
+      result.add(new ParsedAsmLine(s));
+    }
+    return result;
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRuleMustShrink() {
+    new PeepholeRule(singletonList("LD A,0"), singletonList("XOR A"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDuplicatedCaseIsError() {
+    new PeepholeAutomaton(asList(new PeepholeRule(asList("PUSH BC", "POP BC"), emptyList()),
+        new PeepholeRule(asList("PUSH BC", "POP BC"), singletonList("NOP"))));
+  }
+
+  @Test
+  public void testWindow() {
+    final PeepholeAutomaton automaton =
+        new PeepholeAutomaton(asList(new PeepholeRule(asList("PUSH BC", "POP BC"), emptyList()),
+            new PeepholeRule(asList("PUSH BC", "CLRLOC", "POP BC"), singletonList("CLRLOC"))));
+    assertEquals(3, automaton.getWindow());
+  }
+
+  @Test
+  public void testCustomRule() {
+    final PeepholeAutomaton automaton = new PeepholeAutomaton(singletonList(
+        new PeepholeRule(asList("PUSH HL", "POP BC"), asList("LD B,H"))));
+    assertEquals(parse("LD B,H", "HALT"), automaton.rewrite(parse("PUSH HL", "POP BC", "HALT")));
+  }
+
+  @Test
+  public void testReplacementLinesAreNotShared() {
+    final PeepholeAutomaton automaton = new PeepholeAutomaton(singletonList(
+        new PeepholeRule(asList("PUSH HL", "POP BC"), asList("LD B,H"))));
+    final List<ParsedAsmLine> result =
+        automaton.rewrite(parse("PUSH HL", "POP BC", "HALT", "PUSH HL", "POP BC"));
+    assertEquals(parse("LD B,H", "HALT", "LD B,H"), result);
+
+    result.get(0).setLeadingComments("; first");
+    assertNotSame(result.get(0), result.get(2));
+    assertArrayEquals(new String[0], result.get(2).getLeadingComments());
+  }
+
+  @Test
+  public void testCommentsOfRemovedLinesAreKept() {
+    final PeepholeAutomaton automaton =
+        new PeepholeAutomaton(asList(new PeepholeRule(asList("PUSH BC", "POP BC"), emptyList()),
+            new PeepholeRule(asList("PUSH HL", "POP BC"), asList("LD B,H"))));
+    final List<ParsedAsmLine> source = parse("PUSH HL", "POP BC", "PUSH BC", "POP BC", "HALT");
+    source.get(0).setLeadingComments("; push");
+    source.get(1).setLeadingComments("; pop");
+    source.get(2).setLeadingComments("; removed");
+    source.get(4).setLeadingComments("; halt");
+
+    final List<ParsedAsmLine> result = automaton.rewrite(source);
+    assertEquals(parse("LD B,H", "HALT"), result);
+    assertArrayEquals(new String[] {"; push", "; pop"}, result.get(0).getLeadingComments());
+    assertArrayEquals(new String[] {"; removed", "; halt"}, result.get(1).getLeadingComments());
+    assertArrayEquals(new String[] {"; halt"}, source.get(4).getLeadingComments());
+  }
+
+  @Test
+  public void testRewriteTriggersNewMatch() {
+    final PeepholeAutomaton automaton =
+        new PeepholeAutomaton(asList(new PeepholeRule(asList("PUSH BC", "POP BC"), emptyList()),
+            new PeepholeRule(asList("PUSH BC", "CLRLOC", "POP BC"), singletonList("CLRLOC"))));
+    assertEquals(parse("CLRLOC", "HALT"),
+        automaton.rewrite(parse("PUSH BC", "PUSH BC", "CLRLOC", "POP BC", "POP BC", "HALT")));
+  }
+
+  @Test
+  public void testLongSourceIsProcessedFast() {
+    final ReplacePatterns patterns = new ReplacePatterns();
+    final List<ParsedAsmLine> source = new ArrayList<>();
+    final int pairs = 50000;
+    for (int i = 0; i < pairs; i++) {
+      source.add(new ParsedAsmLine("PUSH BC"));
+    }
+    for (int i = 0; i < pairs; i++) {
+      source.add(new ParsedAsmLine("POP BC"));
+    }
+    source.add(new ParsedAsmLine("HALT"));
+
+    final long start = System.currentTimeMillis();
+    final List<ParsedAsmLine> result = patterns.optimizeAsmText(null, source);
+    assertEquals(parse("HALT"), result);
+    assertTrue(System.currentTimeMillis() - start < 5000L);
+  }
+}
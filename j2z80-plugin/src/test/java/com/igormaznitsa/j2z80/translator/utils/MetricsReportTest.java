@@ -0,0 +1,59 @@
+/*
+ * Copyright 2019 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.j2z80.translator.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.igormaznitsa.j2z80.ids.ClassMethodInfo;
+import org.junit.Test;
+
+public class MetricsReportTest {
+
+  @Test
+  public void testEmpty() {
+    assertEquals("{\n  \"phases\": [],\n  \"methods\": []\n}\n", new MetricsReport().toJson());
+  }
+
+  @Test
+  public void testPhasesAndMethods() {
+    final ClassMethodInfo method = mock(ClassMethodInfo.class);
+    when(method.getCanonicalClassName()).thenReturn("test.Main");
+    when(method.getMethodName()).thenReturn("mainz");
+    when(method.getMethodSignature()).thenReturn("()V");
+
+    final MetricsReport report = new MetricsReport();
+    report.onPhase("a \"b\"\\c\n", 10L, -1L, 3, -1);
+    report.onMethod(method, 20L, 30L, 4);
+
+    assertEquals("{\n  \"phases\": [\n"
+        + "    {\"name\":\"a \\\"b\\\"\\\\c\\u000a\",\"wallTimeNanos\":10,\"allocatedBytes\":-1,"
+        + "\"lines\":3,\"bytes\":-1}\n  ],\n"
+        + "  \"methods\": [\n"
+        + "    {\"class\":\"test.Main\",\"method\":\"mainz\",\"signature\":\"()V\","
+        + "\"wallTimeNanos\":20,\"allocatedBytes\":30,\"lines\":4}\n  ]\n}\n", report.toJson());
+  }
+
+  @Test
+  public void testMeter() {
+    final MetricsMeter meter = MetricsMeter.start();
+    final long[] allocated = new long[1024];
+    assertTrue(allocated.length > 0 && meter.getWallTimeNanos() >= 0L);
+    assertTrue(meter.getAllocatedBytes() == -1L || meter.getAllocatedBytes() >= 8192L);
+  }
+}
@@ -15,12 +15,26 @@
  */
 package com.igormaznitsa.z80asm;
 
+import com.igormaznitsa.j2z80.utils.Utils;
+import com.igormaznitsa.z80asm.asmcommands.ParsedAsmLine;
+import com.igormaznitsa.z80asm.exceptions.AsmTranslationException;
+import com.igormaznitsa.j2z80.TranslationMetricsListener;
 import org.junit.Test;
+import org.mockito.InOrder;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Locale;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 
 public class Z80AsmTest {
 
@@ -89,6 +103,119 @@ public class Z80AsmTest {
     final byte[] generated = asm.process();
   }
 
+  @Test
+  public void testParsedLines() throws Exception {
+    final File file = getFile("equ.asm");
+    final ParsedAsmLine[] parsed = Arrays.stream(Utils.readTextFileAsStringArray(file, "UTF-8"))
+        .map(ParsedAsmLine::new).toArray(ParsedAsmLine[]::new);
+    final String[] text = Arrays.stream(parsed).map(ParsedAsmLine::toString).toArray(String[]::new);
+
+    final Z80Asm asm = new Z80Asm(parsed);
+    assertEquals(asText(new Z80Asm(file).process()), asText(asm.process()));
+    assertEquals(0x4000, asm.findLabelAddress("label4#").intValue());
+    assertEquals(0x1234, asm.findLabelAddress("label2#").intValue());
+    assertEquals("Parsed lines must not be changed",
+        Arrays.asList(text), Arrays.stream(parsed).map(ParsedAsmLine::toString).collect(Collectors.toList()));
+  }
+
+  @Test
+  public void testLocalLabelsForParsedLines() throws Exception {
+    final File file = getFile("local.asm");
+    final ParsedAsmLine[] parsed = Arrays.stream(Utils.readTextFileAsStringArray(file, "UTF-8"))
+        .map(ParsedAsmLine::new).toArray(ParsedAsmLine[]::new);
+
+    assertEquals("10 04 74 65 73 74 00 00 74 65 73 74 10 F9", asText(new Z80Asm(parsed).process()));
+  }
+
+  @Test
+  public void testOnePassGivesSameCode() throws Exception {
+    for (final String name : Arrays.asList("only_label.asm", "hello_world.asm", "local.asm", "multilabeled.asm", "equ.asm", "localatend.asm")) {
+      final File file = getFile(name);
+      final Z80Asm onePass = new Z80Asm(file);
+      onePass.setOnePassMode(true);
+      final Z80Asm twoPasses = new Z80Asm(file);
+
+      assertEquals(name, asText(twoPasses.process()), asText(onePass.process()));
+      assertEquals(name, 1, onePass.getPasses());
+      assertEquals(name, 2, twoPasses.getPasses());
+      assertEquals(name, twoPasses.getPC(), onePass.getPC());
+      assertEquals(name, twoPasses.getEntryPoint(), onePass.getEntryPoint());
+    }
+  }
+
+  @Test
+  public void testOnePassFixups() throws Exception {
+    final Z80Asm asm = new Z80Asm(Arrays.asList(
+        " org #8000",
+        " ld a,(ix+offset)",
+        " jr next",
+        " djnz next",
+        " jp next",
+        "@loop: ld (iy-offset),a",
+        " jr @loop",
+        " ent next",
+        "next: ret",
+        "offset: equ shift+1",
+        "shift: equ 4"));
+    asm.setOnePassMode(true);
+
+    assertEquals("DD 7E 05 18 0A 10 08 C3 0F 80 FD 77 FB 18 FB C9", asText(asm.process()));
+    assertEquals(1, asm.getPasses());
+    assertEquals(0x800F, asm.getEntryPoint());
+    assertEquals(5, asm.findLabelAddress("offset").intValue());
+  }
+
+  @Test
+  public void testOnePassFallsBackForForwardOrg() throws Exception {
+    final List<String> source = Arrays.asList(
+        " org start",
+        " jp start",
+        "start: equ #100");
+    final Z80Asm asm = new Z80Asm(source);
+    asm.setOnePassMode(true);
+
+    assertEquals(asText(new Z80Asm(source).process()), asText(asm.process()));
+    assertEquals(2, asm.getPasses());
+    assertEquals(0x100, asm.getDataOffset());
+  }
+
+  @Test
+  public void testMetricsOfPasses() {
+    final List<String> source = Arrays.asList(
+        " org start",
+        " jp start",
+        "start: equ #100");
+
+    final TranslationMetricsListener listener = mock(TranslationMetricsListener.class);
+    final Z80Asm onePass = new Z80Asm(Arrays.asList(" org #8000", " jp next", "next: ret"));
+    onePass.setOnePassMode(true);
+    onePass.setMetricsListener(listener);
+    onePass.process();
+    verify(listener).onPhase(eq(Z80Asm.PHASE_ONE_PASS), anyLong(), anyLong(), eq(3), eq(4));
+    verifyNoMoreInteractions(listener);
+
+    final TranslationMetricsListener fallbackListener = mock(TranslationMetricsListener.class);
+    final Z80Asm fallback = new Z80Asm(source);
+    fallback.setOnePassMode(true);
+    fallback.setMetricsListener(fallbackListener);
+    fallback.process();
+    final InOrder order = inOrder(fallbackListener);
+    order.verify(fallbackListener)
+        .onPhase(eq(Z80Asm.PHASE_REJECTED_ONE_PASS), anyLong(), anyLong(), eq(3), eq(-1));
+    order.verify(fallbackListener)
+        .onPhase(eq(Z80Asm.PHASE_FIRST_PASS), anyLong(), anyLong(), eq(3), eq(-1));
+    order.verify(fallbackListener)
+        .onPhase(eq(Z80Asm.PHASE_SECOND_PASS), anyLong(), anyLong(), eq(3), eq(3));
+    verifyNoMoreInteractions(fallbackListener);
+  }
+
+  @Test(expected = AsmTranslationException.class)
+  public void testOnePassUnknownLabel() {
+    final Z80Asm asm = new Z80Asm(Arrays.asList(" jp unknown"));
+    asm.setOnePassMode(true);
+    asm.process();
+  }
+
   private File getFile(final String name) throws Exception {
     return new File(this.getClass().getResource(name).toURI());
   }
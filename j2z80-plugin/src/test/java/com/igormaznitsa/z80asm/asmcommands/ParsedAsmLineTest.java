@@ -123,6 +123,23 @@ public class ParsedAsmLineTest {
     assertEquals("lAbEl: LD A,(HL)", new ParsedAsmLine("   lAbEl:   lD a        ,    (  Hl) ; comment ").toString());
   }
 
+  @Test
+  public void testComment() {
+    assertNull(new ParsedAsmLine("  LD A,1  ").getComment());
+    assertEquals("; comment", new ParsedAsmLine("  ; comment ").getComment());
+    assertEquals("; load \"a;b\"", new ParsedAsmLine("LD A,\";\" ; load \"a;b\"").getComment());
+    assertEquals("lAbEl: LD A,(HL) ; comment",
+        new ParsedAsmLine("   lAbEl:   lD a        ,    (  Hl) ; comment ").toAsmText());
+    assertEquals("; comment", new ParsedAsmLine("; comment").toAsmText());
+
+    final ParsedAsmLine line = new ParsedAsmLine("NOP ; end");
+    line.setLeadingComments("; first", "; second");
+    final ParsedAsmLine copy = line.withLabel("label");
+    assertEquals("label: NOP ; end", copy.toAsmText());
+    assertArrayEquals(new String[] {"; first", "; second"}, copy.getLeadingComments());
+    assertEquals(new ParsedAsmLine("NOP"), line);
+  }
+
   @Test
   public void testNonParsingConstructor() {
     assertEquals("", new ParsedAsmLine(null, null).toString());